@@ -0,0 +1,81 @@
+// Download load test: concurrent downloads grow in steps, the summary shows at which
+// concurrency latency climbs and requests start to fail. Run it against both thread modes
+// (VIRTUAL_THREADS_ENABLED=false/true, see README): virtual threads stay off by default until
+// such a comparison has been recorded.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 load-test/downloads.js
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const USERNAME = __ENV.USERNAME || 'loadtest';
+const PASSWORD = __ENV.PASSWORD || 'loadtest1';
+const FILE_MB = Number(__ENV.FILE_MB || 8);
+const MAX_VUS = Number(__ENV.MAX_VUS || 800);
+const FILE_NAME = `load-${FILE_MB}mb.bin`;
+
+const downloadedBytes = new Counter('downloaded_bytes');
+
+export const options = {
+    scenarios: {
+        downloads: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '30s', target: MAX_VUS / 8 },
+                { duration: '30s', target: MAX_VUS / 4 },
+                { duration: '30s', target: MAX_VUS / 2 },
+                { duration: '1m', target: MAX_VUS },
+                { duration: '30s', target: 0 },
+            ],
+            gracefulRampDown: '30s',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        'http_req_duration{name:download}': ['p(95)<10000'],
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const JSON_PARAMS = { headers: { 'Content-Type': 'application/json' } };
+
+function signIn() {
+    const res = http.post(`${BASE_URL}/api/auth/sign-in`,
+        JSON.stringify({ username: USERNAME, password: PASSWORD }), JSON_PARAMS);
+    check(res, { 'signed in': (r) => r.status === 200 });
+}
+
+export function setup() {
+    // 409 when the user is left from a previous run
+    http.post(`${BASE_URL}/api/auth/sign-up`,
+        JSON.stringify({ username: USERNAME, password: PASSWORD }), JSON_PARAMS);
+    signIn();
+    const exists = http.get(`${BASE_URL}/api/resource?path=${FILE_NAME}`);
+    if (exists.status === 404) {
+        const content = 'x'.repeat(FILE_MB * 1024 * 1024);
+        const res = http.post(`${BASE_URL}/api/resource?path=`,
+            { object: http.file(content, FILE_NAME, 'application/octet-stream') });
+        check(res, { 'file uploaded': (r) => r.status === 201 });
+    }
+}
+
+let signedIn = false;
+
+export default function () {
+    // Every VU has its own cookie jar, so each one signs in once
+    if (!signedIn) {
+        signIn();
+        signedIn = true;
+    }
+    const res = http.get(`${BASE_URL}/api/resource/download?path=${FILE_NAME}`, {
+        tags: { name: 'download' },
+        responseType: 'binary',
+        timeout: '120s',
+    });
+    check(res, { 'downloaded': (r) => r.status === 200 && r.body.byteLength === FILE_MB * 1024 * 1024 });
+    if (res.body) {
+        downloadedBytes.add(res.body.byteLength);
+    }
+}
@@ -0,0 +1,216 @@
+package com.frostetsky.cloudstorage.benchmark;
+
+import com.frostetsky.cloudstorage.excepiton.InvalidUploadException;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
+import io.minio.Time;
+import io.minio.messages.Item;
+import io.minio.messages.Part;
+import okhttp3.Headers;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Storage holding its objects in memory, so that benchmarks measure the application code rather
+ * than the network. Writes are applied at once; the listing is parsed again on the first listing
+ * after a write, so read-only benchmarks keep listing prebuilt items.
+ */
+class InMemoryS3Service implements S3Service {
+
+    private final NavigableMap<String, byte[]> objects;
+    /** Parts received so far by upload id. */
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+    private volatile List<Item> listing;
+
+    InMemoryS3Service(Map<String, byte[]> objects) {
+        this.objects = new ConcurrentSkipListMap<>(objects);
+        this.listing = Listings.items(this.objects);
+    }
+
+    @Override
+    public boolean checkBaseBucketExists() {
+        return true;
+    }
+
+    @Override
+    public void createBaseBucket() {
+    }
+
+    @Override
+    public List<Item> getObjectsInDirectory(String path, boolean recursive) {
+        return streamObjectsInDirectory(path, null, recursive).toList();
+    }
+
+    @Override
+    public Stream<Item> streamObjectsInDirectory(String path, String startAfter, boolean recursive) {
+        return listing().stream()
+                .filter(item -> item.objectName().startsWith(path))
+                .filter(item -> startAfter == null || item.objectName().compareTo(startAfter) > 0)
+                .filter(item -> recursive || item.objectName().indexOf('/', path.length()) < 0
+                        || item.objectName().indexOf('/', path.length()) == item.objectName().length() - 1);
+    }
+
+    @Override
+    public ObjectWriteResponse createEmptyDir(String path) {
+        return put(path, new byte[0]);
+    }
+
+    @Override
+    public ObjectWriteResponse putObject(String path, MultipartFile file) {
+        try {
+            return put(path, file.getBytes());
+        } catch (IOException e) {
+            throw new ResourceServiceException("Failed to upload file", e);
+        }
+    }
+
+    @Override
+    public ObjectWriteResponse putObject(String path, InputStream stream, String contentType) {
+        try {
+            return put(path, stream.readAllBytes());
+        } catch (IOException e) {
+            throw new ResourceServiceException("Failed to upload file", e);
+        }
+    }
+
+    @Override
+    public void deleteObjects(List<String> objectsToDelete) {
+        objectsToDelete.forEach(objects::remove);
+        listing = null;
+    }
+
+    @Override
+    public List<String> tryDeleteObjects(List<String> objectsToDelete) {
+        deleteObjects(objectsToDelete);
+        return List.of();
+    }
+
+    @Override
+    public boolean checkExistObject(String path) {
+        return objects.containsKey(path);
+    }
+
+    @Override
+    public InputStream downloadObject(String path) {
+        return new ByteArrayInputStream(get(path));
+    }
+
+    @Override
+    public InputStream downloadObject(String path, long offset, long length) {
+        return new ByteArrayInputStream(get(path), (int) offset, (int) length);
+    }
+
+    @Override
+    public ObjectWriteResponse copyObject(String pathFrom, String pathTo) {
+        return put(pathTo, get(pathFrom));
+    }
+
+    @Override
+    public StatObjectResponse getObjectInfo(String path) {
+        byte[] content = get(path);
+        Headers headers = new Headers.Builder()
+                .add("Content-Length", String.valueOf(content.length))
+                .add("ETag", "\"" + Listings.etag(content) + "\"")
+                .add("Last-Modified", Time.HTTP_HEADER_DATE_FORMAT.format(Listings.LAST_MODIFIED))
+                .build();
+        return new StatObjectResponse(headers, Listings.BUCKET, null, path);
+    }
+
+    @Override
+    public String resolveContentKey(String path) {
+        return path;
+    }
+
+    @Override
+    public void evictObjectInfo(String path) {
+    }
+
+    @Override
+    public String createMultipartUpload(String path) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new MultipartUpload(path, new ConcurrentSkipListMap<>()));
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String path, String uploadId, int partNumber, byte[] data) {
+        findUpload(path, uploadId).parts().put(partNumber, data.clone());
+        return Listings.etag(data);
+    }
+
+    /**
+     * Joins the listed parts in order. The object gets the MD5 of its content as ETag, like every
+     * other object here, so that stats and listings report the ETag the completion returned.
+     */
+    @Override
+    public ObjectWriteResponse completeMultipartUpload(String path, String uploadId, List<Part> parts) {
+        MultipartUpload upload = findUpload(path, uploadId);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        List<Part> sorted = new ArrayList<>(parts);
+        sorted.sort(Comparator.comparingInt(Part::partNumber));
+        for (Part part : sorted) {
+            byte[] data = upload.parts().get(part.partNumber());
+            if (data == null || !Listings.etag(data).equals(part.etag().replace("\"", ""))) {
+                throw new InvalidUploadException("Invalid part: " + part.partNumber());
+            }
+            content.writeBytes(data);
+        }
+        uploads.remove(uploadId);
+        return put(path, content.toByteArray());
+    }
+
+    @Override
+    public void abortMultipartUpload(String path, String uploadId) {
+        uploads.remove(uploadId);
+    }
+
+    private ObjectWriteResponse put(String path, byte[] content) {
+        objects.put(path, content);
+        listing = null;
+        return new ObjectWriteResponse(Headers.of(), Listings.BUCKET, null, path, Listings.etag(content), null);
+    }
+
+    private byte[] get(String path) {
+        byte[] content = objects.get(path);
+        if (content == null) {
+            throw new ResourceNotFoundException("Resource not found");
+        }
+        return content;
+    }
+
+    private MultipartUpload findUpload(String path, String uploadId) {
+        MultipartUpload upload = uploads.get(uploadId);
+        if (upload == null || !upload.path().equals(path)) {
+            throw new ResourceNotFoundException("Upload not found");
+        }
+        return upload;
+    }
+
+    private List<Item> listing() {
+        List<Item> items = listing;
+        if (items == null) {
+            items = Listings.items(objects);
+            listing = items;
+        }
+        return items;
+    }
+
+    private record MultipartUpload(String path, NavigableMap<Integer, byte[]> parts) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.frostetsky.cloudstorage.benchmark;
+
+import io.minio.Xml;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Item;
+import io.minio.messages.ListBucketResultV2;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds listings the way the MinIO client does, by parsing a {@code ListObjectsV2} response,
+ * so benchmarks work with real {@link Item} instances.
+ */
+final class Listings {
+
+    static final String BASE_PATH = "user-1-files/";
+    static final String BUCKET = "user-files";
+    /** Modification time of every listed object, as written into the listing. */
+    static final ZonedDateTime LAST_MODIFIED = ZonedDateTime.of(2024, 5, 17, 10, 15, 30, 0, ZoneOffset.UTC);
+    private static final String EMPTY_ETAG = "d41d8cd98f00b204e9800998ecf8427e";
+
+    private Listings() {
+    }
+
+    /**
+     * Object keys of a user tree: {@code count} files spread over nested directories, together
+     * with the directory markers.
+     */
+    static List<String> userTreeKeys(int count) {
+        List<String> keys = new ArrayList<>(count + count / 50);
+        for (int i = 0; i < count; i++) {
+            String directory = BASE_PATH + "projects/project-" + (i / 1000) + "/docs-" + (i / 50 % 20) + "/";
+            if (i % 50 == 0) {
+                keys.add(directory);
+            }
+            keys.add(directory + "report-" + i + ".pdf");
+        }
+        return keys;
+    }
+
+    static List<Item> items(List<String> keys) {
+        return parse(keys.stream()
+                .map(key -> new Listed(key, key.endsWith("/") ? 0L : 4096L, EMPTY_ETAG))
+                .toList());
+    }
+
+    static List<Item> items(Map<String, byte[]> objects) {
+        return parse(objects.entrySet().stream()
+                .map(object -> new Listed(object.getKey(), object.getValue().length, etag(object.getValue())))
+                .toList());
+    }
+
+    /**
+     * MD5 of the content in hex, the ETag S3 gives an object uploaded in one part.
+     */
+    static String etag(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Item> parse(List<Listed> objects) {
+        StringBuilder xml = new StringBuilder(objects.size() * 200)
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(BUCKET).append("</Name><Prefix></Prefix><KeyCount>").append(objects.size())
+                .append("</KeyCount><MaxKeys>").append(objects.size())
+                .append("</MaxKeys><IsTruncated>false</IsTruncated>");
+        for (Listed object : objects) {
+            xml.append("<Contents><Key>").append(object.key())
+                    .append("</Key><LastModified>2024-05-17T10:15:30.000Z</LastModified>")
+                    .append("<ETag>\"").append(object.etag()).append("\"</ETag><Size>").append(object.size())
+                    .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        xml.append("</ListBucketResult>");
+        try {
+            return new ArrayList<>(Xml.unmarshal(ListBucketResultV2.class, xml.toString()).contents());
+        } catch (XmlParserException e) {
+            throw new IllegalStateException("Failed to build listing", e);
+        }
+    }
+
+    private record Listed(String key, long size, String etag) {
+    }
+}
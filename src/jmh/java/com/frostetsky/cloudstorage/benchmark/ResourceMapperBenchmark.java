@@ -0,0 +1,42 @@
+package com.frostetsky.cloudstorage.benchmark;
+
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.mapper.ResourceMapper;
+import io.minio.messages.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a whole directory listing to API responses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ResourceMapperBenchmark {
+
+    @Param({"10000", "100000"})
+    public int items;
+
+    private final ResourceMapper resourceMapper = new ResourceMapper();
+    private List<Item> listing;
+
+    @Setup
+    public void setUp() {
+        listing = Listings.items(Listings.userTreeKeys(items));
+    }
+
+    @Benchmark
+    public List<ResourceResponse> toDto() {
+        List<ResourceResponse> responses = new ArrayList<>(listing.size());
+        for (Item item : listing) {
+            responses.add(resourceMapper.toDto(item));
+        }
+        return responses;
+    }
+}
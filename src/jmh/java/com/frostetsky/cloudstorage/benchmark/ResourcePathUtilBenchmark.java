@@ -0,0 +1,43 @@
+package com.frostetsky.cloudstorage.benchmark;
+
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Path helpers called for every listed object and on every request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourcePathUtilBenchmark {
+
+    @Param({"user-1-files/file.txt", "user-1-files/projects/project-7/docs-3/report-7150.pdf",
+            "projects/project-7/docs-3/"})
+    public String path;
+
+    @Benchmark
+    public String removeBasePathPrefix() {
+        return ResourcePathUtil.removeBasePathPrefix(path);
+    }
+
+    @Benchmark
+    public String extractResourceName() {
+        return ResourcePathUtil.extractResourceName(path);
+    }
+
+    @Benchmark
+    public String extractParentDirectoryPath() {
+        return ResourcePathUtil.extractParentDirectoryPath(path);
+    }
+
+    @Benchmark
+    public List<String> getParentDirectories() {
+        return ResourcePathUtil.getParentDirectories(path);
+    }
+}
@@ -0,0 +1,113 @@
+package com.frostetsky.cloudstorage.benchmark;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.service.impl.DirectoryZipWriter;
+import com.frostetsky.cloudstorage.util.zip.StoredZipArchive;
+import io.minio.messages.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Directory download as a ZIP archive, compressed ({@link DirectoryZipWriter}) and stored
+ * ({@link StoredZipArchive}), from an in-memory storage into a discarding stream.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ZipArchiveBenchmark {
+
+    private static final String FOLDER_PATH = Listings.BASE_PATH + "projects/";
+
+    @Param({"200"})
+    public int files;
+
+    @Param({"65536", "1048576"})
+    public int fileSize;
+
+    private ExecutorService storageTaskExecutor;
+    private ForkJoinPool zipCompressionPool;
+    private InMemoryS3Service s3Service;
+    private DirectoryZipWriter directoryZipWriter;
+    private StoredZipArchive storedZipArchive;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Map<String, byte[]> objects = new HashMap<>();
+        objects.put(FOLDER_PATH, new byte[0]);
+        for (int i = 0; i < files; i++) {
+            objects.put(FOLDER_PATH + "docs-" + (i % 10) + "/report-" + i + ".txt", content(random));
+        }
+        s3Service = new InMemoryS3Service(objects);
+
+        StorageProperties storageProperties = new StorageProperties();
+        storageTaskExecutor = Executors.newFixedThreadPool(storageProperties.getExecutor().getPoolSize());
+        zipCompressionPool = new ForkJoinPool(storageProperties.getDownload().getCompressionParallelism());
+        directoryZipWriter = new DirectoryZipWriter(s3Service, storageProperties, storageTaskExecutor,
+                zipCompressionPool);
+
+        List<Item> items = s3Service.getObjectsInDirectory(FOLDER_PATH, true);
+        storedZipArchive = new StoredZipArchive(items.stream()
+                .filter(item -> !item.objectName().endsWith("/"))
+                .map(item -> new StoredZipArchive.Entry(item.objectName().substring(FOLDER_PATH.length()),
+                        item.objectName(), item.size(), crc(objects.get(item.objectName())), item.lastModified()))
+                .toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        storageTaskExecutor.shutdown();
+        zipCompressionPool.shutdown();
+    }
+
+    @Benchmark
+    public void deflate() throws IOException {
+        directoryZipWriter.write(FOLDER_PATH, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void stored() throws IOException {
+        storedZipArchive.write(0, storedZipArchive.length(), OutputStream.nullOutputStream(),
+                (entry, offset, count, out) -> {
+                    try (InputStream stream = s3Service.downloadObject(entry.source(), offset, count)) {
+                        stream.transferTo(out);
+                    }
+                });
+    }
+
+    /**
+     * Text-like content that compresses to roughly a third, close to typical documents.
+     */
+    private byte[] content(Random random) {
+        String[] words = {"storage", "directory", "archive", "report", "quarter", "budget", "invoice", "summary"};
+        StringBuilder text = new StringBuilder(fileSize);
+        while (text.length() < fileSize) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(1000)).append(' ');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        return Arrays.copyOf(bytes, fileSize);
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
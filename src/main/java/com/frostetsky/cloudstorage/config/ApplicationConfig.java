@@ -1,13 +1,19 @@
 package com.frostetsky.cloudstorage.config;
 
 import com.frostetsky.cloudstorage.constants.MinioProperties;
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.service.impl.MultipartMinioClient;
+import com.frostetsky.cloudstorage.service.impl.PresignMinioClient;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
-@EnableConfigurationProperties(MinioProperties.class)
+@EnableConfigurationProperties({MinioProperties.class, StorageProperties.class})
 public class ApplicationConfig {
 
     @Bean
@@ -17,4 +23,24 @@ public class ApplicationConfig {
                 .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
                 .build();
     }
+
+    @Bean
+    public MultipartMinioClient multipartMinioClient(MinioProperties minioProperties) {
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(minioProperties.getUrl())
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .build());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.storage.presign", name = "enabled", havingValue = "true")
+    public PresignMinioClient presignMinioClient(MinioProperties minioProperties, StorageProperties storageProperties) {
+        StorageProperties.Presign presign = storageProperties.getPresign();
+        String endpoint = StringUtils.defaultIfBlank(presign.getPublicUrl(), minioProperties.getUrl());
+        return new PresignMinioClient(MinioClient.builder()
+                .endpoint(endpoint)
+                .region(presign.getRegion())
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .build(), endpoint);
+    }
 }
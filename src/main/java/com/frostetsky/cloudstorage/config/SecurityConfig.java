@@ -1,9 +1,18 @@
 package com.frostetsky.cloudstorage.config;
 
+import com.frostetsky.cloudstorage.constants.ApiConstants;
+import com.frostetsky.cloudstorage.constants.AuthProperties;
 import com.frostetsky.cloudstorage.constants.CorsProperties;
+import com.frostetsky.cloudstorage.excepiton.InvalidTokenException;
+import com.frostetsky.cloudstorage.security.TokenAuthenticationFilter;
+import com.frostetsky.cloudstorage.service.TokenService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -14,6 +23,8 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.web.authentication.logout.HttpStatusReturningLogoutSuccessHandler;
 import org.springframework.session.data.redis.config.annotation.web.http.EnableRedisHttpSession;
 import org.springframework.web.cors.CorsConfiguration;
@@ -22,25 +33,56 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.List;
 
+@Slf4j
 @Configuration
 @EnableWebSecurity
 @EnableRedisHttpSession
-@EnableConfigurationProperties(CorsProperties.class)
+@EnableConfigurationProperties({CorsProperties.class, AuthProperties.class})
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, CorsProperties corsProperties) throws Exception {
-        return http
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   CorsProperties corsProperties,
+                                                   AuthProperties authProperties,
+                                                   ObjectProvider<TokenService> tokenService,
+                                                   Environment environment) throws Exception {
+        http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource(corsProperties)))
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/sign-in", "/api/auth/sign-up").permitAll()
+                        .requestMatchers("/api/auth/sign-in", "/api/auth/sign-up", "/api/auth/refresh").permitAll()
                         .requestMatchers("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                        .requestMatchers(EndpointRequest.to("health")).permitAll()
+                        .requestMatchers(prometheusOnManagementPort(environment)).permitAll()
                         .anyRequest().authenticated())
+                .formLogin(AbstractHttpConfigurer::disable);
+        if (authProperties.getMode() == AuthProperties.Mode.TOKEN) {
+            configureTokenAuthentication(http, tokenService.getObject());
+        } else {
+            configureSessionAuthentication(http);
+        }
+        return http.build();
+    }
+
+    /**
+     * Scraping needs no credentials only on a separate management port, which is not published
+     * outside the deployment; served on the application port, the endpoint requires authentication.
+     */
+    private RequestMatcher prometheusOnManagementPort(Environment environment) {
+        Integer managementPort = environment.getProperty("management.server.port", Integer.class);
+        Integer serverPort = environment.getProperty("server.port", Integer.class, 8080);
+        if (managementPort == null || managementPort <= 0 || managementPort.equals(serverPort)) {
+            return request -> false;
+        }
+        RequestMatcher prometheus = EndpointRequest.to("prometheus");
+        return request -> request.getLocalPort() == managementPort && prometheus.matches(request);
+    }
+
+    private void configureSessionAuthentication(HttpSecurity http) throws Exception {
+        http
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED)
                         .sessionFixation().migrateSession())
-                .formLogin(AbstractHttpConfigurer::disable)
                 .logout(logout -> logout
                         .logoutUrl("/api/auth/sign-out")
                         .logoutSuccessHandler(new HttpStatusReturningLogoutSuccessHandler(HttpStatus.NO_CONTENT))
@@ -51,8 +93,33 @@ public class SecurityConfig {
                             request.getSession().invalidate();
                             response.setHeader("Set-Cookie", "");
                             response.sendError(HttpStatus.UNAUTHORIZED.value(), "Unauthorized");
-                        }))
-                .build();
+                        }));
+    }
+
+    /**
+     * Requests are authenticated by their bearer token alone: no session is created or read, so an
+     * authenticated request makes no network call. Signing out revokes the sign-in of the token.
+     */
+    private void configureTokenAuthentication(HttpSecurity http, TokenService tokenService) throws Exception {
+        http
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+                .logout(logout -> logout
+                        .logoutUrl("/api/auth/sign-out")
+                        .addLogoutHandler((request, response, authentication) -> {
+                            String token = TokenAuthenticationFilter.resolveToken(request);
+                            if (token != null) {
+                                try {
+                                    tokenService.revoke(token);
+                                } catch (InvalidTokenException e) {
+                                    log.debug("Sign-out with invalid token: message={}", e.getMessage());
+                                }
+                            }
+                        })
+                        .logoutSuccessHandler(new HttpStatusReturningLogoutSuccessHandler(HttpStatus.NO_CONTENT)))
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint((request, response, authException) ->
+                                response.sendError(HttpStatus.UNAUTHORIZED.value(), "Unauthorized")));
     }
 
     @Bean
@@ -62,7 +129,7 @@ public class SecurityConfig {
 
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("Authorization", "Cache-Control", "Content-Type"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setExposedHeaders(List.of("Authorization", ApiConstants.NEXT_CURSOR_HEADER));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
@@ -0,0 +1,67 @@
+package com.frostetsky.cloudstorage.config;
+
+import com.frostetsky.cloudstorage.constants.SessionProperties;
+import com.frostetsky.cloudstorage.session.CompactSessionSerializer;
+import com.frostetsky.cloudstorage.session.NearCacheSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.session.data.redis.RedisSessionRepository;
+import org.springframework.session.data.redis.config.ConfigureNotifyKeyspaceEventsAction;
+
+@Configuration
+@EnableConfigurationProperties(SessionProperties.class)
+public class SessionConfig {
+
+    /**
+     * Picked up by name by {@code @EnableRedisHttpSession} in place of JDK serialization.
+     */
+    @Bean
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
+        return new CompactSessionSerializer();
+    }
+
+    /**
+     * Not needed in token mode, where requests do not read sessions.
+     */
+    @Configuration
+    @ConditionalOnExpression("${app.session.near-cache.enabled:true} and '${app.auth.mode:session}'.equalsIgnoreCase('session')")
+    static class NearCacheConfig {
+
+        /**
+         * Takes the place of the Redis repository in the session filter; the Redis repository stays
+         * a bean of its own and is what this one reads through.
+         */
+        @Bean
+        @Primary
+        public NearCacheSessionRepository nearCacheSessionRepository(RedisSessionRepository sessionRepository,
+                                                                     RedisSerializer<Object> springSessionDefaultRedisSerializer,
+                                                                     SessionProperties sessionProperties,
+                                                                     MeterRegistry meterRegistry) {
+            return new NearCacheSessionRepository(sessionRepository, springSessionDefaultRedisSerializer,
+                    sessionProperties.getNearCache(), meterRegistry);
+        }
+
+        @Bean
+        public RedisMessageListenerContainer sessionEventListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                           NearCacheSessionRepository nearCacheSessionRepository,
+                                                                           SessionProperties sessionProperties) {
+            if (sessionProperties.getNearCache().isConfigureKeyspaceEvents()) {
+                try (RedisConnection connection = connectionFactory.getConnection()) {
+                    new ConfigureNotifyKeyspaceEventsAction().configure(connection);
+                }
+            }
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            container.addMessageListener(nearCacheSessionRepository, NearCacheSessionRepository.INVALIDATING_EVENTS);
+            return container;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.frostetsky.cloudstorage.config;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.util.StorageCallContext;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+@EnableScheduling
+public class StorageConfig {
+
+    /**
+     * Executor for storage calls that a single request fans out (copies, uploads, prefetches).
+     * Each operation bounds its own parallelism, the pool size caps the total.
+     * <p>
+     * With {@code spring.threads.virtual.enabled} every call runs on its own virtual thread and the
+     * pool size becomes a concurrency limit: submitters wait for a free slot instead of queueing.
+     */
+    @Bean
+    public AsyncTaskExecutor storageTaskExecutor(StorageProperties storageProperties,
+                                                 Environment environment,
+                                                 TaskDecorator storageCallContextTaskDecorator) {
+        int poolSize = storageProperties.getExecutor().getPoolSize();
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("storage-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize);
+            executor.setTaskDecorator(storageCallContextTaskDecorator);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setTaskDecorator(storageCallContextTaskDecorator);
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("storage-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * Runs background jobs, at most {@code app.storage.jobs.parallelism} at a time. Jobs fan their
+     * storage calls out to the storage executor, so they must not hold its threads themselves.
+     */
+    @Bean
+    public AsyncTaskExecutor jobTaskExecutor(StorageProperties storageProperties) {
+        int parallelism = storageProperties.getJobs().getParallelism();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("job-");
+        return executor;
+    }
+
+    /**
+     * Writes the archives of download jobs, one thread per running job, while the job thread
+     * uploads what is written.
+     */
+    @Bean
+    public AsyncTaskExecutor jobArchiveExecutor(StorageProperties storageProperties) {
+        int parallelism = storageProperties.getJobs().getParallelism();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("job-archive-");
+        return executor;
+    }
+
+    /**
+     * Reconciles the resource index of users that have not been indexed yet, in the background of
+     * the request that found them so.
+     */
+    @Bean
+    public AsyncTaskExecutor indexTaskExecutor(StorageProperties storageProperties) {
+        int parallelism = storageProperties.getIndex().getReconcileParallelism();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("index-");
+        return executor;
+    }
+
+    /**
+     * Carries the {@link StorageCallContext} of the submitting request to executor threads. Spring Boot
+     * also applies it to the application task executor that writes streaming responses.
+     */
+    @Bean
+    public TaskDecorator storageCallContextTaskDecorator() {
+        return StorageCallContext::wrap;
+    }
+
+    /**
+     * CPU-bound pool for compressing blocks of ZIP downloads, kept apart from the storage
+     * executor so that compression does not hold threads that wait on storage.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool zipCompressionPool(StorageProperties storageProperties) {
+        return new ForkJoinPool(storageProperties.getDownload().getCompressionParallelism());
+    }
+}
@@ -0,0 +1,29 @@
+package com.frostetsky.cloudstorage.config;
+
+import com.frostetsky.cloudstorage.controller.interceptor.StorageCallInterceptor;
+import com.frostetsky.cloudstorage.controller.resolver.QueryParamArgumentResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new QueryParamArgumentResolver());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StorageCallInterceptor(meterRegistry));
+    }
+}
@@ -0,0 +1,17 @@
+package com.frostetsky.cloudstorage.constants;
+
+/** Constants shared by REST controllers. */
+public final class ApiConstants {
+
+    private ApiConstants() {
+    }
+
+    /** Response header with the cursor of the next page; absent on the last page. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /** Page size used when a client does not pass {@code limit}. */
+    public static final int DEFAULT_PAGE_LIMIT = 100;
+
+    /** Largest page size a client may request. */
+    public static final int MAX_PAGE_LIMIT = 1000;
+}
@@ -0,0 +1,32 @@
+package com.frostetsky.cloudstorage.constants;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.auth")
+public class AuthProperties {
+
+    /** How requests are authenticated: a Redis-backed session cookie or signed bearer tokens. */
+    private Mode mode = Mode.SESSION;
+    private Token token = new Token();
+
+    public enum Mode {
+        SESSION,
+        TOKEN
+    }
+
+    @Data
+    public static class Token {
+        /** HMAC-SHA256 key, at least 32 bytes; required in token mode and shared by all nodes. */
+        private String secret;
+        private Duration accessTtl = Duration.ofMinutes(15);
+        private Duration refreshTtl = Duration.ofDays(30);
+        /** How often a node reloads the sign-outs of other nodes; a revoked token lives at most this long there. */
+        private Duration denyListRefreshInterval = Duration.ofSeconds(5);
+        /** How often revocations of expired tokens are deleted. */
+        private Duration denyListCleanupInterval = Duration.ofHours(1);
+    }
+}
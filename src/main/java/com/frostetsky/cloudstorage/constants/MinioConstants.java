@@ -26,12 +26,27 @@ public final class MinioConstants {
     /** {@code -1} means auto part size for multipart uploads. */
     public static final int PART_SIZE = -1;
 
+    /** Part size for uploads of unknown length; S3 requires at least 5MB per part. */
+    public static final long STREAM_PART_SIZE = 10L * 1024 * 1024;
+
     /** Empty content for creating "directory marker" objects. */
     public static final ByteArrayInputStream EMPTY_DIR_BYTEARRAY_STREAM =
             new ByteArrayInputStream(new byte[0]);
 
     /** Size of empty content. */
     public static final long EMPTY_DIR_SIZE = 0L;
+
+    /** Maximum number of keys S3 accepts in one multi-object delete request. */
+    public static final int DELETE_BATCH_SIZE = 1000;
+
+    /** Prefix of deduplicated content: {@code blobs/<first two hash chars>/<sha256>}. */
+    public static final String BLOB_PREFIX = "blobs/";
+
+    /** Prefix for streamed uploads kept until their hash is known. */
+    public static final String BLOB_STAGING_PREFIX = "blobs/staging/";
+
+    /** Prefix of archives built by download jobs: {@code jobs/<job id>.zip}. */
+    public static final String JOB_RESULT_PREFIX = "jobs/";
 }
 
 
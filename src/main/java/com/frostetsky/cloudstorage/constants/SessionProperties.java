@@ -0,0 +1,27 @@
+package com.frostetsky.cloudstorage.constants;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.session")
+public class SessionProperties {
+
+    private NearCache nearCache = new NearCache();
+
+    @Data
+    public static class NearCache {
+        /** Serve recently read sessions from memory instead of Redis. */
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        /** How long a session read from Redis is reused; also how far its access time in Redis may lag. */
+        private Duration ttl = Duration.ofSeconds(5);
+        /**
+         * Enable the keyspace notifications the cache is invalidated by on startup; turn off where
+         * {@code CONFIG} is not allowed and set {@code notify-keyspace-events Egx} on the server instead.
+         */
+        private boolean configureKeyspaceEvents = true;
+    }
+}
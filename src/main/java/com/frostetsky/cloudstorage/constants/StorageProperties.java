@@ -0,0 +1,164 @@
+package com.frostetsky.cloudstorage.constants;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.storage")
+public class StorageProperties {
+
+    private Index index = new Index();
+    private Usage usage = new Usage();
+    private Dedup dedup = new Dedup();
+    private Executor executor = new Executor();
+    private Move move = new Move();
+    private Delete delete = new Delete();
+    private Upload upload = new Upload();
+    private ResumableUpload resumableUpload = new ResumableUpload();
+    private Presign presign = new Presign();
+    private Download download = new Download();
+    private Cache cache = new Cache();
+    private Jobs jobs = new Jobs();
+
+    @Data
+    public static class Index {
+        /** Fill the resource index from existing {@code user-<id>-files/} prefixes on startup. */
+        private boolean backfillOnStartup = false;
+        /** Users whose index one node reconciles with the storage at the same time. */
+        private int reconcileParallelism = 2;
+        /** How often pending changes of directory sizes and descendant counts are applied. */
+        private Duration rollupInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Usage {
+        /** Bytes one user may store; unlimited if not set. */
+        private DataSize quota;
+        /** How often the usage totals are recomputed from the resource index. */
+        private Duration reconcileInterval = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Dedup {
+        /**
+         * Store uploaded content once under its SHA-256 and keep zero-byte references at the user
+         * paths. Existing references are honoured either way.
+         */
+        private boolean enabled = false;
+        /** Content that lost its last reference is kept this long, so that a re-upload can reuse it. */
+        private Duration unreferencedTtl = Duration.ofHours(1);
+        /** How often unreferenced content is looked for. */
+        private Duration sweepInterval = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Executor {
+        /** Threads shared by all parallel storage operations; with virtual threads, calls in flight at once. */
+        private int poolSize = 32;
+    }
+
+    @Data
+    public static class Move {
+        /** Server-side copies one directory move keeps in flight. */
+        private int parallelism = 16;
+    }
+
+    @Data
+    public static class Delete {
+        /** Batch deletes of up to 1000 keys one directory delete keeps in flight while listing. */
+        private int parallelism = 4;
+    }
+
+    @Data
+    public static class Upload {
+        /** Files one upload request writes to storage at the same time. */
+        private int parallelism = 8;
+        /**
+         * Files all upload requests together write to storage at the same time; below the executor
+         * pool size, so that uploads leave threads to other storage operations.
+         */
+        private int maxConcurrent = 24;
+        /** Largest file the streaming upload accepts, checked while the file is read. */
+        private DataSize maxFileSize = DataSize.ofMegabytes(10);
+        /** Largest body the streaming upload accepts, checked while the body is read. */
+        private DataSize maxRequestSize = DataSize.ofGigabytes(1);
+    }
+
+    @Data
+    public static class ResumableUpload {
+        private DataSize maxFileSize = DataSize.ofGigabytes(10);
+        /** Size of every part but the last; S3 requires at least 5MB. */
+        private DataSize chunkSize = DataSize.ofMegabytes(8);
+        /** Sessions without a new part for this long are aborted by the sweeper. */
+        private Duration sessionTtl = Duration.ofHours(24);
+        /** How often idle sessions are looked for. */
+        private Duration sweepInterval = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Presign {
+        /** Hand out presigned storage URLs so that file bytes bypass the application. */
+        private boolean enabled = false;
+        /** Storage endpoint as reachable by clients; the MinIO URL of the application if empty. */
+        private String publicUrl;
+        /** Region the URLs are signed for, so that signing needs no request to the storage. */
+        private String region = "us-east-1";
+        private Duration expiry = Duration.ofMinutes(15);
+        /** Largest file a presigned upload form accepts, enforced by the storage; S3 allows 5GB per POST. */
+        private DataSize maxFileSize = DataSize.ofGigabytes(5);
+    }
+
+    @Data
+    public static class Download {
+        /** Objects a directory download fetches ahead of the entry it is writing. */
+        private int prefetchCount = 8;
+        /** Memory one directory download may hold in prefetched objects. */
+        private DataSize prefetchMemory = DataSize.ofMegabytes(32);
+        /** Larger objects are streamed when written instead of being prefetched. */
+        private DataSize prefetchMaxObjectSize = DataSize.ofMegabytes(4);
+        /** Threads compressing ZIP blocks, shared by all downloads. */
+        private int compressionParallelism = Runtime.getRuntime().availableProcessors();
+        /** Uncompressed size of a block compressed as one task. */
+        private DataSize compressionBlockSize = DataSize.ofKilobytes(128);
+        /** Deflate level, from 0 (store) to 9; -1 is the zlib default. */
+        private int compressionLevel = -1;
+        /** Objects a STORED download reads at the same time to compute missing checksums. */
+        private int checksumParallelism = 8;
+        /** Checksums of objects kept in memory for STORED downloads, by key and ETag. */
+        private long checksumCacheSize = 100_000;
+    }
+
+    @Data
+    public static class Cache {
+        /** Cache object stats in front of the storage. */
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        /** How long an existing object's stat is reused. */
+        private Duration ttl = Duration.ofSeconds(30);
+        /** How long a missing key is remembered as missing. */
+        private Duration negativeTtl = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Jobs {
+        /** Jobs one node runs at once. */
+        private int parallelism = 4;
+        /** Jobs one user may have running at once across all nodes. */
+        private int maxRunningPerUser = 2;
+        /** Jobs one user may have queued or running; more are rejected. */
+        private int maxActivePerUser = 16;
+        /** How often a node looks for queued jobs. */
+        private Duration pollInterval = Duration.ofSeconds(1);
+        /** How often a node saves the progress of its jobs and proves it is alive. */
+        private Duration heartbeatInterval = Duration.ofSeconds(5);
+        /** A running job whose heartbeat is older than this is taken over by another node. */
+        private Duration staleTimeout = Duration.ofMinutes(1);
+        /** How long finished jobs and their archives are kept. */
+        private Duration resultTtl = Duration.ofHours(24);
+        /** How often expired jobs are deleted. */
+        private Duration cleanupInterval = Duration.ofHours(1);
+    }
+}
@@ -5,7 +5,6 @@ import com.frostetsky.cloudstorage.service.AuthService;
 import com.frostetsky.cloudstorage.service.DirectoryService;
 import com.frostetsky.cloudstorage.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -29,19 +28,19 @@ public class AuthController {
                                                            HttpServletRequest request) {
         CreateUserResponse createUserResponse = userService.createUser(dto);
         directoryService.createBaseDirectory(dto.username());
-        authService.authenticateAndCreateSession(dto.username(), dto.password(), request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createUserResponse);
+        LoginUserResponse login = authService.signIn(dto.username(), dto.password(), request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(createUserResponse.withTokens(login));
     }
 
     @PostMapping("/sign-in")
     public ResponseEntity<LoginUserResponse> login(@RequestBody @Validated LoginUserRequest dto,
                                                    HttpServletRequest request) {
-        HttpSession existingSession = request.getSession(false);
-        if (existingSession != null) {
-            existingSession.invalidate();
-        }
-        authService.authenticateAndCreateSession(dto.username(), dto.password(), request);
-        return ResponseEntity.status(HttpStatus.OK).body(new LoginUserResponse(dto.username()));
+        LoginUserResponse login = authService.signIn(dto.username(), dto.password(), request);
+        return ResponseEntity.status(HttpStatus.OK).body(login);
+    }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginUserResponse> refresh(@RequestBody @Validated RefreshTokenRequest dto) {
+        return ResponseEntity.ok(authService.refresh(dto.refreshToken()));
     }
 }
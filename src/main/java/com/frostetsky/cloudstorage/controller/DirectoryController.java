@@ -1,9 +1,14 @@
 package com.frostetsky.cloudstorage.controller;
 
+import com.frostetsky.cloudstorage.constants.ApiConstants;
+import com.frostetsky.cloudstorage.dto.ResourcePageDto;
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
 import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.model.ResourcePath;
 import com.frostetsky.cloudstorage.service.DirectoryService;
 import com.frostetsky.cloudstorage.validation.Path;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -24,9 +29,25 @@ public class DirectoryController {
 
     @GetMapping()
     public ResponseEntity<List<ResourceResponse>> getDirectoryContent(@RequestParam @Path String path,
+                                                                      @RequestParam(required = false)
+                                                                      @Min(value = 1, message = "Лимит должен быть больше 0")
+                                                                      @Max(value = ApiConstants.MAX_PAGE_LIMIT,
+                                                                              message = "Лимит не может быть больше 1000")
+                                                                      Integer limit,
+                                                                      @RequestParam(required = false) String cursor,
                                                                       @AuthenticationPrincipal CustomUserDetails userDetails) {
-        List<ResourceResponse> files = directoryService.getDirectoryFiles(userDetails.getUser().getId(), path);
-        return ResponseEntity.status(HttpStatus.OK).body(files);
+        ResourcePath directory = ResourcePath.of(userDetails.getUser().getId(), path);
+        if (limit == null && cursor == null) {
+            List<ResourceResponse> files = directoryService.getDirectoryFiles(directory);
+            return ResponseEntity.status(HttpStatus.OK).body(files);
+        }
+        ResourcePageDto page = directoryService.getDirectoryFilesPage(directory,
+                limit == null ? ApiConstants.DEFAULT_PAGE_LIMIT : limit, cursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.nextCursor() != null) {
+            response.header(ApiConstants.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
     }
 
     @PostMapping()
@@ -35,7 +56,8 @@ public class DirectoryController {
                                                             @NotBlank(message = "Путь не может быть пустым")
                                                             String path,
                                                             @AuthenticationPrincipal CustomUserDetails userDetails) {
-        ResourceResponse directory = directoryService.createDirectory(userDetails.getUser().getId(), path);
+        ResourceResponse directory = directoryService.createDirectory(
+                ResourcePath.of(userDetails.getUser().getId(), path));
         return ResponseEntity.status(HttpStatus.CREATED).body(directory);
     }
 }
@@ -0,0 +1,89 @@
+package com.frostetsky.cloudstorage.controller;
+
+import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.dto.JobResponse;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.service.JobService;
+import com.frostetsky.cloudstorage.util.DownloadResponseUtil;
+import com.frostetsky.cloudstorage.validation.Path;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+
+/**
+ * Background jobs for large directories: {@code POST /api/jobs/delete}, {@code /move} and
+ * {@code /download} respond with 202 and the queued job, {@code GET /{id}} reports its status
+ * and progress and {@code GET /{id}/result} downloads the archive of a finished download job.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+@Validated
+public class JobController {
+
+    private final JobService jobService;
+
+    @PostMapping("/delete")
+    public ResponseEntity<JobResponse> submitDelete(@RequestParam
+                                                    @Path
+                                                    @NotBlank(message = "Путь не может быть пустым")
+                                                    String path,
+                                                    @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return toAcceptedResponse(jobService.submitDelete(toResourcePath(userDetails, path)));
+    }
+
+    @PostMapping("/move")
+    public ResponseEntity<JobResponse> submitMove(@RequestParam("from")
+                                                  @Path
+                                                  @NotBlank(message = "Путь From не может быть пустым")
+                                                  String pathFrom,
+                                                  @RequestParam("to")
+                                                  @Path
+                                                  @NotBlank(message = "Путь To не может быть пустым")
+                                                  String pathTo,
+                                                  @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return toAcceptedResponse(jobService.submitMove(toResourcePath(userDetails, pathFrom),
+                toResourcePath(userDetails, pathTo)));
+    }
+
+    @PostMapping("/download")
+    public ResponseEntity<JobResponse> submitDownload(@RequestParam
+                                                      @Path
+                                                      @NotBlank(message = "Путь не может быть пустым")
+                                                      String path,
+                                                      @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return toAcceptedResponse(jobService.submitDownload(toResourcePath(userDetails, path)));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobResponse> getJob(@PathVariable String id,
+                                              @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(jobService.getJob(userDetails.getUser().getId(), id));
+    }
+
+    @GetMapping("/{id}/result")
+    public ResponseEntity<StreamingResponseBody> downloadResult(@PathVariable String id,
+                                                                ServletWebRequest webRequest,
+                                                                @AuthenticationPrincipal CustomUserDetails userDetails) {
+        DownloadResultDto result = jobService.downloadResult(userDetails.getUser().getId(), id);
+        return DownloadResponseUtil.toResponse(result, webRequest);
+    }
+
+    private static ResponseEntity<JobResponse> toAcceptedResponse(JobResponse job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.id()))
+                .body(job);
+    }
+
+    private static ResourcePath toResourcePath(CustomUserDetails userDetails, String path) {
+        return ResourcePath.of(userDetails.getUser().getId(), path);
+    }
+}
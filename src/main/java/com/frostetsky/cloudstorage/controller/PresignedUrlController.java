@@ -0,0 +1,59 @@
+package com.frostetsky.cloudstorage.controller;
+
+import com.frostetsky.cloudstorage.dto.PresignedUrlResponse;
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.service.PresignedUrlService;
+import com.frostetsky.cloudstorage.validation.Path;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Presigned storage URLs, available when {@code app.storage.presign.enabled} is set:
+ * {@code GET /download} returns a URL and {@code POST /upload} a URL with form fields that the
+ * client uses directly with the storage, {@code POST /upload/complete} registers a file uploaded
+ * through such a form.
+ */
+@RestController
+@RequestMapping("/api/presigned")
+@RequiredArgsConstructor
+@Validated
+@ConditionalOnProperty(prefix = "app.storage.presign", name = "enabled", havingValue = "true")
+public class PresignedUrlController {
+
+    private final PresignedUrlService presignedUrlService;
+
+    @GetMapping("/download")
+    public ResponseEntity<PresignedUrlResponse> presignDownload(@RequestParam
+                                                                @Path
+                                                                @NotBlank(message = "Путь не может быть пустым")
+                                                                String path,
+                                                                @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(presignedUrlService.presignDownload(userDetails.getUser().getId(), path));
+    }
+
+    @PostMapping("/upload")
+    public ResponseEntity<PresignedUrlResponse> presignUpload(@RequestParam
+                                                              @Path
+                                                              @NotBlank(message = "Путь не может быть пустым")
+                                                              String path,
+                                                              @AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(presignedUrlService.presignUpload(userDetails.getUser().getId(), path));
+    }
+
+    @PostMapping("/upload/complete")
+    public ResponseEntity<ResourceResponse> completeUpload(@RequestParam
+                                                           @Path
+                                                           @NotBlank(message = "Путь не может быть пустым")
+                                                           String path,
+                                                           @AuthenticationPrincipal CustomUserDetails userDetails) {
+        ResourceResponse resource = presignedUrlService.completeUpload(userDetails.getUser().getId(), path);
+        return ResponseEntity.status(HttpStatus.CREATED).body(resource);
+    }
+}
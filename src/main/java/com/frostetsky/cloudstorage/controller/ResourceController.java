@@ -1,21 +1,31 @@
 package com.frostetsky.cloudstorage.controller;
 
+import com.frostetsky.cloudstorage.constants.ApiConstants;
+import com.frostetsky.cloudstorage.controller.resolver.QueryParam;
+import com.frostetsky.cloudstorage.dto.ArchiveMode;
+import com.frostetsky.cloudstorage.dto.DeleteResultDto;
 import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.dto.ResourcePageDto;
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadResultDto;
 import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.model.ResourcePath;
 import com.frostetsky.cloudstorage.service.ResourceService;
+import com.frostetsky.cloudstorage.util.DownloadResponseUtil;
 import com.frostetsky.cloudstorage.validation.File;
 import com.frostetsky.cloudstorage.validation.Path;
 import com.frostetsky.cloudstorage.validation.Query;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
@@ -32,39 +42,73 @@ public class ResourceController {
     @GetMapping()
     public ResponseEntity<ResourceResponse> getResourceInfo(@RequestParam @Path String path,
                                                             @AuthenticationPrincipal CustomUserDetails userDetails) {
-        ResourceResponse resource = resourceService.getResourceInfo(userDetails.getUser().getId(), path);
+        ResourceResponse resource = resourceService.getResourceInfo(toResourcePath(userDetails, path));
         return ResponseEntity.status(HttpStatus.OK).body(resource);
     }
 
+    /**
+     * Responds with 201 and the list of uploaded resources when every file was stored,
+     * otherwise with 207 and both the uploaded resources and the failed files.
+     */
     @PostMapping()
-    public ResponseEntity<List<ResourceResponse>> uploadResource(@RequestParam @Path String path,
-                                                                 @RequestParam("object") @File MultipartFile[] files,
-                                                                 @AuthenticationPrincipal CustomUserDetails userDetails) {
-        List<ResourceResponse> resources = resourceService.uploadResource(userDetails.getUser().getId(), path, files);
-        return ResponseEntity.status(HttpStatus.CREATED).body(resources);
+    public ResponseEntity<?> uploadResource(@RequestParam @Path String path,
+                                            @RequestParam("object") @File MultipartFile[] files,
+                                            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        UploadResultDto result = resourceService.uploadResource(toResourcePath(userDetails, path), files);
+        return toUploadResponse(result);
+    }
+
+    /**
+     * Same as {@link #uploadResource}, but the body is streamed to storage while it is received.
+     * The path is read from the query string so that the body is not parsed up front.
+     */
+    @PostMapping("/stream")
+    public ResponseEntity<?> uploadResourceStream(@QueryParam("path") @Path String path,
+                                                  HttpServletRequest request,
+                                                  @AuthenticationPrincipal CustomUserDetails userDetails) {
+        UploadResultDto result = resourceService.uploadResourceStream(toResourcePath(userDetails, path), request);
+        return toUploadResponse(result);
     }
 
+    private ResponseEntity<?> toUploadResponse(UploadResultDto result) {
+        if (result.isComplete()) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(result.uploaded());
+        }
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(result);
+    }
+
+    /**
+     * Responds with 204 when everything was deleted, otherwise with 207 and the counts of deleted
+     * and failed objects.
+     */
     @DeleteMapping()
-    public ResponseEntity<Void> deleteResource(@RequestParam
+    public ResponseEntity<?> deleteResource(@RequestParam
                                                @Path
                                                @NotBlank(message = "Путь From не может быть пустым")
                                                String path,
                                                @AuthenticationPrincipal CustomUserDetails userDetails) {
-        resourceService.deleteResource(userDetails.getUser().getId(), path);
-        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        DeleteResultDto result = resourceService.deleteResource(toResourcePath(userDetails, path));
+        if (result.isComplete()) {
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(result);
     }
 
+    /**
+     * Directories are downloaded as ZIP archives. Files and {@code STORED} archives are sent with
+     * their length and validators and support conditional and range requests, see {@link DownloadResponseUtil}.
+     */
     @GetMapping("/download")
     public ResponseEntity<StreamingResponseBody> downloadResource(@RequestParam
                                                                   @Path
                                                                   @NotBlank(message = "Путь не может быть пустым")
                                                                   String path,
+                                                                  @RequestParam(defaultValue = "DEFLATE")
+                                                                  ArchiveMode archive,
+                                                                  ServletWebRequest webRequest,
                                                                   @AuthenticationPrincipal CustomUserDetails userDetails) {
-        DownloadResultDto result = resourceService.downloadResource(userDetails.getUser().getId(), path);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + result.fileName() + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(result.body());
+        DownloadResultDto result = resourceService.downloadResource(toResourcePath(userDetails, path), archive);
+        return DownloadResponseUtil.toResponse(result, webRequest);
     }
 
     @GetMapping("/move")
@@ -77,14 +121,30 @@ public class ResourceController {
                                                              @NotBlank(message = "Путь To не может быть пустым")
                                                              String pathTo,
                                                              @AuthenticationPrincipal CustomUserDetails userDetails) {
-        ResourceResponse result = resourceService.moveResource(userDetails.getUser().getId(), pathFrom, pathTo);
+        ResourceResponse result = resourceService.moveResource(toResourcePath(userDetails, pathFrom),
+                toResourcePath(userDetails, pathTo));
         return ResponseEntity.ok().body(result);
     }
 
     @GetMapping("/search")
     public ResponseEntity<List<ResourceResponse>> searchResource(@RequestParam("query") @Query String query,
+                                                                 @RequestParam(required = false)
+                                                                 @Min(value = 1, message = "Лимит должен быть больше 0")
+                                                                 @Max(value = ApiConstants.MAX_PAGE_LIMIT,
+                                                                         message = "Лимит не может быть больше 1000")
+                                                                 Integer limit,
+                                                                 @RequestParam(required = false) String cursor,
                                                                  @AuthenticationPrincipal CustomUserDetails userDetails) {
-        List<ResourceResponse> resources = resourceService.searchResources(userDetails.getUser().getId(), query);
-        return ResponseEntity.ok().body(resources);
+        ResourcePageDto page = resourceService.searchResources(userDetails.getUser().getId(), query,
+                limit == null ? ApiConstants.DEFAULT_PAGE_LIMIT : limit, cursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(ApiConstants.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    private static ResourcePath toResourcePath(CustomUserDetails userDetails, String path) {
+        return ResourcePath.of(userDetails.getUser().getId(), path);
     }
 }
@@ -0,0 +1,78 @@
+package com.frostetsky.cloudstorage.controller;
+
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadSessionResponse;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.service.ResumableUploadService;
+import com.frostetsky.cloudstorage.validation.Path;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Resumable uploads: {@code POST /api/upload} starts a session, {@code PUT /{id}/parts/{n}}
+ * sends part {@code n} as the raw request body, {@code POST /{id}/complete} assembles the file
+ * and {@code DELETE /{id}} aborts the session.
+ */
+@RestController
+@RequestMapping("/api/upload")
+@RequiredArgsConstructor
+@Validated
+public class UploadController {
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping()
+    public ResponseEntity<UploadSessionResponse> createSession(@RequestParam
+                                                               @Path
+                                                               @NotBlank(message = "Путь не может быть пустым")
+                                                               String path,
+                                                               @RequestParam
+                                                               @Min(value = 1, message = "Размер файла должен быть больше 0")
+                                                               long size,
+                                                               @AuthenticationPrincipal CustomUserDetails userDetails) {
+        UploadSessionResponse session = resumableUploadService.createSession(userDetails.getUser().getId(), path, size);
+        return ResponseEntity.status(HttpStatus.CREATED).body(session);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionResponse> getSession(@PathVariable String id,
+                                                            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        UploadSessionResponse session = resumableUploadService.getSession(userDetails.getUser().getId(), id);
+        return ResponseEntity.ok(session);
+    }
+
+    @PutMapping(value = "/{id}/parts/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionResponse> uploadPart(@PathVariable String id,
+                                                            @PathVariable int partNumber,
+                                                            HttpServletRequest request,
+                                                            @AuthenticationPrincipal CustomUserDetails userDetails)
+            throws IOException {
+        UploadSessionResponse session = resumableUploadService.uploadPart(
+                userDetails.getUser().getId(), id, partNumber, request.getInputStream());
+        return ResponseEntity.ok(session);
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<ResourceResponse> completeSession(@PathVariable String id,
+                                                            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        ResourceResponse resource = resumableUploadService.completeSession(userDetails.getUser().getId(), id);
+        return ResponseEntity.status(HttpStatus.CREATED).body(resource);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abortSession(@PathVariable String id,
+                                             @AuthenticationPrincipal CustomUserDetails userDetails) {
+        resumableUploadService.abortSession(userDetails.getUser().getId(), id);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+}
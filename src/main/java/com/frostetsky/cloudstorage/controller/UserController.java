@@ -1,9 +1,13 @@
 package com.frostetsky.cloudstorage.controller;
 
 import com.frostetsky.cloudstorage.dto.CurrentUserResponse;
+import com.frostetsky.cloudstorage.dto.StorageUsageResponse;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.service.StorageUsageService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -13,8 +17,15 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class UserController {
 
+    private final StorageUsageService storageUsageService;
+
     @GetMapping("/me")
     public ResponseEntity<CurrentUserResponse> getCurrentUser(Authentication authentication) {
         return ResponseEntity.ok(new CurrentUserResponse(authentication.getName()));
     }
+
+    @GetMapping("/usage")
+    public ResponseEntity<StorageUsageResponse> getStorageUsage(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return ResponseEntity.ok(storageUsageService.getUsage(userDetails.getUser().getId()));
+    }
 }
@@ -12,6 +12,7 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 
 @Slf4j
@@ -49,6 +50,13 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(new ErrorResponse(errorMessage));
     }
 
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleTypeMismatch(MethodArgumentTypeMismatchException e) {
+        log.warn("Validation failed (parameter type): name={}, value={}", e.getName(), e.getValue());
+        return ResponseEntity.badRequest().body(
+                new ErrorResponse(String.format("Некорректное значение параметра '%s'", e.getName())));
+    }
+
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleValidationExceptions(ResourceNotFoundException e) {
         log.warn("Request failed: resource not found: message={}", e.getMessage());
@@ -61,6 +69,54 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(InvalidCursorException e) {
+        log.warn("Request failed: invalid cursor: message={}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidMoveException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(InvalidMoveException e) {
+        log.warn("Request failed: invalid move: message={}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidUploadException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(InvalidUploadException e) {
+        log.warn("Request failed: invalid upload: message={}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(UploadLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(UploadLimitExceededException e) {
+        log.warn("Request failed: upload limit exceeded: message={}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(StorageQuotaExceededException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(StorageQuotaExceededException e) {
+        log.warn("Request failed: storage quota exceeded: message={}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidJobException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(InvalidJobException e) {
+        log.warn("Request failed: invalid job: message={}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(JobLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(JobLimitExceededException e) {
+        log.warn("Request failed: job limit exceeded: message={}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidTokenException.class)
+    public ResponseEntity<ErrorResponse> handleValidationExceptions(InvalidTokenException e) {
+        log.warn("Request failed: invalid token: message={}", e.getMessage());
+        return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponse(e.getMessage()));
+    }
+
     @ExceptionHandler(ResourceServiceException.class)
     public ResponseEntity<ErrorResponse> handleValidationExceptions(ResourceServiceException e) {
         log.error("Resource service error: {}", e.getMessage(), e);
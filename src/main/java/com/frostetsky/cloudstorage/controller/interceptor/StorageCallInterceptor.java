@@ -0,0 +1,58 @@
+package com.frostetsky.cloudstorage.controller.interceptor;
+
+import com.frostetsky.cloudstorage.util.StorageCallContext;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Binds a {@link StorageCallContext} to the thread handling a request and, once the request
+ * completes, records how many storage calls it made as {@code storage.calls.per.request}.
+ * <p>
+ * The context is kept in a request attribute, so an async dispatch that finishes a streaming
+ * response continues counting into the same context.
+ */
+@RequiredArgsConstructor
+public class StorageCallInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String CONTEXT_ATTRIBUTE = StorageCallInterceptor.class.getName() + ".context";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StorageCallContext context = (StorageCallContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context == null) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            context = new StorageCallContext(request.getMethod() + " " + pattern);
+            request.setAttribute(CONTEXT_ATTRIBUTE, context);
+        }
+        StorageCallContext.set(context);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        StorageCallContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        StorageCallContext.clear();
+        StorageCallContext context = (StorageCallContext) request.getAttribute(CONTEXT_ATTRIBUTE);
+        if (context != null) {
+            DistributionSummary.builder("storage.calls.per.request")
+                    .description("Storage calls made by one API request")
+                    .tag("endpoint", context.getEndpoint())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(context.getCalls().get());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.frostetsky.cloudstorage.controller.resolver;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a parameter from the query string only, without touching the request body.
+ * <p>
+ * {@code @RequestParam} goes through {@code getParameter}, which makes the container parse a
+ * multipart body; endpoints that read the body as a stream must take their parameters this way.
+ * Resolves to {@code null} when the parameter is absent.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryParam {
+
+    String value();
+}
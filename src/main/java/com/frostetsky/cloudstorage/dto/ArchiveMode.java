@@ -0,0 +1,11 @@
+package com.frostetsky.cloudstorage.dto;
+
+/**
+ * How a directory download packs the files into the ZIP archive.
+ */
+public enum ArchiveMode {
+    /** Compressed and streamed as it is produced; the length is unknown up front. */
+    DEFLATE,
+    /** Uncompressed, with a known length and support for range requests. */
+    STORED
+}
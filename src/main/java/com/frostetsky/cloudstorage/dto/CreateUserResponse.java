@@ -1,4 +1,21 @@
 package com.frostetsky.cloudstorage.dto;
 
-public record CreateUserResponse(String username) {
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Tokens are set in token mode only, see {@link LoginUserResponse}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CreateUserResponse(String username,
+                                 String accessToken,
+                                 String refreshToken,
+                                 Long expiresIn) {
+
+    public CreateUserResponse(String username) {
+        this(username, null, null, null);
+    }
+
+    public CreateUserResponse withTokens(LoginUserResponse login) {
+        return new CreateUserResponse(username, login.accessToken(), login.refreshToken(), login.expiresIn());
+    }
 }
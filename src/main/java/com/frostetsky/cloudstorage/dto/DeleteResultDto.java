@@ -0,0 +1,15 @@
+package com.frostetsky.cloudstorage.dto;
+
+import java.util.List;
+
+/**
+ * @param failed paths of the first objects that could not be deleted, at most 100 of {@code failedCount}
+ */
+public record DeleteResultDto(long deletedCount,
+                              long failedCount,
+                              List<String> failed) {
+
+    public boolean isComplete() {
+        return failedCount == 0;
+    }
+}
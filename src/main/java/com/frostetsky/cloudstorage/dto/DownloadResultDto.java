@@ -2,6 +2,36 @@ package com.frostetsky.cloudstorage.dto;
 
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+
+/**
+ * @param contentLength exact length of the content, or {@code null} if it is known only once written
+ * @param etag          strong validator of the content, or {@code null}
+ * @param lastModified  time the content last changed, or {@code null}
+ * @param ranges        writes a part of the content, or {@code null} if only the whole content can be written
+ */
 public record DownloadResultDto(String fileName,
-                                StreamingResponseBody body) {
+                                StreamingResponseBody body,
+                                Long contentLength,
+                                String etag,
+                                Instant lastModified,
+                                RangeWriter ranges) {
+
+    public DownloadResultDto(String fileName, StreamingResponseBody body) {
+        this(fileName, body, null, null, null, null);
+    }
+
+    public boolean supportsRanges() {
+        return ranges != null;
+    }
+
+    @FunctionalInterface
+    public interface RangeWriter {
+
+        /**
+         * Returns a body writing {@code count} bytes of the content starting at {@code start}.
+         * Nothing is read from storage before the body is written.
+         */
+        StreamingResponseBody range(long start, long count);
+    }
 }
@@ -0,0 +1,24 @@
+package com.frostetsky.cloudstorage.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Totals are absent when the directory is not indexed, {@code targetPath} is set for moves only
+ * and {@code error} for failed jobs only.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobResponse(String id,
+                          JobType type,
+                          JobStatus status,
+                          String path,
+                          String targetPath,
+                          long objectsDone,
+                          Long objectsTotal,
+                          long bytesDone,
+                          Long bytesTotal,
+                          String error,
+                          Instant createdAt,
+                          Instant finishedAt) {
+}
@@ -0,0 +1,8 @@
+package com.frostetsky.cloudstorage.dto;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
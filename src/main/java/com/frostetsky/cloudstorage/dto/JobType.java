@@ -0,0 +1,11 @@
+package com.frostetsky.cloudstorage.dto;
+
+/**
+ * Operation a background job runs on a directory.
+ */
+public enum JobType {
+    DELETE,
+    MOVE,
+    /** Packs the directory into a ZIP archive that is downloaded once the job succeeds. */
+    DOWNLOAD
+}
@@ -1,4 +1,19 @@
 package com.frostetsky.cloudstorage.dto;
 
-public record LoginUserResponse(String username) {
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Tokens are set in token mode only; {@code refreshToken} is absent when an access token is refreshed.
+ *
+ * @param expiresIn seconds the access token is valid for
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LoginUserResponse(String username,
+                                String accessToken,
+                                String refreshToken,
+                                Long expiresIn) {
+
+    public LoginUserResponse(String username) {
+        this(username, null, null, null);
+    }
 }
@@ -0,0 +1,18 @@
+package com.frostetsky.cloudstorage.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * @param method   HTTP method the URL is signed for
+ * @param formData fields of a {@code POST} upload, to be sent as multipart form fields before the
+ *                 file; absent for other methods
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PresignedUrlResponse(String url,
+                                   String method,
+                                   Instant expiresAt,
+                                   Map<String, String> formData) {
+}
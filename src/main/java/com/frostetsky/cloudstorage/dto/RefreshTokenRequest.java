@@ -0,0 +1,6 @@
+package com.frostetsky.cloudstorage.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenRequest(@NotBlank(message = "Токен не может быть пустым") String refreshToken) {
+}
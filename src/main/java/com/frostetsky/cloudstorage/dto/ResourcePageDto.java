@@ -0,0 +1,7 @@
+package com.frostetsky.cloudstorage.dto;
+
+import java.util.List;
+
+public record ResourcePageDto(List<ResourceResponse> items,
+                              String nextCursor) {
+}
@@ -0,0 +1,13 @@
+package com.frostetsky.cloudstorage.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * {@code quotaBytes} is absent when the storage is not limited.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StorageUsageResponse(long usedBytes,
+                                   Long quotaBytes,
+                                   long fileCount,
+                                   long directoryCount) {
+}
@@ -0,0 +1,6 @@
+package com.frostetsky.cloudstorage.dto;
+
+public record UploadErrorDto(String path,
+                             String name,
+                             String message) {
+}
@@ -0,0 +1,11 @@
+package com.frostetsky.cloudstorage.dto;
+
+import java.util.List;
+
+public record UploadResultDto(List<ResourceResponse> uploaded,
+                              List<UploadErrorDto> failed) {
+
+    public boolean isComplete() {
+        return failed.isEmpty();
+    }
+}
@@ -0,0 +1,12 @@
+package com.frostetsky.cloudstorage.dto;
+
+import java.util.List;
+
+public record UploadSessionResponse(String id,
+                                    String path,
+                                    String name,
+                                    long size,
+                                    long chunkSize,
+                                    int partsCount,
+                                    List<Integer> uploadedParts) {
+}
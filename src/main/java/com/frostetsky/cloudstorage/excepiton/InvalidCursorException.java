@@ -0,0 +1,14 @@
+package com.frostetsky.cloudstorage.excepiton;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidCursorException extends BaseException {
+
+    public InvalidCursorException(String message) {
+        this(message, null);
+    }
+
+    public InvalidCursorException(String message, Exception e) {
+        super(HttpStatus.BAD_REQUEST.value(), message, e);
+    }
+}
@@ -0,0 +1,14 @@
+package com.frostetsky.cloudstorage.excepiton;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidJobException extends BaseException {
+
+    public InvalidJobException(String message) {
+        this(message, null);
+    }
+
+    public InvalidJobException(String message, Exception e) {
+        super(HttpStatus.BAD_REQUEST.value(), message, e);
+    }
+}
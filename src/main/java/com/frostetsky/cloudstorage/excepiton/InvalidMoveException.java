@@ -0,0 +1,14 @@
+package com.frostetsky.cloudstorage.excepiton;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidMoveException extends BaseException {
+
+    public InvalidMoveException(String message) {
+        this(message, null);
+    }
+
+    public InvalidMoveException(String message, Exception e) {
+        super(HttpStatus.BAD_REQUEST.value(), message, e);
+    }
+}
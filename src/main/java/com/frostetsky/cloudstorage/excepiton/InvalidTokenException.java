@@ -0,0 +1,14 @@
+package com.frostetsky.cloudstorage.excepiton;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidTokenException extends BaseException {
+
+    public InvalidTokenException(String message) {
+        this(message, null);
+    }
+
+    public InvalidTokenException(String message, Exception e) {
+        super(HttpStatus.UNAUTHORIZED.value(), message, e);
+    }
+}
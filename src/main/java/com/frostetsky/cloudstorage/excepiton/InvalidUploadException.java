@@ -0,0 +1,14 @@
+package com.frostetsky.cloudstorage.excepiton;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidUploadException extends BaseException {
+
+    public InvalidUploadException(String message) {
+        this(message, null);
+    }
+
+    public InvalidUploadException(String message, Exception e) {
+        super(HttpStatus.BAD_REQUEST.value(), message, e);
+    }
+}
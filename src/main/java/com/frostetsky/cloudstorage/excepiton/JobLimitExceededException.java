@@ -0,0 +1,14 @@
+package com.frostetsky.cloudstorage.excepiton;
+
+import org.springframework.http.HttpStatus;
+
+public class JobLimitExceededException extends BaseException {
+
+    public JobLimitExceededException(String message) {
+        this(message, null);
+    }
+
+    public JobLimitExceededException(String message, Exception e) {
+        super(HttpStatus.TOO_MANY_REQUESTS.value(), message, e);
+    }
+}
@@ -0,0 +1,14 @@
+package com.frostetsky.cloudstorage.excepiton;
+
+import org.springframework.http.HttpStatus;
+
+public class StorageQuotaExceededException extends BaseException {
+
+    public StorageQuotaExceededException(String message) {
+        this(message, null);
+    }
+
+    public StorageQuotaExceededException(String message, Exception e) {
+        super(HttpStatus.INSUFFICIENT_STORAGE.value(), message, e);
+    }
+}
@@ -0,0 +1,14 @@
+package com.frostetsky.cloudstorage.excepiton;
+
+import org.springframework.http.HttpStatus;
+
+public class UploadLimitExceededException extends BaseException {
+
+    public UploadLimitExceededException(String message) {
+        this(message, null);
+    }
+
+    public UploadLimitExceededException(String message, Exception e) {
+        super(HttpStatus.PAYLOAD_TOO_LARGE.value(), message, e);
+    }
+}
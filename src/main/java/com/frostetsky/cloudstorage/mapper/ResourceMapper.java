@@ -1,8 +1,8 @@
 package com.frostetsky.cloudstorage.mapper;
 
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
-
-import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import com.frostetsky.cloudstorage.model.ResourceMetadata;
+import com.frostetsky.cloudstorage.model.ResourcePath;
 import io.minio.StatObjectResponse;
 import io.minio.messages.Item;
 import org.springframework.stereotype.Component;
@@ -10,18 +10,29 @@ import org.springframework.stereotype.Component;
 @Component
 public class ResourceMapper {
     public ResourceResponse toDto(Item object) {
-        return toDto(object.objectName(), object.size());
+        return toDto(ResourcePath.parse(object.objectName()), object.size());
     }
 
     public ResourceResponse toDto(StatObjectResponse info) {
-        return toDto(info.object(), info.size());
+        return toDto(ResourcePath.parse(info.object()), info.size());
+    }
+
+    public ResourceResponse toDto(ResourceMetadata metadata) {
+        return new ResourceResponse(
+                metadata.getParentPath(),
+                metadata.getName(),
+                metadata.getSize(),
+                metadata.getType().name());
     }
 
-    public ResourceResponse toDto(String path, Long fileSize) {
+    /**
+     * Directories get no size: without the index it would take a recursive listing.
+     */
+    public ResourceResponse toDto(ResourcePath path, Long fileSize) {
         return new ResourceResponse(
-                ResourcePathUtil.extractParentDirectoryPath(path),
-                ResourcePathUtil.extractResourceName(path),
-                ResourcePathUtil.isDirectory(path) ? null : fileSize,
-                ResourcePathUtil.getResourceType(path));
+                path.getParentPath(),
+                path.getName(),
+                path.isDirectory() ? null : fileSize,
+                path.getResourceType().name());
     }
 }
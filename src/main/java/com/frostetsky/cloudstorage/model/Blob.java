@@ -0,0 +1,31 @@
+package com.frostetsky.cloudstorage.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Content stored once under its SHA-256, shared by every object key that references it
+ * (see {@code blob_refs}).
+ */
+@Setter
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "blobs", schema = "public")
+public class Blob {
+    /** Hex SHA-256 of the content. */
+    @Id
+    private String hash;
+    @Column(nullable = false)
+    private long size;
+    @Column(nullable = false)
+    private long refCount;
+    /** When a reference was last added or removed. */
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
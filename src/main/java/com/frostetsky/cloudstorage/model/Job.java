@@ -0,0 +1,54 @@
+package com.frostetsky.cloudstorage.model;
+
+import com.frostetsky.cloudstorage.dto.JobStatus;
+import com.frostetsky.cloudstorage.dto.JobType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Operation on a directory run in the background by whichever node claims it. The node keeps
+ * {@code heartbeatAt} fresh while it runs the job; another node takes a job over once the
+ * heartbeat is older than {@code app.storage.jobs.stale-timeout}.
+ */
+@Setter
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "jobs", schema = "public")
+public class Job {
+    @Id
+    private UUID id;
+    @Column(nullable = false)
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobType type;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status;
+    /** Directory relative to the user root. */
+    @Column(nullable = false)
+    private String path;
+    /** Target directory of a move, relative to the user root. */
+    private String targetPath;
+    private long objectsDone;
+    private Long objectsTotal;
+    private long bytesDone;
+    private Long bytesTotal;
+    /** Storage key of the archive built by a download job. */
+    private String resultKey;
+    private String error;
+    /** Node running the job. */
+    private String owner;
+    private Instant heartbeatAt;
+    @Column(nullable = false)
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,47 @@
+package com.frostetsky.cloudstorage.model;
+
+import com.frostetsky.cloudstorage.dto.ResourceType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Indexed copy of a MinIO object stored under a user base prefix.
+ * <p>
+ * {@code path} and {@code parentPath} are relative to {@code user-<id>-files/},
+ * directories end with "/" and the user root is stored with an empty path.
+ * <p>
+ * For a directory other than the root, {@code size} and {@code descendantCount} are the total
+ * size of the files and the number of resources at any depth below it.
+ */
+@Setter
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "resources", schema = "public")
+public class ResourceMetadata {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Long userId;
+    @Column(nullable = false)
+    private String path;
+    @Column(nullable = false)
+    private String parentPath;
+    @Column(nullable = false)
+    private String name;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ResourceType type;
+    private Long size;
+    private String etag;
+    private Instant lastModified;
+    /** CRC-32 of the content with the current {@code etag}, filled lazily by STORED directory downloads. */
+    private Long crc32;
+    private Long descendantCount;
+}
@@ -0,0 +1,212 @@
+package com.frostetsky.cloudstorage.model;
+
+import com.frostetsky.cloudstorage.dto.ResourceType;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Path of a user resource, parsed once and passed around instead of path strings.
+ * <p>
+ * The relative path is empty for the user root and ends with "/" for directories. The storage key
+ * {@code user-<id>-files/<path>} is kept as a whole, the relative path, name and parent are
+ * offsets into it and are materialized only when asked for.
+ * <p>
+ * Examples for {@code "user-1-files/folder/file.txt"}: path {@code "folder/file.txt"},
+ * name {@code "file.txt"}, parent path {@code "folder/"}.
+ */
+public final class ResourcePath {
+
+    private static final String BASE_PATH_PREFIX = "user-";
+    private static final String BASE_PATH_SUFFIX = "-files/";
+
+    /** {@code null} for a key without the user base prefix. */
+    private final Long userId;
+    private final String key;
+    private final int pathStart;
+    private final int nameStart;
+    private final boolean directory;
+
+    // views created on first use; racy but idempotent, like String.hash
+    private String path;
+    private String name;
+    private String parentPath;
+
+    private ResourcePath(Long userId, String key, int pathStart, String path) {
+        this.userId = userId;
+        this.key = key;
+        this.pathStart = pathStart;
+        this.path = path;
+        this.directory = key.length() == pathStart || key.endsWith("/");
+        this.nameStart = findNameStart(key, pathStart, directory);
+    }
+
+    /**
+     * @param path path relative to the user root, empty for the root itself
+     */
+    public static ResourcePath of(Long userId, String path) {
+        Objects.requireNonNull(userId, "userId");
+        String basePath = ResourcePathUtil.buildBasePath(userId);
+        return new ResourcePath(userId, basePath + path, basePath.length(), path);
+    }
+
+    public static ResourcePath root(Long userId) {
+        return of(userId, "");
+    }
+
+    /**
+     * Parses a storage key such as an object name from a listing. A key without the user base
+     * prefix is taken as a relative path whose user is unknown.
+     */
+    public static ResourcePath parse(String key) {
+        int digitsEnd = BASE_PATH_PREFIX.length();
+        if (!key.startsWith(BASE_PATH_PREFIX)) {
+            return new ResourcePath(null, key, 0, key);
+        }
+        while (digitsEnd < key.length() && key.charAt(digitsEnd) >= '0' && key.charAt(digitsEnd) <= '9') {
+            digitsEnd++;
+        }
+        if (digitsEnd == BASE_PATH_PREFIX.length() || !key.startsWith(BASE_PATH_SUFFIX, digitsEnd)) {
+            return new ResourcePath(null, key, 0, key);
+        }
+        Long userId = Long.parseLong(key, BASE_PATH_PREFIX.length(), digitsEnd, 10);
+        return new ResourcePath(userId, key, digitsEnd + BASE_PATH_SUFFIX.length(), null);
+    }
+
+    private static int findNameStart(String key, int pathStart, boolean directory) {
+        int end = directory ? key.length() - 1 : key.length();
+        if (end <= pathStart) {
+            return key.length();
+        }
+        return Math.max(key.lastIndexOf('/', end - 1) + 1, pathStart);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return path relative to the user root
+     */
+    public String getPath() {
+        if (path == null) {
+            path = key.substring(pathStart);
+        }
+        return path;
+    }
+
+    /**
+     * @return storage key, {@code user-<id>-files/<path>}
+     * @throws IllegalStateException if the path was parsed from a key without the user base prefix
+     */
+    public String getFullPath() {
+        if (userId == null) {
+            throw new IllegalStateException("Path has no user: " + key);
+        }
+        return key;
+    }
+
+    /**
+     * @return user base prefix, {@code user-<id>-files/}
+     */
+    public String getBasePath() {
+        return getFullPath().substring(0, pathStart);
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    public boolean isRoot() {
+        return key.length() == pathStart;
+    }
+
+    public ResourceType getResourceType() {
+        return directory ? ResourceType.DIRECTORY : ResourceType.FILE;
+    }
+
+    /**
+     * @return last segment, with the trailing "/" for directories; empty for the root
+     */
+    public String getName() {
+        if (name == null) {
+            name = key.substring(nameStart);
+        }
+        return name;
+    }
+
+    /**
+     * @return relative path of the parent directory; empty if the parent is the root
+     */
+    public String getParentPath() {
+        if (parentPath == null) {
+            parentPath = key.substring(pathStart, nameStart);
+        }
+        return parentPath;
+    }
+
+    public ResourcePath getParent() {
+        return new ResourcePath(userId, key.substring(0, nameStart), pathStart, getParentPath());
+    }
+
+    /**
+     * @param relativePath path relative to this directory
+     */
+    public ResourcePath resolve(String relativePath) {
+        return new ResourcePath(userId, key + relativePath, pathStart, getPath() + relativePath);
+    }
+
+    /**
+     * @return relative paths of all parent directories below the root, from the top-level one
+     * down to the nearest parent
+     */
+    public List<String> getParentPaths() {
+        List<String> parents = new ArrayList<>();
+        int slash = key.indexOf('/', pathStart);
+        while (slash >= 0 && slash < nameStart) {
+            parents.add(key.substring(pathStart, slash + 1));
+            slash = key.indexOf('/', slash + 1);
+        }
+        return parents;
+    }
+
+    /**
+     * @return whether this path is {@code directory} itself or lies below it
+     */
+    public boolean startsWith(ResourcePath directory) {
+        return directory.isDirectory() && Objects.equals(userId, directory.userId) && key.startsWith(directory.key);
+    }
+
+    /**
+     * @return zip archive name for this directory, {@code "folder.zip"} for the root
+     * @throws IllegalArgumentException if this is not a directory
+     */
+    public String getZipArchiveName() {
+        if (!directory) {
+            throw new IllegalArgumentException("Переданный путь не является папкой");
+        }
+        return isRoot() ? "folder.zip" : key.substring(nameStart, key.length() - 1) + ".zip";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof ResourcePath other
+                && Objects.equals(userId, other.userId)
+                && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    /**
+     * @return path relative to the user root
+     */
+    @Override
+    public String toString() {
+        return getPath();
+    }
+}
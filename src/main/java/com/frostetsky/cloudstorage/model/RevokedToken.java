@@ -0,0 +1,26 @@
+package com.frostetsky.cloudstorage.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Sign-in whose tokens are rejected; kept until the last of them would have expired anyway.
+ */
+@Setter
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "revoked_tokens", schema = "public")
+public class RevokedToken {
+    /** {@code sid} claim shared by the refresh token and all access tokens of one sign-in. */
+    @Id
+    private UUID sessionId;
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
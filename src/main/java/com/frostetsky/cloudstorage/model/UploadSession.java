@@ -0,0 +1,38 @@
+package com.frostetsky.cloudstorage.model;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * State of a resumable upload, kept in Redis so that any instance can accept the next part.
+ * {@code path} is relative to the user base prefix.
+ */
+@Setter
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSession {
+    private String id;
+    private Long userId;
+    private String path;
+    private String uploadId;
+    private long size;
+    private long chunkSize;
+    private Instant createdAt;
+    /** ETags of uploaded parts by part number. */
+    @Builder.Default
+    private SortedMap<Integer, String> partEtags = new TreeMap<>();
+
+    public int getPartsCount() {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    public long getPartSize(int partNumber) {
+        return partNumber < getPartsCount() ? chunkSize : size - chunkSize * (getPartsCount() - 1);
+    }
+}
@@ -0,0 +1,39 @@
+package com.frostetsky.cloudstorage.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Running totals of the resources a user holds, changed together with the resource index.
+ * The user root directory is not counted.
+ */
+@Setter
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "user_storage_usage", schema = "public")
+public class UserStorageUsage {
+    @Id
+    private Long userId;
+    @Column(nullable = false)
+    private long usedBytes;
+    @Column(nullable = false)
+    private long fileCount;
+    @Column(nullable = false)
+    private long directoryCount;
+    /** When the totals were last recomputed from the resource index. */
+    private Instant reconciledAt;
+    /**
+     * When the user's index was last reconciled with the storage listing. Until the first
+     * reconciliation the index may miss objects and is not used for listings.
+     */
+    private Instant indexedAt;
+    /** Index writes committed for the user, apart from those of reconciliation. */
+    @Column(nullable = false)
+    private long indexWrites;
+}
@@ -0,0 +1,97 @@
+package com.frostetsky.cloudstorage.repository;
+
+import com.frostetsky.cloudstorage.model.Blob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    @Query(value = """
+            select r.object_key as "objectKey", r.hash as hash, b.size as size
+            from blob_refs r
+                     join blobs b on b.hash = r.hash
+            where r.object_key in (:objectKeys)""", nativeQuery = true)
+    List<BlobReference> findReferences(@Param("objectKeys") Collection<String> objectKeys);
+
+    /**
+     * Counts one more reference to the content, creating its row on the first one.
+     */
+    @Modifying
+    @Query(value = """
+            insert into blobs (hash, size, ref_count, updated_at) values (:hash, :size, 1, now())
+            on conflict (hash) do update
+                set ref_count  = blobs.ref_count + 1,
+                    updated_at = now()""", nativeQuery = true)
+    void addReference(@Param("hash") String hash, @Param("size") long size);
+
+    /**
+     * Points an object key without a reference at the content; counted by {@link #addReference}.
+     * The reference stays pending until {@link #commitReference} once its objects are stored.
+     */
+    @Modifying
+    @Query(value = "insert into blob_refs (object_key, hash, pending_since) values (:objectKey, :hash, now())",
+            nativeQuery = true)
+    void insertReference(@Param("objectKey") String objectKey, @Param("hash") String hash);
+
+    @Modifying
+    @Query(value = "update blob_refs set pending_since = null where object_key = :objectKey and hash = :hash",
+            nativeQuery = true)
+    int commitReference(@Param("objectKey") String objectKey, @Param("hash") String hash);
+
+    /**
+     * References pending since before {@code before}: left by writes that did not finish.
+     */
+    @Query(value = """
+            select object_key as "objectKey", hash as hash, 0 as size from blob_refs
+            where pending_since < :before
+            order by pending_since
+            limit :limit""", nativeQuery = true)
+    List<BlobReference> findPendingReferences(@Param("before") Instant before, @Param("limit") int limit);
+
+    /**
+     * Drops the references of the keys and takes them off the counts of their content.
+     * Keys without a reference are ignored.
+     */
+    @Modifying
+    @Query(value = """
+            with removed as (delete from blob_refs where object_key in (:objectKeys) returning hash)
+            update blobs
+            set ref_count  = blobs.ref_count - removed_counts.removed,
+                updated_at = now()
+            from (select hash, count(*) as removed from removed group by hash) removed_counts
+            where blobs.hash = removed_counts.hash""", nativeQuery = true)
+    int removeReferences(@Param("objectKeys") Collection<String> objectKeys);
+
+    /**
+     * Locks content that has had no references since {@code before}, skipping rows a concurrent
+     * upload is adding a reference to.
+     */
+    @Query(value = """
+            select hash from blobs
+            where ref_count = 0 and updated_at < :before
+            order by updated_at
+            limit :limit
+            for update skip locked""", nativeQuery = true)
+    List<String> lockUnreferenced(@Param("before") Instant before, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "delete from blobs where hash in (:hashes)", nativeQuery = true)
+    void deleteByHashes(@Param("hashes") Collection<String> hashes);
+
+    /**
+     * Content an object key refers to.
+     */
+    interface BlobReference {
+        String getObjectKey();
+
+        String getHash();
+
+        long getSize();
+    }
+}
@@ -0,0 +1,106 @@
+package com.frostetsky.cloudstorage.repository;
+
+import com.frostetsky.cloudstorage.dto.JobStatus;
+import com.frostetsky.cloudstorage.model.Job;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface JobRepository extends JpaRepository<Job, UUID> {
+
+    /** Key of the advisory lock that serializes claims across nodes. */
+    long CLAIM_LOCK_KEY = 0x6A6F6273L;
+
+    Optional<Job> findByIdAndUserId(UUID id, Long userId);
+
+    long countByUserIdAndStatusIn(Long userId, Collection<JobStatus> statuses);
+
+    /**
+     * Serializes claims until the end of the transaction, so that two nodes never start jobs of
+     * one user over the limit.
+     */
+    @Query(value = "select 1 from pg_advisory_xact_lock(:key)", nativeQuery = true)
+    Integer lockClaims(@Param("key") long key);
+
+    /**
+     * Oldest job that is queued, or running on a node whose heartbeat is older than
+     * {@code staleSeconds}, whose user runs fewer than {@code maxRunningPerUser} jobs. Heartbeats
+     * are compared with the database clock, the one they are written with.
+     */
+    @Query(value = """
+            select j.* from jobs j
+            where (j.status = 'QUEUED'
+                or (j.status = 'RUNNING' and j.heartbeat_at < now() - :staleSeconds * interval '1 second'))
+              and (select count(*) from jobs r
+                   where r.user_id = j.user_id
+                     and r.status = 'RUNNING'
+                     and r.heartbeat_at >= now() - :staleSeconds * interval '1 second') < :maxRunningPerUser
+            order by j.created_at
+            limit 1""", nativeQuery = true)
+    Optional<Job> findClaimable(@Param("staleSeconds") long staleSeconds,
+                                @Param("maxRunningPerUser") int maxRunningPerUser);
+
+    @Modifying
+    @Query(value = """
+            update jobs
+            set status       = 'RUNNING',
+                owner        = :owner,
+                heartbeat_at = now(),
+                started_at   = coalesce(started_at, now())
+            where id = :id""", nativeQuery = true)
+    void claim(@Param("id") UUID id, @Param("owner") String owner);
+
+    /**
+     * Saves the progress of a job and refreshes its heartbeat.
+     *
+     * @return 0 if the job is no longer run by {@code owner}
+     */
+    @Modifying
+    @Query(value = """
+            update jobs
+            set objects_done = :objectsDone,
+                bytes_done   = :bytesDone,
+                heartbeat_at = now()
+            where id = :id and owner = :owner and status = 'RUNNING'""", nativeQuery = true)
+    int updateProgress(@Param("id") UUID id,
+                       @Param("owner") String owner,
+                       @Param("objectsDone") long objectsDone,
+                       @Param("bytesDone") long bytesDone);
+
+    /**
+     * @param status {@code SUCCEEDED} or {@code FAILED}
+     * @return 0 if the job is no longer run by {@code owner}
+     */
+    @Modifying
+    @Query(value = """
+            update jobs
+            set status       = :status,
+                objects_done = :objectsDone,
+                bytes_done   = :bytesDone,
+                result_key   = :resultKey,
+                error        = :error,
+                owner        = null,
+                finished_at  = now()
+            where id = :id and owner = :owner and status = 'RUNNING'""", nativeQuery = true)
+    int finish(@Param("id") UUID id,
+               @Param("owner") String owner,
+               @Param("status") String status,
+               @Param("objectsDone") long objectsDone,
+               @Param("bytesDone") long bytesDone,
+               @Param("resultKey") String resultKey,
+               @Param("error") String error);
+
+    @Query(value = """
+            select * from jobs
+            where finished_at < :before
+            order by finished_at
+            limit :limit""", nativeQuery = true)
+    List<Job> findFinishedBefore(@Param("before") Instant before, @Param("limit") int limit);
+}
@@ -0,0 +1,275 @@
+package com.frostetsky.cloudstorage.repository;
+
+import com.frostetsky.cloudstorage.model.ResourceMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ResourceMetadataRepository extends JpaRepository<ResourceMetadata, Long> {
+
+    Optional<ResourceMetadata> findByUserIdAndPath(Long userId, String path);
+
+    boolean existsByUserIdAndPath(Long userId, String path);
+
+    @Query(value = "select * from resources where user_id = :userId and path = :path for update", nativeQuery = true)
+    Optional<ResourceMetadata> findByUserIdAndPathForUpdate(@Param("userId") Long userId,
+                                                            @Param("path") String path);
+
+    @Query("select r.path from ResourceMetadata r where r.userId = :userId and r.path in :paths")
+    List<String> findExistingPaths(@Param("userId") Long userId, @Param("paths") Collection<String> paths);
+
+    /**
+     * Keyset page of direct children of {@code parentPath} with paths greater than {@code afterPath}.
+     * Passing the parent path itself as {@code afterPath} starts from the first child. Paths compare
+     * byte by byte ({@code collate "C"}, like the index) in the order of a storage listing, so that
+     * cursors stay valid when a user becomes indexed.
+     */
+    @Query(value = """
+            select * from resources
+            where user_id = :userId and parent_path = :parentPath and path collate "C" > :afterPath
+            order by path collate "C"
+            limit :limit""", nativeQuery = true)
+    List<ResourceMetadata> findChildren(@Param("userId") Long userId,
+                                        @Param("parentPath") String parentPath,
+                                        @Param("afterPath") String afterPath,
+                                        @Param("limit") int limit);
+
+    /**
+     * Keyset page of the user's resources other than the root, ordered byte by byte like the keys
+     * of a storage listing. The pattern operators are served by the {@code varchar_pattern_ops} index.
+     */
+    @Query(value = """
+            select * from resources
+            where user_id = :userId and path ~>~ :afterPath
+            order by path using ~<~
+            limit :limit""", nativeQuery = true)
+    List<ResourceMetadata> findPageInByteOrder(@Param("userId") Long userId,
+                                               @Param("afterPath") String afterPath,
+                                               @Param("limit") int limit);
+
+    /**
+     * Case-insensitive name search backed by the trigram index. Names starting with the query
+     * rank before names containing it; results are ordered by {@code (rank, path)} and start
+     * strictly after the given position. Paths compare byte by byte ({@code collate "C"}), as in
+     * the search over the storage, so that cursors stay valid when a user becomes indexed.
+     */
+    @Query(value = """
+            select * from (
+                select r.*, case when lower(r.name) like lower(:prefixPattern) then 0 else 1 end as match_rank
+                from resources r
+                where r.user_id = :userId and r.path <> '' and lower(r.name) like lower(:containsPattern)
+            ) matches
+            where (match_rank, path collate "C") > (:afterRank, :afterPath collate "C")
+            order by match_rank, path collate "C"
+            limit :limit""", nativeQuery = true)
+    List<ResourceMetadata> searchByName(@Param("userId") Long userId,
+                                        @Param("prefixPattern") String prefixPattern,
+                                        @Param("containsPattern") String containsPattern,
+                                        @Param("afterRank") int afterRank,
+                                        @Param("afterPath") String afterPath,
+                                        @Param("limit") int limit);
+
+    /**
+     * Inserts an empty directory; the user root gets no rollups.
+     *
+     * @return 1 if the directory was inserted, 0 if it was already indexed
+     */
+    @Modifying
+    @Query(value = """
+            insert into resources (user_id, path, parent_path, name, type, size, descendant_count)
+            values (:userId, :path, :parentPath, :name, 'DIRECTORY',
+                    case when :path = '' then null else 0 end,
+                    case when :path = '' then null else 0 end)
+            on conflict (user_id, path) do nothing""", nativeQuery = true)
+    int insertDirectoryIfAbsent(@Param("userId") Long userId,
+                                 @Param("path") String path,
+                                 @Param("parentPath") String parentPath,
+                                 @Param("name") String name);
+
+    /**
+     * Serializes index writes to one path until the end of the transaction. Unlike a row lock it
+     * holds for a path that has no row yet, so two first writes of a file cannot both count it as new.
+     */
+    @Query(value = "select 1 from pg_advisory_xact_lock(hashtextextended(:path, :userId))", nativeQuery = true)
+    Integer lockPath(@Param("userId") Long userId,
+                     @Param("path") String path);
+
+    /**
+     * Size of an indexed file, locking its row so that the size cannot change before the
+     * caller's upsert.
+     */
+    @Query(value = "select size from resources where user_id = :userId and path = :path and type = 'FILE' for update",
+            nativeQuery = true)
+    Optional<Long> findFileSizeForUpdate(@Param("userId") Long userId,
+                                         @Param("path") String path);
+
+    @Modifying
+    @Query(value = """
+            insert into resources (user_id, path, parent_path, name, type, size, etag, last_modified)
+            values (:userId, :path, :parentPath, :name, 'FILE', :size, :etag, :lastModified)
+            on conflict (user_id, path) do update
+                set size          = excluded.size,
+                    etag          = excluded.etag,
+                    last_modified = excluded.last_modified,
+                    crc32         = case when resources.etag = excluded.etag then resources.crc32 end""",
+            nativeQuery = true)
+    void upsertFile(@Param("userId") Long userId,
+                    @Param("path") String path,
+                    @Param("parentPath") String parentPath,
+                    @Param("name") String name,
+                    @Param("size") long size,
+                    @Param("etag") String etag,
+                    @Param("lastModified") Instant lastModified);
+
+    /**
+     * Files matching a LIKE pattern whose checksum is already known.
+     */
+    @Query(value = """
+            select * from resources
+            where user_id = :userId and type = 'FILE' and crc32 is not null and path like :pattern""",
+            nativeQuery = true)
+    List<ResourceMetadata> findFilesWithChecksum(@Param("userId") Long userId,
+                                                 @Param("pattern") String pattern);
+
+    /**
+     * Stores the checksum only if the file still has the content it was computed for.
+     */
+    @Modifying
+    @Query(value = "update resources set crc32 = :crc32 where user_id = :userId and path = :path and etag = :etag",
+            nativeQuery = true)
+    int updateChecksum(@Param("userId") Long userId,
+                       @Param("path") String path,
+                       @Param("etag") String etag,
+                       @Param("crc32") long crc32);
+
+    /**
+     * Deletes every row whose path matches a LIKE pattern: the exact path for a file,
+     * {@code <dir>/%} for a directory and all of its descendants.
+     *
+     * @return totals of the deleted rows, computed by the same statement
+     */
+    @Query(value = """
+            with deleted as (
+                delete from resources where user_id = :userId and path like :pattern
+                returning type, path, size
+            )
+            select cast(coalesce(sum(size) filter (where type = 'FILE'), 0) as bigint) as bytes,
+                   count(*) filter (where type = 'FILE')                                as files,
+                   count(*) filter (where type = 'DIRECTORY' and path <> '')            as directories
+            from deleted""", nativeQuery = true)
+    DeletedTotals deleteByPathPattern(@Param("userId") Long userId,
+                                      @Param("pattern") String pattern);
+
+    /**
+     * Records a change of the size and descendant count of the given directories, applied later
+     * by {@link #applyRollupDeltas}. Only inserts, so concurrent writes below one directory do not
+     * wait for each other on its row.
+     */
+    @Modifying
+    @Query(value = """
+            insert into resource_rollup_deltas (user_id, path, bytes, descendants)
+            select user_id, path, :bytes, :descendants
+            from resources
+            where user_id = :userId and type = 'DIRECTORY' and path in (:paths)""", nativeQuery = true)
+    int addRollupDeltas(@Param("userId") Long userId,
+                        @Param("paths") Collection<String> paths,
+                        @Param("bytes") long bytes,
+                        @Param("descendants") long descendants);
+
+    /**
+     * Applies up to {@code limit} of the oldest pending changes, summed per directory, skipping
+     * changes another node is applying.
+     *
+     * @return number of changes taken
+     */
+    @Query(value = """
+            with taken as (
+                delete from resource_rollup_deltas
+                where id in (select id from resource_rollup_deltas order by id limit :limit for update skip locked)
+                returning user_id, path, bytes, descendants
+            ), totals as (
+                select user_id, path, sum(bytes) as bytes, sum(descendants) as descendants
+                from taken
+                group by user_id, path
+            ), applied as (
+                update resources r
+                set size             = r.size + totals.bytes,
+                    descendant_count = r.descendant_count + totals.descendants
+                from totals
+                where r.user_id = totals.user_id and r.path = totals.path and r.type = 'DIRECTORY'
+                returning r.id
+            )
+            select count(*) from taken""", nativeQuery = true)
+    long applyRollupDeltas(@Param("limit") int limit);
+
+    /**
+     * Applies the pending changes of the directories matching a LIKE pattern at once, waiting for
+     * a node that is applying some of them.
+     */
+    @Query(value = """
+            with taken as (
+                delete from resource_rollup_deltas
+                where id in (select id from resource_rollup_deltas
+                             where user_id = :userId and path like :pattern
+                             for update)
+                returning path, bytes, descendants
+            ), totals as (
+                select path, sum(bytes) as bytes, sum(descendants) as descendants
+                from taken
+                group by path
+            ), applied as (
+                update resources r
+                set size             = r.size + totals.bytes,
+                    descendant_count = r.descendant_count + totals.descendants
+                from totals
+                where r.user_id = :userId and r.path = totals.path and r.type = 'DIRECTORY'
+                returning r.id
+            )
+            select count(*) from taken""", nativeQuery = true)
+    long applyRollupDeltasByPathPattern(@Param("userId") Long userId,
+                                        @Param("pattern") String pattern);
+
+    /**
+     * Drops the pending changes of the directories matching a LIKE pattern, e.g. before deleting
+     * them, so that a directory created again at the same path does not inherit them.
+     */
+    @Modifying
+    @Query(value = "delete from resource_rollup_deltas where user_id = :userId and path like :pattern",
+            nativeQuery = true)
+    int deleteRollupDeltasByPathPattern(@Param("userId") Long userId,
+                                        @Param("pattern") String pattern);
+
+    /**
+     * Rewrites the prefix {@code pathFrom} to {@code pathTo} for every row matching {@code pattern}.
+     * The moved resource itself also gets the new parent and name; descendants keep their names.
+     */
+    @Modifying
+    @Query(value = """
+            update resources
+            set path        = :pathTo || substring(path from :fromLength + 1),
+                parent_path = case when path = :pathFrom then :parentTo
+                                   else :pathTo || substring(parent_path from :fromLength + 1) end,
+                name        = case when path = :pathFrom then :nameTo else name end
+            where user_id = :userId and path like :pattern""", nativeQuery = true)
+    int movePathPrefix(@Param("userId") Long userId,
+                       @Param("pattern") String pattern,
+                       @Param("pathFrom") String pathFrom,
+                       @Param("fromLength") int fromLength,
+                       @Param("pathTo") String pathTo,
+                       @Param("parentTo") String parentTo,
+                       @Param("nameTo") String nameTo);
+
+    interface DeletedTotals {
+        long getBytes();
+
+        long getFiles();
+
+        long getDirectories();
+    }
+}
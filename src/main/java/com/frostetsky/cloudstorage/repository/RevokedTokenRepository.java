@@ -0,0 +1,27 @@
+package com.frostetsky.cloudstorage.repository;
+
+import com.frostetsky.cloudstorage.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, UUID> {
+
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+
+    @Modifying
+    @Query(value = """
+            insert into revoked_tokens (session_id, expires_at) values (:sessionId, :expiresAt)
+            on conflict (session_id) do update
+                set expires_at = greatest(revoked_tokens.expires_at, excluded.expires_at)""", nativeQuery = true)
+    void revoke(@Param("sessionId") UUID sessionId, @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    @Query(value = "delete from revoked_tokens where expires_at <= now()", nativeQuery = true)
+    int deleteExpired();
+}
@@ -0,0 +1,133 @@
+package com.frostetsky.cloudstorage.repository;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.model.UploadSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Stores upload sessions in Redis: one hash per session and a sorted set of session ids
+ * scored by the time of their last activity, which the sweeper scans for idle sessions.
+ * <p>
+ * Session hashes expire on their own after twice the idle timeout, in case the sweeper
+ * never gets to them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UploadSessionRepository {
+
+    private static final String SESSION_KEY_PREFIX = "upload:session:";
+    private static final String ACTIVITY_KEY = "upload:sessions";
+    private static final String PART_FIELD_PREFIX = "part:";
+    /**
+     * Records a part only while the session hash still exists and belongs to the user, so that a
+     * part finishing after the session was deleted does not bring back a hash without its fields.
+     */
+    private static final RedisScript<Long> SAVE_PART_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'userId') ~= ARGV[1] then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[2], ARGV[3])
+            redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            redis.call('ZADD', KEYS[2], ARGV[5], ARGV[6])
+            return 1""", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final StorageProperties storageProperties;
+
+    public void save(UploadSession session) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("userId", session.getUserId().toString());
+        fields.put("path", session.getPath());
+        fields.put("uploadId", session.getUploadId());
+        fields.put("size", Long.toString(session.getSize()));
+        fields.put("chunkSize", Long.toString(session.getChunkSize()));
+        fields.put("createdAt", session.getCreatedAt().toString());
+        session.getPartEtags().forEach((partNumber, etag) -> fields.put(PART_FIELD_PREFIX + partNumber, etag));
+        redisTemplate.opsForHash().putAll(sessionKey(session.getId()), fields);
+        touch(session.getId());
+    }
+
+    /**
+     * @return {@code false} if the session no longer exists or belongs to another user
+     */
+    public boolean savePart(String id, Long userId, int partNumber, String etag) {
+        Long saved = redisTemplate.execute(SAVE_PART_SCRIPT,
+                List.of(sessionKey(id), ACTIVITY_KEY),
+                userId.toString(),
+                PART_FIELD_PREFIX + partNumber,
+                etag,
+                Long.toString(hashTtl().toMillis()),
+                Long.toString(Instant.now().toEpochMilli()),
+                id);
+        return saved != null && saved == 1;
+    }
+
+    /**
+     * A hash without {@code userId} is what is left of a deleted session and is treated as missing.
+     */
+    public Optional<UploadSession> findById(String id) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(sessionKey(id));
+        if (!fields.containsKey("userId")) {
+            return Optional.empty();
+        }
+        UploadSession session = UploadSession.builder()
+                .id(id)
+                .userId(Long.valueOf((String) fields.get("userId")))
+                .path((String) fields.get("path"))
+                .uploadId((String) fields.get("uploadId"))
+                .size(Long.parseLong((String) fields.get("size")))
+                .chunkSize(Long.parseLong((String) fields.get("chunkSize")))
+                .createdAt(Instant.parse((String) fields.get("createdAt")))
+                .build();
+        fields.forEach((field, value) -> {
+            String name = (String) field;
+            if (name.startsWith(PART_FIELD_PREFIX)) {
+                session.getPartEtags().put(Integer.valueOf(name.substring(PART_FIELD_PREFIX.length())), (String) value);
+            }
+        });
+        return Optional.of(session);
+    }
+
+    /**
+     * @return ids of sessions without activity since {@code before}
+     */
+    public List<String> findIdleIds(Instant before) {
+        Set<String> ids = redisTemplate.opsForZSet().rangeByScore(ACTIVITY_KEY, 0, before.toEpochMilli());
+        return ids == null ? List.of() : List.copyOf(ids);
+    }
+
+    /**
+     * Removes the session. Only one of several concurrent callers gets {@code true}, which lets
+     * instances sweeping at the same time agree on who aborts the upload.
+     */
+    public boolean delete(String id) {
+        Long removed = redisTemplate.opsForZSet().remove(ACTIVITY_KEY, id);
+        redisTemplate.delete(sessionKey(id));
+        return removed != null && removed > 0;
+    }
+
+    private void touch(String id) {
+        redisTemplate.opsForZSet().add(ACTIVITY_KEY, id, Instant.now().toEpochMilli());
+        redisTemplate.expire(sessionKey(id), hashTtl());
+    }
+
+    private Duration hashTtl() {
+        return storageProperties.getResumableUpload().getSessionTtl().multipliedBy(2);
+    }
+
+    private String sessionKey(String id) {
+        return SESSION_KEY_PREFIX + id;
+    }
+}
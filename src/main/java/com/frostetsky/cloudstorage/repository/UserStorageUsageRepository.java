@@ -0,0 +1,97 @@
+package com.frostetsky.cloudstorage.repository;
+
+import com.frostetsky.cloudstorage.model.UserStorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UserStorageUsageRepository extends JpaRepository<UserStorageUsage, Long> {
+
+    /**
+     * Adds the deltas to the user's totals, creating the row on the first change.
+     *
+     * @param writes index writes to count, see {@link #countIndexWrites}
+     */
+    @Modifying
+    @Query(value = """
+            insert into user_storage_usage (user_id, used_bytes, file_count, directory_count, index_writes)
+            values (:userId, :bytes, :files, :directories, :writes)
+            on conflict (user_id) do update
+                set used_bytes      = user_storage_usage.used_bytes + excluded.used_bytes,
+                    file_count      = user_storage_usage.file_count + excluded.file_count,
+                    directory_count = user_storage_usage.directory_count + excluded.directory_count,
+                    index_writes    = user_storage_usage.index_writes + excluded.index_writes""",
+            nativeQuery = true)
+    void addUsage(@Param("userId") Long userId,
+                  @Param("bytes") long bytes,
+                  @Param("files") long files,
+                  @Param("directories") long directories,
+                  @Param("writes") long writes);
+
+    /**
+     * Number of index writes committed for the user; a reconciliation that saw it unchanged
+     * across its walk raced with none of them.
+     */
+    @Query(value = "select coalesce((select index_writes from user_storage_usage where user_id = :userId), 0)",
+            nativeQuery = true)
+    long countIndexWrites(@Param("userId") Long userId);
+
+    /**
+     * Creates the user's row if needed and locks it until the end of the transaction.
+     */
+    @Modifying
+    @Query(value = """
+            insert into user_storage_usage (user_id) values (:userId)
+            on conflict (user_id) do update set user_id = excluded.user_id""", nativeQuery = true)
+    void lockUsage(@Param("userId") Long userId);
+
+    /**
+     * Reads the stored bytes past the persistence context, so that a transaction sees its own
+     * native updates.
+     */
+    @Query(value = "select coalesce((select used_bytes from user_storage_usage where user_id = :userId), 0)",
+            nativeQuery = true)
+    long findUsedBytes(@Param("userId") Long userId);
+
+    /**
+     * Replaces the user's totals with ones computed from the resource index.
+     */
+    @Modifying
+    @Query(value = """
+            update user_storage_usage
+            set used_bytes      = totals.used_bytes,
+                file_count      = totals.file_count,
+                directory_count = totals.directory_count,
+                reconciled_at   = now()
+            from (select coalesce(sum(size) filter (where type = 'FILE'), 0)        as used_bytes,
+                         count(*) filter (where type = 'FILE')                       as file_count,
+                         count(*) filter (where type = 'DIRECTORY' and path <> '')   as directory_count
+                  from resources
+                  where user_id = :userId) totals
+            where user_id = :userId""", nativeQuery = true)
+    int recomputeUsage(@Param("userId") Long userId);
+
+    @Query(value = "select exists(select 1 from user_storage_usage where user_id = :userId and indexed_at is not null)",
+            nativeQuery = true)
+    boolean isIndexed(@Param("userId") Long userId);
+
+    /**
+     * Marks the user indexed unless index writes were committed since {@code writes} was counted.
+     *
+     * @return 1 if the user was marked, 0 otherwise
+     */
+    @Modifying
+    @Query(value = """
+            insert into user_storage_usage (user_id, indexed_at) values (:userId, now())
+            on conflict (user_id) do update set indexed_at = excluded.indexed_at
+            where user_storage_usage.index_writes = :writes""", nativeQuery = true)
+    int markIndexed(@Param("userId") Long userId,
+                    @Param("writes") long writes);
+
+    @Query(value = "select user_id from user_storage_usage union select distinct user_id from resources",
+            nativeQuery = true)
+    List<Long> findUserIds();
+}
@@ -4,9 +4,11 @@ import com.frostetsky.cloudstorage.service.BucketService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 @Slf4j
+@Order(0)
 @Component
 @RequiredArgsConstructor
 public class BucketInitializer implements CommandLineRunner {
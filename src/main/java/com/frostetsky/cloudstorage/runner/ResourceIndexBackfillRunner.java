@@ -0,0 +1,26 @@
+package com.frostetsky.cloudstorage.runner;
+
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Order(1)
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.storage.index", name = "backfill-on-startup", havingValue = "true")
+public class ResourceIndexBackfillRunner implements CommandLineRunner {
+
+    private final ResourceIndexService resourceIndexService;
+
+    @Override
+    public void run(String... args) {
+        log.info("Backfilling resource index from storage");
+        resourceIndexService.backfill();
+        log.info("Resource index backfill completed");
+    }
+}
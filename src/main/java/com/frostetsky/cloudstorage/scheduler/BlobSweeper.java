@@ -0,0 +1,19 @@
+package com.frostetsky.cloudstorage.scheduler;
+
+import com.frostetsky.cloudstorage.service.impl.DeduplicatingS3Service;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class BlobSweeper {
+
+    private final DeduplicatingS3Service deduplicatingS3Service;
+
+    @Scheduled(initialDelayString = "${app.storage.dedup.sweep-interval:PT1H}",
+            fixedDelayString = "${app.storage.dedup.sweep-interval:PT1H}")
+    public void sweepUnreferenced() {
+        deduplicatingS3Service.sweepUnreferenced();
+    }
+}
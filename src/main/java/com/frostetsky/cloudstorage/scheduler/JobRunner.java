@@ -0,0 +1,29 @@
+package com.frostetsky.cloudstorage.scheduler;
+
+import com.frostetsky.cloudstorage.service.JobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class JobRunner {
+
+    private final JobService jobService;
+
+    @Scheduled(fixedDelayString = "${app.storage.jobs.poll-interval:PT1S}")
+    public void runQueuedJobs() {
+        jobService.runQueuedJobs();
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.jobs.heartbeat-interval:PT5S}")
+    public void heartbeat() {
+        jobService.heartbeat();
+    }
+
+    @Scheduled(initialDelayString = "${app.storage.jobs.cleanup-interval:PT1H}",
+            fixedDelayString = "${app.storage.jobs.cleanup-interval:PT1H}")
+    public void deleteExpiredJobs() {
+        jobService.deleteExpiredJobs();
+    }
+}
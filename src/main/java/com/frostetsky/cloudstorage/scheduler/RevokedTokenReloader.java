@@ -0,0 +1,26 @@
+package com.frostetsky.cloudstorage.scheduler;
+
+import com.frostetsky.cloudstorage.service.TokenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.auth", name = "mode", havingValue = "token")
+public class RevokedTokenReloader {
+
+    private final TokenService tokenService;
+
+    @Scheduled(fixedDelayString = "${app.auth.token.deny-list-refresh-interval:PT5S}")
+    public void reloadRevocations() {
+        tokenService.reloadRevocations();
+    }
+
+    @Scheduled(initialDelayString = "${app.auth.token.deny-list-cleanup-interval:PT1H}",
+            fixedDelayString = "${app.auth.token.deny-list-cleanup-interval:PT1H}")
+    public void deleteExpiredRevocations() {
+        tokenService.deleteExpiredRevocations();
+    }
+}
@@ -0,0 +1,18 @@
+package com.frostetsky.cloudstorage.scheduler;
+
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class RollupDeltaApplier {
+
+    private final ResourceIndexService resourceIndexService;
+
+    @Scheduled(fixedDelayString = "${app.storage.index.rollup-interval:PT1S}")
+    public void applyRollupDeltas() {
+        resourceIndexService.applyRollupDeltas();
+    }
+}
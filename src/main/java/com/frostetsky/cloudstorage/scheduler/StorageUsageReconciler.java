@@ -0,0 +1,19 @@
+package com.frostetsky.cloudstorage.scheduler;
+
+import com.frostetsky.cloudstorage.service.StorageUsageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class StorageUsageReconciler {
+
+    private final StorageUsageService storageUsageService;
+
+    @Scheduled(initialDelayString = "${app.storage.usage.reconcile-interval:PT1H}",
+            fixedDelayString = "${app.storage.usage.reconcile-interval:PT1H}")
+    public void reconcile() {
+        storageUsageService.reconcile();
+    }
+}
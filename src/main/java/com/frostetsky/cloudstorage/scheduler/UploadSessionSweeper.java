@@ -0,0 +1,18 @@
+package com.frostetsky.cloudstorage.scheduler;
+
+import com.frostetsky.cloudstorage.service.ResumableUploadService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class UploadSessionSweeper {
+
+    private final ResumableUploadService resumableUploadService;
+
+    @Scheduled(fixedDelayString = "${app.storage.resumable-upload.sweep-interval:PT5M}")
+    public void abortIdleSessions() {
+        resumableUploadService.abortIdleSessions();
+    }
+}
@@ -0,0 +1,53 @@
+package com.frostetsky.cloudstorage.security;
+
+import com.frostetsky.cloudstorage.excepiton.InvalidTokenException;
+import com.frostetsky.cloudstorage.service.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Authenticates requests carrying {@code Authorization: Bearer <access token>}. A missing or
+ * rejected token leaves the request anonymous, so that protected endpoints answer 401.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = resolveToken(request);
+        if (token != null) {
+            try {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(tokenService.authenticate(token));
+                SecurityContextHolder.setContext(context);
+            } catch (InvalidTokenException e) {
+                log.debug("Bearer token rejected: uri={}, message={}", request.getRequestURI(), e.getMessage());
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    public static String resolveToken(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        return header.substring(BEARER_PREFIX.length()).trim();
+    }
+}
@@ -0,0 +1,103 @@
+package com.frostetsky.cloudstorage.security;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frostetsky.cloudstorage.excepiton.InvalidTokenException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Writes and verifies HS256 JWTs. Only the header written here is accepted, so a token cannot pick
+ * its own algorithm.
+ */
+public class TokenSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_LENGTH = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String HEADER = ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final SecretKeySpec key;
+    private final ObjectMapper objectMapper;
+
+    public TokenSigner(String secret, ObjectMapper objectMapper) {
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_LENGTH) {
+            throw new IllegalStateException("app.auth.token.secret must be at least " + MIN_SECRET_LENGTH + " bytes");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.objectMapper = objectMapper;
+    }
+
+    public String sign(Claims claims) {
+        try {
+            String content = HEADER + "." + ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return content + "." + ENCODER.encodeToString(mac(content));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write token claims", e);
+        }
+    }
+
+    /**
+     * Checks the signature only; expiry and type are up to the caller, so that an expired token can
+     * still be revoked.
+     *
+     * @throws InvalidTokenException if the token is malformed or not signed with this key
+     */
+    public Claims verify(String token) {
+        int signatureStart = token.lastIndexOf('.');
+        if (!token.startsWith(HEADER + ".") || signatureStart <= HEADER.length()) {
+            throw new InvalidTokenException("Недействительный токен");
+        }
+        String content = token.substring(0, signatureStart);
+        try {
+            byte[] signature = DECODER.decode(token.substring(signatureStart + 1));
+            if (!MessageDigest.isEqual(mac(content), signature)) {
+                throw new InvalidTokenException("Недействительный токен");
+            }
+            return objectMapper.readValue(DECODER.decode(content.substring(HEADER.length() + 1)), Claims.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidTokenException("Недействительный токен", e);
+        }
+    }
+
+    private byte[] mac(String content) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(content.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    public enum Type {
+        ACCESS,
+        REFRESH
+    }
+
+    /**
+     * @param sessionId shared by the refresh token and the access tokens issued with it, so that one
+     *                  revocation covers all of them
+     * @param expiresAt epoch seconds
+     */
+    public record Claims(@JsonProperty("sub") String username,
+                         @JsonProperty("uid") long userId,
+                         @JsonProperty("sid") UUID sessionId,
+                         @JsonProperty("typ") Type type,
+                         @JsonProperty("exp") long expiresAt) {
+
+        public boolean isExpired(Instant now) {
+            return now.getEpochSecond() >= expiresAt;
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.frostetsky.cloudstorage.service;
 
+import com.frostetsky.cloudstorage.dto.LoginUserResponse;
 import jakarta.servlet.http.HttpServletRequest;
 
 public interface AuthService {
-    void authenticateAndCreateSession(String username, String password, HttpServletRequest request);
+
+    /**
+     * Authenticates the user and, depending on {@code app.auth.mode}, creates a session or issues tokens.
+     */
+    LoginUserResponse signIn(String username, String password, HttpServletRequest request);
+
+    LoginUserResponse refresh(String refreshToken);
 }
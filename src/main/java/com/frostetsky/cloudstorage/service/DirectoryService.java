@@ -1,14 +1,18 @@
 package com.frostetsky.cloudstorage.service;
 
+import com.frostetsky.cloudstorage.dto.ResourcePageDto;
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.model.ResourcePath;
 
 import java.util.List;
 
 public interface DirectoryService {
 
-    List<ResourceResponse> getDirectoryFiles(Long userId, String path);
+    List<ResourceResponse> getDirectoryFiles(ResourcePath path);
+
+    ResourcePageDto getDirectoryFilesPage(ResourcePath path, int limit, String cursor);
 
     void createBaseDirectory(String username);
 
-    ResourceResponse createDirectory(Long userId, String path);
+    ResourceResponse createDirectory(ResourcePath path);
 }
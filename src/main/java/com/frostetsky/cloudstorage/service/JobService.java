@@ -0,0 +1,47 @@
+package com.frostetsky.cloudstorage.service;
+
+import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.dto.JobResponse;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+
+/**
+ * Background jobs for deleting, moving and downloading large directories: a request returns the
+ * queued job at once and its progress is polled with {@link #getJob}.
+ * <p>
+ * Jobs are kept in Postgres and run by whichever node claims them. A node saves the progress
+ * of its jobs every {@code app.storage.jobs.heartbeat-interval}; when a node dies, another one
+ * takes its jobs over after {@code stale-timeout} and runs them again, which finishes an
+ * interrupted delete or move and rebuilds an archive from the start.
+ */
+public interface JobService {
+
+    JobResponse submitDelete(ResourcePath path);
+
+    JobResponse submitMove(ResourcePath pathFrom, ResourcePath pathTo);
+
+    /**
+     * Queues building a ZIP archive of the directory, downloaded with {@link #downloadResult}
+     * once the job succeeded.
+     */
+    JobResponse submitDownload(ResourcePath path);
+
+    JobResponse getJob(Long userId, String jobId);
+
+    DownloadResultDto downloadResult(Long userId, String jobId);
+
+    /**
+     * Claims queued jobs, and jobs of dead nodes, while this node runs fewer than
+     * {@code app.storage.jobs.parallelism} jobs and starts them.
+     */
+    void runQueuedJobs();
+
+    /**
+     * Saves the progress of the jobs running on this node and refreshes their heartbeat.
+     */
+    void heartbeat();
+
+    /**
+     * Deletes jobs finished more than {@code app.storage.jobs.result-ttl} ago with their archives.
+     */
+    void deleteExpiredJobs();
+}
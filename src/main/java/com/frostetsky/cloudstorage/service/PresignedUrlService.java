@@ -0,0 +1,29 @@
+package com.frostetsky.cloudstorage.service;
+
+import com.frostetsky.cloudstorage.dto.PresignedUrlResponse;
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+
+/**
+ * Short-lived storage URLs that let clients download and upload files without the bytes
+ * passing through the application. A URL is signed for one object under the user base prefix
+ * {@code user-<id>-files/}; all paths are relative to it.
+ * <p>
+ * An upload is finished by {@link #completeUpload}: storage knows nothing about the index or
+ * directory markers, so until then the file is not visible to the application.
+ */
+public interface PresignedUrlService {
+
+    PresignedUrlResponse presignDownload(Long userId, String path);
+
+    /**
+     * Signs a {@code POST} upload form for {@code path} whose policy limits the file to the
+     * presign size limit and to what is left of the user's quota.
+     */
+    PresignedUrlResponse presignUpload(Long userId, String path);
+
+    /**
+     * Checks the uploaded object, creates the missing parent directories and indexes the file.
+     * An object over the size limit or the quota, e.g. after concurrent uploads, is deleted.
+     */
+    ResourceResponse completeUpload(Long userId, String path);
+}
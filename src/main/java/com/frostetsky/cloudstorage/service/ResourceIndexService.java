@@ -0,0 +1,91 @@
+package com.frostetsky.cloudstorage.service;
+
+import com.frostetsky.cloudstorage.model.ResourceMetadata;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * PostgreSQL index of user resources, kept in sync with MinIO on every write
+ * so that listings and resource info do not have to query the storage.
+ * <p>
+ * All paths are relative to the user base prefix {@code user-<id>-files/}.
+ */
+public interface ResourceIndexService {
+
+    /**
+     * Whether the directory {@code path} can be listed from the index: the user is indexed
+     * (see {@link #isUserIndexed}) and the directory has a row.
+     */
+    boolean isIndexed(Long userId, String path);
+
+    /**
+     * Whether the user's index has been reconciled with the storage at least once, so that it
+     * holds every object of the user. Rows written before that only prove that a resource exists,
+     * never that a directory is complete. The first call for a user that is not indexed starts the
+     * reconciliation in the background.
+     */
+    boolean isUserIndexed(Long userId);
+
+    Optional<ResourceMetadata> findResource(Long userId, String path);
+
+    /**
+     * Returns the subset of {@code paths} that is indexed, in one query.
+     */
+    Set<String> findIndexedPaths(Long userId, Collection<String> paths);
+
+    List<ResourceMetadata> getDirectoryContent(Long userId, String path);
+
+    /**
+     * Returns at most {@code limit} direct children of {@code path} ordered by path,
+     * starting strictly after {@code afterPath}.
+     */
+    List<ResourceMetadata> getDirectoryContent(Long userId, String path, String afterPath, int limit);
+
+    /**
+     * Finds resources whose name contains {@code query}, ignoring case.
+     * Names starting with the query have rank 0 and go first, the rest have rank 1.
+     * Results are ordered by rank and path and start strictly after {@code (afterRank, afterPath)}.
+     * Until the user's index is built, the user's objects are listed and searched instead.
+     */
+    List<ResourceMetadata> search(Long userId, String query, int afterRank, String afterPath, int limit);
+
+    /**
+     * Applies the pending changes of directory sizes and descendant counts. Index writes only
+     * record them, so that writes below one directory do not serialize on its row; until they are
+     * applied, rollups lag behind the index by at most {@code app.storage.index.rollup-interval}.
+     */
+    void applyRollupDeltas();
+
+    void indexDirectory(Long userId, String path);
+
+    void indexFile(Long userId, String path, long size, String etag, Instant lastModified);
+
+    /**
+     * Returns the indexed files under the directory {@code path} whose CRC-32 is known.
+     */
+    List<ResourceMetadata> findFilesWithChecksum(Long userId, String path);
+
+    /**
+     * Remembers the CRC-32 of a file; ignored if the file is not indexed or its ETag has changed since.
+     */
+    void saveChecksum(Long userId, String path, String etag, long crc32);
+
+    void removeResource(Long userId, String path);
+
+    void moveResource(Long userId, String pathFrom, String pathTo);
+
+    /**
+     * Brings the user's index in line with a listing of the user's objects and marks the user
+     * as indexed.
+     */
+    void reconcile(Long userId);
+
+    /**
+     * Reconciles every user that has a base prefix in the storage.
+     */
+    void backfill();
+}
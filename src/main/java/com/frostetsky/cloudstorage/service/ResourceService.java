@@ -1,21 +1,83 @@
 package com.frostetsky.cloudstorage.service;
 
+import com.frostetsky.cloudstorage.dto.ArchiveMode;
+import com.frostetsky.cloudstorage.dto.DeleteResultDto;
 import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.dto.ResourcePageDto;
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadResultDto;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.util.ProgressListener;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public interface ResourceService {
-    List<ResourceResponse> uploadResource(Long userId, String path, MultipartFile[] files);
+    UploadResultDto uploadResource(ResourcePath path, MultipartFile[] files);
 
-    void deleteResource(Long userId, String path);
+    /**
+     * Reads a multipart/form-data body part by part and streams every file straight to storage,
+     * without spooling it to memory or disk. Size limits are checked while the body is read.
+     */
+    UploadResultDto uploadResourceStream(ResourcePath path, HttpServletRequest request);
 
-    ResourceResponse getResourceInfo(Long userId, String path);
+    /**
+     * Deletes a file or a directory. Objects that fail to delete do not stop the others; they
+     * are reported in the result and stay in the index.
+     */
+    DeleteResultDto deleteResource(ResourcePath path);
 
-    DownloadResultDto downloadResource(Long userId, String path);
+    /**
+     * Checks that the resource exists, as {@link #deleteResource} does before deleting it.
+     */
+    void checkDelete(ResourcePath path);
 
-    ResourceResponse moveResource(Long userId, String pathFrom, String pathTo);
+    /**
+     * Deletes a resource already checked by {@link #checkDelete}. Can be run again after an
+     * interrupted run to finish it.
+     *
+     * @param progress receives the deleted objects of a directory
+     */
+    DeleteResultDto deleteChecked(ResourcePath path, ProgressListener progress);
 
-    List<ResourceResponse> searchResources(Long userId, String query);
+    ResourceResponse getResourceInfo(ResourcePath path);
+
+    /**
+     * Downloads a file, or a directory as a ZIP archive packed according to {@code archiveMode}.
+     * A {@link ArchiveMode#STORED} archive has a known length and can be downloaded by ranges.
+     */
+    DownloadResultDto downloadResource(ResourcePath path, ArchiveMode archiveMode);
+
+    /**
+     * Checks that the resource exists, as {@link #downloadResource} does before downloading it.
+     */
+    void checkDownload(ResourcePath path);
+
+    /**
+     * Writes a directory as a {@link ArchiveMode#DEFLATE} ZIP archive.
+     *
+     * @param progress receives every archived object, directory markers included
+     */
+    void writeDirectoryArchive(ResourcePath folder, OutputStream outputStream, ProgressListener progress)
+            throws IOException;
+
+    ResourceResponse moveResource(ResourcePath pathFrom, ResourcePath pathTo);
+
+    /**
+     * Checks that the source exists and the target does not and is not inside the source,
+     * as {@link #moveResource} does before moving.
+     */
+    void checkMove(ResourcePath pathFrom, ResourcePath pathTo);
+
+    /**
+     * Moves a resource already checked by {@link #checkMove}. Can be run again after an
+     * interrupted run to finish it.
+     *
+     * @param progress receives the copied objects of a directory
+     */
+    ResourceResponse moveChecked(ResourcePath pathFrom, ResourcePath pathTo, ProgressListener progress);
+
+    ResourcePageDto searchResources(Long userId, String query, int limit, String cursor);
 }
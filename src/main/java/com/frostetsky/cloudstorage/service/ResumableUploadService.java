@@ -0,0 +1,35 @@
+package com.frostetsky.cloudstorage.service;
+
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadSessionResponse;
+
+import java.io.InputStream;
+
+/**
+ * Resumable uploads on top of S3 multipart uploads: a client starts a session, sends the file
+ * in parts of {@code chunkSize} bytes in any order, re-sending failed parts, and completes it.
+ * <p>
+ * Paths are relative to the user base prefix {@code user-<id>-files/}.
+ */
+public interface ResumableUploadService {
+
+    UploadSessionResponse createSession(Long userId, String path, long size);
+
+    UploadSessionResponse getSession(Long userId, String sessionId);
+
+    /**
+     * Stores part {@code partNumber}; re-sending a part replaces it.
+     *
+     * @param data exactly the expected size of the part
+     */
+    UploadSessionResponse uploadPart(Long userId, String sessionId, int partNumber, InputStream data);
+
+    ResourceResponse completeSession(Long userId, String sessionId);
+
+    void abortSession(Long userId, String sessionId);
+
+    /**
+     * Aborts sessions that received no part within {@code app.storage.resumable-upload.session-ttl}.
+     */
+    void abortIdleSessions();
+}
@@ -2,12 +2,13 @@ package com.frostetsky.cloudstorage.service;
 
 import io.minio.ObjectWriteResponse;
 import io.minio.StatObjectResponse;
-import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import io.minio.messages.Part;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface S3Service {
 
@@ -17,17 +18,78 @@ public interface S3Service {
 
     List<Item> getObjectsInDirectory(String path, boolean recursive);
 
+    /**
+     * Lazily lists objects under {@code path}: pages are fetched from storage only while the
+     * stream is consumed, so callers can stop early or process huge listings in constant memory.
+     *
+     * @param startAfter key to start listing after, or {@code null} to list from the beginning
+     */
+    Stream<Item> streamObjectsInDirectory(String path, String startAfter, boolean recursive);
+
     ObjectWriteResponse createEmptyDir(String path);
 
     ObjectWriteResponse putObject(String path, MultipartFile file);
 
-    void deleteObjects(List<DeleteObject> objectsToDelete);
+    /**
+     * Uploads a stream of unknown length as a multipart upload, part by part, without buffering
+     * the whole content.
+     */
+    ObjectWriteResponse putObject(String path, InputStream stream, String contentType);
+
+    /**
+     * Deletes objects by key; keys that do not exist are ignored.
+     */
+    void deleteObjects(List<String> objectsToDelete);
+
+    /**
+     * Deletes objects by key like {@link #deleteObjects}, but a key that fails to delete does not
+     * stop the others.
+     *
+     * @return keys that could not be deleted
+     */
+    List<String> tryDeleteObjects(List<String> objectsToDelete);
 
     boolean checkExistObject(String path);
 
     InputStream downloadObject(String path);
 
+    /**
+     * Opens {@code length} bytes of the object starting at {@code offset}.
+     */
+    InputStream downloadObject(String path, long offset, long length);
+
     ObjectWriteResponse copyObject(String pathFrom, String pathTo);
 
     StatObjectResponse getObjectInfo(String path);
+
+    /**
+     * Key of the object holding the content of the object at {@code path}, for URLs signed past
+     * this service; differs from {@code path} for deduplicated files.
+     */
+    String resolveContentKey(String path);
+
+    /**
+     * Forgets anything known about the object, for objects written past this service,
+     * e.g. by a client through a presigned URL.
+     */
+    void evictObjectInfo(String path);
+
+    /**
+     * Starts a multipart upload whose parts may arrive in separate requests.
+     *
+     * @return upload id
+     */
+    String createMultipartUpload(String path);
+
+    /**
+     * @return ETag of the uploaded part
+     */
+    String uploadPart(String path, String uploadId, int partNumber, byte[] data);
+
+    ObjectWriteResponse completeMultipartUpload(String path, String uploadId, List<Part> parts);
+
+    /**
+     * Aborts a multipart upload and frees its parts; an upload that no longer exists is ignored.
+     */
+    void abortMultipartUpload(String path, String uploadId);
 }
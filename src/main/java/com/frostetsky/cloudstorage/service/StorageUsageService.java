@@ -0,0 +1,37 @@
+package com.frostetsky.cloudstorage.service;
+
+import com.frostetsky.cloudstorage.dto.StorageUsageResponse;
+
+/**
+ * Per-user totals of stored bytes, files and directories. The resource index changes them in
+ * the same transaction as its own rows, so reading them costs one primary key lookup instead
+ * of a listing of the user's objects.
+ */
+public interface StorageUsageService {
+
+    StorageUsageResponse getUsage(Long userId);
+
+    /**
+     * Throws {@link com.frostetsky.cloudstorage.excepiton.StorageQuotaExceededException} if
+     * {@code additionalBytes} more would not fit into the user's quota. The check is not a
+     * reservation: concurrent uploads that each fit may together go over the quota, which
+     * {@link #indexWithinQuota} then prevents.
+     */
+    void checkQuota(Long userId, long additionalBytes);
+
+    /**
+     * Runs an index write and rolls it back with
+     * {@link com.frostetsky.cloudstorage.excepiton.StorageQuotaExceededException} if the user's
+     * totals then exceed the quota. The totals stay locked until the write commits, so concurrent
+     * writes are checked one after another, each against the bytes of the others.
+     */
+    void indexWithinQuota(Long userId, Runnable indexWrite);
+
+    /**
+     * Reconciles the resource index of every user with the storage and recomputes the totals
+     * from it, correcting drift of both the index and the totals.
+     */
+    void reconcile();
+
+    void reconcile(Long userId);
+}
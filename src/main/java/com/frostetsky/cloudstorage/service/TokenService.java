@@ -0,0 +1,27 @@
+package com.frostetsky.cloudstorage.service;
+
+import com.frostetsky.cloudstorage.dto.LoginUserResponse;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Signed access and refresh tokens of the token auth mode. Tokens are checked without leaving the
+ * node; revocations are shared through the database and reloaded in the background.
+ */
+public interface TokenService {
+
+    LoginUserResponse issueTokens(CustomUserDetails userDetails);
+
+    LoginUserResponse refresh(String refreshToken);
+
+    Authentication authenticate(String accessToken);
+
+    /**
+     * Revokes the sign-in the token belongs to: its refresh token and every access token issued with it.
+     */
+    void revoke(String token);
+
+    void reloadRevocations();
+
+    void deleteExpiredRevocations();
+}
@@ -1,10 +1,16 @@
 package com.frostetsky.cloudstorage.service.impl;
 
+import com.frostetsky.cloudstorage.constants.AuthProperties;
+import com.frostetsky.cloudstorage.dto.LoginUserResponse;
+import com.frostetsky.cloudstorage.excepiton.InvalidTokenException;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
 import com.frostetsky.cloudstorage.service.AuthService;
+import com.frostetsky.cloudstorage.service.TokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -18,21 +24,44 @@ import org.springframework.stereotype.Service;
 public class AuthServiceImpl implements AuthService {
 
     private final AuthenticationManager authenticationManager;
+    private final AuthProperties authProperties;
+    private final ObjectProvider<TokenService> tokenService;
 
     @Override
-    public void authenticateAndCreateSession(String username, String password, HttpServletRequest request) {
-        log.debug("Authenticating user and creating session: username={}", username);
+    public LoginUserResponse signIn(String username, String password, HttpServletRequest request) {
+        log.debug("Authenticating user: username={}, mode={}", username, authProperties.getMode());
 
         Authentication auth = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(username, password));
 
+        if (authProperties.getMode() == AuthProperties.Mode.TOKEN) {
+            return tokenService.getObject().issueTokens((CustomUserDetails) auth.getPrincipal());
+        }
+        createSession(auth, request);
+        log.info("User authenticated and session created: username={}", username);
+        return new LoginUserResponse(username);
+    }
+
+    @Override
+    public LoginUserResponse refresh(String refreshToken) {
+        TokenService service = tokenService.getIfAvailable();
+        if (service == null) {
+            throw new InvalidTokenException("Вход по токенам отключён");
+        }
+        return service.refresh(refreshToken);
+    }
+
+    private void createSession(Authentication auth, HttpServletRequest request) {
+        HttpSession existingSession = request.getSession(false);
+        if (existingSession != null) {
+            existingSession.invalidate();
+        }
+
         SecurityContext context = SecurityContextHolder.createEmptyContext();
         context.setAuthentication(auth);
         SecurityContextHolder.setContext(context);
 
         HttpSession session = request.getSession(true);
         session.setAttribute("SPRING_SECURITY_CONTEXT", context);
-
-        log.info("User authenticated and session created: username={}", username);
     }
 }
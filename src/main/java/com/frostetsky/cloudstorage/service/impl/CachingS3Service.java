@@ -0,0 +1,199 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import io.minio.messages.Part;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Caches {@code statObject} results of {@link DeduplicatingS3Service}, including misses, so that only
+ * calls which reach the storage are metered.
+ * <p>
+ * Writes and deletes made through this service invalidate the keys they touch.
+ * Changes made to the bucket by other application instances become visible once the entry
+ * expires, so TTLs are kept short.
+ */
+@Primary
+@Service
+@ConditionalOnProperty(prefix = "app.storage.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachingS3Service implements S3Service {
+
+    private static final String CACHE_NAME = "s3.stat";
+
+    private final S3Service delegate;
+    private final Cache<String, Optional<StatObjectResponse>> statCache;
+
+    public CachingS3Service(@Qualifier("deduplicatingS3Service") S3Service delegate,
+                            StorageProperties storageProperties,
+                            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        StorageProperties.Cache properties = storageProperties.getCache();
+        this.statCache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(Expiry.<String, Optional<StatObjectResponse>>creating((path, stat) -> stat.isPresent()
+                        ? properties.getTtl()
+                        : properties.getNegativeTtl()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, statCache, CACHE_NAME);
+    }
+
+    @Override
+    public boolean checkExistObject(String path) {
+        return getCachedStat(path).isPresent();
+    }
+
+    @Override
+    public StatObjectResponse getObjectInfo(String path) {
+        return getCachedStat(path)
+                .orElseThrow(() -> new ResourceNotFoundException("Resource not found"));
+    }
+
+    @Override
+    public String resolveContentKey(String path) {
+        return delegate.resolveContentKey(path);
+    }
+
+    @Override
+    public void evictObjectInfo(String path) {
+        statCache.invalidate(path);
+    }
+
+    private Optional<StatObjectResponse> getCachedStat(String path) {
+        return statCache.get(path, this::loadStat);
+    }
+
+    private Optional<StatObjectResponse> loadStat(String path) {
+        try {
+            return Optional.of(delegate.getObjectInfo(path));
+        } catch (ResourceNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public ObjectWriteResponse createEmptyDir(String path) {
+        try {
+            return delegate.createEmptyDir(path);
+        } finally {
+            statCache.invalidate(path);
+        }
+    }
+
+    @Override
+    public ObjectWriteResponse putObject(String path, MultipartFile file) {
+        try {
+            return delegate.putObject(path, file);
+        } finally {
+            statCache.invalidate(path);
+        }
+    }
+
+    @Override
+    public ObjectWriteResponse putObject(String path, InputStream stream, String contentType) {
+        try {
+            return delegate.putObject(path, stream, contentType);
+        } finally {
+            statCache.invalidate(path);
+        }
+    }
+
+    @Override
+    public void deleteObjects(List<String> objectsToDelete) {
+        try {
+            delegate.deleteObjects(objectsToDelete);
+        } finally {
+            statCache.invalidateAll(objectsToDelete);
+        }
+    }
+
+    @Override
+    public List<String> tryDeleteObjects(List<String> objectsToDelete) {
+        try {
+            return delegate.tryDeleteObjects(objectsToDelete);
+        } finally {
+            statCache.invalidateAll(objectsToDelete);
+        }
+    }
+
+    @Override
+    public ObjectWriteResponse copyObject(String pathFrom, String pathTo) {
+        try {
+            return delegate.copyObject(pathFrom, pathTo);
+        } finally {
+            statCache.invalidate(pathTo);
+        }
+    }
+
+    @Override
+    public ObjectWriteResponse completeMultipartUpload(String path, String uploadId, List<Part> parts) {
+        try {
+            return delegate.completeMultipartUpload(path, uploadId, parts);
+        } finally {
+            statCache.invalidate(path);
+        }
+    }
+
+    @Override
+    public String createMultipartUpload(String path) {
+        return delegate.createMultipartUpload(path);
+    }
+
+    @Override
+    public String uploadPart(String path, String uploadId, int partNumber, byte[] data) {
+        return delegate.uploadPart(path, uploadId, partNumber, data);
+    }
+
+    @Override
+    public void abortMultipartUpload(String path, String uploadId) {
+        delegate.abortMultipartUpload(path, uploadId);
+    }
+
+    @Override
+    public boolean checkBaseBucketExists() {
+        return delegate.checkBaseBucketExists();
+    }
+
+    @Override
+    public void createBaseBucket() {
+        delegate.createBaseBucket();
+    }
+
+    @Override
+    public List<Item> getObjectsInDirectory(String path, boolean recursive) {
+        return delegate.getObjectsInDirectory(path, recursive);
+    }
+
+    @Override
+    public Stream<Item> streamObjectsInDirectory(String path, String startAfter, boolean recursive) {
+        return delegate.streamObjectsInDirectory(path, startAfter, recursive);
+    }
+
+    @Override
+    public InputStream downloadObject(String path) {
+        return delegate.downloadObject(path);
+    }
+
+    @Override
+    public InputStream downloadObject(String path, long offset, long length) {
+        return delegate.downloadObject(path, offset, length);
+    }
+}
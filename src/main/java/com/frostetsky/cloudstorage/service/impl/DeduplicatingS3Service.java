@@ -0,0 +1,446 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.repository.BlobRepository;
+import com.frostetsky.cloudstorage.repository.BlobRepository.BlobReference;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.BatchUtil;
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Item;
+import io.minio.messages.Part;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Headers;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.frostetsky.cloudstorage.constants.MinioConstants.*;
+
+/**
+ * Stores uploaded content once under its SHA-256 ({@code blobs/<ab>/<hash>}) and writes a
+ * zero-byte object at the user path that refers to it through {@code blob_refs}. A duplicate
+ * upload only adds a reference, a copy or move copies the zero-byte object. Stats, listings and
+ * downloads of a referring object show the size, hash and bytes of its content.
+ * <p>
+ * Uploads are deduplicated only with {@code app.storage.dedup.enabled}; references are honoured
+ * either way, so that the flag can be turned off without rewriting stored files. Objects written
+ * past this service (resumable and presigned uploads) and job archives ({@code jobs/}), which are
+ * unique and short-lived, are stored as they are.
+ * <p>
+ * A reference is counted before the content is looked for, and content is deleted only while
+ * it has no references, so an upload either finds its content in place or writes it again.
+ * The reference stays pending until the content and the zero-byte object are stored, and is
+ * taken back if either fails. Content that lost its last reference, and pending references left
+ * by writes that never finished, are cleaned up by {@link #sweepUnreferenced()}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeduplicatingS3Service implements S3Service {
+
+    /** Keys looked up at once; one listing page. */
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final MeteredS3Service delegate;
+    private final BlobRepository blobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageProperties storageProperties;
+
+    @Override
+    public ObjectWriteResponse putObject(String path, MultipartFile file) {
+        if (!isDeduplicated(path)) {
+            return delegate.putObject(path, file);
+        }
+        MessageDigest digest = sha256();
+        try (InputStream stream = new DigestInputStream(file.getInputStream(), digest)) {
+            stream.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new ResourceServiceException("Failed to hash uploaded file", e);
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        return putReference(path, hash, file.getSize(), null, blobKey -> delegate.putObject(blobKey, file));
+    }
+
+    /**
+     * The stream can be read only once, so it is stored under a staging key while it is hashed
+     * and copied to its content key afterwards if the content is new.
+     */
+    @Override
+    public ObjectWriteResponse putObject(String path, InputStream stream, String contentType) {
+        if (!isDeduplicated(path)) {
+            return delegate.putObject(path, stream, contentType);
+        }
+        String stagingKey = BLOB_STAGING_PREFIX + UUID.randomUUID();
+        MessageDigest digest = sha256();
+        try {
+            BoundedInputStream counted = BoundedInputStream.builder()
+                    .setInputStream(new DigestInputStream(stream, digest))
+                    .get();
+            delegate.putObject(stagingKey, counted, contentType);
+            String hash = HexFormat.of().formatHex(digest.digest());
+            return putReference(path, hash, counted.getCount(), contentType,
+                    blobKey -> delegate.copyObject(stagingKey, blobKey));
+        } catch (IOException e) {
+            throw new ResourceServiceException("Failed to hash uploaded file", e);
+        } finally {
+            delegate.deleteObjects(List.of(stagingKey));
+        }
+    }
+
+    private ObjectWriteResponse putReference(String path, String hash, long size, String contentType,
+                                             Function<String, ObjectWriteResponse> storeContent) {
+        String blobKey = blobKey(hash);
+        addReference(path, hash, size);
+        boolean stored = false;
+        try {
+            if (delegate.checkExistObject(blobKey)) {
+                log.info("Upload deduplicated: path={}, hash={}, size={}", path, hash, size);
+            } else {
+                storeContent.apply(blobKey);
+            }
+            ObjectWriteResponse pointer = delegate.putObject(path, InputStream.nullInputStream(), contentType);
+            stored = true;
+            commitReference(path, hash);
+            return withContent(pointer, hash);
+        } finally {
+            if (!stored) {
+                removeReferences(List.of(path));
+            }
+        }
+    }
+
+    /**
+     * A referring source gets its reference copied along with the zero-byte object, no content is
+     * copied.
+     */
+    @Override
+    public ObjectWriteResponse copyObject(String pathFrom, String pathTo) {
+        Optional<BlobReference> reference = findReference(pathFrom);
+        if (reference.isEmpty()) {
+            return delegate.copyObject(pathFrom, pathTo);
+        }
+        String hash = reference.get().getHash();
+        addReference(pathTo, hash, reference.get().getSize());
+        boolean copied = false;
+        try {
+            ObjectWriteResponse pointer = delegate.copyObject(pathFrom, pathTo);
+            copied = true;
+            commitReference(pathTo, hash);
+            return withContent(pointer, hash);
+        } finally {
+            if (!copied) {
+                removeReferences(List.of(pathTo));
+            }
+        }
+    }
+
+    @Override
+    public void deleteObjects(List<String> objectsToDelete) {
+        delegate.deleteObjects(objectsToDelete);
+        removeReferences(objectsToDelete);
+    }
+
+    /**
+     * References of the keys that failed to delete are kept, their objects still point at them.
+     */
+    @Override
+    public List<String> tryDeleteObjects(List<String> objectsToDelete) {
+        List<String> failed = delegate.tryDeleteObjects(objectsToDelete);
+        if (failed.isEmpty()) {
+            removeReferences(objectsToDelete);
+        } else {
+            Set<String> failedKeys = new HashSet<>(failed);
+            removeReferences(objectsToDelete.stream()
+                    .filter(key -> !failedKeys.contains(key))
+                    .toList());
+        }
+        return failed;
+    }
+
+    @Override
+    public StatObjectResponse getObjectInfo(String path) {
+        StatObjectResponse info = delegate.getObjectInfo(path);
+        if (info.size() != 0 || path.endsWith("/")) {
+            return info;
+        }
+        return findReference(path)
+                .map(reference -> withContent(info, reference))
+                .orElse(info);
+    }
+
+    @Override
+    public InputStream downloadObject(String path) {
+        return delegate.downloadObject(resolveContentKey(path));
+    }
+
+    @Override
+    public InputStream downloadObject(String path, long offset, long length) {
+        return delegate.downloadObject(resolveContentKey(path), offset, length);
+    }
+
+    @Override
+    public String resolveContentKey(String path) {
+        if (path.endsWith("/")) {
+            return path;
+        }
+        return findReference(path)
+                .map(reference -> blobKey(reference.getHash()))
+                .orElse(path);
+    }
+
+    @Override
+    public List<Item> getObjectsInDirectory(String path, boolean recursive) {
+        try (Stream<Item> items = streamObjectsInDirectory(path, null, recursive)) {
+            return items.toList();
+        }
+    }
+
+    @Override
+    public Stream<Item> streamObjectsInDirectory(String path, String startAfter, boolean recursive) {
+        return BatchUtil.batches(delegate.streamObjectsInDirectory(path, startAfter, recursive), LOOKUP_BATCH_SIZE)
+                .flatMap(this::resolveItems);
+    }
+
+    private Stream<Item> resolveItems(List<Item> items) {
+        List<String> keys = items.stream()
+                .filter(item -> !item.isDir() && item.size() == 0 && !item.objectName().endsWith("/"))
+                .map(Item::objectName)
+                .toList();
+        Map<String, BlobReference> references = keys.isEmpty()
+                ? Map.of()
+                : blobRepository.findReferences(keys).stream()
+                .collect(Collectors.toMap(BlobReference::getObjectKey, Function.identity()));
+        if (references.isEmpty()) {
+            return items.stream();
+        }
+        return items.stream().map(item -> {
+            BlobReference reference = references.get(item.objectName());
+            return reference == null ? item : new ReferringItem(item, reference);
+        });
+    }
+
+    /**
+     * Deletes content that has had no references for {@code app.storage.dedup.unreferenced-ttl},
+     * along with staged uploads left behind by failed requests. References pending for as long are
+     * settled first, so that content they held is swept in the same run.
+     */
+    public void sweepUnreferenced() {
+        Instant before = Instant.now().minus(storageProperties.getDedup().getUnreferencedTtl());
+        settlePendingReferences(before);
+        long deletedCount = 0;
+        int batchCount;
+        do {
+            batchCount = transactionTemplate.execute(status -> {
+                List<String> hashes = blobRepository.lockUnreferenced(before, DELETE_BATCH_SIZE);
+                if (!hashes.isEmpty()) {
+                    delegate.deleteObjects(hashes.stream().map(DeduplicatingS3Service::blobKey).toList());
+                    blobRepository.deleteByHashes(hashes);
+                }
+                return hashes.size();
+            });
+            deletedCount += batchCount;
+        } while (batchCount == DELETE_BATCH_SIZE);
+
+        try (Stream<List<Item>> batches = BatchUtil.batches(
+                delegate.streamObjectsInDirectory(BLOB_STAGING_PREFIX, null, true), DELETE_BATCH_SIZE)) {
+            batches.map(batch -> batch.stream()
+                            .filter(item -> item.lastModified().toInstant().isBefore(before))
+                            .map(Item::objectName)
+                            .toList())
+                    .filter(keys -> !keys.isEmpty())
+                    .forEach(delegate::deleteObjects);
+        }
+        log.info("Unreferenced content swept: deletedCount={}", deletedCount);
+    }
+
+    /**
+     * A pending reference whose zero-byte object and content are both stored belongs to a write
+     * that stopped just before committing it and is committed; any other is taken back.
+     */
+    private void settlePendingReferences(Instant before) {
+        long committedCount = 0;
+        long removedCount = 0;
+        List<BlobReference> pending;
+        do {
+            pending = blobRepository.findPendingReferences(before, LOOKUP_BATCH_SIZE);
+            List<String> dangling = new ArrayList<>();
+            for (BlobReference reference : pending) {
+                if (delegate.checkExistObject(reference.getObjectKey())
+                        && delegate.checkExistObject(blobKey(reference.getHash()))) {
+                    commitReference(reference.getObjectKey(), reference.getHash());
+                    committedCount++;
+                } else {
+                    dangling.add(reference.getObjectKey());
+                }
+            }
+            removeReferences(dangling);
+            removedCount += dangling.size();
+        } while (pending.size() == LOOKUP_BATCH_SIZE);
+        if (committedCount + removedCount > 0) {
+            log.warn("Pending blob references settled: committedCount={}, removedCount={}", committedCount, removedCount);
+        }
+    }
+
+    private boolean isDeduplicated(String path) {
+        return storageProperties.getDedup().isEnabled() && !path.startsWith(JOB_RESULT_PREFIX);
+    }
+
+    private void addReference(String path, String hash, long size) {
+        transactionTemplate.executeWithoutResult(status -> {
+            blobRepository.removeReferences(List.of(path));
+            blobRepository.addReference(hash, size);
+            blobRepository.insertReference(path, hash);
+        });
+    }
+
+    private void commitReference(String path, String hash) {
+        transactionTemplate.executeWithoutResult(status -> blobRepository.commitReference(path, hash));
+    }
+
+    private void removeReferences(List<String> paths) {
+        List<String> files = paths.stream()
+                .filter(path -> !path.endsWith("/"))
+                .toList();
+        for (int from = 0; from < files.size(); from += LOOKUP_BATCH_SIZE) {
+            List<String> batch = files.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, files.size()));
+            transactionTemplate.executeWithoutResult(status -> blobRepository.removeReferences(batch));
+        }
+    }
+
+    private Optional<BlobReference> findReference(String path) {
+        return blobRepository.findReferences(List.of(path)).stream().findFirst();
+    }
+
+    private static String blobKey(String hash) {
+        return BLOB_PREFIX + hash.substring(0, 2) + "/" + hash;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ObjectWriteResponse withContent(ObjectWriteResponse pointer, String hash) {
+        return new ObjectWriteResponse(pointer.headers(), pointer.bucket(), pointer.region(), pointer.object(),
+                hash, pointer.versionId());
+    }
+
+    private static StatObjectResponse withContent(StatObjectResponse info, BlobReference reference) {
+        Headers headers = info.headers().newBuilder()
+                .set("Content-Length", String.valueOf(reference.getSize()))
+                .set("ETag", "\"" + reference.getHash() + "\"")
+                .build();
+        return new StatObjectResponse(headers, info.bucket(), info.region(), info.object());
+    }
+
+    @Override
+    public ObjectWriteResponse createEmptyDir(String path) {
+        return delegate.createEmptyDir(path);
+    }
+
+    @Override
+    public boolean checkExistObject(String path) {
+        return delegate.checkExistObject(path);
+    }
+
+    @Override
+    public void evictObjectInfo(String path) {
+        delegate.evictObjectInfo(path);
+    }
+
+    @Override
+    public boolean checkBaseBucketExists() {
+        return delegate.checkBaseBucketExists();
+    }
+
+    @Override
+    public void createBaseBucket() {
+        delegate.createBaseBucket();
+    }
+
+    @Override
+    public String createMultipartUpload(String path) {
+        return delegate.createMultipartUpload(path);
+    }
+
+    @Override
+    public String uploadPart(String path, String uploadId, int partNumber, byte[] data) {
+        return delegate.uploadPart(path, uploadId, partNumber, data);
+    }
+
+    @Override
+    public ObjectWriteResponse completeMultipartUpload(String path, String uploadId, List<Part> parts) {
+        return delegate.completeMultipartUpload(path, uploadId, parts);
+    }
+
+    @Override
+    public void abortMultipartUpload(String path, String uploadId) {
+        delegate.abortMultipartUpload(path, uploadId);
+    }
+
+    /**
+     * Listed object that refers to deduplicated content, reporting the content's size and hash.
+     */
+    private static class ReferringItem extends Item {
+
+        private final Item item;
+        private final BlobReference reference;
+
+        ReferringItem(Item item, BlobReference reference) {
+            this.item = item;
+            this.reference = reference;
+        }
+
+        @Override
+        public String objectName() {
+            return item.objectName();
+        }
+
+        @Override
+        public ZonedDateTime lastModified() {
+            return item.lastModified();
+        }
+
+        @Override
+        public String etag() {
+            return reference.getHash();
+        }
+
+        @Override
+        public long size() {
+            return reference.getSize();
+        }
+
+        @Override
+        public boolean isDir() {
+            return false;
+        }
+    }
+}
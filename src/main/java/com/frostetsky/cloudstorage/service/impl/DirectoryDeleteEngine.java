@@ -0,0 +1,133 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.BatchUtil;
+import com.frostetsky.cloudstorage.util.ProgressListener;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static com.frostetsky.cloudstorage.constants.MinioConstants.DELETE_BATCH_SIZE;
+
+/**
+ * Deletes every object under a directory while the directory is still being listed.
+ * <p>
+ * Listing pages are cut into batches of {@link com.frostetsky.cloudstorage.constants.MinioConstants#DELETE_BATCH_SIZE}
+ * keys, and up to {@code app.storage.delete.parallelism} batch deletes run on the storage executor
+ * while the next page is listed, so memory is bounded by the batches in flight whatever the size
+ * of the tree. A key that fails to delete does not stop the others: failed keys are counted and
+ * the first {@link #FAILED_KEYS_LIMIT} of them are kept for the report.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectoryDeleteEngine {
+
+    static final int FAILED_KEYS_LIMIT = 100;
+
+    private final S3Service s3Service;
+    private final StorageProperties storageProperties;
+    @Qualifier("storageTaskExecutor")
+    private final Executor storageTaskExecutor;
+
+    /**
+     * @param path     full path of the directory (ends with "/")
+     * @param progress receives the deleted objects of every batch
+     * @throws ResourceServiceException if the listing fails; the batches already sent are finished first
+     * @throws CancellationException     if {@code progress} is cancelled; the batches already sent are finished first
+     */
+    public DeleteOutcome deleteDirectory(String path, ProgressListener progress) {
+        int parallelism = storageProperties.getDelete().getParallelism();
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicLong deletedCount = new AtomicLong();
+        AtomicLong failedCount = new AtomicLong();
+        List<String> failedKeys = Collections.synchronizedList(new ArrayList<>());
+        RuntimeException listingFailure = null;
+        try (Stream<List<Item>> batches = BatchUtil.batches(
+                s3Service.streamObjectsInDirectory(path, null, true), DELETE_BATCH_SIZE)) {
+            Iterator<List<Item>> iterator = batches.iterator();
+            while (iterator.hasNext() && !progress.isCancelled()) {
+                List<Item> batch = iterator.next();
+                permits.acquireUninterruptibly();
+                CompletableFuture.supplyAsync(() -> deleteBatch(batch), storageTaskExecutor)
+                        .exceptionally(e -> {
+                            log.error("Batch delete failed: path={}, keysCount={}", path, batch.size(), e);
+                            return batch.stream().map(Item::objectName).toList();
+                        })
+                        .thenAccept(failed -> {
+                            Set<String> failedSet = new HashSet<>(failed);
+                            long deletedBytes = batch.stream()
+                                    .filter(item -> !failedSet.contains(item.objectName()))
+                                    .mapToLong(Item::size)
+                                    .sum();
+                            deletedCount.addAndGet(batch.size() - failed.size());
+                            failedCount.addAndGet(failed.size());
+                            progress.onProgress(batch.size() - failed.size(), deletedBytes);
+                            keepFailedKeys(failedKeys, failed);
+                        })
+                        .whenComplete((result, e) -> permits.release());
+            }
+        } catch (RuntimeException e) {
+            listingFailure = e;
+        }
+        permits.acquireUninterruptibly(parallelism);
+
+        if (progress.isCancelled()) {
+            log.warn("Directory delete cancelled: path={}, deletedCount={}", path, deletedCount.get());
+            throw new CancellationException("Directory delete cancelled");
+        }
+        if (listingFailure != null) {
+            log.error("Directory listing failed while deleting: path={}, deletedCount={}", path, deletedCount.get());
+            throw new ResourceServiceException("Failed to list directory for delete", listingFailure);
+        }
+        if (failedCount.get() > 0) {
+            log.warn("Directory deleted partially: path={}, deletedCount={}, failedCount={}",
+                    path, deletedCount.get(), failedCount.get());
+        } else {
+            log.debug("Directory objects deleted: path={}, objectsCount={}", path, deletedCount.get());
+        }
+        return new DeleteOutcome(deletedCount.get(), failedCount.get(), List.copyOf(failedKeys));
+    }
+
+    private List<String> deleteBatch(List<Item> batch) {
+        return s3Service.tryDeleteObjects(batch.stream().map(Item::objectName).toList());
+    }
+
+    private static void keepFailedKeys(List<String> failedKeys, List<String> failed) {
+        synchronized (failedKeys) {
+            for (String key : failed) {
+                if (failedKeys.size() >= FAILED_KEYS_LIMIT) {
+                    return;
+                }
+                failedKeys.add(key);
+            }
+        }
+    }
+
+    /**
+     * @param failedKeys full paths of failed keys, at most {@link #FAILED_KEYS_LIMIT} of them
+     */
+    public record DeleteOutcome(long deletedCount, long failedCount, List<String> failedKeys) {
+
+        public boolean isComplete() {
+            return failedCount == 0;
+        }
+    }
+}
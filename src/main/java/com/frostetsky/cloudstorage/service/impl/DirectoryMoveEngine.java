@@ -0,0 +1,148 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.BatchUtil;
+import com.frostetsky.cloudstorage.util.ProgressListener;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static com.frostetsky.cloudstorage.constants.MinioConstants.DELETE_BATCH_SIZE;
+
+/**
+ * Moves a directory by server-side copying every object under it and then deleting the sources.
+ * <p>
+ * Copies run concurrently on the storage executor, at most {@code app.storage.move.parallelism}
+ * at a time, while the source listing is streamed. Sources are removed by the
+ * {@link DirectoryDeleteEngine} only after every copy succeeded. If a copy fails, the copies whose
+ * sources still exist are removed and the sources stay untouched, so a move interrupted at any
+ * point can be run again to finish it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectoryMoveEngine {
+
+    private final S3Service s3Service;
+    private final DirectoryDeleteEngine directoryDeleteEngine;
+    private final StorageProperties storageProperties;
+    @Qualifier("storageTaskExecutor")
+    private final Executor storageTaskExecutor;
+
+    /**
+     * @param pathFrom full path of the source directory (ends with "/")
+     * @param pathTo   full path of the target directory (ends with "/")
+     * @param progress receives every copied object
+     * @return number of moved objects
+     * @throws CancellationException if {@code progress} is cancelled; copies and sources are left as
+     *                               they are, for whoever runs the move again
+     */
+    public long moveDirectory(String pathFrom, String pathTo, ProgressListener progress) {
+        long copiedCount = copyObjects(pathFrom, pathTo, progress);
+        if (progress.isCancelled()) {
+            log.warn("Directory move cancelled: from={}, to={}, copiedCount={}", pathFrom, pathTo, copiedCount);
+            throw new CancellationException("Directory move cancelled");
+        }
+        deleteSources(pathFrom);
+        log.info("Directory moved: from={}, to={}, objectsCount={}", pathFrom, pathTo, copiedCount);
+        return copiedCount;
+    }
+
+    private long copyObjects(String pathFrom, String pathTo, ProgressListener progress) {
+        int parallelism = storageProperties.getMove().getParallelism();
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long submittedCount = 0;
+        try (Stream<Item> items = s3Service.streamObjectsInDirectory(pathFrom, null, true)) {
+            Iterator<Item> iterator = items.iterator();
+            while (iterator.hasNext() && failure.get() == null && !progress.isCancelled()) {
+                Item item = iterator.next();
+                String objectPathFrom = item.objectName();
+                String objectPathTo = pathTo + objectPathFrom.substring(pathFrom.length());
+                permits.acquireUninterruptibly();
+                CompletableFuture.runAsync(() -> s3Service.copyObject(objectPathFrom, objectPathTo), storageTaskExecutor)
+                        .whenComplete((result, e) -> {
+                            if (e != null) {
+                                failure.compareAndSet(null, e);
+                            } else {
+                                progress.onProgress(1, item.size());
+                            }
+                            permits.release();
+                        });
+                submittedCount++;
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+        permits.acquireUninterruptibly(parallelism);
+
+        if (failure.get() != null && !progress.isCancelled()) {
+            log.error("Directory copy failed, removing copied objects: from={}, to={}", pathFrom, pathTo);
+            deleteCopies(pathFrom, pathTo);
+            throw new ResourceServiceException("Failed to move directory", new RuntimeException(failure.get()));
+        }
+        log.debug("Directory objects copied: from={}, to={}, objectsCount={}", pathFrom, pathTo, submittedCount);
+        return submittedCount;
+    }
+
+    /**
+     * Deletes the objects under {@code pathTo} whose source under {@code pathFrom} still exists.
+     * Copies whose source an earlier, interrupted run already deleted are the only ones left and
+     * are kept. Both listings come sorted by the UTF-8 bytes of the key, so they are merged
+     * without holding either in memory.
+     */
+    private void deleteCopies(String pathFrom, String pathTo) {
+        try (Stream<Item> sources = s3Service.streamObjectsInDirectory(pathFrom, null, true);
+             Stream<List<Item>> copies = BatchUtil.batches(
+                     s3Service.streamObjectsInDirectory(pathTo, null, true), DELETE_BATCH_SIZE)) {
+            Iterator<byte[]> sourceNames = sources
+                    .map(item -> relativeName(item, pathFrom))
+                    .iterator();
+            byte[][] source = {sourceNames.hasNext() ? sourceNames.next() : null};
+            copies.forEach(batch -> {
+                List<String> keys = new ArrayList<>();
+                for (Item copy : batch) {
+                    byte[] name = relativeName(copy, pathTo);
+                    while (source[0] != null && Arrays.compareUnsigned(source[0], name) < 0) {
+                        source[0] = sourceNames.hasNext() ? sourceNames.next() : null;
+                    }
+                    if (source[0] != null && Arrays.equals(source[0], name)) {
+                        keys.add(copy.objectName());
+                    }
+                }
+                if (!keys.isEmpty()) {
+                    s3Service.deleteObjects(keys);
+                }
+            });
+        }
+    }
+
+    private static byte[] relativeName(Item item, String directory) {
+        return item.objectName().substring(directory.length()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void deleteSources(String pathFrom) {
+        DirectoryDeleteEngine.DeleteOutcome outcome =
+                directoryDeleteEngine.deleteDirectory(pathFrom, ProgressListener.NONE);
+        if (!outcome.isComplete()) {
+            throw new ResourceServiceException("Failed to delete moved objects",
+                    new RuntimeException("Failed to delete " + outcome.failedCount() + " objects under " + pathFrom));
+        }
+    }
+}
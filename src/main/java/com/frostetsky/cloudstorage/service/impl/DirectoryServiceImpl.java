@@ -1,12 +1,17 @@
 package com.frostetsky.cloudstorage.service.impl;
 
+import com.frostetsky.cloudstorage.dto.ResourcePageDto;
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.excepiton.InvalidCursorException;
 import com.frostetsky.cloudstorage.excepiton.ResourceAlreadyExistException;
 import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
 import com.frostetsky.cloudstorage.mapper.ResourceMapper;
+import com.frostetsky.cloudstorage.model.ResourcePath;
 import com.frostetsky.cloudstorage.service.DirectoryService;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
 import com.frostetsky.cloudstorage.service.S3Service;
 import com.frostetsky.cloudstorage.service.UserService;
+import com.frostetsky.cloudstorage.util.CursorUtil;
 import com.frostetsky.cloudstorage.util.ResourcePathUtil;
 import io.minio.*;
 import io.minio.messages.Item;
@@ -15,6 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 
 @Slf4j
@@ -25,43 +31,76 @@ public class DirectoryServiceImpl implements DirectoryService {
     private final UserService userService;
     private final ResourceMapper resourceMapper;
     private final S3Service s3Service;
+    private final ResourceIndexService resourceIndexService;
 
     @Override
-    public List<ResourceResponse> getDirectoryFiles(Long userId, String path) {
-        String fullPath = ResourcePathUtil.buildBasePath(userId) + path;
+    public List<ResourceResponse> getDirectoryFiles(ResourcePath path) {
+        return listDirectory(path, path.getPath(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public ResourcePageDto getDirectoryFilesPage(ResourcePath path, int limit, String cursor) {
+        String afterPath = cursor == null ? path.getPath() : CursorUtil.decode(cursor);
+        if (!afterPath.startsWith(path.getPath())) {
+            throw new InvalidCursorException("Курсор не относится к переданной папке");
+        }
+        List<ResourceResponse> resources = listDirectory(path, afterPath, limit + 1);
+        if (resources.size() <= limit) {
+            return new ResourcePageDto(resources, null);
+        }
+        ResourceResponse last = resources.get(limit - 1);
+        return new ResourcePageDto(resources.subList(0, limit), CursorUtil.encode(last.path() + last.name()));
+    }
+
+    private List<ResourceResponse> listDirectory(ResourcePath path, String afterPath, int limit) {
+        Long userId = path.getUserId();
+        if (resourceIndexService.isIndexed(userId, path.getPath())) {
+            log.debug("Listing directory content from index: userId={}, path={}, limit={}", userId, path, limit);
+            return resourceIndexService.getDirectoryContent(userId, path.getPath(), afterPath, limit).stream()
+                    .map(resourceMapper::toDto)
+                    .toList();
+        }
+        String basePath = path.getBasePath();
+        String fullPath = path.getFullPath();
         if (!s3Service.checkExistObject(fullPath)) {
             throw new ResourceNotFoundException("Directory is not exist");
         }
-        log.debug("Listing directory content: userId={}, path={}", userId, path);
-        List<Item> items = s3Service.getObjectsInDirectory(fullPath, false);
-        return items.stream()
-                .filter(item -> !fullPath.equals(item.objectName()))
-                .map(resourceMapper::toDto)
-                .toList();
+        log.debug("Listing not indexed directory content from storage: userId={}, path={}, limit={}",
+                userId, path, limit);
+        try (Stream<Item> items = s3Service.streamObjectsInDirectory(fullPath, basePath + afterPath, false)) {
+            return items
+                    .filter(item -> !fullPath.equals(item.objectName()))
+                    .limit(limit)
+                    .map(resourceMapper::toDto)
+                    .toList();
+        }
     }
 
     @Override
-    public ResourceResponse createDirectory(Long userId, String path) {
-        String basePath = ResourcePathUtil.buildBasePath(userId);
-        String fullPath = basePath + path;
-        if (!s3Service.checkExistObject(basePath + ResourcePathUtil.extractParentDirectoryPath(fullPath))) {
+    public ResourceResponse createDirectory(ResourcePath path) {
+        Long userId = path.getUserId();
+        String fullPath = path.getFullPath();
+        if (!s3Service.checkExistObject(path.getParent().getFullPath())) {
             throw new ResourceNotFoundException("Parent directory is not exist");
         }
         if (s3Service.checkExistObject(fullPath)) {
             throw new ResourceAlreadyExistException("Directory is not exist");
         }
-        ObjectWriteResponse response = s3Service.createEmptyDir(fullPath);
+        s3Service.createEmptyDir(fullPath);
+        resourceIndexService.indexDirectory(userId, path.getPath());
         log.info("Directory created successfully: userId={}, path={}", userId, path);
-        return resourceMapper.toDto(response.object(), null);
+        return resourceMapper.toDto(path, null);
     }
 
     public void createBaseDirectory(String username) {
-        String basePath = ResourcePathUtil.buildBasePath(userService.getUserIdByUsername(username));
+        Long userId = userService.getUserIdByUsername(username);
+        String basePath = ResourcePathUtil.buildBasePath(userId);
         if (!s3Service.checkExistObject(basePath)) {
             s3Service.createEmptyDir(basePath);
             log.info("Base directory created for user: username={}, basePath={}", username, basePath);
         } else {
             log.debug("Base directory already exists for user: username={}, basePath={}", username, basePath);
         }
+        resourceIndexService.indexDirectory(userId, "");
     }
 }
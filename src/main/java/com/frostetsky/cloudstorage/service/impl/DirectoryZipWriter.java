@@ -0,0 +1,206 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.ProgressListener;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import com.frostetsky.cloudstorage.util.zip.ParallelZipWriter;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Writes a directory as a ZIP archive while the objects of the next entries are already being
+ * downloaded.
+ * <p>
+ * Up to {@code app.storage.download.prefetch-count} objects are fetched ahead on the storage
+ * executor and buffered in memory, as long as the buffered bytes stay within
+ * {@code prefetch-memory}. Objects larger than {@code prefetch-max-object-size} are not
+ * buffered and are streamed from storage when their turn comes.
+ * <p>
+ * Entries are compressed block by block on the {@code zipCompressionPool}, see {@link ParallelZipWriter}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectoryZipWriter {
+
+    private final S3Service s3Service;
+    private final StorageProperties storageProperties;
+    @Qualifier("storageTaskExecutor")
+    private final Executor storageTaskExecutor;
+    @Qualifier("zipCompressionPool")
+    private final ForkJoinPool zipCompressionPool;
+
+    /**
+     * @param folderPath full path of the directory (ends with "/")
+     */
+    public void write(String folderPath, OutputStream outputStream) throws IOException {
+        write(folderPath, outputStream, ProgressListener.NONE);
+    }
+
+    /**
+     * @param folderPath full path of the directory (ends with "/")
+     * @param progress   receives every written object and every skipped directory marker
+     * @throws CancellationException if {@code progress} is cancelled, checked before every entry
+     */
+    public void write(String folderPath, OutputStream outputStream, ProgressListener progress) throws IOException {
+        StorageProperties.Download properties = storageProperties.getDownload();
+        int blockSize = (int) properties.getCompressionBlockSize().toBytes();
+        try (Stream<Item> items = s3Service.streamObjectsInDirectory(folderPath, null, true);
+             ParallelZipWriter zipWriter = new ParallelZipWriter(outputStream, zipCompressionPool, blockSize,
+                     properties.getCompressionParallelism() * 2, properties.getCompressionLevel())) {
+            Prefetcher prefetcher = new Prefetcher(items
+                    .filter(item -> {
+                        if (ResourcePathUtil.isDirectory(item.objectName())) {
+                            progress.onProgress(1, 0);
+                            return false;
+                        }
+                        return true;
+                    })
+                    .iterator());
+            try {
+                PrefetchedObject object;
+                while ((object = prefetcher.next()) != null) {
+                    if (progress.isCancelled()) {
+                        throw new CancellationException("Directory archive cancelled");
+                    }
+                    writeObject(object.path().substring(folderPath.length()), object, zipWriter);
+                    prefetcher.release(object);
+                    progress.onProgress(1, object.size());
+                }
+            } finally {
+                prefetcher.cancel();
+            }
+            zipWriter.finish();
+        }
+    }
+
+    private void writeObject(String name, PrefetchedObject object, ParallelZipWriter zipWriter) throws IOException {
+        if (object.content() != null) {
+            zipWriter.putEntry(name, object.lastModified(), await(object.content()));
+            return;
+        }
+        try (InputStream stream = s3Service.downloadObject(object.path())) {
+            zipWriter.putEntry(name, object.lastModified(), stream);
+        }
+    }
+
+    private byte[] download(String path) {
+        try (InputStream stream = s3Service.downloadObject(path)) {
+            return stream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] await(CompletableFuture<byte[]> content) throws IOException {
+        try {
+            return content.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ResourceServiceException("Failed to download object", e);
+        }
+    }
+
+    /**
+     * @param content buffered content, or {@code null} if the object is streamed when written
+     */
+    private record PrefetchedObject(String path,
+                                    long size,
+                                    ZonedDateTime lastModified,
+                                    CompletableFuture<byte[]> content) {
+    }
+
+    /**
+     * Sliding window of objects being downloaded ahead of the entry currently written.
+     * Used from the writing thread only.
+     */
+    private class Prefetcher {
+
+        private final Iterator<Item> items;
+        private final Deque<PrefetchedObject> window = new ArrayDeque<>();
+        private final int prefetchCount = storageProperties.getDownload().getPrefetchCount();
+        private final long memoryBudget = storageProperties.getDownload().getPrefetchMemory().toBytes();
+        private final long maxObjectSize = storageProperties.getDownload().getPrefetchMaxObjectSize().toBytes();
+        private Item pending;
+        private long bufferedBytes;
+
+        Prefetcher(Iterator<Item> items) {
+            this.items = items;
+        }
+
+        /**
+         * Takes the next object and tops the window up, so that the following objects are
+         * downloaded while this one is written.
+         */
+        PrefetchedObject next() {
+            fill();
+            PrefetchedObject object = window.poll();
+            fill();
+            return object;
+        }
+
+        void release(PrefetchedObject object) {
+            if (object.content() != null) {
+                bufferedBytes -= object.size();
+            }
+        }
+
+        void cancel() {
+            window.forEach(object -> {
+                if (object.content() != null) {
+                    object.content().cancel(false);
+                }
+            });
+            window.clear();
+        }
+
+        private void fill() {
+            while (window.size() < prefetchCount) {
+                if (pending == null) {
+                    if (!items.hasNext()) {
+                        return;
+                    }
+                    pending = items.next();
+                }
+                String path = pending.objectName();
+                long size = pending.size();
+                ZonedDateTime lastModified = pending.lastModified();
+                if (size > maxObjectSize) {
+                    window.add(new PrefetchedObject(path, size, lastModified, null));
+                } else if (bufferedBytes + size <= memoryBudget || bufferedBytes == 0) {
+                    bufferedBytes += size;
+                    window.add(new PrefetchedObject(path, size, lastModified,
+                            CompletableFuture.supplyAsync(() -> download(path), storageTaskExecutor)));
+                } else {
+                    return;
+                }
+                pending = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.service.S3Service;
+import io.minio.ObjectWriteResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes the files of one upload request to storage concurrently.
+ * <p>
+ * A request keeps at most {@code app.storage.upload.parallelism} files in flight, and all requests
+ * together at most {@code app.storage.upload.max-concurrent}. Every file gets its own outcome, so a
+ * failed file does not affect the others.
+ */
+@Slf4j
+@Component
+public class FileUploadEngine {
+
+    private final S3Service s3Service;
+    private final Executor storageTaskExecutor;
+    private final int parallelism;
+    private final Semaphore globalPermits;
+
+    public FileUploadEngine(S3Service s3Service,
+                            StorageProperties storageProperties,
+                            @Qualifier("storageTaskExecutor") Executor storageTaskExecutor) {
+        this.s3Service = s3Service;
+        this.storageTaskExecutor = storageTaskExecutor;
+        this.parallelism = storageProperties.getUpload().getParallelism();
+        this.globalPermits = new Semaphore(storageProperties.getUpload().getMaxConcurrent());
+    }
+
+    /**
+     * @param files files keyed by full object path
+     * @return outcomes in the iteration order of {@code files}
+     */
+    public List<UploadOutcome> upload(Map<String, MultipartFile> files) {
+        Semaphore requestPermits = new Semaphore(parallelism);
+        List<CompletableFuture<UploadOutcome>> futures = new ArrayList<>(files.size());
+        for (Map.Entry<String, MultipartFile> entry : files.entrySet()) {
+            // both permits are taken before submitting, so that a waiting file holds no executor thread
+            requestPermits.acquireUninterruptibly();
+            globalPermits.acquireUninterruptibly();
+            futures.add(CompletableFuture
+                    .supplyAsync(() -> uploadFile(entry.getKey(), entry.getValue()), storageTaskExecutor)
+                    .whenComplete((outcome, e) -> {
+                        globalPermits.release();
+                        requestPermits.release();
+                    }));
+        }
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    private UploadOutcome uploadFile(String fullPath, MultipartFile file) {
+        try {
+            ObjectWriteResponse response = s3Service.putObject(fullPath, file);
+            // the completion time stands in for the stored Last-Modified, which would take another
+            // call; reconciliation compares only size and ETag
+            return new UploadOutcome(fullPath, file, response, Instant.now(), null);
+        } catch (RuntimeException e) {
+            log.error("Failed to upload file: path={}", fullPath, e);
+            return new UploadOutcome(fullPath, file, null, null, e);
+        }
+    }
+
+    public record UploadOutcome(String fullPath,
+                                MultipartFile file,
+                                ObjectWriteResponse response,
+                                Instant lastModified,
+                                RuntimeException error) {
+
+        public boolean isSuccessful() {
+            return error == null;
+        }
+    }
+}
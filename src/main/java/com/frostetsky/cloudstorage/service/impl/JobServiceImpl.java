@@ -0,0 +1,393 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.dto.DeleteResultDto;
+import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.dto.JobResponse;
+import com.frostetsky.cloudstorage.dto.JobStatus;
+import com.frostetsky.cloudstorage.dto.JobType;
+import com.frostetsky.cloudstorage.excepiton.BaseException;
+import com.frostetsky.cloudstorage.excepiton.InvalidJobException;
+import com.frostetsky.cloudstorage.excepiton.JobLimitExceededException;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.model.Job;
+import com.frostetsky.cloudstorage.model.ResourceMetadata;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.repository.JobRepository;
+import com.frostetsky.cloudstorage.service.JobService;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.ResourceService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.ProgressListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.frostetsky.cloudstorage.constants.MinioConstants.JOB_RESULT_PREFIX;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobServiceImpl implements JobService {
+
+    private static final Set<JobStatus> ACTIVE_STATUSES = EnumSet.of(JobStatus.QUEUED, JobStatus.RUNNING);
+    private static final int CLEANUP_BATCH_SIZE = 100;
+    private static final int PIPE_BUFFER_SIZE = 1024 * 1024;
+    private static final String ARCHIVE_CONTENT_TYPE = "application/zip";
+
+    /** Identifies this node as the owner of the jobs it claims. */
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<UUID, JobProgress> runningJobs = new ConcurrentHashMap<>();
+
+    private final JobRepository jobRepository;
+    private final ResourceService resourceService;
+    private final ResourceIndexService resourceIndexService;
+    private final S3Service s3Service;
+    private final ObjectDownloadFactory objectDownloadFactory;
+    private final StorageProperties storageProperties;
+    private final TransactionTemplate transactionTemplate;
+    @Qualifier("jobTaskExecutor")
+    private final AsyncTaskExecutor jobTaskExecutor;
+    @Qualifier("jobArchiveExecutor")
+    private final Executor jobArchiveExecutor;
+
+    @Override
+    public JobResponse submitDelete(ResourcePath path) {
+        return submit(JobType.DELETE, path, null);
+    }
+
+    @Override
+    public JobResponse submitMove(ResourcePath pathFrom, ResourcePath pathTo) {
+        if (!pathTo.isDirectory()) {
+            throw new InvalidJobException("Папку можно переместить только в папку");
+        }
+        return submit(JobType.MOVE, pathFrom, pathTo);
+    }
+
+    @Override
+    public JobResponse submitDownload(ResourcePath path) {
+        return submit(JobType.DOWNLOAD, path, null);
+    }
+
+    private JobResponse submit(JobType type, ResourcePath path, ResourcePath targetPath) {
+        Long userId = path.getUserId();
+        if (!path.isDirectory()) {
+            log.debug("Job rejected: path is not a directory: userId={}, type={}, path={}", userId, type, path);
+            throw new InvalidJobException("Фоновые задачи выполняются только для папок");
+        }
+        check(type, path, targetPath);
+        if (jobRepository.countByUserIdAndStatusIn(userId, ACTIVE_STATUSES)
+                >= storageProperties.getJobs().getMaxActivePerUser()) {
+            log.debug("Job rejected: too many active jobs: userId={}, type={}", userId, type);
+            throw new JobLimitExceededException("Слишком много незавершённых задач");
+        }
+
+        // Rollups of a user that is not indexed yet may miss objects, so no totals are better than wrong ones.
+        Optional<ResourceMetadata> indexed = resourceIndexService.isUserIndexed(userId)
+                ? resourceIndexService.findResource(userId, path.getPath())
+                : Optional.empty();
+        Job job = jobRepository.save(Job.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .type(type)
+                .status(JobStatus.QUEUED)
+                .path(path.getPath())
+                .targetPath(targetPath == null ? null : targetPath.getPath())
+                .objectsTotal(indexed.map(directory ->
+                        1 + Objects.requireNonNullElse(directory.getDescendantCount(), 0L)).orElse(null))
+                .bytesTotal(indexed.map(ResourceMetadata::getSize).orElse(null))
+                .createdAt(Instant.now())
+                .build());
+        log.info("Job submitted: id={}, userId={}, type={}, path={}, targetPath={}",
+                job.getId(), userId, type, path, targetPath);
+        return toResponse(job);
+    }
+
+    private void check(JobType type, ResourcePath path, ResourcePath targetPath) {
+        switch (type) {
+            case DELETE -> resourceService.checkDelete(path);
+            case MOVE -> resourceService.checkMove(path, targetPath);
+            case DOWNLOAD -> resourceService.checkDownload(path);
+        }
+    }
+
+    @Override
+    public JobResponse getJob(Long userId, String jobId) {
+        return toResponse(findJob(userId, jobId));
+    }
+
+    @Override
+    public DownloadResultDto downloadResult(Long userId, String jobId) {
+        Job job = findJob(userId, jobId);
+        if (job.getStatus() != JobStatus.SUCCEEDED || job.getResultKey() == null) {
+            log.debug("Job result not found: userId={}, jobId={}, status={}", userId, jobId, job.getStatus());
+            throw new ResourceNotFoundException("Job result not found");
+        }
+        return objectDownloadFactory.create(job.getResultKey(),
+                ResourcePath.of(userId, job.getPath()).getZipArchiveName());
+    }
+
+    private Job findJob(Long userId, String jobId) {
+        UUID id;
+        try {
+            id = UUID.fromString(jobId);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException("Job not found");
+        }
+        return jobRepository.findByIdAndUserId(id, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Job not found"));
+    }
+
+    @Override
+    public void runQueuedJobs() {
+        while (runningJobs.size() < storageProperties.getJobs().getParallelism()) {
+            Job job = claimJob();
+            if (job == null) {
+                return;
+            }
+            // a rerun of a delete or move goes on from where it stopped, an archive is built anew
+            JobProgress progress = job.getType() == JobType.DOWNLOAD
+                    ? new JobProgress(0, 0)
+                    : new JobProgress(job.getObjectsDone(), job.getBytesDone());
+            runningJobs.put(job.getId(), progress);
+            log.info("Job started: id={}, userId={}, type={}, path={}, resumed={}",
+                    job.getId(), job.getUserId(), job.getType(), job.getPath(), job.getStartedAt() != null);
+            progress.future = jobTaskExecutor.submit(() -> run(job, progress));
+        }
+    }
+
+    /**
+     * @return the claimed job as it was before the claim, or {@code null} if there is none
+     */
+    private Job claimJob() {
+        StorageProperties.Jobs properties = storageProperties.getJobs();
+        return transactionTemplate.execute(status -> {
+            jobRepository.lockClaims(JobRepository.CLAIM_LOCK_KEY);
+            Optional<Job> job = jobRepository.findClaimable(properties.getStaleTimeout().toSeconds(),
+                    properties.getMaxRunningPerUser());
+            job.ifPresent(claimed -> jobRepository.claim(claimed.getId(), nodeId));
+            return job.orElse(null);
+        });
+    }
+
+    private void run(Job job, JobProgress progress) {
+        JobResult result;
+        try {
+            result = execute(job, progress);
+        } catch (Exception e) {
+            if (progress.isCancelled()) {
+                log.warn("Job stopped after another node took it over: id={}, type={}", job.getId(), job.getType());
+                return;
+            }
+            log.error("Job failed: id={}, type={}, path={}", job.getId(), job.getType(), job.getPath(), e);
+            result = JobResult.failed(e instanceof BaseException baseException && baseException.getStatusCode() < 500
+                    ? baseException.getMessage()
+                    : "Operation failed");
+        } finally {
+            runningJobs.remove(job.getId());
+        }
+
+        JobStatus status = result.error() == null ? JobStatus.SUCCEEDED : JobStatus.FAILED;
+        JobResult finalResult = result;
+        Integer updated = transactionTemplate.execute(tx -> jobRepository.finish(job.getId(), nodeId,
+                status.name(), progress.objects.sum(), progress.bytes.sum(), finalResult.resultKey(),
+                finalResult.error()));
+        if (updated == null || updated == 0) {
+            log.warn("Job finished after another node took it over: id={}", job.getId());
+            return;
+        }
+        log.info("Job finished: id={}, status={}, objectsDone={}, bytesDone={}",
+                job.getId(), status, progress.objects.sum(), progress.bytes.sum());
+    }
+
+    private JobResult execute(Job job, ProgressListener progress) throws IOException {
+        ResourcePath path = ResourcePath.of(job.getUserId(), job.getPath());
+        ResourcePath targetPath = job.getTargetPath() == null ? null : ResourcePath.of(job.getUserId(), job.getTargetPath());
+        if (job.getStartedAt() == null) {
+            // the tree may have changed while the job was queued; a rerun skips the checks
+            // because it finds the work half done
+            check(job.getType(), path, targetPath);
+        }
+        return switch (job.getType()) {
+            case DELETE -> {
+                DeleteResultDto deleted = resourceService.deleteChecked(path, progress);
+                yield deleted.isComplete()
+                        ? new JobResult(null, null)
+                        : JobResult.failed("Не удалось удалить объектов: " + deleted.failedCount());
+            }
+            case MOVE -> {
+                resourceService.moveChecked(path, targetPath, progress);
+                yield new JobResult(null, null);
+            }
+            case DOWNLOAD -> new JobResult(writeArchive(job, path, progress), null);
+        };
+    }
+
+    /**
+     * Streams the archive to storage through a pipe while it is written, so that it is never held
+     * in memory or on disk as a whole. The job thread uploads and a thread of the archive executor
+     * writes, so the job holds no storage executor thread for its whole run.
+     */
+    private String writeArchive(Job job, ResourcePath folder, ProgressListener progress) throws IOException {
+        String resultKey = JOB_RESULT_PREFIX + job.getId() + ".zip";
+        PipedInputStream archive = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream outputStream = new PipedOutputStream(archive);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            // closing the writing end, also on failure, tells the upload where the archive ends
+            try (outputStream) {
+                resourceService.writeDirectoryArchive(folder, outputStream, progress);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, jobArchiveExecutor);
+        // closing the reading end fails the writer instead of leaving it blocked on a full pipe
+        try (archive) {
+            s3Service.putObject(resultKey, archive, ARCHIVE_CONTENT_TYPE);
+        } catch (RuntimeException e) {
+            writer.exceptionally(writeError -> {
+                e.addSuppressed(writeError);
+                return null;
+            }).join();
+            throw new ResourceServiceException("Failed to store job archive", e);
+        }
+        try {
+            writer.join();
+        } catch (CompletionException e) {
+            // the upload took the closed pipe for the end of the archive; drop what it stored unless
+            // the job now belongs to a node that stores the archive under the same key
+            if (!progress.isCancelled()) {
+                s3Service.deleteObjects(List.of(resultKey));
+            }
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+        return resultKey;
+    }
+
+    @Override
+    public void heartbeat() {
+        runningJobs.forEach((id, progress) -> {
+            Integer updated = transactionTemplate.execute(status -> jobRepository.updateProgress(id, nodeId,
+                    progress.objects.sum(), progress.bytes.sum()));
+            if (updated == null || updated == 0) {
+                log.warn("Job was taken over by another node, cancelling: id={}", id);
+                runningJobs.remove(id);
+                progress.cancel();
+            }
+        });
+    }
+
+    @Override
+    public void deleteExpiredJobs() {
+        Instant before = Instant.now().minus(storageProperties.getJobs().getResultTtl());
+        long deletedCount = 0;
+        List<Job> expired;
+        while (!(expired = jobRepository.findFinishedBefore(before, CLEANUP_BATCH_SIZE)).isEmpty()) {
+            List<String> resultKeys = expired.stream()
+                    .map(Job::getResultKey)
+                    .filter(Objects::nonNull)
+                    .toList();
+            if (!resultKeys.isEmpty()) {
+                s3Service.deleteObjects(resultKeys);
+            }
+            jobRepository.deleteAllInBatch(expired);
+            deletedCount += expired.size();
+        }
+        if (deletedCount > 0) {
+            log.info("Expired jobs deleted: jobsCount={}", deletedCount);
+        }
+    }
+
+    /**
+     * Progress of a job running on this node is taken from memory, it reaches the database only
+     * with the next heartbeat.
+     */
+    private JobResponse toResponse(Job job) {
+        JobProgress running = runningJobs.get(job.getId());
+        return new JobResponse(
+                job.getId().toString(),
+                job.getType(),
+                job.getStatus(),
+                job.getPath(),
+                job.getTargetPath(),
+                running == null ? job.getObjectsDone() : running.objects.sum(),
+                job.getObjectsTotal(),
+                running == null ? job.getBytesDone() : running.bytes.sum(),
+                job.getBytesTotal(),
+                job.getError(),
+                job.getCreatedAt(),
+                job.getFinishedAt());
+    }
+
+    /**
+     * @param resultKey storage key of the archive built by a download job
+     * @param error     message for the user if the job failed
+     */
+    private record JobResult(String resultKey, String error) {
+
+        static JobResult failed(String error) {
+            return new JobResult(null, error);
+        }
+    }
+
+    /**
+     * Progress of a job running on this node. Cancelling it when another node takes the job over
+     * makes the job stop at its next batch and interrupts it where it waits on storage.
+     */
+    private static final class JobProgress implements ProgressListener {
+
+        private final LongAdder objects = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        JobProgress(long objectsDone, long bytesDone) {
+            objects.add(objectsDone);
+            bytes.add(bytesDone);
+        }
+
+        @Override
+        public void onProgress(long objects, long bytes) {
+            this.objects.add(objects);
+            this.bytes.add(bytes);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(true);
+            }
+        }
+    }
+}
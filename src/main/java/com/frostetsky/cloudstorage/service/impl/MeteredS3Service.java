@@ -0,0 +1,353 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.StorageCallContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.minio.ObjectWriteResponse;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Item;
+import io.minio.messages.Part;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Fallback;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Records metrics of every storage call made through {@link MinioService}, tagged with the
+ * operation and the API endpoint that made it (see {@link StorageCallContext}):
+ * <ul>
+ *     <li>{@code storage.requests} - call latency with p50/p95/p99, by outcome
+ *     ({@code success}, {@code not_found} or {@code error});</li>
+ *     <li>{@code storage.bytes} - bytes uploaded and downloaded;</li>
+ *     <li>{@code storage.objects.listed} - objects returned by listings;</li>
+ *     <li>{@code storage.errors} - failed calls by MinIO error code, or by exception type for
+ *     failures without a response.</li>
+ * </ul>
+ * A download is timed until its stream is opened, its bytes are counted as they are read.
+ * A listing is timed once it is exhausted or closed, counting only the time spent fetching it.
+ */
+@Service
+@Fallback
+@RequiredArgsConstructor
+public class MeteredS3Service implements S3Service {
+
+    private static final String REQUESTS = "storage.requests";
+    private static final String BYTES = "storage.bytes";
+    private static final String OBJECTS_LISTED = "storage.objects.listed";
+    private static final String ERRORS = "storage.errors";
+
+    private static final String TAG_OPERATION = "operation";
+    private static final String TAG_ENDPOINT = "endpoint";
+    private static final String TAG_OUTCOME = "outcome";
+    private static final String TAG_CODE = "code";
+
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_NOT_FOUND = "not_found";
+    private static final String OUTCOME_ERROR = "error";
+
+    private final MinioService delegate;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean checkBaseBucketExists() {
+        return timed("bucketExists", delegate::checkBaseBucketExists);
+    }
+
+    @Override
+    public void createBaseBucket() {
+        timedRun("makeBucket", delegate::createBaseBucket);
+    }
+
+    @Override
+    public List<Item> getObjectsInDirectory(String path, boolean recursive) {
+        List<Item> items = timed("listObjects", () -> delegate.getObjectsInDirectory(path, recursive));
+        listed(StorageCallContext.currentEndpoint()).increment(items.size());
+        return items;
+    }
+
+    @Override
+    public Stream<Item> streamObjectsInDirectory(String path, String startAfter, boolean recursive) {
+        Stream<Item> items = delegate.streamObjectsInDirectory(path, startAfter, recursive);
+        MeteredListing listing = new MeteredListing(items.spliterator(), StorageCallContext.currentEndpoint());
+        StorageCallContext.countCall();
+        return StreamSupport.stream(listing, false)
+                .onClose(items::close)
+                .onClose(() -> listing.finish(OUTCOME_SUCCESS));
+    }
+
+    @Override
+    public ObjectWriteResponse createEmptyDir(String path) {
+        return timed("putObject", () -> delegate.createEmptyDir(path));
+    }
+
+    @Override
+    public ObjectWriteResponse putObject(String path, MultipartFile file) {
+        ObjectWriteResponse response = timed("putObject", () -> delegate.putObject(path, file));
+        bytes("putObject", StorageCallContext.currentEndpoint()).increment(file.getSize());
+        return response;
+    }
+
+    @Override
+    public ObjectWriteResponse putObject(String path, InputStream stream, String contentType) {
+        Counter uploaded = bytes("putObject", StorageCallContext.currentEndpoint());
+        return timed("putObject", () -> delegate.putObject(path, new MeteredInputStream(stream, uploaded), contentType));
+    }
+
+    @Override
+    public void deleteObjects(List<String> objectsToDelete) {
+        timedRun("removeObjects", () -> delegate.deleteObjects(objectsToDelete));
+    }
+
+    @Override
+    public List<String> tryDeleteObjects(List<String> objectsToDelete) {
+        return timed("removeObjects", () -> delegate.tryDeleteObjects(objectsToDelete));
+    }
+
+    @Override
+    public boolean checkExistObject(String path) {
+        return timed("statObject", () -> delegate.checkExistObject(path));
+    }
+
+    @Override
+    public InputStream downloadObject(String path) {
+        Counter downloaded = bytes("getObject", StorageCallContext.currentEndpoint());
+        return new MeteredInputStream(timed("getObject", () -> delegate.downloadObject(path)), downloaded);
+    }
+
+    @Override
+    public InputStream downloadObject(String path, long offset, long length) {
+        Counter downloaded = bytes("getObject", StorageCallContext.currentEndpoint());
+        return new MeteredInputStream(timed("getObject", () -> delegate.downloadObject(path, offset, length)),
+                downloaded);
+    }
+
+    @Override
+    public ObjectWriteResponse copyObject(String pathFrom, String pathTo) {
+        return timed("copyObject", () -> delegate.copyObject(pathFrom, pathTo));
+    }
+
+    @Override
+    public StatObjectResponse getObjectInfo(String path) {
+        return timed("statObject", () -> delegate.getObjectInfo(path));
+    }
+
+    @Override
+    public String resolveContentKey(String path) {
+        return delegate.resolveContentKey(path);
+    }
+
+    @Override
+    public void evictObjectInfo(String path) {
+        delegate.evictObjectInfo(path);
+    }
+
+    @Override
+    public String createMultipartUpload(String path) {
+        return timed("createMultipartUpload", () -> delegate.createMultipartUpload(path));
+    }
+
+    @Override
+    public String uploadPart(String path, String uploadId, int partNumber, byte[] data) {
+        String etag = timed("uploadPart", () -> delegate.uploadPart(path, uploadId, partNumber, data));
+        bytes("uploadPart", StorageCallContext.currentEndpoint()).increment(data.length);
+        return etag;
+    }
+
+    @Override
+    public ObjectWriteResponse completeMultipartUpload(String path, String uploadId, List<Part> parts) {
+        return timed("completeMultipartUpload", () -> delegate.completeMultipartUpload(path, uploadId, parts));
+    }
+
+    @Override
+    public void abortMultipartUpload(String path, String uploadId) {
+        timedRun("abortMultipartUpload", () -> delegate.abortMultipartUpload(path, uploadId));
+    }
+
+    private void timedRun(String operation, Runnable call) {
+        timed(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        String endpoint = StorageCallContext.currentEndpoint();
+        StorageCallContext.countCall();
+        String outcome = OUTCOME_ERROR;
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } catch (ResourceNotFoundException e) {
+            outcome = OUTCOME_NOT_FOUND;
+            throw e;
+        } catch (RuntimeException e) {
+            countError(operation, endpoint, e);
+            throw e;
+        } finally {
+            timer(operation, endpoint, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String operation, String endpoint, String outcome) {
+        return Timer.builder(REQUESTS)
+                .description("Storage call latency")
+                .tag(TAG_OPERATION, operation)
+                .tag(TAG_ENDPOINT, endpoint)
+                .tag(TAG_OUTCOME, outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter bytes(String operation, String endpoint) {
+        return Counter.builder(BYTES)
+                .description("Bytes transferred to and from the storage")
+                .baseUnit(BaseUnits.BYTES)
+                .tag(TAG_OPERATION, operation)
+                .tag(TAG_ENDPOINT, endpoint)
+                .register(meterRegistry);
+    }
+
+    private Counter listed(String endpoint) {
+        return Counter.builder(OBJECTS_LISTED)
+                .description("Objects returned by storage listings")
+                .tag(TAG_ENDPOINT, endpoint)
+                .register(meterRegistry);
+    }
+
+    private void countError(String operation, String endpoint, Throwable e) {
+        Counter.builder(ERRORS)
+                .description("Failed storage calls")
+                .tag(TAG_OPERATION, operation)
+                .tag(TAG_ENDPOINT, endpoint)
+                .tag(TAG_CODE, errorCode(e))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Error code of the MinIO response that caused the failure, or the type of the innermost
+     * exception if the storage did not answer.
+     */
+    private static String errorCode(Throwable e) {
+        Throwable innermost = e;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ErrorResponseException error) {
+                return error.errorResponse().code();
+            }
+            innermost = cause;
+        }
+        return innermost.getClass().getSimpleName();
+    }
+
+    /**
+     * Passes a listing through, counting its objects and the time spent fetching them, which
+     * excludes the time the consumer spends on each object.
+     */
+    private class MeteredListing extends Spliterators.AbstractSpliterator<Item> {
+
+        private final Spliterator<Item> items;
+        private final String endpoint;
+        private final Counter listed;
+        private long elapsedNanos;
+        private boolean finished;
+        private Item next;
+
+        MeteredListing(Spliterator<Item> items, String endpoint) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.items = items;
+            this.endpoint = endpoint;
+            this.listed = listed(endpoint);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            long start = System.nanoTime();
+            boolean advanced;
+            try {
+                advanced = items.tryAdvance(item -> next = item);
+            } catch (RuntimeException e) {
+                elapsedNanos += System.nanoTime() - start;
+                countError("listObjects", endpoint, e);
+                finish(OUTCOME_ERROR);
+                throw e;
+            }
+            elapsedNanos += System.nanoTime() - start;
+            if (!advanced) {
+                finish(OUTCOME_SUCCESS);
+                return false;
+            }
+            listed.increment();
+            Item item = next;
+            next = null;
+            action.accept(item);
+            return true;
+        }
+
+        synchronized void finish(String outcome) {
+            if (!finished) {
+                finished = true;
+                timer("listObjects", endpoint, outcome).record(elapsedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Counts bytes as they are read from the wrapped stream.
+     */
+    private static class MeteredInputStream extends FilterInputStream {
+
+        private final Counter counter;
+
+        MeteredInputStream(InputStream in, Counter counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.increment(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) {
+                counter.increment(skipped);
+            }
+            return skipped;
+        }
+    }
+}
@@ -8,22 +8,33 @@ import io.minio.errors.ErrorResponseException;
 import io.minio.messages.DeleteError;
 import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import io.minio.messages.Part;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Fallback;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.frostetsky.cloudstorage.constants.MinioConstants.*;
 
+/**
+ * Talks to MinIO. Other services get it wrapped by {@link MeteredS3Service},
+ * {@link DeduplicatingS3Service} and, when enabled, {@link CachingS3Service}.
+ */
 @Service
+@Fallback
 @RequiredArgsConstructor
 @Slf4j
 public class MinioService implements S3Service {
     private final MinioClient minioClient;
+    private final MultipartMinioClient multipartMinioClient;
 
     @Override
     public boolean checkBaseBucketExists() {
@@ -54,20 +65,30 @@ public class MinioService implements S3Service {
     @Override
     public List<Item> getObjectsInDirectory(String path, boolean recursive) {
         log.debug("Fetching  objects: bucket={}, prefix={}, recursive={}", BUCKET_NAME, path, recursive);
+        List<Item> resultItems = streamObjectsInDirectory(path, null, recursive).toList();
+        log.info("Objects fetched successfully: prefix={}, count={}", path, resultItems.size());
+        return resultItems;
+    }
+
+    @Override
+    public Stream<Item> streamObjectsInDirectory(String path, String startAfter, boolean recursive) {
+        log.debug("Streaming objects: bucket={}, prefix={}, startAfter={}, recursive={}",
+                BUCKET_NAME, path, startAfter, recursive);
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(BUCKET_NAME)
+                .prefix(path)
+                .recursive(recursive);
+        if (startAfter != null) {
+            args.startAfter(startAfter);
+        }
+        Iterable<Result<Item>> results = minioClient.listObjects(args.build());
+        return StreamSupport.stream(results.spliterator(), false)
+                .map(result -> getListedItem(result, path, recursive));
+    }
+
+    private Item getListedItem(Result<Item> result, String path, boolean recursive) {
         try {
-            List<Item> resultItems = new ArrayList<>();
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(BUCKET_NAME)
-                            .prefix(path)
-                            .recursive(recursive)
-                            .build());
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                resultItems.add(item);
-            }
-            log.info("Objects fetched successfully: prefix={}, count={}", path, resultItems.size());
-            return resultItems;
+            return result.get();
         } catch (Exception e) {
             log.error("Failed to fetch objects: prefix={}, recursive={}", path, recursive);
             throw new MinioServiceException("Failed to list objects", e);
@@ -109,19 +130,53 @@ public class MinioService implements S3Service {
     }
 
     @Override
-    public void deleteObjects(List<DeleteObject> objectsToDelete) {
+    public ObjectWriteResponse putObject(String path, InputStream stream, String contentType) {
+        log.debug("Uploading object stream: path={}, contentType={}", path, contentType);
+        try {
+            PutObjectArgs.Builder args = PutObjectArgs.builder()
+                    .bucket(BUCKET_NAME)
+                    .object(path)
+                    .stream(stream, -1, STREAM_PART_SIZE);
+            if (contentType != null) {
+                args.contentType(contentType);
+            }
+            ObjectWriteResponse response = minioClient.putObject(args.build());
+            log.info("Object stream uploaded successfully: path={}, object={}", path, response.object());
+            return response;
+        } catch (Exception e) {
+            log.error("Failed to upload object stream: path={}", path);
+            throw new MinioServiceException("Failed to upload object", e);
+        }
+    }
+
+    @Override
+    public void deleteObjects(List<String> objectsToDelete) {
+        List<String> failed = tryDeleteObjects(objectsToDelete);
+        if (!failed.isEmpty()) {
+            throw new MinioServiceException("Failed to delete objects",
+                    new RuntimeException("Failed to delete object: " + failed.get(0)));
+        }
+    }
+
+    @Override
+    public List<String> tryDeleteObjects(List<String> objectsToDelete) {
         log.debug("Deleting objects: count={}", objectsToDelete.size());
+        List<String> failed = new ArrayList<>();
         try {
             Iterable<Result<DeleteError>> errors = minioClient.removeObjects(
                     RemoveObjectsArgs.builder()
                             .bucket(BUCKET_NAME)
-                            .objects(objectsToDelete)
+                            .objects(objectsToDelete.stream().map(DeleteObject::new).toList())
                             .build());
             for (Result<DeleteError> error : errors) {
                 DeleteError err = error.get();
-                throw new RuntimeException("Failed to delete object: " + err.objectName() + " - " + err.message());
+                log.warn("Failed to delete object: path={}, code={}, message={}", err.objectName(), err.code(),
+                        err.message());
+                failed.add(err.objectName());
             }
-            log.info("Delete request completed: requestedCount={}", objectsToDelete.size());
+            log.info("Delete request completed: requestedCount={}, failedCount={}", objectsToDelete.size(),
+                    failed.size());
+            return failed;
         } catch (Exception e) {
             log.error("Failed to delete objects: count={}", objectsToDelete.size());
             throw new MinioServiceException("Failed to delete objects", e);
@@ -167,6 +222,23 @@ public class MinioService implements S3Service {
         }
     }
 
+    @Override
+    public InputStream downloadObject(String path, long offset, long length) {
+        log.debug("Downloading object range: path={}, offset={}, length={}", path, offset, length);
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(BUCKET_NAME)
+                            .object(path)
+                            .offset(offset)
+                            .length(length)
+                            .build());
+        } catch (Exception e) {
+            log.error("Failed to download object range: path={}, offset={}, length={}", path, offset, length);
+            throw new MinioServiceException("Failed to download object range from storage", e);
+        }
+    }
+
     @Override
     public ObjectWriteResponse copyObject(String pathFrom, String pathTo) {
         log.debug("Copying object: from={}, to={}", pathFrom, pathTo);
@@ -210,4 +282,72 @@ public class MinioService implements S3Service {
             throw new MinioServiceException("Failed to fetch object info", e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public String resolveContentKey(String path) {
+        return path;
+    }
+
+    @Override
+    public void evictObjectInfo(String path) {
+        // object info is always fetched from the storage
+    }
+
+    @Override
+    public String createMultipartUpload(String path) {
+        log.debug("Creating multipart upload: path={}", path);
+        try {
+            String uploadId = multipartMinioClient.createMultipartUpload(BUCKET_NAME, path);
+            log.info("Multipart upload created: path={}, uploadId={}", path, uploadId);
+            return uploadId;
+        } catch (Exception e) {
+            log.error("Failed to create multipart upload: path={}", path);
+            throw new MinioServiceException("Failed to create multipart upload", e);
+        }
+    }
+
+    @Override
+    public String uploadPart(String path, String uploadId, int partNumber, byte[] data) {
+        log.debug("Uploading part: path={}, uploadId={}, partNumber={}, size={}", path, uploadId, partNumber, data.length);
+        try {
+            return multipartMinioClient.uploadPart(BUCKET_NAME, path, uploadId, partNumber, data);
+        } catch (Exception e) {
+            log.error("Failed to upload part: path={}, uploadId={}, partNumber={}", path, uploadId, partNumber);
+            throw new MinioServiceException("Failed to upload part", e);
+        }
+    }
+
+    @Override
+    public ObjectWriteResponse completeMultipartUpload(String path, String uploadId, List<Part> parts) {
+        log.debug("Completing multipart upload: path={}, uploadId={}, partsCount={}", path, uploadId, parts.size());
+        try {
+            ObjectWriteResponse response = multipartMinioClient.completeMultipartUpload(
+                    BUCKET_NAME, path, uploadId, parts.toArray(Part[]::new));
+            log.info("Multipart upload completed: path={}, uploadId={}", path, uploadId);
+            return response;
+        } catch (Exception e) {
+            log.error("Failed to complete multipart upload: path={}, uploadId={}", path, uploadId);
+            throw new MinioServiceException("Failed to complete multipart upload", e);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String path, String uploadId) {
+        log.debug("Aborting multipart upload: path={}, uploadId={}", path, uploadId);
+        try {
+            multipartMinioClient.abortMultipartUpload(BUCKET_NAME, path, uploadId);
+            log.info("Multipart upload aborted: path={}, uploadId={}", path, uploadId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ErrorResponseException error
+                    && error.errorResponse().code().equals("NoSuchUpload")) {
+                log.info("Multipart upload already gone: path={}, uploadId={}", path, uploadId);
+                return;
+            }
+            log.error("Failed to abort multipart upload: path={}, uploadId={}", path, uploadId);
+            throw new MinioServiceException("Failed to abort multipart upload", e);
+        } catch (Exception e) {
+            log.error("Failed to abort multipart upload: path={}, uploadId={}", path, uploadId);
+            throw new MinioServiceException("Failed to abort multipart upload", e);
+        }
+    }
+}
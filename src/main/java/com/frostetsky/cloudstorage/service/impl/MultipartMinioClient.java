@@ -0,0 +1,46 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.errors.MinioException;
+import io.minio.messages.Part;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Exposes the S3 multipart upload calls that {@link MinioAsyncClient} keeps protected,
+ * so that an upload can be created, filled and completed across separate requests.
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public String createMultipartUpload(String bucket, String object)
+            throws IOException, GeneralSecurityException, MinioException, ExecutionException, InterruptedException {
+        return createMultipartUploadAsync(bucket, null, object, null, null)
+                .get()
+                .result()
+                .uploadId();
+    }
+
+    public String uploadPart(String bucket, String object, String uploadId, int partNumber, byte[] data)
+            throws IOException, GeneralSecurityException, MinioException, ExecutionException, InterruptedException {
+        return uploadPartAsync(bucket, null, object, data, data.length, uploadId, partNumber, null, null)
+                .get()
+                .etag();
+    }
+
+    public ObjectWriteResponse completeMultipartUpload(String bucket, String object, String uploadId, Part[] parts)
+            throws IOException, GeneralSecurityException, MinioException, ExecutionException, InterruptedException {
+        return completeMultipartUploadAsync(bucket, null, object, uploadId, parts, null, null).get();
+    }
+
+    public void abortMultipartUpload(String bucket, String object, String uploadId)
+            throws IOException, GeneralSecurityException, MinioException, ExecutionException, InterruptedException {
+        abortMultipartUploadAsync(bucket, null, object, uploadId, null, null).get();
+    }
+}
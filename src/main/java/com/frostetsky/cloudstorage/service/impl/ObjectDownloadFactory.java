@@ -0,0 +1,52 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import io.minio.StatObjectResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+
+/**
+ * Builds the download of a single stored object with its length and validators.
+ * <p>
+ * The object is read only when the body is written, so a range or a not-modified response
+ * never opens a stream it does not need.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ObjectDownloadFactory {
+
+    private final S3Service s3Service;
+
+    /**
+     * @param path     full path of the object
+     * @param fileName name the object is downloaded as
+     */
+    public DownloadResultDto create(String path, String fileName) {
+        StatObjectResponse info = s3Service.getObjectInfo(path);
+        DownloadResultDto.RangeWriter ranges = (start, count) -> outputStream -> {
+            boolean whole = start == 0 && count == info.size();
+            try (InputStream stream = whole
+                    ? s3Service.downloadObject(path)
+                    : s3Service.downloadObject(path, start, count)) {
+                stream.transferTo(outputStream);
+            } catch (Exception e) {
+                log.error("Streaming download failed: path={}, start={}, count={}", path, start, count);
+                throw new ResourceServiceException("Streaming download failed", e);
+            }
+        };
+        return new DownloadResultDto(
+                fileName,
+                ranges.range(0, info.size()),
+                info.size(),
+                "\"" + StringUtils.remove(info.etag(), '"') + "\"",
+                info.lastModified().toInstant(),
+                ranges);
+    }
+}
@@ -0,0 +1,68 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Creates and indexes the directory markers that new files need below an existing directory.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ParentDirectoryCreator {
+
+    private final S3Service s3Service;
+    private final ResourceIndexService resourceIndexService;
+    @Qualifier("storageTaskExecutor")
+    private final Executor storageTaskExecutor;
+
+    /**
+     * The markers of the whole batch are computed once and looked up with a single index query;
+     * the missing ones are created concurrently before any file is written.
+     *
+     * @param path      existing directory the files are written to
+     * @param fileNames paths of the files relative to {@code path}
+     */
+    public void createParentDirectories(ResourcePath path, Collection<String> fileNames) {
+        Long userId = path.getUserId();
+        String basePath = path.getBasePath();
+        Set<String> parentDirectories = new TreeSet<>();
+        for (String fileName : fileNames) {
+            path.resolve(fileName).getParentPaths().stream()
+                    .filter(parentDirPath -> parentDirPath.length() > path.getPath().length())
+                    .forEach(parentDirectories::add);
+        }
+        if (parentDirectories.isEmpty()) {
+            return;
+        }
+
+        parentDirectories.removeAll(resourceIndexService.findIndexedPaths(userId, parentDirectories));
+        log.debug("Creating missing parent directories: userId={}, path={}, count={}",
+                userId, path, parentDirectories.size());
+        try {
+            CompletableFuture.allOf(parentDirectories.stream()
+                            .map(parentDirPath -> CompletableFuture.runAsync(
+                                    () -> s3Service.createEmptyDir(basePath + parentDirPath), storageTaskExecutor))
+                            .toArray(CompletableFuture[]::new))
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        parentDirectories.forEach(parentDirPath -> resourceIndexService.indexDirectory(userId, parentDirPath));
+    }
+}
@@ -0,0 +1,49 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.PostPolicy;
+import io.minio.errors.MinioException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+/**
+ * Signs object URLs for clients that talk to the storage directly.
+ * <p>
+ * A signature covers the host, so the wrapped client is built on the endpoint clients use,
+ * which may differ from the one the application uses and may be unreachable from the server.
+ * Its region is therefore set up front: signing is then purely local and sends no request.
+ */
+public class PresignMinioClient {
+
+    private final MinioClient client;
+    private final String endpoint;
+
+    /**
+     * @param endpoint the endpoint {@code client} is built on
+     */
+    public PresignMinioClient(MinioClient client, String endpoint) {
+        this.client = client;
+        this.endpoint = StringUtils.removeEnd(endpoint, "/");
+    }
+
+    public String getPresignedObjectUrl(GetPresignedObjectUrlArgs args)
+            throws IOException, GeneralSecurityException, MinioException {
+        return client.getPresignedObjectUrl(args);
+    }
+
+    public Map<String, String> getPresignedPostFormData(PostPolicy policy)
+            throws IOException, GeneralSecurityException, MinioException {
+        return client.getPresignedPostFormData(policy);
+    }
+
+    /**
+     * URL that a presigned {@code POST} form is sent to.
+     */
+    public String getBucketUrl(String bucket) {
+        return endpoint + "/" + bucket;
+    }
+}
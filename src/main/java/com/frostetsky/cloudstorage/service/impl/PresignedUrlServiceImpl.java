@@ -0,0 +1,174 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.dto.PresignedUrlResponse;
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.StorageUsageResponse;
+import com.frostetsky.cloudstorage.excepiton.InvalidUploadException;
+import com.frostetsky.cloudstorage.excepiton.MinioServiceException;
+import com.frostetsky.cloudstorage.excepiton.ResourceAlreadyExistException;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.excepiton.StorageQuotaExceededException;
+import com.frostetsky.cloudstorage.excepiton.UploadLimitExceededException;
+import com.frostetsky.cloudstorage.mapper.ResourceMapper;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.service.PresignedUrlService;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.service.StorageUsageService;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.PostPolicy;
+import io.minio.StatObjectResponse;
+import io.minio.http.Method;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.frostetsky.cloudstorage.constants.MinioConstants.BUCKET_NAME;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.storage.presign", name = "enabled", havingValue = "true")
+public class PresignedUrlServiceImpl implements PresignedUrlService {
+
+    private final PresignMinioClient presignMinioClient;
+    private final S3Service s3Service;
+    private final ResourceIndexService resourceIndexService;
+    private final StorageUsageService storageUsageService;
+    private final ResourceMapper resourceMapper;
+    private final ParentDirectoryCreator parentDirectoryCreator;
+    private final StorageProperties storageProperties;
+
+    @Override
+    public PresignedUrlResponse presignDownload(Long userId, String path) {
+        checkFilePath(path);
+        String fullPath = ResourcePathUtil.buildBasePath(userId) + path;
+        if (!s3Service.checkExistObject(fullPath)) {
+            log.debug("Presign download failed: resource not found: userId={}, path={}", userId, path);
+            throw new ResourceNotFoundException("Resource not found");
+        }
+        String disposition = ContentDisposition.attachment()
+                .filename(ResourcePathUtil.extractResourceName(path), StandardCharsets.UTF_8)
+                .build()
+                .toString();
+        PresignedUrlResponse response = presign(Method.GET, s3Service.resolveContentKey(fullPath),
+                Map.of("response-content-disposition", disposition));
+        log.info("Download URL presigned: userId={}, path={}", userId, path);
+        return response;
+    }
+
+    @Override
+    public PresignedUrlResponse presignUpload(Long userId, String path) {
+        checkFilePath(path);
+        String fullPath = ResourcePathUtil.buildBasePath(userId) + path;
+        checkNotExists(fullPath);
+        storageUsageService.checkQuota(userId, 0);
+        long maxFileSize = Math.min(storageProperties.getPresign().getMaxFileSize().toBytes(), remainingQuota(userId));
+        PresignedUrlResponse response = presignPost(fullPath, maxFileSize);
+        log.info("Upload form presigned: userId={}, path={}, maxFileSize={}", userId, path, maxFileSize);
+        return response;
+    }
+
+    @Override
+    public ResourceResponse completeUpload(Long userId, String path) {
+        checkFilePath(path);
+        String basePath = ResourcePathUtil.buildBasePath(userId);
+        String fullPath = basePath + path;
+        s3Service.evictObjectInfo(fullPath);
+        if (!s3Service.checkExistObject(fullPath)) {
+            log.debug("Presigned upload completion failed: object not uploaded: userId={}, path={}", userId, path);
+            throw new ResourceNotFoundException("Uploaded file not found");
+        }
+        StatObjectResponse info = s3Service.getObjectInfo(fullPath);
+        long maxFileSize = storageProperties.getPresign().getMaxFileSize().toBytes();
+        if (info.size() > maxFileSize) {
+            log.warn("Presigned upload over size limit deleted: userId={}, path={}, size={}", userId, path, info.size());
+            s3Service.deleteObjects(List.of(fullPath));
+            throw new UploadLimitExceededException(String.format("Файл превышает максимальный размер %s",
+                    storageProperties.getPresign().getMaxFileSize()));
+        }
+        try {
+            storageUsageService.checkQuota(userId, info.size());
+        } catch (StorageQuotaExceededException e) {
+            log.warn("Presigned upload over quota deleted: userId={}, path={}, size={}", userId, path, info.size());
+            s3Service.deleteObjects(List.of(fullPath));
+            throw e;
+        }
+
+        parentDirectoryCreator.createParentDirectories(ResourcePath.root(userId), List.of(path));
+        resourceIndexService.indexFile(userId, path, info.size(), info.etag(), info.lastModified().toInstant());
+        log.info("Presigned upload completed: userId={}, path={}, size={}", userId, path, info.size());
+        return resourceMapper.toDto(info);
+    }
+
+    private PresignedUrlResponse presign(Method method, String fullPath, Map<String, String> queryParams) {
+        Duration expiry = storageProperties.getPresign().getExpiry();
+        Instant expiresAt = Instant.now().plus(expiry);
+        try {
+            String url = presignMinioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(method)
+                    .bucket(BUCKET_NAME)
+                    .object(fullPath)
+                    .expiry((int) expiry.toSeconds())
+                    .extraQueryParams(queryParams)
+                    .build());
+            return new PresignedUrlResponse(url, method.name(), expiresAt, null);
+        } catch (Exception e) {
+            log.error("Failed to presign URL: method={}, path={}", method, fullPath);
+            throw new MinioServiceException("Failed to presign URL", e);
+        }
+    }
+
+    /**
+     * Signs a browser-style {@code POST} upload of exactly {@code fullPath}. Unlike a presigned
+     * {@code PUT}, the policy carries a content length range, so the storage itself rejects a
+     * larger file.
+     */
+    private PresignedUrlResponse presignPost(String fullPath, long maxFileSize) {
+        ZonedDateTime expiresAt = ZonedDateTime.now(ZoneOffset.UTC).plus(storageProperties.getPresign().getExpiry());
+        PostPolicy policy = new PostPolicy(BUCKET_NAME, expiresAt);
+        policy.addEqualsCondition("key", fullPath);
+        policy.addContentLengthRangeCondition(0, maxFileSize);
+        try {
+            Map<String, String> formData = new LinkedHashMap<>();
+            formData.put("key", fullPath);
+            formData.putAll(presignMinioClient.getPresignedPostFormData(policy));
+            return new PresignedUrlResponse(presignMinioClient.getBucketUrl(BUCKET_NAME), "POST",
+                    expiresAt.toInstant(), formData);
+        } catch (Exception e) {
+            log.error("Failed to presign upload form: path={}", fullPath);
+            throw new MinioServiceException("Failed to presign upload form", e);
+        }
+    }
+
+    private long remainingQuota(Long userId) {
+        StorageUsageResponse usage = storageUsageService.getUsage(userId);
+        return usage.quotaBytes() == null ? Long.MAX_VALUE : Math.max(0, usage.quotaBytes() - usage.usedBytes());
+    }
+
+    private static void checkFilePath(String path) {
+        if (ResourcePathUtil.isDirectory(path)) {
+            throw new InvalidUploadException("Путь должен указывать на файл");
+        }
+    }
+
+    private void checkNotExists(String fullPath) {
+        if (s3Service.checkExistObject(fullPath)) {
+            log.debug("Presign upload failed: resource already exists: fullPath={}", fullPath);
+            throw new ResourceAlreadyExistException("Resource already exists");
+        }
+    }
+}
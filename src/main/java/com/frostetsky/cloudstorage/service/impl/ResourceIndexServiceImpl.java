@@ -0,0 +1,455 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.dto.ResourceType;
+import com.frostetsky.cloudstorage.model.ResourceMetadata;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.repository.ResourceMetadataRepository;
+import com.frostetsky.cloudstorage.repository.UserStorageUsageRepository;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResourceIndexServiceImpl implements ResourceIndexService {
+
+    private static final Pattern USER_BASE_PATH = Pattern.compile("^user-(\\d+)-files/$");
+    private static final int RECONCILE_BATCH_SIZE = 500;
+    private static final int ROLLUP_BATCH_SIZE = 1000;
+
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final UserStorageUsageRepository userStorageUsageRepository;
+    private final S3Service s3Service;
+    private final TransactionTemplate transactionTemplate;
+    @Qualifier("indexTaskExecutor")
+    private final Executor indexTaskExecutor;
+    /** Users known to be indexed; a user never stops being indexed. */
+    private final Set<Long> indexedUsers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> reconcilingUsers = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean isIndexed(Long userId, String path) {
+        return isUserIndexed(userId) && resourceMetadataRepository.existsByUserIdAndPath(userId, path);
+    }
+
+    @Override
+    public boolean isUserIndexed(Long userId) {
+        if (indexedUsers.contains(userId)) {
+            return true;
+        }
+        if (userStorageUsageRepository.isIndexed(userId)) {
+            indexedUsers.add(userId);
+            return true;
+        }
+        if (reconcilingUsers.add(userId)) {
+            log.info("User is not indexed, reconciling in background: userId={}", userId);
+            indexTaskExecutor.execute(() -> {
+                try {
+                    reconcile(userId);
+                } catch (RuntimeException e) {
+                    log.error("Failed to reconcile user index: userId={}", userId, e);
+                } finally {
+                    reconcilingUsers.remove(userId);
+                }
+            });
+        }
+        return false;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ResourceMetadata> findResource(Long userId, String path) {
+        return resourceMetadataRepository.findByUserIdAndPath(userId, path);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> findIndexedPaths(Long userId, Collection<String> paths) {
+        if (paths.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(resourceMetadataRepository.findExistingPaths(userId, paths));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResourceMetadata> getDirectoryContent(Long userId, String path) {
+        return resourceMetadataRepository.findChildren(userId, path, path, Integer.MAX_VALUE);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResourceMetadata> getDirectoryContent(Long userId, String path, String afterPath, int limit) {
+        return resourceMetadataRepository.findChildren(userId, path, afterPath, limit);
+    }
+
+    @Override
+    public List<ResourceMetadata> search(Long userId, String query, int afterRank, String afterPath, int limit) {
+        if (!isUserIndexed(userId)) {
+            return searchStorage(userId, query, afterRank, afterPath, limit);
+        }
+        String escapedQuery = escapeLike(query);
+        return resourceMetadataRepository.searchByName(userId, escapedQuery + "%", "%" + escapedQuery + "%",
+                afterRank, afterPath, limit);
+    }
+
+    /**
+     * Same search over a listing of the user's objects, for users whose index is not built yet.
+     * Paths compare byte by byte, like the index search does.
+     */
+    private List<ResourceMetadata> searchStorage(Long userId, String query, int afterRank, String afterPath,
+                                                int limit) {
+        log.debug("Searching storage, user is not indexed: userId={}, query={}", userId, query);
+        Comparator<ResourceMetadata> order = Comparator
+                .comparingInt((ResourceMetadata resource) -> searchRank(resource, query))
+                .thenComparing(ResourceMetadata::getPath, ResourceIndexServiceImpl::compareBytes);
+        try (Stream<Item> items = s3Service.streamObjectsInDirectory(ResourcePathUtil.buildBasePath(userId), null, true)) {
+            return items
+                    .map(item -> {
+                        ResourcePath path = ResourcePath.parse(item.objectName());
+                        return ResourceMetadata.builder()
+                                .userId(userId)
+                                .path(path.getPath())
+                                .parentPath(path.getParentPath())
+                                .name(path.getName())
+                                .type(path.getResourceType())
+                                .size(path.isDirectory() ? null : item.size())
+                                .build();
+                    })
+                    .filter(resource -> !resource.getPath().isEmpty()
+                            && StringUtils.containsIgnoreCase(resource.getName(), query))
+                    .filter(resource -> {
+                        int rank = searchRank(resource, query);
+                        return rank > afterRank
+                                || rank == afterRank && compareBytes(resource.getPath(), afterPath) > 0;
+                    })
+                    .sorted(order)
+                    .limit(limit)
+                    .toList();
+        }
+    }
+
+    private static int searchRank(ResourceMetadata resource, String query) {
+        return StringUtils.startsWithIgnoreCase(resource.getName(), query) ? 0 : 1;
+    }
+
+    @Override
+    @Transactional
+    public void indexDirectory(Long userId, String path) {
+        writeDirectory(userId, path, true);
+    }
+
+    private void writeDirectory(Long userId, String path, boolean countWrite) {
+        log.debug("Indexing directory: userId={}, path={}", userId, path);
+        int createdCount = indexParentDirectories(userId, path) + insertDirectory(userId, path);
+        addUsage(userId, 0, 0, createdCount, countWrite && createdCount > 0);
+    }
+
+    @Override
+    @Transactional
+    public void indexFile(Long userId, String path, long size, String etag, Instant lastModified) {
+        writeFile(userId, path, size, etag, lastModified, true);
+    }
+
+    private void writeFile(Long userId, String path, long size, String etag, Instant lastModified,
+                           boolean countWrite) {
+        log.debug("Indexing file: userId={}, path={}, size={}", userId, path, size);
+        int createdCount = indexParentDirectories(userId, path);
+        resourceMetadataRepository.lockPath(userId, path);
+        Optional<Long> previousSize = resourceMetadataRepository.findFileSizeForUpdate(userId, path);
+        resourceMetadataRepository.upsertFile(userId, path, parentOf(path), nameOf(path),
+                size, StringUtils.remove(etag, '"'), lastModified);
+        long addedBytes = size - previousSize.orElse(0L);
+        int addedFiles = previousSize.isPresent() ? 0 : 1;
+        addToAncestors(userId, path, addedBytes, addedFiles);
+        addUsage(userId, addedBytes, addedFiles, createdCount, countWrite);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResourceMetadata> findFilesWithChecksum(Long userId, String path) {
+        return resourceMetadataRepository.findFilesWithChecksum(userId, toLikePattern(path));
+    }
+
+    @Override
+    @Transactional
+    public void saveChecksum(Long userId, String path, String etag, long crc32) {
+        int updated = resourceMetadataRepository.updateChecksum(userId, path, StringUtils.remove(etag, '"'), crc32);
+        log.debug("Checksum saved: userId={}, path={}, updated={}", userId, path, updated > 0);
+    }
+
+    @Override
+    @Transactional
+    public void removeResource(Long userId, String path) {
+        deleteResource(userId, path, true);
+    }
+
+    private void deleteResource(Long userId, String path, boolean countWrite) {
+        resourceMetadataRepository.deleteRollupDeltasByPathPattern(userId, toLikePattern(path));
+        ResourceMetadataRepository.DeletedTotals removed =
+                resourceMetadataRepository.deleteByPathPattern(userId, toLikePattern(path));
+        long removedCount = removed.getFiles() + removed.getDirectories();
+        addToAncestors(userId, path, -removed.getBytes(), -removedCount);
+        addUsage(userId, -removed.getBytes(), -removed.getFiles(), -removed.getDirectories(),
+                countWrite && removedCount > 0);
+        log.debug("Resource removed from index: userId={}, path={}, filesCount={}, directoriesCount={}",
+                userId, path, removed.getFiles(), removed.getDirectories());
+    }
+
+    @Override
+    @Transactional
+    public void moveResource(Long userId, String pathFrom, String pathTo) {
+        // pending changes are keyed by path, so they are applied before the paths change
+        resourceMetadataRepository.applyRollupDeltasByPathPattern(userId, toLikePattern(pathFrom));
+        Optional<ResourceMetadata> source = resourceMetadataRepository.findByUserIdAndPathForUpdate(userId, pathFrom);
+        long movedBytes = source.map(ResourceMetadata::getSize).orElse(0L);
+        long movedCount = source.map(resource -> 1 + Objects.requireNonNullElse(resource.getDescendantCount(), 0L))
+                .orElse(0L);
+        addToAncestors(userId, pathFrom, -movedBytes, -movedCount);
+        int moved = resourceMetadataRepository.movePathPrefix(userId, toLikePattern(pathFrom),
+                pathFrom, pathFrom.length(), pathTo, parentOf(pathTo), nameOf(pathTo));
+        addUsage(userId, 0, 0, indexParentDirectories(userId, pathTo), moved > 0);
+        addToAncestors(userId, pathTo, movedBytes, movedCount);
+        log.debug("Resource moved in index: userId={}, from={}, to={}, rowsCount={}", userId, pathFrom, pathTo, moved);
+    }
+
+    @Override
+    public void applyRollupDeltas() {
+        long appliedCount = 0;
+        long batchCount;
+        do {
+            batchCount = Objects.requireNonNull(transactionTemplate.execute(
+                    status -> resourceMetadataRepository.applyRollupDeltas(ROLLUP_BATCH_SIZE)));
+            appliedCount += batchCount;
+        } while (batchCount == ROLLUP_BATCH_SIZE);
+        if (appliedCount > 0) {
+            log.debug("Directory rollup changes applied: changesCount={}", appliedCount);
+        }
+    }
+
+    @Override
+    public void backfill() {
+        log.info("Resource index backfill started");
+        try (Stream<Item> prefixes = s3Service.streamObjectsInDirectory("", null, false)) {
+            prefixes.forEach(item -> {
+                Matcher matcher = USER_BASE_PATH.matcher(item.objectName());
+                if (matcher.matches()) {
+                    reconcile(Long.valueOf(matcher.group(1)));
+                }
+            });
+        }
+        log.info("Resource index backfill finished");
+    }
+
+    /**
+     * Walks the storage listing and the index rows side by side, both ordered byte by byte:
+     * objects without a row are indexed, files whose size or ETag changed are indexed again and
+     * rows without an object are removed, except for directories that still have keys below them
+     * and resources found in the storage when checked again, since they may have been written after
+     * the listing passed their keys. Changes are applied in transactions of {@link #RECONCILE_BATCH_SIZE}.
+     * <p>
+     * Other writes may still race with the walk, e.g. a deletion committed after its object was
+     * listed; the user is then left not indexed, so that the next request reconciles again.
+     */
+    @Override
+    public void reconcile(Long userId) {
+        String basePath = ResourcePathUtil.buildBasePath(userId);
+        long writesBefore = userStorageUsageRepository.countIndexWrites(userId);
+        List<Runnable> changes = new ArrayList<>();
+        long changedCount = 0;
+        try (Stream<Item> objects = s3Service.streamObjectsInDirectory(basePath, null, true)) {
+            Iterator<Item> objectIterator = objects.iterator();
+            Iterator<ResourceMetadata> rowIterator = indexedResources(userId);
+            Item object = objectIterator.hasNext() ? objectIterator.next() : null;
+            ResourceMetadata row = rowIterator.hasNext() ? rowIterator.next() : null;
+            while (object != null || row != null) {
+                String objectPath = object == null ? null : object.objectName().substring(basePath.length());
+                int order = object == null ? 1 : row == null ? -1 : compareBytes(objectPath, row.getPath());
+                if (order < 0) {
+                    Item item = object;
+                    changes.add(() -> indexItem(userId, objectPath, item));
+                } else if (order > 0) {
+                    boolean hasKeysBelow = objectPath != null && row.getType() == ResourceType.DIRECTORY
+                            && objectPath.startsWith(row.getPath());
+                    if (!hasKeysBelow && !existsInStorage(basePath, row)) {
+                        String path = row.getPath();
+                        changes.add(() -> deleteResource(userId, path, false));
+                    }
+                } else if (row.getType() == ResourceType.FILE && (!Objects.equals(row.getSize(), object.size())
+                        || !Objects.equals(row.getEtag(), StringUtils.remove(object.etag(), '"')))) {
+                    Item item = object;
+                    changes.add(() -> indexItem(userId, objectPath, item));
+                }
+                if (order <= 0) {
+                    object = objectIterator.hasNext() ? objectIterator.next() : null;
+                }
+                if (order >= 0) {
+                    row = rowIterator.hasNext() ? rowIterator.next() : null;
+                }
+                if (changes.size() >= RECONCILE_BATCH_SIZE) {
+                    changedCount += applyChanges(changes);
+                }
+            }
+        }
+        changedCount += applyChanges(changes);
+        int marked = Objects.requireNonNull(transactionTemplate.execute(
+                status -> userStorageUsageRepository.markIndexed(userId, writesBefore)));
+        if (marked == 0) {
+            log.info("User index reconciled, but written meanwhile, left not indexed: userId={}, changesCount={}",
+                    userId, changedCount);
+            return;
+        }
+        indexedUsers.add(userId);
+        log.info("User index reconciled: userId={}, changesCount={}", userId, changedCount);
+    }
+
+    /**
+     * Checks again whether a resource the listing did not return exists; a directory may exist
+     * only through the keys below it.
+     */
+    private boolean existsInStorage(String basePath, ResourceMetadata row) {
+        String fullPath = basePath + row.getPath();
+        if (s3Service.checkExistObject(fullPath)) {
+            return true;
+        }
+        if (row.getType() != ResourceType.DIRECTORY) {
+            return false;
+        }
+        try (Stream<Item> items = s3Service.streamObjectsInDirectory(fullPath, null, true)) {
+            return items.findAny().isPresent();
+        }
+    }
+
+    private Iterator<ResourceMetadata> indexedResources(Long userId) {
+        return Stream.iterate(
+                        resourceMetadataRepository.findPageInByteOrder(userId, "", RECONCILE_BATCH_SIZE),
+                        page -> !page.isEmpty(),
+                        page -> resourceMetadataRepository.findPageInByteOrder(
+                                userId, page.getLast().getPath(), RECONCILE_BATCH_SIZE))
+                .flatMap(List::stream)
+                .iterator();
+    }
+
+    private int applyChanges(List<Runnable> changes) {
+        int count = changes.size();
+        if (count > 0) {
+            transactionTemplate.executeWithoutResult(status -> changes.forEach(Runnable::run));
+            changes.clear();
+        }
+        return count;
+    }
+
+    private void indexItem(Long userId, String path, Item item) {
+        if (ResourcePathUtil.isDirectory(item.objectName())) {
+            writeDirectory(userId, path, false);
+        } else {
+            writeFile(userId, path, item.size(), item.etag(), item.lastModified().toInstant(), false);
+        }
+    }
+
+    /**
+     * @return number of directories that were not indexed before
+     */
+    private int indexParentDirectories(Long userId, String path) {
+        if (path.isEmpty()) {
+            return 0;
+        }
+        String parentPath = parentOf(path);
+        return indexParentDirectories(userId, parentPath) + insertDirectory(userId, parentPath);
+    }
+
+    /**
+     * @return 1 if a directory other than the user root was inserted
+     */
+    private int insertDirectory(Long userId, String path) {
+        int inserted = resourceMetadataRepository.insertDirectoryIfAbsent(userId, path, parentOf(path), nameOf(path));
+        if (path.isEmpty()) {
+            return 0;
+        }
+        addToAncestors(userId, path, 0, inserted);
+        return inserted;
+    }
+
+    /**
+     * Records a change of the size and descendant count of every directory above {@code path}
+     * except the user root, whose totals are the user's storage usage; {@link #applyRollupDeltas()}
+     * applies it shortly after.
+     */
+    private void addToAncestors(Long userId, String path, long bytes, long descendants) {
+        List<String> ancestors = ResourcePathUtil.getParentDirectories(path);
+        if (!ancestors.isEmpty() && (bytes != 0 || descendants != 0)) {
+            resourceMetadataRepository.addRollupDeltas(userId, ancestors, bytes, descendants);
+        }
+    }
+
+    /**
+     * Applies a change of the indexed resources to the user's totals in the caller's transaction,
+     * so the totals never disagree with a committed index. Writes outside reconciliation are
+     * counted, so that {@link #reconcile} can tell whether one raced with its walk.
+     */
+    private void addUsage(Long userId, long bytes, long files, long directories, boolean countWrite) {
+        if (bytes != 0 || files != 0 || directories != 0 || countWrite) {
+            userStorageUsageRepository.addUsage(userId, bytes, files, directories, countWrite ? 1 : 0);
+        }
+    }
+
+    /**
+     * Parent path of a relative path, unlike {@link ResourcePathUtil#extractParentDirectoryPath}
+     * never strips a leading segment that merely looks like a user base prefix.
+     */
+    private static String parentOf(String path) {
+        String withoutSlash = StringUtils.removeEnd(path, "/");
+        return withoutSlash.substring(0, withoutSlash.lastIndexOf('/') + 1);
+    }
+
+    private static String nameOf(String path) {
+        return path.substring(parentOf(path).length());
+    }
+
+    /**
+     * Orders paths like the storage orders keys and PostgreSQL's pattern operators and
+     * {@code collate "C"} order text.
+     */
+    private static int compareBytes(String a, String b) {
+        return Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String toLikePattern(String path) {
+        String escaped = escapeLike(path);
+        return ResourcePathUtil.isDirectory(path) ? escaped + "%" : escaped;
+    }
+
+    /**
+     * The backslash is the escape character of LIKE, so it is escaped first.
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,30 +1,64 @@
 package com.frostetsky.cloudstorage.service.impl;
 
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.dto.ArchiveMode;
+import com.frostetsky.cloudstorage.dto.DeleteResultDto;
 import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.dto.ResourcePageDto;
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadErrorDto;
+import com.frostetsky.cloudstorage.dto.UploadResultDto;
+import com.frostetsky.cloudstorage.excepiton.BaseException;
+import com.frostetsky.cloudstorage.excepiton.InvalidCursorException;
+import com.frostetsky.cloudstorage.excepiton.InvalidMoveException;
+import com.frostetsky.cloudstorage.excepiton.InvalidUploadException;
 import com.frostetsky.cloudstorage.excepiton.ResourceAlreadyExistException;
 import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
 import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.excepiton.StorageQuotaExceededException;
+import com.frostetsky.cloudstorage.excepiton.UploadLimitExceededException;
 import com.frostetsky.cloudstorage.mapper.ResourceMapper;
+import com.frostetsky.cloudstorage.model.ResourceMetadata;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
 import com.frostetsky.cloudstorage.service.ResourceService;
 import com.frostetsky.cloudstorage.service.S3Service;
-import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import com.frostetsky.cloudstorage.service.StorageUsageService;
+import com.frostetsky.cloudstorage.util.CursorUtil;
+import com.frostetsky.cloudstorage.util.ProgressListener;
+import com.frostetsky.cloudstorage.util.zip.StoredZipArchive;
 import io.minio.*;
-import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadByteCountLimitException;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.InputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 
 @Slf4j
@@ -32,216 +66,392 @@ import java.util.zip.ZipOutputStream;
 @RequiredArgsConstructor
 public class ResourceServiceImpl implements ResourceService {
 
+    private static final int FIRST_SEARCH_RANK = -1;
+
     private final ResourceMapper resourceMapper;
     private final S3Service s3Service;
+    private final ResourceIndexService resourceIndexService;
+    private final DirectoryMoveEngine directoryMoveEngine;
+    private final DirectoryDeleteEngine directoryDeleteEngine;
+    private final FileUploadEngine fileUploadEngine;
+    private final DirectoryZipWriter directoryZipWriter;
+    private final StoredZipArchiveFactory storedZipArchiveFactory;
+    private final ObjectDownloadFactory objectDownloadFactory;
+    private final StorageUsageService storageUsageService;
+    private final ParentDirectoryCreator parentDirectoryCreator;
+    private final StorageProperties storageProperties;
 
     @Override
-    public List<ResourceResponse> uploadResource(Long userId, String path, MultipartFile[] files) {
-        String basePath = ResourcePathUtil.buildBasePath(userId);
-        List<ResourceResponse> resources = new ArrayList<>();
-        if (!s3Service.checkExistObject(basePath + path)) {
+    public UploadResultDto uploadResource(ResourcePath path, MultipartFile[] files) {
+        Long userId = path.getUserId();
+        if (!s3Service.checkExistObject(path.getFullPath())) {
             log.debug("Upload failed: parent directory does not exist: userId={}, path={}", userId, path);
             throw new ResourceNotFoundException("Parent directory does not exist");
         }
         log.info("Uploading resource: userId={}, path={}, filesCount={}", userId, path, files == null ? 0 : files.length);
+        Map<String, MultipartFile> filesByPath = new LinkedHashMap<>();
         for (MultipartFile file : files) {
-            String fullPath = basePath + path + file.getOriginalFilename();
-            ObjectWriteResponse response = uploadFile(fullPath, file);
-            resources.add(resourceMapper.toDto(response.object(), file.getSize()));
+            String fullPath = path.getFullPath() + file.getOriginalFilename();
+            if (filesByPath.putIfAbsent(fullPath, file) != null) {
+                log.debug("Upload failed: duplicate file in request: fullPath={}", fullPath);
+                throw new ResourceAlreadyExistException("Resource already exists");
+            }
+            checkNotExists(fullPath);
         }
-        log.info("Resources uploaded successfully: userId={}, path={}, uploadedCount={}", userId, path, resources.size());
-        return resources;
-    }
-
-    private ObjectWriteResponse uploadFile(String fullPath, MultipartFile file) {
-        if (s3Service.checkExistObject(fullPath)) {
-            log.debug("Upload failed: resource already exists: fullPath={}", fullPath);
-            throw new ResourceAlreadyExistException("Resource already exists");
+        storageUsageService.checkQuota(userId, Arrays.stream(files).mapToLong(MultipartFile::getSize).sum());
+        parentDirectoryCreator.createParentDirectories(path, Arrays.stream(files)
+                .map(MultipartFile::getOriginalFilename)
+                .toList());
+
+        List<ResourceResponse> uploaded = new ArrayList<>();
+        List<UploadErrorDto> failed = new ArrayList<>();
+        for (FileUploadEngine.UploadOutcome outcome : fileUploadEngine.upload(filesByPath)) {
+            ResourcePath filePath = ResourcePath.parse(outcome.fullPath());
+            if (outcome.isSuccessful()) {
+                try {
+                    storageUsageService.indexWithinQuota(userId, () -> resourceIndexService.indexFile(userId,
+                            filePath.getPath(), outcome.file().getSize(), outcome.response().etag(),
+                            outcome.lastModified()));
+                    uploaded.add(resourceMapper.toDto(filePath, outcome.file().getSize()));
+                } catch (StorageQuotaExceededException e) {
+                    // concurrent uploads passed the check above together, this file is the one over the quota
+                    s3Service.deleteObjects(List.of(outcome.fullPath()));
+                    failed.add(new UploadErrorDto(filePath.getParentPath(), filePath.getName(), e.getMessage()));
+                }
+            } else {
+                failed.add(new UploadErrorDto(
+                        filePath.getParentPath(),
+                        filePath.getName(),
+                        getUploadErrorMessage(outcome.error())));
+            }
         }
-        createParentDirectories(fullPath);
-        return s3Service.putObject(fullPath, file);
+        log.info("Resources uploaded: userId={}, path={}, uploadedCount={}, failedCount={}",
+                userId, path, uploaded.size(), failed.size());
+        return new UploadResultDto(uploaded, failed);
     }
 
+    @Override
+    public UploadResultDto uploadResourceStream(ResourcePath path, HttpServletRequest request) {
+        Long userId = path.getUserId();
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new InvalidUploadException("Ожидается запрос multipart/form-data");
+        }
+        if (!s3Service.checkExistObject(path.getFullPath())) {
+            log.debug("Upload failed: parent directory does not exist: userId={}, path={}", userId, path);
+            throw new ResourceNotFoundException("Parent directory does not exist");
+        }
 
-    private void createParentDirectories(String dirPath) {
-        List<String> parentDirectories = ResourcePathUtil.getParentDirectories(dirPath);
-        for (String parentDirPath : parentDirectories) {
-            if (!s3Service.checkExistObject(parentDirPath)) {
-                log.debug("Creating missing parent directory: path={}", parentDirPath);
-                s3Service.createEmptyDir(parentDirPath);
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+        upload.setFileSizeMax(storageProperties.getUpload().getMaxFileSize().toBytes());
+        upload.setSizeMax(storageProperties.getUpload().getMaxRequestSize().toBytes());
+
+        log.info("Streaming upload started: userId={}, path={}", userId, path);
+        Set<String> filePaths = new HashSet<>();
+        List<ResourceResponse> uploaded = new ArrayList<>();
+        List<UploadErrorDto> failed = new ArrayList<>();
+        try {
+            FileItemInputIterator items = upload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
+                if (item.isFormField()) {
+                    continue;
+                }
+                if (StringUtils.isBlank(item.getName())) {
+                    throw new InvalidUploadException("Имя файла не может быть пустым");
+                }
+                ResourcePath filePath = path.resolve(item.getName());
+                try {
+                    if (!filePaths.add(filePath.getPath())) {
+                        throw new ResourceAlreadyExistException("Resource already exists");
+                    }
+                    uploaded.add(uploadStreamItem(path, filePath, item));
+                } catch (RuntimeException e) {
+                    failed.add(new UploadErrorDto(
+                            filePath.getParentPath(),
+                            filePath.getName(),
+                            getStreamUploadErrorMessage(e, item.getName())));
+                }
             }
+        } catch (FileUploadSizeException e) {
+            throw new UploadLimitExceededException("Размер запроса превышает допустимый", e);
+        } catch (IOException e) {
+            throw new ResourceServiceException("Failed to read upload request", e);
         }
+        log.info("Streaming upload finished: userId={}, path={}, uploadedCount={}, failedCount={}",
+                userId, path, uploaded.size(), failed.size());
+        return new UploadResultDto(uploaded, failed);
     }
 
-    @Override
-    public void deleteResource(Long userId, String path) {
-        String fullPath = ResourcePathUtil.buildBasePath(userId) + path;
-        if (!s3Service.checkExistObject(fullPath)) {
-            log.error("Delete failed: resource not found: userId={}, path={}, fullPath={}", userId, path, fullPath);
-            throw new ResourceNotFoundException("Resource is not found");
+    private ResourceResponse uploadStreamItem(ResourcePath path, ResourcePath filePath, FileItemInput item) {
+        Long userId = path.getUserId();
+        checkNotExists(filePath.getFullPath());
+        storageUsageService.checkQuota(userId, 0);
+        parentDirectoryCreator.createParentDirectories(path, List.of(item.getName()));
+        CRC32 crc = new CRC32();
+        try (BoundedInputStream stream = BoundedInputStream.builder()
+                .setInputStream(new CheckedInputStream(item.getInputStream(), crc))
+                .get()) {
+            ObjectWriteResponse response = s3Service.putObject(filePath.getFullPath(), stream, item.getContentType());
+            checkStoredFileQuota(filePath, stream.getCount());
+            Instant lastModified = Instant.now();
+            resourceIndexService.indexFile(userId, filePath.getPath(), stream.getCount(), response.etag(), lastModified);
+            resourceIndexService.saveChecksum(userId, filePath.getPath(), response.etag(), crc.getValue());
+            return resourceMapper.toDto(filePath, stream.getCount());
+        } catch (IOException e) {
+            throw new ResourceServiceException("Failed to read uploaded file", e);
         }
-        log.debug("Deleting resource: userId={}, path={}, isDirectory={}", userId, path, ResourcePathUtil.isDirectory(fullPath));
-        if (ResourcePathUtil.isDirectory(fullPath)) {
-            deleteDirectory(fullPath);
-        } else {
-            s3Service.deleteObjects(List.of(new DeleteObject(fullPath)));
+    }
+
+    /**
+     * The size of a streamed file is known only once it is stored, so a file that does not fit
+     * into the quota is deleted again.
+     */
+    private void checkStoredFileQuota(ResourcePath filePath, long size) {
+        try {
+            storageUsageService.checkQuota(filePath.getUserId(), size);
+        } catch (StorageQuotaExceededException e) {
+            s3Service.deleteObjects(List.of(filePath.getFullPath()));
+            throw e;
         }
-        log.info("Resource deleted successfully: userId={}, path={}", userId, path);
     }
 
-    private void deleteDirectory(String path) {
+    /**
+     * A file over the size limit is reported like any other failed file, while a request over
+     * the total limit cannot be read further and fails as a whole.
+     */
+    private String getStreamUploadErrorMessage(RuntimeException e, String fileName) {
+        if (ExceptionUtils.throwableOfType(e, FileUploadByteCountLimitException.class) != null) {
+            return String.format("Файл '%s' превышает максимальный размер %s", fileName,
+                    storageProperties.getUpload().getMaxFileSize());
+        }
+        FileUploadSizeException sizeException = ExceptionUtils.throwableOfType(e, FileUploadSizeException.class);
+        if (sizeException != null) {
+            throw new UploadLimitExceededException("Размер запроса превышает допустимый", sizeException);
+        }
+        return getUploadErrorMessage(e);
+    }
 
-        List<DeleteObject> objectsToDelete = s3Service.getObjectsInDirectory(path, true)
-                .stream()
-                .map(item -> new DeleteObject(item.objectName()))
-                .toList();
+    private String getUploadErrorMessage(RuntimeException e) {
+        return e instanceof BaseException ? e.getMessage() : "Failed to upload file";
+    }
 
-        if (!objectsToDelete.isEmpty()) {
-            log.debug("Deleting directory objects: path={}, objectsCount={}", path, objectsToDelete.size());
-            s3Service.deleteObjects(objectsToDelete);
+    private void checkNotExists(String fullPath) {
+        if (s3Service.checkExistObject(fullPath)) {
+            log.debug("Upload failed: resource already exists: fullPath={}", fullPath);
+            throw new ResourceAlreadyExistException("Resource already exists");
         }
     }
 
     @Override
-    public ResourceResponse getResourceInfo(Long userId, String path) {
-        log.debug("Fetching resource info: userId={}, path={}", userId, path);
-        String fullPath = ResourcePathUtil.buildBasePath(userId) + path;
-        StatObjectResponse info = s3Service.getObjectInfo(fullPath);
-        return resourceMapper.toDto(info);
+    public DeleteResultDto deleteResource(ResourcePath path) {
+        checkDelete(path);
+        return deleteChecked(path, ProgressListener.NONE);
     }
 
     @Override
-    public DownloadResultDto downloadResource(Long userId, String path) {
+    public void checkDelete(ResourcePath path) {
+        if (!s3Service.checkExistObject(path.getFullPath())) {
+            log.error("Delete failed: resource not found: userId={}, path={}, fullPath={}",
+                    path.getUserId(), path, path.getFullPath());
+            throw new ResourceNotFoundException("Resource is not found");
+        }
+    }
 
-        String fullPath = ResourcePathUtil.buildBasePath(userId) + path;
+    @Override
+    public DeleteResultDto deleteChecked(ResourcePath path, ProgressListener progress) {
+        Long userId = path.getUserId();
+        String fullPath = path.getFullPath();
+        log.debug("Deleting resource: userId={}, path={}, isDirectory={}", userId, path, path.isDirectory());
+        DirectoryDeleteEngine.DeleteOutcome outcome;
+        if (path.isDirectory()) {
+            outcome = directoryDeleteEngine.deleteDirectory(fullPath, progress);
+            resourceIndexService.removeResource(userId, path.getPath());
+            if (!outcome.isComplete()) {
+                reindexRemaining(path);
+            }
+        } else {
+            List<String> failed = s3Service.tryDeleteObjects(List.of(fullPath));
+            outcome = new DirectoryDeleteEngine.DeleteOutcome(1 - failed.size(), failed.size(), failed);
+            if (outcome.isComplete()) {
+                resourceIndexService.removeResource(userId, path.getPath());
+            }
+        }
+        log.info("Resource deleted: userId={}, path={}, deletedCount={}, failedCount={}",
+                userId, path, outcome.deletedCount(), outcome.failedCount());
+        return new DeleteResultDto(
+                outcome.deletedCount(),
+                outcome.failedCount(),
+                outcome.failedKeys().stream()
+                        .map(key -> ResourcePath.parse(key).getPath())
+                        .toList());
+    }
 
-        if (!s3Service.checkExistObject(fullPath)) {
-            log.debug("Download failed: resource not found: userId={}, path={}, fullPath={}", userId, path, fullPath);
-            throw new ResourceNotFoundException("Resource not found");
+    /**
+     * Puts the objects that survived a partial delete back into the index, which the delete
+     * cleared for the whole path.
+     */
+    private void reindexRemaining(ResourcePath directory) {
+        Long userId = directory.getUserId();
+        try (Stream<Item> items = s3Service.streamObjectsInDirectory(directory.getFullPath(), null, true)) {
+            items.forEach(item -> {
+                ResourcePath remaining = ResourcePath.parse(item.objectName());
+                if (remaining.isDirectory()) {
+                    resourceIndexService.indexDirectory(userId, remaining.getPath());
+                } else {
+                    resourceIndexService.indexFile(userId, remaining.getPath(), item.size(), item.etag(),
+                            item.lastModified().toInstant());
+                }
+            });
         }
+    }
 
-        log.info("Downloading resource: userId={}, path={}", userId, path);
-        if (ResourcePathUtil.isDirectory(fullPath)) {
-            return new DownloadResultDto(
-                    ResourcePathUtil.buildZipArchiveName(fullPath),
-                    downloadDirectory(fullPath));
+    @Override
+    public ResourceResponse getResourceInfo(ResourcePath path) {
+        log.debug("Fetching resource info: userId={}, path={}", path.getUserId(), path);
+        return resourceIndexService.findResource(path.getUserId(), path.getPath())
+                .map(resourceMapper::toDto)
+                .orElseGet(() -> getNotIndexedResourceInfo(path));
+    }
+
+    private ResourceResponse getNotIndexedResourceInfo(ResourcePath path) {
+        Long userId = path.getUserId();
+        StatObjectResponse info = s3Service.getObjectInfo(path.getFullPath());
+        log.debug("Resource is not indexed, indexing from storage: userId={}, path={}", userId, path);
+        if (path.isDirectory()) {
+            resourceIndexService.indexDirectory(userId, path.getPath());
         } else {
+            resourceIndexService.indexFile(userId, path.getPath(), info.size(), info.etag(),
+                    info.lastModified().toInstant());
+        }
+        return resourceMapper.toDto(path, info.size());
+    }
+
+    @Override
+    public DownloadResultDto downloadResource(ResourcePath path, ArchiveMode archiveMode) {
+        checkDownload(path);
+        log.info("Downloading resource: userId={}, path={}, archiveMode={}", path.getUserId(), path, archiveMode);
+        if (path.isDirectory() && archiveMode == ArchiveMode.STORED) {
+            return downloadDirectoryStored(path);
+        } else if (path.isDirectory()) {
             return new DownloadResultDto(
-                    ResourcePathUtil.extractResourceName(fullPath),
-                    downloadFile(fullPath));
+                    path.getZipArchiveName(),
+                    downloadDirectory(path.getFullPath()));
+        } else {
+            return objectDownloadFactory.create(path.getFullPath(), path.getName());
         }
     }
 
-    private StreamingResponseBody downloadFile(String path) {
-        InputStream stream = s3Service.downloadObject(path);
-        return outputStream -> {
-            try (stream) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = stream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                }
-            } catch (Exception e) {
-                log.error("Streaming download failed: path={}", path);
-                throw new ResourceServiceException("Streaming download failed", e);
-            }
-        };
+    @Override
+    public void checkDownload(ResourcePath path) {
+        if (!s3Service.checkExistObject(path.getFullPath())) {
+            log.debug("Download failed: resource not found: userId={}, path={}, fullPath={}",
+                    path.getUserId(), path, path.getFullPath());
+            throw new ResourceNotFoundException("Resource not found");
+        }
     }
 
+    @Override
+    public void writeDirectoryArchive(ResourcePath folder, OutputStream outputStream, ProgressListener progress)
+            throws IOException {
+        directoryZipWriter.write(folder.getFullPath(), outputStream, progress);
+    }
 
     private StreamingResponseBody downloadDirectory(String folderPath) {
-        List<Item> items = s3Service.getObjectsInDirectory(folderPath, true);
-        List<String> objectsToDownload = items.stream()
-                .map(Item::objectName)
-                .toList();
-        log.debug("Preparing directory download as zip: folderPath={}, objectsCount={}",
-                folderPath, objectsToDownload.size());
-        return outputStream -> createZipArchive(folderPath, objectsToDownload, outputStream);
-    }
-
-    @SneakyThrows
-    private void createZipArchive(String folderPath, List<String> objectsToDownload, OutputStream outputStream) {
-        try (ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
-            if (!folderPath.endsWith("/")) {
-                folderPath += "/";
-            }
-            for (String objectPath : objectsToDownload) {
-                if (ResourcePathUtil.isDirectory(objectPath)) {
-                    continue;
-                }
-
-                String fileName = objectPath.substring(folderPath.length());
-                zipOut.putNextEntry(new ZipEntry(fileName));
+        log.debug("Preparing directory download as zip: folderPath={}", folderPath);
+        return outputStream -> directoryZipWriter.write(folderPath, outputStream);
+    }
 
-                try (InputStream stream = s3Service.downloadObject(objectPath)) {
-                    int bytesRead;
-                    byte[] buffer = new byte[8192];
-                    while ((bytesRead = stream.read(buffer)) != -1) {
-                        zipOut.write(buffer, 0, bytesRead);
-                    }
-                }
-                zipOut.closeEntry();
-            }
-            zipOut.finish();
-        }
+    private DownloadResultDto downloadDirectoryStored(ResourcePath folder) {
+        log.debug("Preparing directory download as stored zip: folderPath={}", folder.getFullPath());
+        StoredZipArchive archive = storedZipArchiveFactory.create(folder.getUserId(), folder.getFullPath());
+        DownloadResultDto.RangeWriter ranges = (start, count) ->
+                outputStream -> archive.write(start, count, outputStream, storedZipArchiveFactory::copy);
+        return new DownloadResultDto(
+                folder.getZipArchiveName(),
+                ranges.range(0, archive.length()),
+                archive.length(),
+                "\"" + archive.fingerprint() + "\"",
+                null,
+                ranges);
     }
 
     @Override
-    public ResourceResponse moveResource(Long userId, String pathFrom, String pathTo) {
+    public ResourceResponse moveResource(ResourcePath pathFrom, ResourcePath pathTo) {
+        checkMove(pathFrom, pathTo);
+        return moveChecked(pathFrom, pathTo, ProgressListener.NONE);
+    }
 
-        pathFrom = ResourcePathUtil.buildBasePath(userId) + pathFrom;
-        pathTo = ResourcePathUtil.buildBasePath(userId) + pathTo;
+    @Override
+    public void checkMove(ResourcePath pathFrom, ResourcePath pathTo) {
+        Long userId = pathFrom.getUserId();
+        String fullPathFrom = pathFrom.getFullPath();
+        String fullPathTo = pathTo.getFullPath();
 
-        if (!s3Service.checkExistObject(pathFrom)) {
-            log.debug("Move failed: Resource not found: userId={}, pathFrom={}", userId, pathFrom);
+        if (!s3Service.checkExistObject(fullPathFrom)) {
+            log.debug("Move failed: Resource not found: userId={}, pathFrom={}", userId, fullPathFrom);
             throw new ResourceNotFoundException("Resource is not found");
         }
 
-        if (s3Service.checkExistObject(pathTo)) {
-            log.debug("Move failed: target already exists: userId={}, pathTo={}", userId, pathTo);
-            throw new ResourceAlreadyExistException("Move failed: target already exists");
+        if (pathTo.startsWith(pathFrom)) {
+            log.debug("Move failed: target is inside the source: userId={}, pathFrom={}, pathTo={}",
+                    userId, fullPathFrom, fullPathTo);
+            throw new InvalidMoveException("Нельзя переместить папку внутрь самой себя");
         }
 
-        log.info("Moving resource: userId={}, from={}, to={}", userId, pathFrom, pathTo);
-        if (ResourcePathUtil.isDirectory(pathTo)) {
-            return moveDirectory(pathFrom, pathTo);
-        } else {
-            return moveFile(pathFrom, pathTo);
+        if (s3Service.checkExistObject(fullPathTo)) {
+            log.debug("Move failed: target already exists: userId={}, pathTo={}", userId, fullPathTo);
+            throw new ResourceAlreadyExistException("Move failed: target already exists");
         }
     }
 
-    private ResourceResponse moveDirectory(String pathFrom, String pathTo) {
-        List<Item> items = s3Service.getObjectsInDirectory(pathFrom, true);
-        log.debug("Moving directory objects: from={}, to={}, objectsCount={}", pathFrom, pathTo, items.size());
-        for (Item item : items) {
-            String objectPathFrom = item.objectName();
-            String objectPathTo = pathTo + objectPathFrom.substring(pathFrom.length());
-            moveFile(objectPathFrom, objectPathTo);
-        }
+    @Override
+    public ResourceResponse moveChecked(ResourcePath pathFrom, ResourcePath pathTo, ProgressListener progress) {
+        log.info("Moving resource: userId={}, from={}, to={}", pathFrom.getUserId(), pathFrom.getFullPath(),
+                pathTo.getFullPath());
+        ResourceResponse movedResource = pathTo.isDirectory()
+                ? moveDirectory(pathFrom, pathTo, progress)
+                : moveFile(pathFrom, pathTo);
+        resourceIndexService.moveResource(pathFrom.getUserId(), pathFrom.getPath(), pathTo.getPath());
+        return movedResource;
+    }
+
+    private ResourceResponse moveDirectory(ResourcePath pathFrom, ResourcePath pathTo, ProgressListener progress) {
+        directoryMoveEngine.moveDirectory(pathFrom.getFullPath(), pathTo.getFullPath(), progress);
         log.info("Moving directory successfully finished");
         return resourceMapper.toDto(pathTo, null);
     }
 
-    private ResourceResponse moveFile(String pathFrom, String pathTo) {
-        StatObjectResponse info = s3Service.getObjectInfo(pathFrom);
-        s3Service.copyObject(pathFrom, pathTo);
-        s3Service.deleteObjects(List.of(new DeleteObject(pathFrom)));
+    private ResourceResponse moveFile(ResourcePath pathFrom, ResourcePath pathTo) {
+        StatObjectResponse info = s3Service.getObjectInfo(pathFrom.getFullPath());
+        s3Service.copyObject(pathFrom.getFullPath(), pathTo.getFullPath());
+        s3Service.deleteObjects(List.of(pathFrom.getFullPath()));
         log.info("Moving file successfully finished");
         return resourceMapper.toDto(pathTo, info.size());
     }
 
     @Override
-    public List<ResourceResponse> searchResources(Long userId, String query) {
-        String basePath = ResourcePathUtil.buildBasePath(userId);
-        log.debug("Searching resources: userId={}, query={}", userId, query);
-        List<Item> items = s3Service.getObjectsInDirectory(basePath, true);
-        return items.stream()
-                .filter(item -> {
-                    String itemName = ResourcePathUtil.extractResourceName(item.objectName());
-                    return itemName.contains(query);
-                })
-                .map(resourceMapper::toDto)
-                .toList();
+    public ResourcePageDto searchResources(Long userId, String query, int limit, String cursor) {
+        log.debug("Searching resources: userId={}, query={}, limit={}", userId, query, limit);
+        int afterRank = FIRST_SEARCH_RANK;
+        String afterPath = "";
+        if (cursor != null) {
+            String[] position = CursorUtil.decode(cursor).split(":", 2);
+            if (position.length != 2 || !StringUtils.isNumeric(position[0])) {
+                throw new InvalidCursorException("Передан недопустимый курсор");
+            }
+            afterRank = Integer.parseInt(position[0]);
+            afterPath = position[1];
+        }
+        List<ResourceMetadata> found = resourceIndexService.search(userId, query, afterRank, afterPath, limit + 1);
+        if (found.size() <= limit) {
+            return new ResourcePageDto(found.stream().map(resourceMapper::toDto).toList(), null);
+        }
+        List<ResourceMetadata> page = found.subList(0, limit);
+        ResourceMetadata last = page.get(limit - 1);
+        int lastRank = StringUtils.startsWithIgnoreCase(last.getName(), query) ? 0 : 1;
+        return new ResourcePageDto(
+                page.stream().map(resourceMapper::toDto).toList(),
+                CursorUtil.encode(lastRank + ":" + last.getPath()));
     }
 }
 
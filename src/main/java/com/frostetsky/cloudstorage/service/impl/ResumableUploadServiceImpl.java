@@ -0,0 +1,206 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadSessionResponse;
+import com.frostetsky.cloudstorage.excepiton.InvalidUploadException;
+import com.frostetsky.cloudstorage.excepiton.ResourceAlreadyExistException;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.excepiton.UploadLimitExceededException;
+import com.frostetsky.cloudstorage.mapper.ResourceMapper;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.model.UploadSession;
+import com.frostetsky.cloudstorage.repository.UploadSessionRepository;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.ResumableUploadService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.service.StorageUsageService;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.Part;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResumableUploadServiceImpl implements ResumableUploadService {
+
+    /** Largest number of parts S3 accepts in one multipart upload. */
+    private static final int MAX_PARTS_COUNT = 10_000;
+
+    private final S3Service s3Service;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final ResourceIndexService resourceIndexService;
+    private final StorageUsageService storageUsageService;
+    private final ResourceMapper resourceMapper;
+    private final StorageProperties storageProperties;
+
+    @Override
+    public UploadSessionResponse createSession(Long userId, String path, long size) {
+        StorageProperties.ResumableUpload properties = storageProperties.getResumableUpload();
+        if (ResourcePathUtil.isDirectory(path)) {
+            throw new InvalidUploadException("Путь должен указывать на файл");
+        }
+        if (size > properties.getMaxFileSize().toBytes()) {
+            throw new UploadLimitExceededException(
+                    String.format("Файл превышает максимальный размер %s", properties.getMaxFileSize()));
+        }
+        String basePath = ResourcePathUtil.buildBasePath(userId);
+        String parentPath = ResourcePathUtil.extractParentDirectoryPath(path);
+        if (!s3Service.checkExistObject(basePath + parentPath)) {
+            log.debug("Upload session failed: parent directory does not exist: userId={}, path={}", userId, path);
+            throw new ResourceNotFoundException("Parent directory does not exist");
+        }
+        checkNotExists(basePath + path);
+        storageUsageService.checkQuota(userId, size);
+
+        UploadSession session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(userId)
+                .path(path)
+                .size(size)
+                .chunkSize(properties.getChunkSize().toBytes())
+                .createdAt(Instant.now())
+                .build();
+        if (session.getPartsCount() > MAX_PARTS_COUNT) {
+            throw new UploadLimitExceededException("Файл содержит слишком много частей");
+        }
+        session.setUploadId(s3Service.createMultipartUpload(basePath + path));
+        uploadSessionRepository.save(session);
+        log.info("Upload session created: userId={}, sessionId={}, path={}, size={}, partsCount={}",
+                userId, session.getId(), path, size, session.getPartsCount());
+        return toDto(session);
+    }
+
+    @Override
+    public UploadSessionResponse getSession(Long userId, String sessionId) {
+        return toDto(findSession(userId, sessionId));
+    }
+
+    @Override
+    public UploadSessionResponse uploadPart(Long userId, String sessionId, int partNumber, InputStream data) {
+        UploadSession session = findSession(userId, sessionId);
+        if (partNumber < 1 || partNumber > session.getPartsCount()) {
+            throw new InvalidUploadException("Недопустимый номер части");
+        }
+        byte[] bytes = readPart(data, session.getPartSize(partNumber));
+        String fullPath = ResourcePathUtil.buildBasePath(userId) + session.getPath();
+        String etag = s3Service.uploadPart(fullPath, session.getUploadId(), partNumber, bytes);
+        if (!uploadSessionRepository.savePart(sessionId, userId, partNumber, etag)) {
+            log.debug("Upload part not recorded: session was deleted meanwhile: sessionId={}, partNumber={}",
+                    sessionId, partNumber);
+            throw new ResourceNotFoundException("Upload session not found");
+        }
+        session.getPartEtags().put(partNumber, etag);
+        log.debug("Upload part stored: sessionId={}, partNumber={}, size={}", sessionId, partNumber, bytes.length);
+        return toDto(session);
+    }
+
+    /**
+     * Parts are buffered because the storage client has to know the part size and checksum
+     * before sending it; the chunk size bounds the memory one request takes.
+     */
+    private byte[] readPart(InputStream data, long expectedSize) {
+        try {
+            byte[] bytes = data.readNBytes((int) expectedSize);
+            if (bytes.length != expectedSize || data.read() != -1) {
+                throw new InvalidUploadException(
+                        String.format("Размер части должен быть %d байт", expectedSize));
+            }
+            return bytes;
+        } catch (IOException e) {
+            throw new ResourceServiceException("Failed to read upload part", e);
+        }
+    }
+
+    @Override
+    public ResourceResponse completeSession(Long userId, String sessionId) {
+        UploadSession session = findSession(userId, sessionId);
+        if (session.getPartEtags().size() != session.getPartsCount()) {
+            log.debug("Upload session completion failed: parts missing: sessionId={}, uploaded={}, expected={}",
+                    sessionId, session.getPartEtags().size(), session.getPartsCount());
+            throw new InvalidUploadException("Загружены не все части файла");
+        }
+        String fullPath = ResourcePathUtil.buildBasePath(userId) + session.getPath();
+        checkNotExists(fullPath);
+
+        List<Part> parts = new ArrayList<>();
+        session.getPartEtags().forEach((partNumber, etag) -> parts.add(new Part(partNumber, etag)));
+        ObjectWriteResponse response = s3Service.completeMultipartUpload(fullPath, session.getUploadId(), parts);
+        Instant lastModified = Instant.now();
+        uploadSessionRepository.delete(sessionId);
+        resourceIndexService.indexFile(userId, session.getPath(), session.getSize(), response.etag(), lastModified);
+        log.info("Upload session completed: userId={}, sessionId={}, path={}", userId, sessionId, session.getPath());
+        return resourceMapper.toDto(ResourcePath.parse(response.object()), session.getSize());
+    }
+
+    @Override
+    public void abortSession(Long userId, String sessionId) {
+        UploadSession session = findSession(userId, sessionId);
+        if (uploadSessionRepository.delete(sessionId)) {
+            abortUpload(session);
+        }
+        log.info("Upload session aborted: userId={}, sessionId={}", userId, sessionId);
+    }
+
+    @Override
+    public void abortIdleSessions() {
+        Instant idleSince = Instant.now().minus(storageProperties.getResumableUpload().getSessionTtl());
+        List<String> sessionIds = uploadSessionRepository.findIdleIds(idleSince);
+        int abortedCount = 0;
+        for (String sessionId : sessionIds) {
+            try {
+                Optional<UploadSession> session = uploadSessionRepository.findById(sessionId);
+                if (uploadSessionRepository.delete(sessionId) && session.isPresent()) {
+                    abortUpload(session.get());
+                    abortedCount++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to abort idle upload session: sessionId={}", sessionId, e);
+            }
+        }
+        if (abortedCount > 0) {
+            log.info("Idle upload sessions aborted: count={}", abortedCount);
+        }
+    }
+
+    private void abortUpload(UploadSession session) {
+        String fullPath = ResourcePathUtil.buildBasePath(session.getUserId()) + session.getPath();
+        s3Service.abortMultipartUpload(fullPath, session.getUploadId());
+    }
+
+    private UploadSession findSession(Long userId, String sessionId) {
+        return uploadSessionRepository.findById(sessionId)
+                .filter(session -> session.getUserId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found"));
+    }
+
+    private void checkNotExists(String fullPath) {
+        if (s3Service.checkExistObject(fullPath)) {
+            log.debug("Upload failed: resource already exists: fullPath={}", fullPath);
+            throw new ResourceAlreadyExistException("Resource already exists");
+        }
+    }
+
+    private UploadSessionResponse toDto(UploadSession session) {
+        return new UploadSessionResponse(
+                session.getId(),
+                ResourcePathUtil.extractParentDirectoryPath(session.getPath()),
+                ResourcePathUtil.extractResourceName(session.getPath()),
+                session.getSize(),
+                session.getChunkSize(),
+                session.getPartsCount(),
+                List.copyOf(session.getPartEtags().keySet()));
+    }
+}
@@ -0,0 +1,103 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.dto.StorageUsageResponse;
+import com.frostetsky.cloudstorage.excepiton.StorageQuotaExceededException;
+import com.frostetsky.cloudstorage.model.UserStorageUsage;
+import com.frostetsky.cloudstorage.repository.UserStorageUsageRepository;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.StorageUsageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StorageUsageServiceImpl implements StorageUsageService {
+
+    private final UserStorageUsageRepository userStorageUsageRepository;
+    private final ResourceIndexService resourceIndexService;
+    private final StorageProperties storageProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional(readOnly = true)
+    public StorageUsageResponse getUsage(Long userId) {
+        UserStorageUsage usage = findUsage(userId);
+        DataSize quota = storageProperties.getUsage().getQuota();
+        return new StorageUsageResponse(
+                usage.getUsedBytes(),
+                quota == null ? null : quota.toBytes(),
+                usage.getFileCount(),
+                usage.getDirectoryCount());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void checkQuota(Long userId, long additionalBytes) {
+        DataSize quota = storageProperties.getUsage().getQuota();
+        if (quota == null) {
+            return;
+        }
+        long usedBytes = findUsage(userId).getUsedBytes();
+        if (usedBytes + additionalBytes > quota.toBytes()) {
+            log.debug("Quota check failed: userId={}, usedBytes={}, additionalBytes={}, quota={}",
+                    userId, usedBytes, additionalBytes, quota);
+            throw new StorageQuotaExceededException(String.format("Превышена квота хранилища %s", quota));
+        }
+    }
+
+    @Override
+    public void indexWithinQuota(Long userId, Runnable indexWrite) {
+        DataSize quota = storageProperties.getUsage().getQuota();
+        if (quota == null) {
+            indexWrite.run();
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            indexWrite.run();
+            userStorageUsageRepository.lockUsage(userId);
+            long usedBytes = userStorageUsageRepository.findUsedBytes(userId);
+            if (usedBytes > quota.toBytes()) {
+                log.debug("Quota exceeded by index write: userId={}, usedBytes={}, quota={}",
+                        userId, usedBytes, quota);
+                throw new StorageQuotaExceededException(String.format("Превышена квота хранилища %s", quota));
+            }
+        });
+    }
+
+    @Override
+    public void reconcile() {
+        List<Long> userIds = userStorageUsageRepository.findUserIds();
+        log.info("Storage usage reconciliation started: usersCount={}", userIds.size());
+        userIds.forEach(this::reconcile);
+        log.info("Storage usage reconciliation finished");
+    }
+
+    /**
+     * The index is first brought in line with a listing of the user's objects, so that objects
+     * written or removed past the index are counted too. The user's row is then locked before the
+     * index is read, so an index change either commits before the totals are computed and is
+     * counted in them, or waits for the lock and adds its delta to the recomputed totals.
+     */
+    @Override
+    public void reconcile(Long userId) {
+        resourceIndexService.reconcile(userId);
+        transactionTemplate.executeWithoutResult(status -> {
+            userStorageUsageRepository.lockUsage(userId);
+            userStorageUsageRepository.recomputeUsage(userId);
+        });
+        log.debug("Storage usage reconciled: userId={}", userId);
+    }
+
+    private UserStorageUsage findUsage(Long userId) {
+        return userStorageUsageRepository.findById(userId)
+                .orElseGet(() -> UserStorageUsage.builder().userId(userId).build());
+    }
+}
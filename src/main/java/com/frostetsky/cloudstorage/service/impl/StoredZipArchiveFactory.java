@@ -0,0 +1,167 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.ResourceServiceException;
+import com.frostetsky.cloudstorage.model.ResourceMetadata;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import com.frostetsky.cloudstorage.util.zip.StoredZipArchive;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Prepares directories for download as STORED ZIP archives, see {@link StoredZipArchive}.
+ * <p>
+ * The local header of a STORED entry carries its CRC-32, so the CRCs of all files must be known
+ * before the first byte is sent. They are kept in the resource index next to the ETag they were
+ * computed for. Missing or stale ones are computed by reading the objects once, at most
+ * {@code app.storage.download.checksum-parallelism} at a time, and saved for later downloads.
+ * Computed CRCs are also kept in memory by object key and ETag, so that files the index has no
+ * row for yet, and the Range requests that resume a download, do not read the objects again.
+ */
+@Slf4j
+@Component
+public class StoredZipArchiveFactory {
+
+    private final S3Service s3Service;
+    private final ResourceIndexService resourceIndexService;
+    private final StorageProperties storageProperties;
+    private final Executor storageTaskExecutor;
+    /** CRC-32 by object key and the ETag it was computed for. */
+    private final Cache<String, Long> checksumCache;
+
+    public StoredZipArchiveFactory(S3Service s3Service,
+                                   ResourceIndexService resourceIndexService,
+                                   StorageProperties storageProperties,
+                                   @Qualifier("storageTaskExecutor") Executor storageTaskExecutor) {
+        this.s3Service = s3Service;
+        this.resourceIndexService = resourceIndexService;
+        this.storageProperties = storageProperties;
+        this.storageTaskExecutor = storageTaskExecutor;
+        this.checksumCache = Caffeine.newBuilder()
+                .maximumSize(storageProperties.getDownload().getChecksumCacheSize())
+                .build();
+    }
+
+    /**
+     * @param folderPath full path of the directory (ends with "/")
+     */
+    public StoredZipArchive create(Long userId, String folderPath) {
+        List<Item> items;
+        try (Stream<Item> stream = s3Service.streamObjectsInDirectory(folderPath, null, true)) {
+            items = stream.filter(item -> !ResourcePathUtil.isDirectory(item.objectName())).toList();
+        }
+        Map<String, ResourceMetadata> indexed = resourceIndexService
+                .findFilesWithChecksum(userId, ResourcePathUtil.removeBasePathPrefix(folderPath)).stream()
+                .collect(Collectors.toMap(ResourceMetadata::getPath, Function.identity()));
+
+        long[] checksums = new long[items.size()];
+        int parallelism = storageProperties.getDownload().getChecksumParallelism();
+        Semaphore permits = new Semaphore(parallelism);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int computedCount = 0;
+        for (int i = 0; i < items.size() && failure.get() == null; i++) {
+            Item item = items.get(i);
+            String path = ResourcePathUtil.removeBasePathPrefix(item.objectName());
+            ResourceMetadata metadata = indexed.get(path);
+            String etag = StringUtils.remove(item.etag(), '"');
+            Long cached = checksumCache.getIfPresent(checksumKey(item.objectName(), etag));
+            if (item.size() == 0) {
+                checksums[i] = 0;
+            } else if (metadata != null && metadata.getEtag().equals(etag)) {
+                checksums[i] = metadata.getCrc32();
+            } else if (cached != null) {
+                checksums[i] = cached;
+            } else {
+                int index = i;
+                permits.acquireUninterruptibly();
+                CompletableFuture.runAsync(() -> {
+                            checksums[index] = computeChecksum(item.objectName(), etag);
+                            checksumCache.put(checksumKey(item.objectName(), etag), checksums[index]);
+                            resourceIndexService.saveChecksum(userId, path, etag, checksums[index]);
+                        }, storageTaskExecutor)
+                        .whenComplete((result, e) -> {
+                            if (e != null) {
+                                failure.compareAndSet(null, e);
+                            }
+                            permits.release();
+                        });
+                computedCount++;
+            }
+        }
+        permits.acquireUninterruptibly(parallelism);
+        if (failure.get() != null) {
+            log.error("Failed to compute checksums for stored archive: folderPath={}", folderPath);
+            throw new ResourceServiceException("Failed to prepare directory archive", new RuntimeException(failure.get()));
+        }
+        log.debug("Stored archive prepared: folderPath={}, entriesCount={}, computedChecksumsCount={}",
+                folderPath, items.size(), computedCount);
+
+        return new StoredZipArchive(IntStream.range(0, items.size())
+                .mapToObj(i -> new StoredZipArchive.Entry(
+                        items.get(i).objectName().substring(folderPath.length()),
+                        items.get(i).objectName(),
+                        items.get(i).size(),
+                        checksums[i],
+                        items.get(i).lastModified()))
+                .toList());
+    }
+
+    /**
+     * Copies a range of an entry from storage; used as the archive {@link StoredZipArchive.ContentSource}.
+     */
+    public void copy(StoredZipArchive.Entry entry, long offset, long count, OutputStream out) throws IOException {
+        try (InputStream stream = s3Service.downloadObject(entry.source(), offset, count)) {
+            long copied = stream.transferTo(out);
+            if (copied != count) {
+                throw new IOException("Object changed while downloading archive: " + entry.source());
+            }
+        }
+    }
+
+    /**
+     * Reads the object and checks that it still has {@code etag} afterwards, so that a checksum
+     * of content replaced during the read is never stored for the listed ETag.
+     */
+    private long computeChecksum(String path, String etag) {
+        long checksum;
+        try (CheckedInputStream stream = new CheckedInputStream(s3Service.downloadObject(path), new CRC32())) {
+            stream.transferTo(OutputStream.nullOutputStream());
+            checksum = stream.getChecksum().getValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        s3Service.evictObjectInfo(path);
+        if (!etag.equals(StringUtils.remove(s3Service.getObjectInfo(path).etag(), '"'))) {
+            throw new IllegalStateException("Object changed while computing checksum: " + path);
+        }
+        return checksum;
+    }
+
+    private static String checksumKey(String path, String etag) {
+        return path + '\n' + etag;
+    }
+}
@@ -0,0 +1,137 @@
+package com.frostetsky.cloudstorage.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frostetsky.cloudstorage.constants.AuthProperties;
+import com.frostetsky.cloudstorage.dto.LoginUserResponse;
+import com.frostetsky.cloudstorage.excepiton.InvalidTokenException;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.model.RevokedToken;
+import com.frostetsky.cloudstorage.model.User;
+import com.frostetsky.cloudstorage.repository.RevokedTokenRepository;
+import com.frostetsky.cloudstorage.security.TokenSigner;
+import com.frostetsky.cloudstorage.security.TokenSigner.Claims;
+import com.frostetsky.cloudstorage.service.TokenService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Access and refresh tokens carry the id of the sign-in they belong to ({@code sid}), and the
+ * deny-list holds revoked sign-ins rather than single tokens: one row per sign-out, kept only until
+ * the refresh token of that sign-in expires. Refresh tokens are not rotated, so refreshing adds nothing.
+ * <p>
+ * The deny-list is held in memory and reloaded from the database every
+ * {@code app.auth.token.deny-list-refresh-interval}; a revocation applies at once on the node that
+ * made it and within that interval on the others.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "app.auth", name = "mode", havingValue = "token")
+public class TokenServiceImpl implements TokenService {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthProperties.Token properties;
+    private final TokenSigner tokenSigner;
+    /** Expiry of the revocation by sign-in id. */
+    private final Map<UUID, Instant> revoked = new ConcurrentHashMap<>();
+
+    public TokenServiceImpl(RevokedTokenRepository revokedTokenRepository,
+                            TransactionTemplate transactionTemplate,
+                            AuthProperties authProperties,
+                            ObjectMapper objectMapper) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = authProperties.getToken();
+        this.tokenSigner = new TokenSigner(properties.getSecret(), objectMapper);
+    }
+
+    @Override
+    public LoginUserResponse issueTokens(CustomUserDetails userDetails) {
+        User user = userDetails.getUser();
+        UUID sessionId = UUID.randomUUID();
+        Instant now = Instant.now();
+        String refreshToken = tokenSigner.sign(new Claims(user.getUsername(), user.getId(), sessionId,
+                TokenSigner.Type.REFRESH, now.plus(properties.getRefreshTtl()).getEpochSecond()));
+        log.info("Tokens issued: username={}, sessionId={}", user.getUsername(), sessionId);
+        return new LoginUserResponse(user.getUsername(), accessToken(user.getUsername(), user.getId(), sessionId, now),
+                refreshToken, properties.getAccessTtl().toSeconds());
+    }
+
+    @Override
+    public LoginUserResponse refresh(String refreshToken) {
+        Claims claims = verify(refreshToken, TokenSigner.Type.REFRESH);
+        log.debug("Access token refreshed: username={}, sessionId={}", claims.username(), claims.sessionId());
+        return new LoginUserResponse(claims.username(),
+                accessToken(claims.username(), claims.userId(), claims.sessionId(), Instant.now()),
+                null, properties.getAccessTtl().toSeconds());
+    }
+
+    @Override
+    public Authentication authenticate(String accessToken) {
+        Claims claims = verify(accessToken, TokenSigner.Type.ACCESS);
+        CustomUserDetails userDetails = new CustomUserDetails(User.builder()
+                .id(claims.userId())
+                .username(claims.username())
+                .build());
+        return UsernamePasswordAuthenticationToken.authenticated(userDetails, null, userDetails.getAuthorities());
+    }
+
+    @Override
+    public void revoke(String token) {
+        Claims claims = tokenSigner.verify(token);
+        // An access token does not know when its refresh token expires, but it was issued no earlier.
+        Instant expiresAt = claims.type() == TokenSigner.Type.REFRESH
+                ? Instant.ofEpochSecond(claims.expiresAt())
+                : Instant.now().plus(properties.getRefreshTtl());
+        if (!expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> revokedTokenRepository.revoke(claims.sessionId(), expiresAt));
+        revoked.merge(claims.sessionId(), expiresAt, (a, b) -> a.isAfter(b) ? a : b);
+        log.info("Tokens revoked: username={}, sessionId={}", claims.username(), claims.sessionId());
+    }
+
+    @Override
+    public void reloadRevocations() {
+        Instant now = Instant.now();
+        for (RevokedToken revokedToken : revokedTokenRepository.findByExpiresAtAfter(now)) {
+            revoked.merge(revokedToken.getSessionId(), revokedToken.getExpiresAt(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+        revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        log.debug("Revoked tokens reloaded: revokedCount={}", revoked.size());
+    }
+
+    @Override
+    public void deleteExpiredRevocations() {
+        Integer deleted = transactionTemplate.execute(status -> revokedTokenRepository.deleteExpired());
+        log.debug("Expired token revocations deleted: deletedCount={}", deleted);
+    }
+
+    private String accessToken(String username, long userId, UUID sessionId, Instant now) {
+        return tokenSigner.sign(new Claims(username, userId, sessionId, TokenSigner.Type.ACCESS,
+                now.plus(properties.getAccessTtl()).getEpochSecond()));
+    }
+
+    private Claims verify(String token, TokenSigner.Type type) {
+        Claims claims = tokenSigner.verify(token);
+        if (claims.type() != type) {
+            throw new InvalidTokenException("Недействительный токен");
+        }
+        if (claims.isExpired(Instant.now())) {
+            throw new InvalidTokenException("Срок действия токена истёк");
+        }
+        if (revoked.containsKey(claims.sessionId())) {
+            throw new InvalidTokenException("Токен отозван");
+        }
+        return claims;
+    }
+}
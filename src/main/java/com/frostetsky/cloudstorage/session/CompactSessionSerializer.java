@@ -0,0 +1,115 @@
+package com.frostetsky.cloudstorage.session;
+
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.model.User;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes session attributes in a compact binary form instead of JDK serialization.
+ * <p>
+ * The security context of a signed-in user is stored as the user's id and username only: the
+ * {@link CustomUserDetails} read back carries no password, which is not needed after sign-in.
+ * Session timestamps and strings are stored as tagged primitives. Any other value falls back to
+ * JDK serialization, whose stream header never starts with one of the tags, so sessions written
+ * before this serializer are still read.
+ */
+public class CompactSessionSerializer implements RedisSerializer<Object> {
+
+    private static final byte SECURITY_CONTEXT = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte STRING = 4;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final JdkSerializationRedisSerializer fallback = new JdkSerializationRedisSerializer();
+
+    @Override
+    public byte[] serialize(Object value) {
+        if (value == null) {
+            return EMPTY;
+        }
+        if (value instanceof Long number) {
+            return ByteBuffer.allocate(1 + Long.BYTES).put(LONG).putLong(number).array();
+        }
+        if (value instanceof Integer number) {
+            return ByteBuffer.allocate(1 + Integer.BYTES).put(INTEGER).putInt(number).array();
+        }
+        if (value instanceof String string) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(1 + bytes.length).put(STRING).put(bytes).array();
+        }
+        if (value instanceof SecurityContext context && context.getAuthentication() != null) {
+            User user = compactUser(context);
+            if (user != null) {
+                byte[] username = user.getUsername().getBytes(StandardCharsets.UTF_8);
+                return ByteBuffer.allocate(1 + Long.BYTES + username.length)
+                        .put(SECURITY_CONTEXT)
+                        .putLong(user.getId())
+                        .put(username)
+                        .array();
+            }
+        }
+        return fallback.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        try {
+            return switch (bytes[0]) {
+                case LONG -> buffer.getLong();
+                case INTEGER -> buffer.getInt();
+                case STRING -> readString(buffer);
+                case SECURITY_CONTEXT -> readSecurityContext(buffer);
+                default -> fallback.deserialize(bytes);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new SerializationException("Truncated session attribute", e);
+        }
+    }
+
+    /**
+     * @return the user of a context that is fully described by id and username, or {@code null} if
+     * the context holds anything that would be lost
+     */
+    private static User compactUser(SecurityContext context) {
+        if (context.getAuthentication() instanceof UsernamePasswordAuthenticationToken token
+                && token.isAuthenticated()
+                && token.getDetails() == null
+                && token.getAuthorities().isEmpty()
+                && token.getPrincipal() instanceof CustomUserDetails details
+                && details.getUser().getId() != null
+                && details.getUsername() != null) {
+            return details.getUser();
+        }
+        return null;
+    }
+
+    private static SecurityContext readSecurityContext(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        User user = User.builder()
+                .id(id)
+                .username(readString(buffer))
+                .build();
+        CustomUserDetails details = new CustomUserDetails(user);
+        return new SecurityContextImpl(
+                UsernamePasswordAuthenticationToken.authenticated(details, null, details.getAuthorities()));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(buffer.array(), buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,243 @@
+package com.frostetsky.cloudstorage.session;
+
+import com.frostetsky.cloudstorage.constants.SessionProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.session.data.redis.RedisSessionRepository;
+import org.springframework.session.data.redis.RedisSessionRepository.RedisSession;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps recently read sessions in memory for a short TTL, so that the requests of a signed-in user
+ * mostly find their session without a Redis round trip.
+ * <p>
+ * A session served from the cache is a private copy rebuilt from its serialized attributes. Reading
+ * it costs nothing; the first change other than the access time loads the session from Redis and
+ * all further changes go there. The access time of a cached session is not written back, so in
+ * Redis it lags by at most the TTL, which is negligible against the session timeout.
+ * <p>
+ * Entries are dropped when Redis reports the session key deleted, renamed or expired, so that a
+ * sign-out on another node takes effect at once. Attribute changes made on other nodes become
+ * visible once the entry expires.
+ */
+@Slf4j
+public class NearCacheSessionRepository implements SessionRepository<NearCacheSessionRepository.NearCacheSession>,
+        MessageListener {
+
+    /** Key events that end a session key; they need {@code notify-keyspace-events Egx}. */
+    public static final List<Topic> INVALIDATING_EVENTS = List.of(
+            new PatternTopic("__keyevent@*__:del"),
+            new PatternTopic("__keyevent@*__:rename_from"),
+            new PatternTopic("__keyevent@*__:expired"));
+
+    private static final String CACHE_NAME = "session.near";
+    private static final String SESSION_KEY_PREFIX = RedisSessionRepository.DEFAULT_KEY_NAMESPACE + ":sessions:";
+
+    private final RedisSessionRepository delegate;
+    private final RedisSerializer<Object> serializer;
+    private final Cache<String, Snapshot> cache;
+
+    public NearCacheSessionRepository(RedisSessionRepository delegate,
+                                      RedisSerializer<Object> serializer,
+                                      SessionProperties.NearCache properties,
+                                      MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.serializer = serializer;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @Override
+    public NearCacheSession createSession() {
+        return new NearCacheSession(delegate.createSession());
+    }
+
+    @Override
+    public void save(NearCacheSession session) {
+        if (session.live == null) {
+            return;
+        }
+        delegate.save(session.live);
+        if (!session.live.getId().equals(session.originalId)) {
+            cache.invalidate(session.originalId);
+        }
+        cache.put(session.live.getId(), snapshot(session.live));
+    }
+
+    @Override
+    public NearCacheSession findById(String id) {
+        Snapshot snapshot = cache.getIfPresent(id);
+        if (snapshot != null) {
+            MapSession copy = restore(id, snapshot);
+            if (!copy.isExpired()) {
+                return new NearCacheSession(copy);
+            }
+            cache.invalidate(id);
+        }
+        RedisSession session = delegate.findById(id);
+        if (session == null) {
+            return null;
+        }
+        cache.put(id, snapshot(session));
+        return new NearCacheSession(session);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        delegate.deleteById(id);
+        cache.invalidate(id);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (key.startsWith(SESSION_KEY_PREFIX)) {
+            cache.invalidate(key.substring(SESSION_KEY_PREFIX.length()));
+        }
+    }
+
+    private Snapshot snapshot(Session session) {
+        Map<String, byte[]> attributes = new HashMap<>();
+        for (String name : session.getAttributeNames()) {
+            attributes.put(name, serializer.serialize(session.getAttribute(name)));
+        }
+        return new Snapshot(session.getCreationTime(), session.getLastAccessedTime(),
+                session.getMaxInactiveInterval(), attributes);
+    }
+
+    private MapSession restore(String id, Snapshot snapshot) {
+        MapSession session = new MapSession(id);
+        session.setCreationTime(snapshot.creationTime());
+        session.setLastAccessedTime(snapshot.lastAccessedTime());
+        session.setMaxInactiveInterval(snapshot.maxInactiveInterval());
+        snapshot.attributes().forEach((name, value) -> session.setAttribute(name, serializer.deserialize(value)));
+        return session;
+    }
+
+    private record Snapshot(Instant creationTime, Instant lastAccessedTime, Duration maxInactiveInterval,
+                            Map<String, byte[]> attributes) {
+    }
+
+    /**
+     * A session that is either a cached copy or a session loaded from Redis; the copy is replaced by
+     * the Redis session on the first change.
+     */
+    public final class NearCacheSession implements Session {
+
+        private final String originalId;
+        private Session session;
+        private RedisSession live;
+
+        private NearCacheSession(RedisSession live) {
+            this.originalId = live.getId();
+            this.session = live;
+            this.live = live;
+        }
+
+        private NearCacheSession(MapSession copy) {
+            this.originalId = copy.getId();
+            this.session = copy;
+        }
+
+        /**
+         * Switches a cached copy to the session in Redis. A session deleted in the meantime is
+         * replaced by a new one rather than written back.
+         */
+        private Session live() {
+            if (live == null) {
+                live = delegate.findById(originalId);
+                if (live == null) {
+                    log.debug("Cached session no longer exists, starting a new one: sessionId={}", originalId);
+                    cache.invalidate(originalId);
+                    live = delegate.createSession();
+                } else {
+                    live.setLastAccessedTime(session.getLastAccessedTime());
+                }
+                session = live;
+            }
+            return live;
+        }
+
+        @Override
+        public String getId() {
+            return session.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            return live().changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String attributeName) {
+            return session.getAttribute(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return session.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            live().setAttribute(attributeName, attributeValue);
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            live().removeAttribute(attributeName);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return session.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            session.setLastAccessedTime(lastAccessedTime);
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return session.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            live().setMaxInactiveInterval(interval);
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return session.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return session.isExpired();
+        }
+    }
+}
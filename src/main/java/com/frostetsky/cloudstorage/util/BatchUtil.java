@@ -0,0 +1,45 @@
+package com.frostetsky.cloudstorage.util;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helpers for processing long, lazily produced sequences in fixed-size chunks.
+ */
+public class BatchUtil {
+
+    /**
+     * Splits a stream into consecutive batches without materializing it.
+     * Only one batch is held in memory at a time; closing the result closes the source.
+     * <p>
+     * Example: {@code [1, 2, 3, 4, 5]} with size 2 -> {@code [[1, 2], [3, 4], [5]]}
+     *
+     * @param source    source stream
+     * @param batchSize maximum number of elements in a batch
+     * @return lazy stream of batches
+     */
+    public static <T> Stream<List<T>> batches(Stream<T> source, int batchSize) {
+        Iterator<T> iterator = source.iterator();
+        Iterator<List<T>> batches = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<T> batch = new ArrayList<>(batchSize);
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    batch.add(iterator.next());
+                }
+                return batch;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false)
+                .onClose(source::close);
+    }
+}
@@ -0,0 +1,40 @@
+package com.frostetsky.cloudstorage.util;
+
+import com.frostetsky.cloudstorage.excepiton.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes pagination positions into opaque cursors returned to clients.
+ * <p>
+ * A cursor is a URL-safe Base64 string; clients must pass it back unchanged.
+ */
+public class CursorUtil {
+
+    /**
+     * Encodes a position (usually the last returned path) into a cursor.
+     *
+     * @param position position to encode
+     * @return opaque cursor
+     */
+    public static String encode(String position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode(String)}.
+     *
+     * @param cursor opaque cursor
+     * @return encoded position
+     * @throws InvalidCursorException if cursor is malformed
+     */
+    public static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Передан недопустимый курсор", e);
+        }
+    }
+}
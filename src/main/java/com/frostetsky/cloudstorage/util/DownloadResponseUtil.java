@@ -0,0 +1,163 @@
+package com.frostetsky.cloudstorage.util;
+
+import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds download responses that honour conditional and range requests.
+ * <p>
+ * {@code If-None-Match} and {@code If-Modified-Since} are evaluated by
+ * {@link ServletWebRequest#checkNotModified(String, long)}, which also writes the {@code ETag} and
+ * {@code Last-Modified} headers. For content that supports ranges one satisfiable range is answered
+ * with 206 and {@code Content-Range}, several with a {@code multipart/byteranges} body; ranges
+ * starting past the end are dropped, and 416 is returned if none is left. A {@code Range} whose
+ * ranges together exceed the content, or that fails {@code If-Range}, gets the whole content.
+ */
+public class DownloadResponseUtil {
+
+    private static final String CRLF = "\r\n";
+
+    public static ResponseEntity<StreamingResponseBody> toResponse(DownloadResultDto result,
+                                                                   ServletWebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + result.fileName() + "\"");
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        if (!result.supportsRanges()) {
+            return ResponseEntity.ok().headers(headers).body(result.body());
+        }
+        long lastModified = result.lastModified() == null ? -1 : result.lastModified().toEpochMilli();
+        if (request.checkNotModified(result.etag(), lastModified)) {
+            return ResponseEntity.status(request.getResponse().getStatus()).build();
+        }
+
+        long length = result.contentLength();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        List<HttpRange> requested = getRequestedRanges(result, request);
+        if (requested.isEmpty()) {
+            headers.setContentLength(length);
+            return ResponseEntity.ok().headers(headers).body(result.body());
+        }
+        List<ByteRange> ranges = requested.stream()
+                .map(range -> ByteRange.of(range, length))
+                .filter(Objects::nonNull)
+                .toList();
+        if (ranges.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                    .build();
+        }
+        if (ranges.stream().mapToLong(ByteRange::count).sum() > length) {
+            headers.setContentLength(length);
+            return ResponseEntity.ok().headers(headers).body(result.body());
+        }
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            headers.set(HttpHeaders.CONTENT_RANGE, range.toContentRange(length));
+            headers.setContentLength(range.count());
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .body(result.ranges().range(range.start(), range.count()));
+        }
+        return toMultipartResponse(result, ranges, headers);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> toMultipartResponse(DownloadResultDto result,
+                                                                             List<ByteRange> ranges,
+                                                                             HttpHeaders headers) {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = ranges.stream()
+                .map(range -> (CRLF + "--" + boundary + CRLF
+                        + HttpHeaders.CONTENT_TYPE + ": " + headers.getContentType() + CRLF
+                        + HttpHeaders.CONTENT_RANGE + ": " + range.toContentRange(result.contentLength()) + CRLF
+                        + CRLF).getBytes(StandardCharsets.US_ASCII))
+                .toList();
+        byte[] closing = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        long contentLength = closing.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            contentLength += partHeaders.get(i).length + ranges.get(i).count();
+        }
+
+        headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+        headers.setContentLength(contentLength);
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .body(outputStream -> {
+                    for (int i = 0; i < ranges.size(); i++) {
+                        ByteRange range = ranges.get(i);
+                        outputStream.write(partHeaders.get(i));
+                        result.ranges().range(range.start(), range.count()).writeTo(outputStream);
+                    }
+                    outputStream.write(closing);
+                });
+    }
+
+    /**
+     * Returns the ranges of a valid {@code Range} header whose {@code If-Range}, if any, matches
+     * the content; otherwise an empty list, meaning the whole content.
+     */
+    private static List<HttpRange> getRequestedRanges(DownloadResultDto result, ServletWebRequest request) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range == null || (ifRange != null && !matchesIfRange(ifRange, result, request))) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * {@code If-Range} holds either an entity tag, compared strongly, or a date, which must equal
+     * the last modification time exactly.
+     */
+    private static boolean matchesIfRange(String ifRange, DownloadResultDto result, ServletWebRequest request) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(result.etag());
+        }
+        try {
+            long date = request.getRequest().getDateHeader(HttpHeaders.IF_RANGE);
+            return result.lastModified() != null && date == result.lastModified().getEpochSecond() * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param end last byte of the range, inclusive
+     */
+    private record ByteRange(long start, long end) {
+
+        /**
+         * @return the range within content of {@code length} bytes, or {@code null} if it is not satisfiable
+         */
+        static ByteRange of(HttpRange range, long length) {
+            if (length == 0) {
+                return null;
+            }
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            return start < length && start <= end ? new ByteRange(start, end) : null;
+        }
+
+        long count() {
+            return end - start + 1;
+        }
+
+        String toContentRange(long length) {
+            return "bytes " + start + "-" + end + "/" + length;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.frostetsky.cloudstorage.util;
+
+/**
+ * Receives the progress of an operation on many objects, such as a directory move.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    ProgressListener NONE = (objects, bytes) -> {
+    };
+
+    /**
+     * Called as objects are done, possibly from several threads at once.
+     *
+     * @param objects objects done since the last call
+     * @param bytes   bytes of those objects
+     */
+    void onProgress(long objects, long bytes);
+
+    /**
+     * Checked by the operation between batches; once it returns {@code true} the operation waits
+     * for the batches in flight and throws {@link java.util.concurrent.CancellationException}.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
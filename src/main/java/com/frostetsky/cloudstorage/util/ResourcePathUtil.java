@@ -2,12 +2,9 @@ package com.frostetsky.cloudstorage.util;
 
 import com.frostetsky.cloudstorage.constants.MinioConstants;
 import com.frostetsky.cloudstorage.dto.ResourceType;
-import org.apache.commons.lang3.StringUtils;
+import com.frostetsky.cloudstorage.model.ResourcePath;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -16,11 +13,10 @@ import java.util.List;
  * A directory is represented by a path ending with "/".
  * User files are stored under a user base prefix like {@code user-<id>-files/}.
  * Most methods can accept paths with or without this prefix.
+ * Code that uses a path more than once should parse it into a {@link ResourcePath} instead.
  */
 public class ResourcePathUtil {
 
-    private static final String BASE_PATH_PREFIX_MASK = "^user-\\d+-files/";
-
     /**
      * Extracts the last path segment (resource name) from the given path.
      * If a path contains user base prefix, it is removed before extraction.
@@ -34,16 +30,7 @@ public class ResourcePathUtil {
      * @return resource name, or empty string for root
      */
     public static String extractResourceName(String path) {
-        path = removeBasePathPrefix(path);
-        if (path.isEmpty()) {
-            return "";
-        }
-        String withoutSlash = StringUtils.removeEnd(path, "/");
-        if (!withoutSlash.contains("/")) {
-            return path;
-        }
-        int lastSlash = withoutSlash.lastIndexOf('/');
-        return path.substring(lastSlash + 1);
+        return ResourcePath.parse(path).getName();
     }
 
     /**
@@ -58,13 +45,7 @@ public class ResourcePathUtil {
      * @return parent directory path, or empty string if parent is root
      */
     public static String extractParentDirectoryPath(String path) {
-        path = removeBasePathPrefix(path);
-        String withoutSlash = StringUtils.removeEnd(path, "/");
-        if (!withoutSlash.contains("/")) {
-            return "";
-        }
-        int lastSlash = withoutSlash.lastIndexOf('/');
-        return withoutSlash.substring(0, lastSlash + 1);
+        return ResourcePath.parse(path).getParentPath();
     }
 
     /**
@@ -74,7 +55,7 @@ public class ResourcePathUtil {
      * @return path without user base prefix
      */
     public static String removeBasePathPrefix(String path) {
-        return path.replaceFirst(BASE_PATH_PREFIX_MASK, "");
+        return ResourcePath.parse(path).getPath();
     }
 
     /**
@@ -122,13 +103,14 @@ public class ResourcePathUtil {
      * @return ordered list from top-level parent to the nearest parent
      */
     public static List<String> getParentDirectories(String dirPath) {
-        Path currentPath = Paths.get(dirPath).getParent();
+        String path = convertPathToMinioFormat(dirPath);
+        int end = isDirectory(path) ? path.length() - 1 : path.length();
         List<String> parentsPaths = new ArrayList<>();
-        while (currentPath != null) {
-            parentsPaths.add(convertPathToMinioFormat(currentPath.toString()) + "/");
-            currentPath = currentPath.getParent();
+        int slash = path.indexOf('/');
+        while (slash >= 0 && slash < end) {
+            parentsPaths.add(path.substring(0, slash + 1));
+            slash = path.indexOf('/', slash + 1);
         }
-        Collections.reverse(parentsPaths);
         return parentsPaths;
     }
 
@@ -0,0 +1,72 @@
+package com.frostetsky.cloudstorage.util;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * API endpoint on whose behalf the current thread calls the storage, and the number of storage
+ * calls that request has made so far.
+ * <p>
+ * The context is bound to the request thread by
+ * {@link com.frostetsky.cloudstorage.controller.interceptor.StorageCallInterceptor} and carried to
+ * executor threads by {@link #wrap(Runnable)}, so calls made by parallel tasks and streaming
+ * responses are attributed to the request that started them.
+ */
+@Getter
+@RequiredArgsConstructor
+public class StorageCallContext {
+
+    /** Endpoint reported for calls made outside any request, e.g. by scheduled jobs. */
+    public static final String NO_ENDPOINT = "none";
+
+    private static final ThreadLocal<StorageCallContext> CURRENT = new ThreadLocal<>();
+
+    /** Request method and mapping pattern, e.g. {@code GET /api/resource/download}. */
+    private final String endpoint;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    public static StorageCallContext current() {
+        return CURRENT.get();
+    }
+
+    public static String currentEndpoint() {
+        StorageCallContext context = CURRENT.get();
+        return context == null ? NO_ENDPOINT : context.endpoint;
+    }
+
+    public static void countCall() {
+        StorageCallContext context = CURRENT.get();
+        if (context != null) {
+            context.calls.incrementAndGet();
+        }
+    }
+
+    public static void set(StorageCallContext context) {
+        CURRENT.set(context);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns a task that runs with the context of the submitting thread.
+     */
+    public static Runnable wrap(Runnable task) {
+        StorageCallContext context = CURRENT.get();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            StorageCallContext previous = CURRENT.get();
+            CURRENT.set(context);
+            try {
+                task.run();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.frostetsky.cloudstorage.util.zip;
+
+import java.util.Arrays;
+
+/** Growable byte buffer without the synchronization of {@link java.io.ByteArrayOutputStream}. */
+class ByteArrayBuilder {
+
+    private byte[] bytes;
+    private int length;
+
+    ByteArrayBuilder(int capacity) {
+        this.bytes = new byte[Math.max(16, capacity)];
+    }
+
+    void append(byte[] source, int sourceLength) {
+        if (length + sourceLength > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + sourceLength));
+        }
+        System.arraycopy(source, 0, bytes, length, sourceLength);
+        length += sourceLength;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+}
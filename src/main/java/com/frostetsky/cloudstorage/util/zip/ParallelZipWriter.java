@@ -0,0 +1,379 @@
+package com.frostetsky.cloudstorage.util.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static com.frostetsky.cloudstorage.util.zip.ZipFormat.*;
+
+/**
+ * Streaming ZIP writer that deflates entries on a thread pool, in the manner of pigz.
+ * <p>
+ * The content of every entry is cut into blocks that are compressed independently, each primed
+ * with the last 32KB of the preceding block as the deflate dictionary. All blocks but the last
+ * end with a sync flush, so their outputs concatenate into one valid deflate stream. Blocks of
+ * one entry and of consecutive entries are compressed concurrently and written in order; the
+ * CRC is computed sequentially on the calling thread.
+ * <p>
+ * Entries are written with data descriptors, since sizes and CRC are known only after the data.
+ * An entry read from a stream may turn out to be 4GB or larger after its local header is written,
+ * so its local header always carries a ZIP64 extra field and its descriptor 8-byte sizes, which is
+ * what tells stream readers the descriptor format. Entries given in memory cannot reach the limit.
+ * Other ZIP64 records are added when an entry, the archive or the number of entries exceeds the
+ * classic format limits. Not thread-safe: entries must be added from one thread.
+ */
+public class ParallelZipWriter implements Closeable {
+
+    /** Data descriptor follows the data (bit 3), names are UTF-8 (bit 11). */
+    private static final int FLAGS = 0x0808;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int VERSION = 20;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /** One raw deflater per pool thread, shared by all writers; the level is set on every use. */
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(
+            Deflater.DEFAULT_COMPRESSION, true));
+
+    private final CountingOutputStream out;
+    private final Executor executor;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+    private final int level;
+
+    private final Deque<PendingWrite> pendingWrites = new ArrayDeque<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private int pendingBlocks;
+    private boolean finished;
+
+    /**
+     * @param executor         pool the blocks are compressed on
+     * @param blockSize        uncompressed size of one block
+     * @param maxPendingBlocks blocks that may be compressed or wait to be written at the same
+     *                         time; bounds the memory of the writer
+     * @param level            deflate level, see {@link Deflater}
+     */
+    public ParallelZipWriter(OutputStream out, Executor executor, int blockSize, int maxPendingBlocks, int level) {
+        if (blockSize <= DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Block size must be larger than " + DICTIONARY_SIZE);
+        }
+        this.out = new CountingOutputStream(out);
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.maxPendingBlocks = Math.max(1, maxPendingBlocks);
+        this.level = level;
+    }
+
+    /**
+     * Adds an entry whose content is already in memory.
+     */
+    public void putEntry(String name, ZonedDateTime lastModified, byte[] content) throws IOException {
+        Entry entry = startEntry(name, lastModified, false);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        int offset = 0;
+        do {
+            int end = Math.min(content.length, offset + blockSize);
+            byte[] block = Arrays.copyOfRange(content, offset, end);
+            byte[] dictionary = Arrays.copyOfRange(content, Math.max(0, offset - DICTIONARY_SIZE), offset);
+            submitBlock(entry, block, dictionary, end == content.length);
+            offset = end;
+        } while (offset < content.length);
+        endEntry(entry, crc.getValue(), content.length);
+    }
+
+    /**
+     * Adds an entry read from {@code content} block by block; the stream is not closed.
+     */
+    public void putEntry(String name, ZonedDateTime lastModified, InputStream content) throws IOException {
+        Entry entry = startEntry(name, lastModified, true);
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] dictionary = new byte[0];
+        byte[] block = content.readNBytes(blockSize);
+        while (true) {
+            byte[] next = block.length < blockSize ? new byte[0] : content.readNBytes(blockSize);
+            crc.update(block);
+            size += block.length;
+            boolean last = next.length == 0;
+            submitBlock(entry, block, dictionary, last);
+            if (last) {
+                break;
+            }
+            dictionary = Arrays.copyOfRange(block, block.length - DICTIONARY_SIZE, block.length);
+            block = next;
+        }
+        endEntry(entry, crc.getValue(), size);
+    }
+
+    /**
+     * Writes the remaining entries and the central directory; the underlying stream stays open.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        while (!pendingWrites.isEmpty()) {
+            writeNext();
+        }
+        writeCentralDirectory();
+        out.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            pendingWrites.forEach(PendingWrite::cancel);
+            out.close();
+        }
+    }
+
+    /**
+     * @param sizeUnknown the size may reach the ZIP64 limit, decided before it is known
+     */
+    private Entry startEntry(String name, ZonedDateTime lastModified, boolean sizeUnknown) {
+        Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), lastModified, sizeUnknown);
+        pendingWrites.add(new PendingWrite(entry, PendingWrite.Type.HEADER, null));
+        return entry;
+    }
+
+    private void endEntry(Entry entry, long crc, long size) throws IOException {
+        entry.crc = crc;
+        entry.size = size;
+        pendingWrites.add(new PendingWrite(entry, PendingWrite.Type.DESCRIPTOR, null));
+        writeCompleted();
+    }
+
+    private void submitBlock(Entry entry, byte[] block, byte[] dictionary, boolean last) throws IOException {
+        while (pendingBlocks >= maxPendingBlocks) {
+            writeNext();
+        }
+        CompletableFuture<byte[]> compressed = CompletableFuture.supplyAsync(
+                () -> compress(block, dictionary, last), executor);
+        pendingWrites.add(new PendingWrite(entry, PendingWrite.Type.BLOCK, compressed));
+        pendingBlocks++;
+        writeCompleted();
+    }
+
+    private byte[] compress(byte[] block, byte[] dictionary, boolean last) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        if (dictionary.length > 0) {
+            deflater.setDictionary(dictionary);
+        }
+        deflater.setInput(block);
+        ByteArrayBuilder result = new ByteArrayBuilder(block.length / 2 + 64);
+        byte[] buffer = new byte[16 * 1024];
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                result.append(buffer, deflater.deflate(buffer));
+            }
+        } else {
+            int length;
+            do {
+                length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                result.append(buffer, length);
+            } while (length == buffer.length);
+        }
+        return result.toByteArray();
+    }
+
+    /** Writes pending data that is ready without waiting for compression. */
+    private void writeCompleted() throws IOException {
+        while (!pendingWrites.isEmpty() && pendingWrites.peek().isReady()) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        PendingWrite write = pendingWrites.poll();
+        Entry entry = write.entry();
+        switch (write.type()) {
+            case HEADER -> writeLocalHeader(entry);
+            case BLOCK -> {
+                byte[] data = await(write.compressed());
+                out.write(data);
+                entry.compressedSize += data.length;
+                pendingBlocks--;
+            }
+            case DESCRIPTOR -> {
+                writeDataDescriptor(entry);
+                entries.add(entry);
+            }
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        entry.offset = out.getCount();
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(entry.zip64Descriptor ? VERSION_ZIP64 : VERSION);
+        writeShort(FLAGS);
+        writeShort(METHOD_DEFLATED);
+        writeInt(entry.dosTime);
+        writeInt(0);
+        writeInt(entry.zip64Descriptor ? (int) ZIP32_LIMIT : 0);
+        writeInt(entry.zip64Descriptor ? (int) ZIP32_LIMIT : 0);
+        writeShort(entry.name.length);
+        writeShort(entry.zip64Descriptor ? 20 : 0);
+        out.write(entry.name);
+        if (entry.zip64Descriptor) {
+            // sizes follow in the data descriptor
+            writeShort(ZIP64_EXTRA_ID);
+            writeShort(16);
+            writeLong(0);
+            writeLong(0);
+        }
+    }
+
+    private void writeDataDescriptor(Entry entry) throws IOException {
+        writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        writeInt((int) entry.crc);
+        if (entry.zip64Descriptor) {
+            writeLong(entry.compressedSize);
+            writeLong(entry.size);
+        } else {
+            writeInt((int) entry.compressedSize);
+            writeInt((int) entry.size);
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = out.getCount();
+        for (Entry entry : entries) {
+            boolean zip64 = entry.isZip64() || entry.offset >= ZIP32_LIMIT;
+            writeInt(CENTRAL_HEADER_SIGNATURE);
+            writeShort(zip64 ? VERSION_ZIP64 : VERSION);
+            writeShort(zip64 ? VERSION_ZIP64 : VERSION);
+            writeShort(FLAGS);
+            writeShort(METHOD_DEFLATED);
+            writeInt(entry.dosTime);
+            writeInt((int) entry.crc);
+            writeInt(zip64 ? (int) ZIP32_LIMIT : (int) entry.compressedSize);
+            writeInt(zip64 ? (int) ZIP32_LIMIT : (int) entry.size);
+            writeShort(entry.name.length);
+            writeShort(zip64 ? 28 : 0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(0);
+            writeInt(zip64 ? (int) ZIP32_LIMIT : (int) entry.offset);
+            out.write(entry.name);
+            if (zip64) {
+                writeShort(ZIP64_EXTRA_ID);
+                writeShort(24);
+                writeLong(entry.size);
+                writeLong(entry.compressedSize);
+                writeLong(entry.offset);
+            }
+        }
+        long centralDirectoryEnd = out.getCount();
+        long centralDirectorySize = centralDirectoryEnd - centralDirectoryOffset;
+        boolean zip64 = entries.size() > ZIP32_ENTRIES_LIMIT
+                || centralDirectoryOffset >= ZIP32_LIMIT
+                || centralDirectorySize >= ZIP32_LIMIT;
+        if (zip64) {
+            writeInt(ZIP64_END_SIGNATURE);
+            writeLong(44);
+            writeShort(VERSION_ZIP64);
+            writeShort(VERSION_ZIP64);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries.size());
+            writeLong(entries.size());
+            writeLong(centralDirectorySize);
+            writeLong(centralDirectoryOffset);
+            writeInt(ZIP64_LOCATOR_SIGNATURE);
+            writeInt(0);
+            writeLong(centralDirectoryEnd);
+            writeInt(1);
+        }
+        writeInt(END_SIGNATURE);
+        writeShort(0);
+        writeShort(0);
+        writeShort(zip64 ? ZIP32_ENTRIES_LIMIT : entries.size());
+        writeShort(zip64 ? ZIP32_ENTRIES_LIMIT : entries.size());
+        writeInt(zip64 ? (int) ZIP32_LIMIT : (int) centralDirectorySize);
+        writeInt(zip64 ? (int) ZIP32_LIMIT : (int) centralDirectoryOffset);
+        writeShort(0);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeShort(value & 0xFFFF);
+        writeShort((value >>> 16) & 0xFFFF);
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt((int) value);
+        writeInt((int) (value >>> 32));
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            throw new IOException("Failed to compress zip entry", e.getCause());
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] name;
+        private final int dosTime;
+        /** Local header has a ZIP64 extra field, so the data descriptor has 8-byte sizes. */
+        private final boolean zip64Descriptor;
+        private long offset;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        private Entry(byte[] name, ZonedDateTime lastModified, boolean zip64Descriptor) {
+            this.name = name;
+            this.dosTime = toDosTime(lastModified);
+            this.zip64Descriptor = zip64Descriptor;
+        }
+
+        private boolean isZip64() {
+            return size >= ZIP32_LIMIT || compressedSize >= ZIP32_LIMIT;
+        }
+    }
+
+    private record PendingWrite(Entry entry, Type type, CompletableFuture<byte[]> compressed) {
+
+        private enum Type { HEADER, BLOCK, DESCRIPTOR }
+
+        private boolean isReady() {
+            return compressed == null || compressed.isDone();
+        }
+
+        private void cancel() {
+            if (compressed != null) {
+                compressed.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.frostetsky.cloudstorage.util.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.HexFormat;
+import java.util.List;
+
+import static com.frostetsky.cloudstorage.util.zip.ZipFormat.*;
+
+/**
+ * ZIP archive of uncompressed (STORED) entries whose layout is computed before any byte is written.
+ * <p>
+ * Since names, sizes, CRCs and times of all entries are known up front, the archive has an exact
+ * length and every byte of it can be produced independently, so any range of the archive can be
+ * written without writing what precedes it. Entry data is copied by a {@link ContentSource},
+ * headers are generated. The same entries always give the same bytes.
+ * <p>
+ * Sizes and CRCs go into the local headers, so no data descriptors are needed. ZIP64 records are
+ * added when an entry, the archive or the number of entries exceeds the classic format limits.
+ */
+public class StoredZipArchive {
+
+    /** Names are UTF-8 (bit 11). */
+    private static final int FLAGS = 0x0800;
+    private static final int METHOD_STORED = 0;
+    private static final int VERSION = 10;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int END_SIZE = 22;
+
+    private final Layout[] layouts;
+    private final long centralDirectoryOffset;
+    private final long centralDirectorySize;
+    private final boolean zip64;
+    private final long length;
+
+    /**
+     * @param entries entries in the order they are written
+     */
+    public StoredZipArchive(List<Entry> entries) {
+        this.layouts = new Layout[entries.size()];
+        long offset = 0;
+        long centralSize = 0;
+        for (int i = 0; i < layouts.length; i++) {
+            Layout layout = new Layout(entries.get(i), offset);
+            layouts[i] = layout;
+            offset = layout.dataOffset + layout.entry.size();
+            centralSize += layout.centralHeaderSize();
+        }
+        this.centralDirectoryOffset = offset;
+        this.centralDirectorySize = centralSize;
+        this.zip64 = layouts.length > ZIP32_ENTRIES_LIMIT
+                || centralDirectoryOffset >= ZIP32_LIMIT
+                || centralDirectorySize >= ZIP32_LIMIT;
+        this.length = centralDirectoryOffset + centralDirectorySize
+                + (zip64 ? ZIP64_END_SIZE + ZIP64_LOCATOR_SIZE : 0) + END_SIZE;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Hex digest of everything the archive bytes depend on: two archives with equal fingerprints
+     * are byte for byte equal.
+     */
+    public String fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * 2 + Integer.BYTES * 2).order(ByteOrder.LITTLE_ENDIAN);
+            for (Layout layout : layouts) {
+                buffer.clear();
+                buffer.putInt(layout.name.length)
+                        .putLong(layout.entry.size())
+                        .putLong(layout.entry.crc())
+                        .putInt(layout.dosTime);
+                digest.update(buffer.array());
+                digest.update(layout.name);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Writes {@code count} bytes of the archive starting at {@code start}.
+     */
+    public void write(long start, long count, OutputStream out, ContentSource source) throws IOException {
+        if (start < 0 || count < 0 || start + count > length) {
+            throw new IllegalArgumentException("Range " + start + "+" + count + " is outside of archive of " + length);
+        }
+        long end = start + count;
+        for (int i = findEntry(start); i < layouts.length && layouts[i].offset < end; i++) {
+            Layout layout = layouts[i];
+            writeSlice(layout.localHeader(), layout.offset, start, end, out);
+            long from = Math.max(start, layout.dataOffset);
+            long to = Math.min(end, layout.dataOffset + layout.entry.size());
+            if (from < to) {
+                source.copy(layout.entry, from - layout.dataOffset, to - from, out);
+            }
+        }
+        if (end > centralDirectoryOffset) {
+            writeCentralDirectory(start, end, out);
+        }
+    }
+
+    /** Index of the entry whose local header or data contains {@code position}. */
+    private int findEntry(long position) {
+        int low = 0;
+        int high = layouts.length - 1;
+        int found = layouts.length;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (layouts[middle].offset <= position) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found == layouts.length ? 0 : found;
+    }
+
+    private void writeCentralDirectory(long start, long end, OutputStream out) throws IOException {
+        long position = centralDirectoryOffset;
+        for (Layout layout : layouts) {
+            int size = layout.centralHeaderSize();
+            if (position + size > start) {
+                writeSlice(layout.centralHeader(), position, start, end, out);
+            }
+            position += size;
+            if (position >= end) {
+                return;
+            }
+        }
+        writeSlice(endRecords(), position, start, end, out);
+    }
+
+    private byte[] endRecords() {
+        ByteBuffer buffer = allocate((zip64 ? ZIP64_END_SIZE + ZIP64_LOCATOR_SIZE : 0) + END_SIZE);
+        if (zip64) {
+            buffer.putInt(ZIP64_END_SIGNATURE)
+                    .putLong(ZIP64_END_SIZE - 12)
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) VERSION_ZIP64)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(layouts.length)
+                    .putLong(layouts.length)
+                    .putLong(centralDirectorySize)
+                    .putLong(centralDirectoryOffset);
+            buffer.putInt(ZIP64_LOCATOR_SIGNATURE)
+                    .putInt(0)
+                    .putLong(centralDirectoryOffset + centralDirectorySize)
+                    .putInt(1);
+        }
+        buffer.putInt(END_SIGNATURE)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) (zip64 ? ZIP32_ENTRIES_LIMIT : layouts.length))
+                .putShort((short) (zip64 ? ZIP32_ENTRIES_LIMIT : layouts.length))
+                .putInt((int) (zip64 ? ZIP32_LIMIT : centralDirectorySize))
+                .putInt((int) (zip64 ? ZIP32_LIMIT : centralDirectoryOffset))
+                .putShort((short) 0);
+        return buffer.array();
+    }
+
+    /** Writes the part of {@code bytes}, located at {@code position}, that falls into {@code [start, end)}. */
+    private static void writeSlice(byte[] bytes, long position, long start, long end, OutputStream out)
+            throws IOException {
+        long from = Math.max(start, position);
+        long to = Math.min(end, position + bytes.length);
+        if (from < to) {
+            out.write(bytes, (int) (from - position), (int) (to - from));
+        }
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @param source where the content is read from, e.g. the object path; not written to the archive
+     */
+    public record Entry(String name, String source, long size, long crc, ZonedDateTime lastModified) {
+    }
+
+    @FunctionalInterface
+    public interface ContentSource {
+
+        /**
+         * Writes {@code count} bytes of the entry content starting at {@code offset}.
+         */
+        void copy(Entry entry, long offset, long count, OutputStream out) throws IOException;
+    }
+
+    /** Position of one entry in the archive and its headers, generated on demand. */
+    private static final class Layout {
+        private final Entry entry;
+        private final byte[] name;
+        private final int dosTime;
+        private final long offset;
+        private final long dataOffset;
+
+        private Layout(Entry entry, long offset) {
+            this.entry = entry;
+            this.name = entry.name().getBytes(StandardCharsets.UTF_8);
+            this.dosTime = toDosTime(entry.lastModified());
+            this.offset = offset;
+            this.dataOffset = offset + LOCAL_HEADER_SIZE + name.length + (isZip64Size() ? 20 : 0);
+        }
+
+        private boolean isZip64Size() {
+            return entry.size() >= ZIP32_LIMIT;
+        }
+
+        private boolean isZip64Offset() {
+            return offset >= ZIP32_LIMIT;
+        }
+
+        private int centralExtraSize() {
+            int fields = (isZip64Size() ? 2 : 0) + (isZip64Offset() ? 1 : 0);
+            return fields == 0 ? 0 : 4 + fields * 8;
+        }
+
+        private int centralHeaderSize() {
+            return CENTRAL_HEADER_SIZE + name.length + centralExtraSize();
+        }
+
+        private byte[] localHeader() {
+            boolean zip64Size = isZip64Size();
+            ByteBuffer buffer = allocate((int) (dataOffset - offset));
+            buffer.putInt(LOCAL_HEADER_SIGNATURE)
+                    .putShort((short) (zip64Size ? VERSION_ZIP64 : VERSION))
+                    .putShort((short) FLAGS)
+                    .putShort((short) METHOD_STORED)
+                    .putInt(dosTime)
+                    .putInt((int) entry.crc())
+                    .putInt((int) (zip64Size ? ZIP32_LIMIT : entry.size()))
+                    .putInt((int) (zip64Size ? ZIP32_LIMIT : entry.size()))
+                    .putShort((short) name.length)
+                    .putShort((short) (zip64Size ? 20 : 0))
+                    .put(name);
+            if (zip64Size) {
+                buffer.putShort((short) ZIP64_EXTRA_ID)
+                        .putShort((short) 16)
+                        .putLong(entry.size())
+                        .putLong(entry.size());
+            }
+            return buffer.array();
+        }
+
+        private byte[] centralHeader() {
+            boolean zip64Size = isZip64Size();
+            boolean zip64Offset = isZip64Offset();
+            int extraSize = centralExtraSize();
+            int version = extraSize > 0 ? VERSION_ZIP64 : VERSION;
+            ByteBuffer buffer = allocate(centralHeaderSize());
+            buffer.putInt(CENTRAL_HEADER_SIGNATURE)
+                    .putShort((short) version)
+                    .putShort((short) version)
+                    .putShort((short) FLAGS)
+                    .putShort((short) METHOD_STORED)
+                    .putInt(dosTime)
+                    .putInt((int) entry.crc())
+                    .putInt((int) (zip64Size ? ZIP32_LIMIT : entry.size()))
+                    .putInt((int) (zip64Size ? ZIP32_LIMIT : entry.size()))
+                    .putShort((short) name.length)
+                    .putShort((short) extraSize)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putInt(0)
+                    .putInt((int) (zip64Offset ? ZIP32_LIMIT : offset))
+                    .put(name);
+            if (extraSize > 0) {
+                buffer.putShort((short) ZIP64_EXTRA_ID).putShort((short) (extraSize - 4));
+                if (zip64Size) {
+                    buffer.putLong(entry.size()).putLong(entry.size());
+                }
+                if (zip64Offset) {
+                    buffer.putLong(offset);
+                }
+            }
+            return buffer.array();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.frostetsky.cloudstorage.util.zip;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Record signatures, limits and field encodings of the ZIP format shared by the writers.
+ */
+final class ZipFormat {
+
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    static final int END_SIGNATURE = 0x06054b50;
+
+    static final int VERSION_ZIP64 = 45;
+    /** Sizes and offsets at or above it are stored in the ZIP64 extra field. */
+    static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+    static final int ZIP32_ENTRIES_LIMIT = 0xFFFF;
+    static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private ZipFormat() {
+    }
+
+    /**
+     * Packs the time into the MS-DOS date (high half) and time (low half) of ZIP headers, in UTC.
+     */
+    static int toDosTime(ZonedDateTime time) {
+        ZonedDateTime utc = time.withZoneSameInstant(ZoneOffset.UTC);
+        if (utc.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        int date = ((utc.getYear() - 1980) << 9) | (utc.getMonthValue() << 5) | utc.getDayOfMonth();
+        int clock = (utc.getHour() << 11) | (utc.getMinute() << 5) | (utc.getSecond() >> 1);
+        return (date << 16) | clock;
+    }
+}
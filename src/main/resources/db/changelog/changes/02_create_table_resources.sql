@@ -0,0 +1,17 @@
+-- changeset frost:2
+create table resources
+(
+    id            bigserial primary key,
+    user_id       bigint        not null,
+    path          varchar(1024) not null,
+    parent_path   varchar(1024) not null,
+    name          varchar(255)  not null,
+    type          varchar(16)   not null,
+    size          bigint,
+    etag          varchar(64),
+    last_modified timestamptz,
+    unique (user_id, path)
+);
+
+create index idx_resources_user_parent_path on resources (user_id, parent_path);
+create index idx_resources_user_path_pattern on resources (user_id, path varchar_pattern_ops);
@@ -0,0 +1,5 @@
+-- changeset frost:3
+create extension if not exists pg_trgm;
+create extension if not exists btree_gin;
+
+create index idx_resources_user_name_trgm on resources using gin (user_id, lower(name) gin_trgm_ops);
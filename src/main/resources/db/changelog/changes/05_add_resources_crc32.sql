@@ -0,0 +1,2 @@
+-- changeset frost:5
+alter table resources add column crc32 bigint;
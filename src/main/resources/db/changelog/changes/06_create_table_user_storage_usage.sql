@@ -0,0 +1,18 @@
+-- changeset frost:6
+create table user_storage_usage
+(
+    user_id         bigint primary key,
+    used_bytes      bigint not null default 0,
+    file_count      bigint not null default 0,
+    directory_count bigint not null default 0,
+    reconciled_at   timestamptz
+);
+
+insert into user_storage_usage (user_id, used_bytes, file_count, directory_count, reconciled_at)
+select user_id,
+       coalesce(sum(size) filter (where type = 'FILE'), 0),
+       count(*) filter (where type = 'FILE'),
+       count(*) filter (where type = 'DIRECTORY' and path <> ''),
+       now()
+from resources
+group by user_id;
@@ -0,0 +1,22 @@
+-- changeset frost:7
+alter table resources add column descendant_count bigint;
+
+update resources
+set size             = 0,
+    descendant_count = 0
+where type = 'DIRECTORY' and path <> '';
+
+update resources directory
+set size             = totals.size,
+    descendant_count = totals.descendant_count
+from (select r.user_id,
+             left(r.parent_path, i)                                  as path,
+             coalesce(sum(r.size) filter (where r.type = 'FILE'), 0) as size,
+             count(*)                                                as descendant_count
+      from resources r
+               cross join generate_series(1, length(r.parent_path)) i
+      where substr(r.parent_path, i, 1) = '/'
+      group by r.user_id, left(r.parent_path, i)) totals
+where directory.user_id = totals.user_id
+  and directory.path = totals.path
+  and directory.type = 'DIRECTORY';
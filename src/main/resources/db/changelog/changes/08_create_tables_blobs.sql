@@ -0,0 +1,18 @@
+-- changeset frost:8
+create table blobs
+(
+    hash       varchar(64) primary key,
+    size       bigint      not null,
+    ref_count  bigint      not null,
+    updated_at timestamptz not null default now()
+);
+
+create index idx_blobs_unreferenced on blobs (updated_at) where ref_count = 0;
+
+create table blob_refs
+(
+    object_key text primary key,
+    hash       varchar(64) not null references blobs (hash)
+);
+
+create index idx_blob_refs_hash on blob_refs (hash);
@@ -0,0 +1,25 @@
+-- changeset frost:9
+create table jobs
+(
+    id            uuid primary key,
+    user_id       bigint      not null,
+    type          varchar(16) not null,
+    status        varchar(16) not null,
+    path          text        not null,
+    target_path   text,
+    objects_done  bigint      not null default 0,
+    objects_total bigint,
+    bytes_done    bigint      not null default 0,
+    bytes_total   bigint,
+    result_key    text,
+    error         text,
+    owner         varchar(36),
+    heartbeat_at  timestamptz,
+    created_at    timestamptz not null,
+    started_at    timestamptz,
+    finished_at   timestamptz
+);
+
+create index idx_jobs_active on jobs (created_at) where status in ('QUEUED', 'RUNNING');
+create index idx_jobs_user_id on jobs (user_id, status);
+create index idx_jobs_finished_at on jobs (finished_at) where finished_at is not null;
@@ -0,0 +1,8 @@
+-- changeset frost:10
+create table revoked_tokens
+(
+    session_id uuid primary key,
+    expires_at timestamptz not null
+);
+
+create index idx_revoked_tokens_expires_at on revoked_tokens (expires_at);
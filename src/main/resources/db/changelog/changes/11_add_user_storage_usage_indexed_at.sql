@@ -0,0 +1,2 @@
+-- changeset frost:11
+alter table user_storage_usage add column indexed_at timestamptz;
@@ -0,0 +1,4 @@
+-- changeset frost:12
+alter table blob_refs add column pending_since timestamptz;
+
+create index idx_blob_refs_pending on blob_refs (pending_since) where pending_since is not null;
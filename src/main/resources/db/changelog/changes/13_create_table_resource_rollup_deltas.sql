@@ -0,0 +1,11 @@
+-- changeset frost:13
+create table resource_rollup_deltas
+(
+    id          bigserial primary key,
+    user_id     bigint not null,
+    path        text   not null,
+    bytes       bigint not null,
+    descendants bigint not null
+);
+
+create index idx_resource_rollup_deltas_path on resource_rollup_deltas (user_id, path text_pattern_ops);
@@ -0,0 +1,2 @@
+-- changeset frost:14
+alter table user_storage_usage add column index_writes bigint not null default 0;
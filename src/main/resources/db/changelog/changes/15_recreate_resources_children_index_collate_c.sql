@@ -0,0 +1,4 @@
+-- changeset frost:15
+drop index idx_resources_user_parent_path;
+
+create index idx_resources_user_parent_path on resources (user_id, parent_path, path collate "C");
@@ -4,6 +4,7 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.DynamicPropertyRegistrar;
+import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.MinIOContainer;
 import org.testcontainers.containers.PostgreSQLContainer;
 
@@ -17,6 +18,13 @@ public class TestConfig {
         return new PostgreSQLContainer<>("postgres:17");
     }
 
+    @Bean
+    @ServiceConnection(name = "redis")
+    public GenericContainer<?> redisContainer() {
+        return new GenericContainer<>("redis:7")
+                .withExposedPorts(6379);
+    }
+
     @Bean
     public MinIOContainer minIOContainer() {
         return new MinIOContainer("minio/minio:latest")
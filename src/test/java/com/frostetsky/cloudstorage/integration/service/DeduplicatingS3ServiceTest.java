@@ -0,0 +1,158 @@
+package com.frostetsky.cloudstorage.integration.service;
+
+import com.frostetsky.cloudstorage.integration.config.TestConfig;
+import com.frostetsky.cloudstorage.model.Blob;
+import com.frostetsky.cloudstorage.repository.BlobRepository;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.service.impl.DeduplicatingS3Service;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.frostetsky.cloudstorage.constants.MinioConstants.BLOB_PREFIX;
+import static com.frostetsky.cloudstorage.constants.MinioConstants.JOB_RESULT_PREFIX;
+import static com.frostetsky.cloudstorage.integration.util.FileUtil.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(classes = TestConfig.class, properties = {
+        "app.storage.dedup.enabled=true",
+        "app.storage.dedup.unreferenced-ttl=-1s"
+})
+public class DeduplicatingS3ServiceTest {
+
+    @Autowired
+    private S3Service s3Service;
+    @Autowired
+    private DeduplicatingS3Service deduplicatingS3Service;
+    @Autowired
+    private BlobRepository blobRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final Logger log = LoggerFactory.getLogger(DeduplicatingS3ServiceTest.class);
+    private static final Long TEST_USER_ID = 60L;
+    private static final String BASE_PATH = ResourcePathUtil.buildBasePath(TEST_USER_ID);
+    private static final String FILE_PATH = BASE_PATH + "file.txt";
+    private static final String FILE_PATH_2 = BASE_PATH + "dir/file.txt";
+    private static final String TEXT = "Hello Test";
+
+    @BeforeAll
+    static void setup(@Autowired S3Service s3Service) {
+        log.info("===== BEFORE_ALL =====");
+        try {
+            if (!s3Service.checkBaseBucketExists()) {
+                s3Service.createBaseBucket();
+            }
+            s3Service.createEmptyDir(BASE_PATH);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to setup bucket", e);
+        }
+    }
+
+    @BeforeEach
+    void logTestStart(TestInfo testInfo) {
+        log.info("==========>  STARTING TEST: {}", testInfo.getDisplayName());
+    }
+
+    @Test
+    @DisplayName("Same content uploaded twice is stored once and read back at both paths")
+    void duplicateUploadStoresContentOnce() throws IOException {
+        s3Service.putObject(FILE_PATH, createTestFile("file.txt", TEXT));
+        s3Service.putObject(FILE_PATH_2, new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)), "text/plain");
+
+        assertThat(blobRepository.findAll())
+                .singleElement()
+                .satisfies(blob -> {
+                    assertThat(blob.getRefCount()).isEqualTo(2);
+                    assertThat(blob.getSize()).isEqualTo(TEXT.length());
+                });
+        assertThat(s3Service.getObjectsInDirectory(BLOB_PREFIX, true)).hasSize(1);
+        assertThat(s3Service.getObjectInfo(FILE_PATH_2).size()).isEqualTo(TEXT.length());
+        assertThat(s3Service.getObjectsInDirectory(BASE_PATH + "dir/", true))
+                .extracting(Item::size)
+                .containsExactly((long) TEXT.length());
+        assertThat(read(FILE_PATH)).isEqualTo(TEXT);
+        assertThat(read(FILE_PATH_2)).isEqualTo(TEXT);
+    }
+
+    @Test
+    @DisplayName("Copies share the content, which is swept once the last reference is deleted")
+    void copyAndDeleteKeepContentUntilLastReference() throws IOException {
+        s3Service.putObject(FILE_PATH, createTestFile("file.txt", TEXT));
+        s3Service.copyObject(FILE_PATH, FILE_PATH_2);
+        s3Service.deleteObjects(List.of(FILE_PATH));
+        deduplicatingS3Service.sweepUnreferenced();
+
+        assertThat(read(FILE_PATH_2)).isEqualTo(TEXT);
+        assertThat(blobRepository.findAll()).extracting(Blob::getRefCount).containsExactly(1L);
+
+        s3Service.deleteObjects(List.of(FILE_PATH_2));
+        deduplicatingS3Service.sweepUnreferenced();
+
+        assertThat(blobRepository.findAll()).isEmpty();
+        assertThat(s3Service.getObjectsInDirectory(BLOB_PREFIX, true)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("A reference left pending by an unfinished write is taken back by the sweep")
+    void pendingReferenceWithoutObjectIsSwept() {
+        String hash = "0".repeat(64);
+        transactionTemplate.executeWithoutResult(status -> {
+            blobRepository.addReference(hash, TEXT.length());
+            blobRepository.insertReference(FILE_PATH, hash);
+        });
+
+        deduplicatingS3Service.sweepUnreferenced();
+
+        assertThat(blobRepository.findReferences(List.of(FILE_PATH))).isEmpty();
+        assertThat(blobRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Job archives are stored as they are")
+    void jobArchiveIsNotDeduplicated() throws IOException {
+        String archiveKey = JOB_RESULT_PREFIX + TEST_USER_ID + ".zip";
+        try {
+            s3Service.putObject(archiveKey, new ByteArrayInputStream(TEXT.getBytes(StandardCharsets.UTF_8)), "application/zip");
+
+            assertThat(blobRepository.findAll()).isEmpty();
+            assertThat(s3Service.getObjectInfo(archiveKey).size()).isEqualTo(TEXT.length());
+            assertThat(read(archiveKey)).isEqualTo(TEXT);
+        } finally {
+            s3Service.deleteObjects(List.of(archiveKey));
+        }
+    }
+
+    private String read(String path) throws IOException {
+        try (InputStream stream = s3Service.downloadObject(path)) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        log.info("=========>  CLEANUP");
+        List<String> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
+                .stream()
+                .filter(item -> !item.objectName().equals(BASE_PATH))
+                .map(Item::objectName)
+                .toList();
+        if (!objectsToDelete.isEmpty()) {
+            s3Service.deleteObjects(objectsToDelete);
+        }
+        deduplicatingS3Service.sweepUnreferenced();
+    }
+}
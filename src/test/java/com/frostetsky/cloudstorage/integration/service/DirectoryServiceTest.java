@@ -1,16 +1,20 @@
 package com.frostetsky.cloudstorage.integration.service;
 
 import com.frostetsky.cloudstorage.dto.CreateUserRequest;
+import com.frostetsky.cloudstorage.dto.ResourcePageDto;
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.excepiton.InvalidCursorException;
 import com.frostetsky.cloudstorage.excepiton.ResourceAlreadyExistException;
 import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
 import com.frostetsky.cloudstorage.integration.config.TestConfig;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.repository.ResourceMetadataRepository;
 import com.frostetsky.cloudstorage.service.DirectoryService;
 import com.frostetsky.cloudstorage.service.ResourceService;
 import com.frostetsky.cloudstorage.service.S3Service;
 import com.frostetsky.cloudstorage.service.UserService;
 import com.frostetsky.cloudstorage.util.ResourcePathUtil;
-import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
 import org.junit.jupiter.api.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +40,8 @@ public class DirectoryServiceTest {
     private UserService userService;
     @Autowired
     private S3Service s3Service;
+    @Autowired
+    private ResourceMetadataRepository resourceMetadataRepository;
 
     private static final Logger log = LoggerFactory.getLogger(ResourceServiceTest.class);
     private static final Long TEST_USER_ID = 10L;
@@ -66,32 +72,54 @@ public class DirectoryServiceTest {
                 createTestFile("file.txt", "Hello Test"),
                 createTestFile("file2.txt", "Hello Test")
         };
-        resourceService.uploadResource(TEST_USER_ID, "dir/", files);
-        var dirFiles = directoryService.getDirectoryFiles(TEST_USER_ID, "dir/");
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, "dir/"), files);
+        var dirFiles = directoryService.getDirectoryFiles(ResourcePath.of(TEST_USER_ID, "dir/"));
         assertEquals(2, dirFiles.size());
 
         // Получение файлов из несуществующей папки
         assertThrows(ResourceNotFoundException.class, () ->
-                directoryService.getDirectoryFiles(TEST_USER_ID, "dir10/"));
+                directoryService.getDirectoryFiles(ResourcePath.of(TEST_USER_ID, "dir10/")));
+    }
+
+    @Test
+    void getDirectoryFilesPage_Test() {
+        s3Service.createEmptyDir(BASE_PATH + "dir/");
+        MultipartFile[] files = {
+                createTestFile("file1.txt", "Hello Test"),
+                createTestFile("file2.txt", "Hello Test"),
+                createTestFile("file3.txt", "Hello Test")
+        };
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, "dir/"), files);
+
+        ResourcePageDto firstPage = directoryService.getDirectoryFilesPage(ResourcePath.of(TEST_USER_ID, "dir/"), 2, null);
+        ResourcePageDto secondPage = directoryService.getDirectoryFilesPage(ResourcePath.of(TEST_USER_ID, "dir/"), 2, firstPage.nextCursor());
+
+        assertEquals(List.of("file1.txt", "file2.txt"), firstPage.items().stream().map(ResourceResponse::name).toList());
+        assertEquals(List.of("file3.txt"), secondPage.items().stream().map(ResourceResponse::name).toList());
+        assertNull(secondPage.nextCursor());
+
+        // Курсор от другой папки
+        assertThrows(InvalidCursorException.class, () ->
+                directoryService.getDirectoryFilesPage(ResourcePath.of(TEST_USER_ID, "dir10/"), 2, firstPage.nextCursor()));
     }
 
     @Test
     void createDirectory_Test() {
-        ResourceResponse directory = directoryService.createDirectory(TEST_USER_ID, "dir/");
+        ResourceResponse directory = directoryService.createDirectory(ResourcePath.of(TEST_USER_ID, "dir/"));
         assertEquals("dir/", directory.name());
 
         // Создание уже существующей папки
         assertThrows(ResourceAlreadyExistException.class, () ->
-                directoryService.createDirectory(TEST_USER_ID, "dir/"));
+                directoryService.createDirectory(ResourcePath.of(TEST_USER_ID, "dir/")));
 
         // Создание папки в несуществующей папке
         assertThrows(ResourceNotFoundException.class, () ->
-                directoryService.createDirectory(TEST_USER_ID, "dir0/dir1/dir2"));
+                directoryService.createDirectory(ResourcePath.of(TEST_USER_ID, "dir0/dir1/dir2")));
     }
 
     @Test
     void createBaseDirectory_Test() {
-        s3Service.deleteObjects(List.of(new DeleteObject(BASE_PATH)));
+        s3Service.deleteObjects(List.of(BASE_PATH));
         CreateUserRequest userDto = new CreateUserRequest("test_user", "password");
         userService.createUser(userDto);
         directoryService.createBaseDirectory(userDto.username());
@@ -102,13 +130,14 @@ public class DirectoryServiceTest {
     @AfterEach
     void cleanUp() {
         log.info("=========>  CLEANUP");
-        List<DeleteObject> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
+        List<String> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
                 .stream()
                 .filter(item -> !item.objectName().equals(BASE_PATH))
-                .map(item -> new DeleteObject(item.objectName()))
+                .map(Item::objectName)
                 .toList();
         if (!objectsToDelete.isEmpty()) {
             s3Service.deleteObjects(objectsToDelete);
         }
+        resourceMetadataRepository.deleteAll();
     }
 }
@@ -0,0 +1,200 @@
+package com.frostetsky.cloudstorage.integration.service;
+
+import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.dto.JobResponse;
+import com.frostetsky.cloudstorage.dto.JobStatus;
+import com.frostetsky.cloudstorage.dto.JobType;
+import com.frostetsky.cloudstorage.excepiton.InvalidJobException;
+import com.frostetsky.cloudstorage.integration.config.TestConfig;
+import com.frostetsky.cloudstorage.model.Job;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.repository.JobRepository;
+import com.frostetsky.cloudstorage.repository.ResourceMetadataRepository;
+import com.frostetsky.cloudstorage.repository.UserStorageUsageRepository;
+import com.frostetsky.cloudstorage.service.JobService;
+import com.frostetsky.cloudstorage.service.ResourceService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.multipart.MultipartFile;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.frostetsky.cloudstorage.constants.MinioConstants.JOB_RESULT_PREFIX;
+import static com.frostetsky.cloudstorage.integration.util.FileUtil.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Testcontainers
+@SpringBootTest(classes = TestConfig.class, properties = "app.storage.jobs.stale-timeout=10s")
+public class JobServiceTest {
+
+    @Autowired
+    private JobService jobService;
+    @Autowired
+    private ResourceService resourceService;
+    @Autowired
+    private S3Service s3Service;
+    @Autowired
+    private JobRepository jobRepository;
+    @Autowired
+    private ResourceMetadataRepository resourceMetadataRepository;
+    @Autowired
+    private UserStorageUsageRepository userStorageUsageRepository;
+
+    private static final Logger log = LoggerFactory.getLogger(JobServiceTest.class);
+    private static final Long TEST_USER_ID = 70L;
+    private static final String BASE_PATH = ResourcePathUtil.buildBasePath(TEST_USER_ID);
+    private static final String TEXT = "Hello Test";
+    private static final Duration JOB_TIMEOUT = Duration.ofSeconds(30);
+
+    @BeforeAll
+    static void setup(@Autowired S3Service s3Service) {
+        log.info("===== BEFORE_ALL =====");
+        try {
+            if (!s3Service.checkBaseBucketExists()) {
+                s3Service.createBaseBucket();
+            }
+            s3Service.createEmptyDir(BASE_PATH);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to setup bucket", e);
+        }
+    }
+
+    @BeforeEach
+    void logTestStart(TestInfo testInfo) {
+        log.info("==========>  STARTING TEST: {}", testInfo.getDisplayName());
+    }
+
+    @Test
+    @DisplayName("Move job moves the directory and reports progress up to the totals")
+    void moveJob() throws InterruptedException {
+        uploadDirectory();
+
+        JobResponse submitted = jobService.submitMove(ResourcePath.of(TEST_USER_ID, "dir1/"),
+                ResourcePath.of(TEST_USER_ID, "moved/"));
+        JobResponse finished = awaitFinished(submitted.id());
+
+        assertThat(submitted.status()).isEqualTo(JobStatus.QUEUED);
+        assertThat(finished.status()).isEqualTo(JobStatus.SUCCEEDED);
+        assertThat(finished.objectsTotal()).isEqualTo(4);
+        assertThat(finished.objectsDone()).isEqualTo(4);
+        assertThat(finished.bytesDone()).isEqualTo(finished.bytesTotal()).isEqualTo(2L * TEXT.length());
+        assertThat(s3Service.checkExistObject(BASE_PATH + "dir1/")).isFalse();
+        assertThat(s3Service.checkExistObject(BASE_PATH + "moved/dir2/file.txt")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Download job stores an archive of the directory that is downloaded as the result")
+    void downloadJob() throws Exception {
+        uploadDirectory();
+
+        JobResponse submitted = jobService.submitDownload(ResourcePath.of(TEST_USER_ID, "dir1/"));
+        JobResponse finished = awaitFinished(submitted.id());
+        DownloadResultDto result = jobService.downloadResult(TEST_USER_ID, submitted.id());
+
+        assertThat(finished.status()).isEqualTo(JobStatus.SUCCEEDED);
+        assertThat(result.fileName()).isEqualTo("dir1.zip");
+        assertThat(readEntryNames(result)).containsExactlyInAnyOrder("dir2/file.txt", "file.txt");
+    }
+
+    @Test
+    @DisplayName("Job for a file throws InvalidJobException")
+    void jobForFile() {
+        uploadDirectory();
+
+        assertThrows(InvalidJobException.class, () ->
+                jobService.submitDelete(ResourcePath.of(TEST_USER_ID, "dir1/file.txt")));
+    }
+
+    @Test
+    @DisplayName("Job of a node that stopped sending heartbeats is taken over and finished")
+    void staleJobIsTakenOver() throws InterruptedException {
+        uploadDirectory();
+        s3Service.deleteObjects(List.of(BASE_PATH + "dir1/dir2/file.txt"));
+        Job job = jobRepository.save(Job.builder()
+                .id(UUID.randomUUID())
+                .userId(TEST_USER_ID)
+                .type(JobType.DELETE)
+                .status(JobStatus.RUNNING)
+                .path("dir1/")
+                .objectsDone(1)
+                .bytesDone(TEXT.length())
+                .owner("dead-node")
+                .heartbeatAt(Instant.now().minus(Duration.ofHours(1)))
+                .createdAt(Instant.now())
+                .startedAt(Instant.now())
+                .build());
+
+        JobResponse finished = awaitFinished(job.getId().toString());
+
+        assertThat(finished.status()).isEqualTo(JobStatus.SUCCEEDED);
+        assertThat(finished.objectsDone()).isEqualTo(4);
+        assertThat(s3Service.getObjectsInDirectory(BASE_PATH + "dir1/", true)).isEmpty();
+        assertThat(resourceMetadataRepository.existsByUserIdAndPath(TEST_USER_ID, "dir1/")).isFalse();
+    }
+
+    private void uploadDirectory() {
+        resourceService.uploadResource(ResourcePath.root(TEST_USER_ID), new MultipartFile[]{
+                createTestFile("dir1/dir2/file.txt", TEXT),
+                createTestFile("dir1/file.txt", TEXT)});
+    }
+
+    private JobResponse awaitFinished(String jobId) throws InterruptedException {
+        Instant deadline = Instant.now().plus(JOB_TIMEOUT);
+        while (Instant.now().isBefore(deadline)) {
+            jobService.runQueuedJobs();
+            JobResponse job = jobService.getJob(TEST_USER_ID, jobId);
+            if (job.status() == JobStatus.SUCCEEDED || job.status() == JobStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Job did not finish: " + jobId);
+    }
+
+    private List<String> readEntryNames(DownloadResultDto result) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        result.body().writeTo(archive);
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    @AfterEach
+    void cleanUp() {
+        log.info("=========>  CLEANUP");
+        List<String> objectsToDelete = new ArrayList<>(s3Service.getObjectsInDirectory(BASE_PATH, true)
+                .stream()
+                .filter(item -> !item.objectName().equals(BASE_PATH))
+                .map(Item::objectName)
+                .toList());
+        s3Service.getObjectsInDirectory(JOB_RESULT_PREFIX, true).forEach(item -> objectsToDelete.add(item.objectName()));
+        if (!objectsToDelete.isEmpty()) {
+            s3Service.deleteObjects(objectsToDelete);
+        }
+        jobRepository.deleteAll();
+        resourceMetadataRepository.deleteAll();
+        userStorageUsageRepository.deleteAll();
+    }
+}
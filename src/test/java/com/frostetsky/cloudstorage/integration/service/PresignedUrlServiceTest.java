@@ -0,0 +1,154 @@
+package com.frostetsky.cloudstorage.integration.service;
+
+import com.frostetsky.cloudstorage.dto.PresignedUrlResponse;
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.excepiton.ResourceAlreadyExistException;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.integration.config.TestConfig;
+import com.frostetsky.cloudstorage.repository.ResourceMetadataRepository;
+import com.frostetsky.cloudstorage.service.PresignedUrlService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Testcontainers
+@SpringBootTest(classes = TestConfig.class, properties = {
+        "app.storage.presign.enabled=true",
+        "app.storage.presign.max-file-size=1KB"
+})
+public class PresignedUrlServiceTest {
+
+    @Autowired
+    private PresignedUrlService presignedUrlService;
+    @Autowired
+    private S3Service s3Service;
+    @Autowired
+    private ResourceMetadataRepository resourceMetadataRepository;
+
+    private static final Logger log = LoggerFactory.getLogger(PresignedUrlServiceTest.class);
+    private static final Long TEST_USER_ID = 40L;
+    private static final String BASE_PATH = ResourcePathUtil.buildBasePath(TEST_USER_ID);
+    private static final String FILE_PATH = "dir1/dir2/file.txt";
+    private static final String TEXT = "Hello Test";
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void setup(@Autowired S3Service s3Service) {
+        log.info("===== BEFORE_ALL =====");
+        try {
+            if (!s3Service.checkBaseBucketExists()) {
+                s3Service.createBaseBucket();
+            }
+            s3Service.createEmptyDir(BASE_PATH);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to setup bucket", e);
+        }
+    }
+
+    @BeforeEach
+    void logTestStart(TestInfo testInfo) {
+        log.info("==========>  STARTING TEST: {}", testInfo.getDisplayName());
+    }
+
+    @Test
+    @DisplayName("File uploaded through a presigned URL is registered and downloadable")
+    void uploadCompleteAndDownload() throws Exception {
+        PresignedUrlResponse upload = presignedUrlService.presignUpload(TEST_USER_ID, FILE_PATH);
+        assertThat(post(upload, TEXT).statusCode()).isEqualTo(204);
+
+        ResourceResponse resource = presignedUrlService.completeUpload(TEST_USER_ID, FILE_PATH);
+        PresignedUrlResponse download = presignedUrlService.presignDownload(TEST_USER_ID, FILE_PATH);
+        HttpResponse<String> downloaded = httpClient.send(HttpRequest.newBuilder(URI.create(download.url())).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertThat(upload.method()).isEqualTo("POST");
+        assertThat(resource.size()).isEqualTo(TEXT.length());
+        assertThat(resourceMetadataRepository.existsByUserIdAndPath(TEST_USER_ID, FILE_PATH)).isTrue();
+        assertThat(s3Service.checkExistObject(BASE_PATH + "dir1/dir2/")).isTrue();
+        assertThat(resourceMetadataRepository.existsByUserIdAndPath(TEST_USER_ID, "dir1/")).isTrue();
+        assertThat(downloaded.body()).isEqualTo(TEXT);
+        assertThat(downloaded.headers().firstValue("Content-Disposition")).hasValueSatisfying(
+                value -> assertThat(value).contains("file.txt"));
+    }
+
+    @Test
+    @DisplayName("Upload URL for an existing file throws ResourceAlreadyExistException")
+    void presignUploadForExistingFile() throws Exception {
+        post(presignedUrlService.presignUpload(TEST_USER_ID, FILE_PATH), TEXT);
+        presignedUrlService.completeUpload(TEST_USER_ID, FILE_PATH);
+
+        assertThrows(ResourceAlreadyExistException.class, () ->
+                presignedUrlService.presignUpload(TEST_USER_ID, FILE_PATH));
+    }
+
+    @Test
+    @DisplayName("Completing an upload that was not sent throws ResourceNotFoundException")
+    void completeWithoutUpload() {
+        presignedUrlService.presignUpload(TEST_USER_ID, FILE_PATH);
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                presignedUrlService.completeUpload(TEST_USER_ID, FILE_PATH));
+    }
+
+    @Test
+    @DisplayName("Upload over the size limit is rejected by the storage")
+    void oversizedUploadRejected() throws Exception {
+        HttpResponse<Void> response = post(presignedUrlService.presignUpload(TEST_USER_ID, FILE_PATH), "x".repeat(2048));
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThrows(ResourceNotFoundException.class, () ->
+                presignedUrlService.completeUpload(TEST_USER_ID, FILE_PATH));
+        assertThat(s3Service.checkExistObject(BASE_PATH + FILE_PATH)).isFalse();
+        assertThat(resourceMetadataRepository.existsByUserIdAndPath(TEST_USER_ID, FILE_PATH)).isFalse();
+    }
+
+    private HttpResponse<Void> post(PresignedUrlResponse form, String content) throws IOException, InterruptedException {
+        String boundary = "----test-boundary";
+        StringBuilder body = new StringBuilder();
+        form.formData().forEach((name, value) -> body.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n"));
+        body.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"file.txt\"\r\n")
+                .append("Content-Type: text/plain\r\n\r\n")
+                .append(content).append("\r\n")
+                .append("--").append(boundary).append("--\r\n");
+        return httpClient.send(HttpRequest.newBuilder(URI.create(form.url()))
+                        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                        .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        log.info("=========>  CLEANUP");
+        List<String> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
+                .stream()
+                .filter(item -> !item.objectName().equals(BASE_PATH))
+                .map(Item::objectName)
+                .toList();
+        if (!objectsToDelete.isEmpty()) {
+            s3Service.deleteObjects(objectsToDelete);
+        }
+        resourceMetadataRepository.deleteAll();
+    }
+}
@@ -0,0 +1,176 @@
+package com.frostetsky.cloudstorage.integration.service;
+
+import com.frostetsky.cloudstorage.integration.config.TestConfig;
+import com.frostetsky.cloudstorage.model.ResourceMetadata;
+import com.frostetsky.cloudstorage.repository.ResourceMetadataRepository;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.List;
+
+import static com.frostetsky.cloudstorage.integration.util.FileUtil.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(classes = TestConfig.class)
+public class ResourceIndexServiceTest {
+
+    @Autowired
+    private ResourceIndexService resourceIndexService;
+    @Autowired
+    private S3Service s3Service;
+    @Autowired
+    private ResourceMetadataRepository resourceMetadataRepository;
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceIndexServiceTest.class);
+    private static final Long TEST_USER_ID = 20L;
+    private static final String BASE_PATH = ResourcePathUtil.buildBasePath(TEST_USER_ID);
+
+    private static final String DIR = "dir/";
+    private static final String DIR_1 = "dir1/";
+    private static final String FILE_NAME = "file.txt";
+    private static final String TEXT = "Hello Test";
+
+    @BeforeAll
+    static void setup(@Autowired S3Service s3Service) {
+        log.info("===== BEFORE_ALL =====");
+        try {
+            if (!s3Service.checkBaseBucketExists()) {
+                s3Service.createBaseBucket();
+            }
+            s3Service.createEmptyDir(BASE_PATH);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to setup bucket", e);
+        }
+    }
+
+    @BeforeEach
+    void logTestStart(TestInfo testInfo) {
+        log.info("==========>  STARTING TEST: {}", testInfo.getDisplayName());
+    }
+
+    @Test
+    @DisplayName("Backfill indexes objects created directly in storage")
+    void backfillIndexesExistingObjects() {
+        s3Service.createEmptyDir(BASE_PATH + DIR);
+        s3Service.putObject(BASE_PATH + DIR + DIR_1 + FILE_NAME, createTestFile(FILE_NAME, TEXT));
+
+        resourceIndexService.backfill();
+
+        assertThat(resourceIndexService.getDirectoryContent(TEST_USER_ID, DIR))
+                .extracting(ResourceMetadata::getName)
+                .containsExactly(DIR_1);
+        assertThat(resourceIndexService.findResource(TEST_USER_ID, DIR + DIR_1 + FILE_NAME))
+                .hasValueSatisfying(r -> assertThat(r.getSize()).isEqualTo(TEXT.length()));
+    }
+
+    @Test
+    @DisplayName("Reconciliation indexes missing objects and removes rows of objects that are gone")
+    void reconcileCorrectsIndex() {
+        s3Service.putObject(BASE_PATH + DIR + FILE_NAME, createTestFile(FILE_NAME, TEXT));
+        resourceIndexService.indexFile(TEST_USER_ID, DIR_1 + FILE_NAME, TEXT.length(), "etag", Instant.now());
+
+        resourceIndexService.reconcile(TEST_USER_ID);
+
+        assertThat(resourceIndexService.isUserIndexed(TEST_USER_ID)).isTrue();
+        assertThat(resourceIndexService.getDirectoryContent(TEST_USER_ID, ""))
+                .extracting(ResourceMetadata::getPath)
+                .containsExactly(DIR);
+        assertThat(resourceIndexService.findResource(TEST_USER_ID, DIR + FILE_NAME))
+                .hasValueSatisfying(r -> assertThat(r.getSize()).isEqualTo(TEXT.length()));
+        assertThat(resourceIndexService.findResource(TEST_USER_ID, DIR_1 + FILE_NAME)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Moving directory rewrites paths of all nested resources")
+    void moveDirectoryRewritesNestedPaths() {
+        resourceIndexService.indexFile(TEST_USER_ID, DIR + DIR_1 + FILE_NAME, TEXT.length(), "etag", Instant.now());
+
+        resourceIndexService.moveResource(TEST_USER_ID, DIR, "moved/");
+
+        assertThat(resourceIndexService.findResource(TEST_USER_ID, DIR)).isEmpty();
+        assertThat(resourceIndexService.findResource(TEST_USER_ID, "moved/"))
+                .hasValueSatisfying(r -> assertThat(r.getName()).isEqualTo("moved/"));
+        assertThat(resourceIndexService.findResource(TEST_USER_ID, "moved/" + DIR_1 + FILE_NAME))
+                .hasValueSatisfying(r -> assertThat(r.getParentPath()).isEqualTo("moved/" + DIR_1));
+    }
+
+    @Test
+    @DisplayName("Removing directory does not touch directories matching it as a LIKE pattern")
+    void removeDirectoryEscapesPattern() {
+        resourceIndexService.indexFile(TEST_USER_ID, "a_b/" + FILE_NAME, TEXT.length(), "etag", Instant.now());
+        resourceIndexService.indexFile(TEST_USER_ID, "axb/" + FILE_NAME, TEXT.length(), "etag", Instant.now());
+
+        resourceIndexService.removeResource(TEST_USER_ID, "a_b/");
+
+        assertThat(resourceIndexService.getDirectoryContent(TEST_USER_ID, ""))
+                .extracting(ResourceMetadata::getPath)
+                .containsExactly("axb/");
+    }
+
+    @Test
+    @DisplayName("Search matches LIKE wildcards and the escape character literally")
+    void searchEscapesPattern() {
+        resourceIndexService.reconcile(TEST_USER_ID);
+        for (String name : List.of("a_b.txt", "axb.txt", "a\\b.txt", "a\\xb.txt")) {
+            resourceIndexService.indexFile(TEST_USER_ID, name, TEXT.length(), "etag", Instant.now());
+        }
+
+        assertThat(resourceIndexService.search(TEST_USER_ID, "a_b", -1, "", 10))
+                .extracting(ResourceMetadata::getName)
+                .containsExactly("a_b.txt");
+        assertThat(resourceIndexService.search(TEST_USER_ID, "a\\b", -1, "", 10))
+                .extracting(ResourceMetadata::getName)
+                .containsExactly("a\\b.txt");
+    }
+
+    @Test
+    @DisplayName("Indexing, moving and removing files keeps directory sizes of all ancestors")
+    void directoryRollupsFollowChanges() {
+        resourceIndexService.indexFile(TEST_USER_ID, DIR + DIR_1 + FILE_NAME, 10, "etag", Instant.now());
+        resourceIndexService.indexFile(TEST_USER_ID, DIR + FILE_NAME, 5, "etag", Instant.now());
+        resourceIndexService.indexFile(TEST_USER_ID, DIR + FILE_NAME, 7, "etag2", Instant.now());
+
+        assertRollup(DIR, 17, 3);
+        assertRollup(DIR + DIR_1, 10, 1);
+
+        resourceIndexService.moveResource(TEST_USER_ID, DIR + DIR_1, "moved/" + DIR_1);
+        assertRollup(DIR, 7, 1);
+        assertRollup("moved/", 10, 2);
+
+        resourceIndexService.removeResource(TEST_USER_ID, "moved/" + DIR_1 + FILE_NAME);
+        assertRollup("moved/", 0, 1);
+        assertRollup("moved/" + DIR_1, 0, 0);
+    }
+
+    private void assertRollup(String path, long size, long descendantCount) {
+        resourceIndexService.applyRollupDeltas();
+        assertThat(resourceIndexService.findResource(TEST_USER_ID, path)).hasValueSatisfying(r -> {
+            assertThat(r.getSize()).isEqualTo(size);
+            assertThat(r.getDescendantCount()).isEqualTo(descendantCount);
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        log.info("=========>  CLEANUP");
+        List<String> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
+                .stream()
+                .filter(item -> !item.objectName().equals(BASE_PATH))
+                .map(Item::objectName)
+                .toList();
+        if (!objectsToDelete.isEmpty()) {
+            s3Service.deleteObjects(objectsToDelete);
+        }
+        resourceMetadataRepository.deleteAll();
+    }
+}
@@ -1,29 +1,42 @@
 package com.frostetsky.cloudstorage.integration.service;
 
+import com.frostetsky.cloudstorage.dto.ArchiveMode;
 import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.dto.ResourcePageDto;
 import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadErrorDto;
+import com.frostetsky.cloudstorage.dto.UploadResultDto;
+import com.frostetsky.cloudstorage.excepiton.InvalidMoveException;
 import com.frostetsky.cloudstorage.excepiton.ResourceAlreadyExistException;
 import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
 import com.frostetsky.cloudstorage.integration.config.TestConfig;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.repository.ResourceMetadataRepository;
 import com.frostetsky.cloudstorage.service.ResourceService;
 import com.frostetsky.cloudstorage.service.S3Service;
 import com.frostetsky.cloudstorage.util.ResourcePathUtil;
-import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import org.junit.jupiter.api.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static com.frostetsky.cloudstorage.integration.util.FileUtil.createTestFile;
 
@@ -38,6 +51,8 @@ public class ResourceServiceTest {
     private ResourceService resourceService;
     @Autowired
     private S3Service s3Service;
+    @Autowired
+    private ResourceMetadataRepository resourceMetadataRepository;
 
     private static final Logger log = LoggerFactory.getLogger(ResourceServiceTest.class);
     private static final Long TEST_USER_ID = 10L;
@@ -52,6 +67,7 @@ public class ResourceServiceTest {
     private static final String FILE_NAME_3 = "file3.txt";
     private static final String TEXT = "Hello Test";
     private static final String TEXT_2 = "Hello Test 2";
+    private static final int SEARCH_LIMIT = 100;
 
 
 
@@ -79,7 +95,7 @@ public class ResourceServiceTest {
     void uploadsFileWhenTargetDirExists() {
         MultipartFile file = createTestFile(DIR_1 + FILE_NAME, TEXT);
 
-        resourceService.uploadResource(TEST_USER_ID, "", new MultipartFile[]{file}).get(0);
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, ""), new MultipartFile[]{file}).uploaded().get(0);
 
         List<Item> objects = s3Service.getObjectsInDirectory(BASE_PATH, true);
         assertThat(objects).anySatisfy(item -> {
@@ -87,6 +103,51 @@ public class ResourceServiceTest {
         });
     }
 
+    @Test
+    @DisplayName("Upload files creates all missing parent directories once")
+    void uploadFilesCreatesParentDirectories() {
+        MultipartFile[] files = {
+                createTestFile(DIR_1 + FILE_NAME, TEXT),
+                createTestFile(DIR_1 + DIR + FILE_NAME_2, TEXT_2),
+                createTestFile(DIR_1 + DIR + FILE_NAME_3, TEXT),
+        };
+
+        UploadResultDto result = resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, ""), files);
+
+        assertThat(result.failed()).isEmpty();
+        assertThat(result.uploaded()).hasSize(3);
+        assertThat(s3Service.checkExistObject(BASE_PATH + DIR_1)).isTrue();
+        assertThat(s3Service.checkExistObject(BASE_PATH + DIR_1 + DIR)).isTrue();
+        assertThat(resourceMetadataRepository.existsByUserIdAndPath(TEST_USER_ID, DIR_1 + DIR)).isTrue();
+        assertThat(s3Service.getObjectsInDirectory(BASE_PATH + DIR_1 + DIR, false)).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Streaming upload stores files and reports oversized ones")
+    void uploadResourceStream() {
+        String boundary = "test-boundary";
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"object\"; filename=\"" + DIR_1 + FILE_NAME + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + TEXT + "\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"object\"; filename=\"" + FILE_NAME_2 + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "x".repeat(11 * 1024 * 1024) + "\r\n"
+                + "--" + boundary + "--\r\n";
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/resource/stream");
+        request.setContentType("multipart/form-data; boundary=" + boundary);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+
+        UploadResultDto result = resourceService.uploadResourceStream(ResourcePath.of(TEST_USER_ID, ""), request);
+
+        assertThat(result.uploaded()).hasSize(1);
+        assertThat(result.uploaded().get(0).size()).isEqualTo(TEXT.length());
+        assertThat(result.failed()).extracting(UploadErrorDto::name).containsExactly(FILE_NAME_2);
+        assertThat(s3Service.checkExistObject(BASE_PATH + DIR_1 + FILE_NAME)).isTrue();
+        assertThat(s3Service.checkExistObject(BASE_PATH + FILE_NAME_2)).isFalse();
+    }
+
     @Test
     @DisplayName("Upload file to not-existing directory throws ResourceNotFoundException")
     void uploadResourceToNotExistingDirectory() {
@@ -96,7 +157,7 @@ public class ResourceServiceTest {
         };
 
         assertThrows(ResourceNotFoundException.class, () ->
-                resourceService.uploadResource(TEST_USER_ID, NOT_EXISTING_DIRECTORY, files)
+                resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, NOT_EXISTING_DIRECTORY), files)
         );
     }
 
@@ -109,7 +170,7 @@ public class ResourceServiceTest {
         };
 
         assertThrows(ResourceAlreadyExistException.class, () ->
-                resourceService.uploadResource(TEST_USER_ID, "", filesWithSameName)
+                resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, ""), filesWithSameName)
         );
     }
 
@@ -117,9 +178,9 @@ public class ResourceServiceTest {
     @DisplayName("Deleting file")
     void deleteFile_WhenFileExist() {
         MultipartFile file = createTestFile(DIR_1 + FILE_NAME, TEXT);
-        resourceService.uploadResource(TEST_USER_ID, "", new MultipartFile[]{file});
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, ""), new MultipartFile[]{file});
 
-        resourceService.deleteResource(TEST_USER_ID, DIR_1 + FILE_NAME);
+        resourceService.deleteResource(ResourcePath.of(TEST_USER_ID, DIR_1 + FILE_NAME));
 
         assertThat(s3Service.checkExistObject(BASE_PATH + DIR_1 + FILE_NAME)).isFalse();
     }
@@ -134,9 +195,9 @@ public class ResourceServiceTest {
                 createTestFile(DIR_1 + FILE_NAME_2, TEXT_2),
                 createTestFile(DIR_1 + FILE_NAME_3, TEXT_2),
         };
-        resourceService.uploadResource(TEST_USER_ID, DIR, files);
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR), files);
 
-        resourceService.deleteResource(TEST_USER_ID, DIR);
+        resourceService.deleteResource(ResourcePath.of(TEST_USER_ID, DIR));
 
         List<Item> foundFiles = s3Service.getObjectsInDirectory(BASE_PATH + DIR, true);
         assertThat(foundFiles).isEmpty();
@@ -146,7 +207,7 @@ public class ResourceServiceTest {
     @DisplayName("Deleting non-existing resource throws ResourceNotFoundException")
     void deleteNotExistingFile() {
         assertThrows(ResourceNotFoundException.class, () ->
-                resourceService.deleteResource(TEST_USER_ID, DIR_1 + DIR_2 + FILE_NAME));
+                resourceService.deleteResource(ResourcePath.of(TEST_USER_ID, DIR_1 + DIR_2 + FILE_NAME)));
     }
 
 
@@ -155,9 +216,9 @@ public class ResourceServiceTest {
     @DisplayName("Fetching Resource Info")
     void getResourceInfoTest() {
         MultipartFile file = createTestFile(DIR_1 + FILE_NAME, TEXT);
-        resourceService.uploadResource(TEST_USER_ID, "", new MultipartFile[]{file});
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, ""), new MultipartFile[]{file});
 
-        var resp = resourceService.getResourceInfo(TEST_USER_ID, DIR_1 + FILE_NAME);
+        var resp = resourceService.getResourceInfo(ResourcePath.of(TEST_USER_ID, DIR_1 + FILE_NAME));
 
         assertThat(resp).satisfies(r -> {
             assertThat(r.name()).isEqualTo(FILE_NAME);
@@ -169,7 +230,7 @@ public class ResourceServiceTest {
     @DisplayName("Fetching Resource Info not-existing file throws ResourceNotFoundException")
     void getResourceInfoTestNotExistingFile_ThrowsResourceNotFoundException() {
         assertThrows(ResourceNotFoundException.class, () ->
-                resourceService.getResourceInfo(TEST_USER_ID, DIR_1 + DIR_2 + FILE_NAME));
+                resourceService.getResourceInfo(ResourcePath.of(TEST_USER_ID, DIR_1 + DIR_2 + FILE_NAME)));
     }
 
 
@@ -187,9 +248,10 @@ public class ResourceServiceTest {
     @DisplayName("Download file with text")
     void downloadFileTest() {
         MultipartFile file = createTestFile(DIR_1 + FILE_NAME, TEXT);
-        resourceService.uploadResource(TEST_USER_ID, "", new MultipartFile[]{file});
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, ""), new MultipartFile[]{file});
 
-        DownloadResultDto downloadFile = resourceService.downloadResource(TEST_USER_ID, DIR_1 + FILE_NAME);
+        DownloadResultDto downloadFile = resourceService.downloadResource(ResourcePath.of(TEST_USER_ID, DIR_1 + FILE_NAME),
+                ArchiveMode.DEFLATE);
 
         assertThat(downloadFile).satisfies( f -> {
             assertThat(readBodyText(f.body())).isEqualTo(TEXT);
@@ -197,6 +259,21 @@ public class ResourceServiceTest {
         });
     }
 
+    @Test
+    @DisplayName("Download range of file with validators")
+    void downloadFileRange() {
+        MultipartFile file = createTestFile(DIR_1 + FILE_NAME, TEXT);
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, ""), new MultipartFile[]{file});
+
+        DownloadResultDto downloadFile = resourceService.downloadResource(ResourcePath.of(TEST_USER_ID, DIR_1 + FILE_NAME),
+                ArchiveMode.DEFLATE);
+
+        assertThat(downloadFile.contentLength()).isEqualTo(TEXT.length());
+        assertThat(downloadFile.etag()).startsWith("\"").endsWith("\"");
+        assertThat(downloadFile.lastModified()).isNotNull();
+        assertThat(readBodyText(downloadFile.ranges().range(1, 4))).isEqualTo(TEXT.substring(1, 5));
+    }
+
     @Test
     @DisplayName("Download directory with files")
     void downloadDirectoryWithFiles() {
@@ -207,18 +284,66 @@ public class ResourceServiceTest {
                 createTestFile(DIR_1 + FILE_NAME_2, TEXT_2),
                 createTestFile(DIR_1 + FILE_NAME_3, TEXT_2),
         };
-        resourceService.uploadResource(TEST_USER_ID, DIR, files);
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR), files);
+
+        DownloadResultDto dtoDir = resourceService.downloadResource(ResourcePath.of(TEST_USER_ID, DIR), ArchiveMode.DEFLATE);
+
+        assertThat(dtoDir.fileName()).isEqualTo("dir.zip");
+        assertThat(readZipEntries(dtoDir.body())).containsExactlyInAnyOrderEntriesOf(Map.of(
+                FILE_NAME, TEXT,
+                DIR_1 + FILE_NAME, TEXT_2,
+                DIR_1 + FILE_NAME_2, TEXT_2,
+                DIR_1 + FILE_NAME_3, TEXT_2));
+    }
+
+    @Test
+    @DisplayName("Download directory as stored zip with known length and ranges")
+    void downloadDirectoryStored() throws IOException {
+        s3Service.createEmptyDir(BASE_PATH + DIR);
+        MultipartFile[] files = {
+                createTestFile(FILE_NAME, TEXT),
+                createTestFile(DIR_1 + FILE_NAME, TEXT_2),
+        };
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR), files);
 
-        DownloadResultDto dtoDir = resourceService.downloadResource(TEST_USER_ID, DIR);
+        DownloadResultDto dtoDir = resourceService.downloadResource(ResourcePath.of(TEST_USER_ID, DIR), ArchiveMode.STORED);
+        ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        dtoDir.body().writeTo(whole);
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        dtoDir.ranges().range(10, 50).writeTo(range);
 
         assertThat(dtoDir.fileName()).isEqualTo("dir.zip");
+        assertThat(dtoDir.contentLength()).isEqualTo(whole.size());
+        assertThat(range.toByteArray()).isEqualTo(Arrays.copyOfRange(whole.toByteArray(), 10, 60));
+        assertThat(readZipEntries(dtoDir.body())).containsExactlyInAnyOrderEntriesOf(Map.of(
+                FILE_NAME, TEXT,
+                DIR_1 + FILE_NAME, TEXT_2));
+        assertThat(resourceService.downloadResource(ResourcePath.of(TEST_USER_ID, DIR), ArchiveMode.STORED).etag())
+                .isEqualTo(dtoDir.etag());
+    }
+
+    private static Map<String, String> readZipEntries(StreamingResponseBody body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Map<String, String> entries = new HashMap<>();
+        try {
+            body.writeTo(out);
+            try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+                ZipEntry entry;
+                while ((entry = zipIn.getNextEntry()) != null) {
+                    entries.put(entry.getName(), new String(zipIn.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries;
     }
 
     @Test
     @DisplayName("Download not-existing file throw ResourceNotFoundException")
     void downloadNotExistingFile_ThrowsResourceNotFoundException() {
         assertThrows(ResourceNotFoundException.class, () ->
-                resourceService.downloadResource(TEST_USER_ID, DIR_1 + DIR_2 + FILE_NAME));
+                resourceService.downloadResource(ResourcePath.of(TEST_USER_ID, DIR_1 + DIR_2 + FILE_NAME), ArchiveMode.DEFLATE));
     }
 
     @Test
@@ -227,9 +352,9 @@ public class ResourceServiceTest {
         s3Service.createEmptyDir(BASE_PATH + DIR_1);
         s3Service.createEmptyDir(BASE_PATH + DIR_2);
         MultipartFile file = createTestFile(FILE_NAME, TEXT);
-        resourceService.uploadResource(TEST_USER_ID, DIR_1, new MultipartFile[]{file});
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR_1), new MultipartFile[]{file});
 
-        resourceService.moveResource(TEST_USER_ID, DIR_1 + FILE_NAME, DIR_2 + FILE_NAME);
+        resourceService.moveResource(ResourcePath.of(TEST_USER_ID, DIR_1 + FILE_NAME), ResourcePath.of(TEST_USER_ID, DIR_2 + FILE_NAME));
 
         List<Item> objectsDir1 = s3Service.getObjectsInDirectory(BASE_PATH + DIR_1, true);
         List<Item> objectsDir2 = s3Service.getObjectsInDirectory(BASE_PATH + DIR_2, true);
@@ -247,11 +372,11 @@ public class ResourceServiceTest {
         s3Service.createEmptyDir(BASE_PATH + DIR_1);
         s3Service.createEmptyDir(BASE_PATH + DIR_2);
         MultipartFile file = createTestFile(FILE_NAME, TEXT);
-        resourceService.uploadResource(TEST_USER_ID, DIR_1, new MultipartFile[]{file});
-        resourceService.uploadResource(TEST_USER_ID, DIR_2, new MultipartFile[]{file});
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR_1), new MultipartFile[]{file});
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR_2), new MultipartFile[]{file});
 
         assertThrows(ResourceAlreadyExistException.class, () ->
-                resourceService.moveResource(TEST_USER_ID, DIR_1 + FILE_NAME, DIR_2 + FILE_NAME));
+                resourceService.moveResource(ResourcePath.of(TEST_USER_ID, DIR_1 + FILE_NAME), ResourcePath.of(TEST_USER_ID, DIR_2 + FILE_NAME)));
     }
 
     @Test
@@ -259,9 +384,42 @@ public class ResourceServiceTest {
     void moveNotExistingFile() {
         assertThrows(ResourceNotFoundException.class, () ->
                 resourceService.moveResource(
-                        TEST_USER_ID,
-                        NOT_EXISTING_DIRECTORY + FILE_NAME,
-                        DIR_2 + FILE_NAME));
+                        ResourcePath.of(TEST_USER_ID, NOT_EXISTING_DIRECTORY + FILE_NAME),
+                        ResourcePath.of(TEST_USER_ID, DIR_2 + FILE_NAME)));
+    }
+
+    @Test
+    @DisplayName("Move directory moves all nested files")
+    void moveDirectoryWithFiles() {
+        s3Service.createEmptyDir(BASE_PATH + DIR_1);
+        s3Service.createEmptyDir(BASE_PATH + DIR_1 + DIR);
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR_1), new MultipartFile[]{
+                createTestFile(FILE_NAME, TEXT),
+                createTestFile(FILE_NAME_2, TEXT_2)});
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR_1 + DIR), new MultipartFile[]{
+                createTestFile(FILE_NAME_3, TEXT)});
+
+        resourceService.moveResource(ResourcePath.of(TEST_USER_ID, DIR_1), ResourcePath.of(TEST_USER_ID, DIR_2));
+
+        assertThat(s3Service.checkExistObject(BASE_PATH + DIR_1)).isFalse();
+        assertThat(s3Service.getObjectsInDirectory(BASE_PATH + DIR_2, true))
+                .extracting(Item::objectName)
+                .containsExactlyInAnyOrder(
+                        BASE_PATH + DIR_2,
+                        BASE_PATH + DIR_2 + FILE_NAME,
+                        BASE_PATH + DIR_2 + FILE_NAME_2,
+                        BASE_PATH + DIR_2 + DIR,
+                        BASE_PATH + DIR_2 + DIR + FILE_NAME_3);
+    }
+
+    @Test
+    @DisplayName("Move directory into itself throws InvalidMoveException")
+    void moveDirectoryIntoItself() {
+        s3Service.createEmptyDir(BASE_PATH + DIR_1);
+
+        assertThrows(InvalidMoveException.class, () ->
+                resourceService.moveResource(ResourcePath.of(TEST_USER_ID, DIR_1), ResourcePath.of(TEST_USER_ID, DIR_1 + DIR_2)));
+        assertThat(s3Service.checkExistObject(BASE_PATH + DIR_1)).isTrue();
     }
 
     @Test
@@ -274,30 +432,53 @@ public class ResourceServiceTest {
                 createTestFile(DIR_1 + FILE_NAME_2, TEXT_2),
                 createTestFile(DIR_1 + FILE_NAME_3, TEXT_2),
         };
-        resourceService.uploadResource(TEST_USER_ID, "dir/", files);
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, "dir/"), files);
 
-        List<ResourceResponse> searchByFile = resourceService.searchResources(TEST_USER_ID, "file");
-        List<ResourceResponse> searchByDir = resourceService.searchResources(TEST_USER_ID, "dir");
-        List<ResourceResponse> searchByFile1 = resourceService.searchResources(TEST_USER_ID, "file1");
-        List<ResourceResponse> searchByFile100 = resourceService.searchResources(TEST_USER_ID, "file100");
+        List<ResourceResponse> searchByFile = resourceService.searchResources(TEST_USER_ID, "file", SEARCH_LIMIT, null).items();
+        List<ResourceResponse> searchByDir = resourceService.searchResources(TEST_USER_ID, "dir", SEARCH_LIMIT, null).items();
+        List<ResourceResponse> searchByFile1 = resourceService.searchResources(TEST_USER_ID, "file1", SEARCH_LIMIT, null).items();
+        List<ResourceResponse> searchByFile100 = resourceService.searchResources(TEST_USER_ID, "file100", SEARCH_LIMIT, null).items();
+        List<ResourceResponse> searchByUpperCase = resourceService.searchResources(TEST_USER_ID, "FILE", SEARCH_LIMIT, null).items();
 
         assertThat(searchByFile).hasSize(4);
         assertThat(searchByDir).hasSize(2);
         assertThat(searchByFile1).hasSize(1);
         assertThat(searchByFile100).isEmpty();
+        assertThat(searchByUpperCase).hasSize(4);
+    }
+
+    @Test
+    @DisplayName("Search results are paged with a cursor, prefix matches first")
+    void searchResourcesWithCursor() {
+        s3Service.createEmptyDir(BASE_PATH + DIR);
+        MultipartFile[] files = {
+                createTestFile(FILE_NAME, TEXT),
+                createTestFile("my_" + FILE_NAME, TEXT),
+                createTestFile(DIR_1 + FILE_NAME_2, TEXT_2),
+        };
+        resourceService.uploadResource(ResourcePath.of(TEST_USER_ID, DIR), files);
+
+        ResourcePageDto firstPage = resourceService.searchResources(TEST_USER_ID, "file", 2, null);
+        ResourcePageDto secondPage = resourceService.searchResources(TEST_USER_ID, "file", 2, firstPage.nextCursor());
+
+        assertThat(firstPage.items()).extracting(ResourceResponse::name).containsExactly(FILE_NAME_2, FILE_NAME);
+        assertThat(firstPage.nextCursor()).isNotNull();
+        assertThat(secondPage.items()).extracting(ResourceResponse::name).containsExactly("my_" + FILE_NAME);
+        assertThat(secondPage.nextCursor()).isNull();
     }
 
 
     @AfterEach
     void cleanUp() {
         log.info("=========>  CLEANUP");
-        List<DeleteObject> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
+        List<String> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
                 .stream()
                 .filter(item -> !item.objectName().equals(BASE_PATH))
-                .map(item -> new DeleteObject(item.objectName()))
+                .map(Item::objectName)
                 .toList();
         if (!objectsToDelete.isEmpty()) {
             s3Service.deleteObjects(objectsToDelete);
         }
+        resourceMetadataRepository.deleteAll();
     }
 }
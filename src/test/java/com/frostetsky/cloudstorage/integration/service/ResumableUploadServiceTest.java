@@ -0,0 +1,141 @@
+package com.frostetsky.cloudstorage.integration.service;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadSessionResponse;
+import com.frostetsky.cloudstorage.excepiton.InvalidUploadException;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.integration.config.TestConfig;
+import com.frostetsky.cloudstorage.repository.ResourceMetadataRepository;
+import com.frostetsky.cloudstorage.repository.UploadSessionRepository;
+import com.frostetsky.cloudstorage.service.ResumableUploadService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Testcontainers
+@SpringBootTest(classes = TestConfig.class)
+public class ResumableUploadServiceTest {
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+    @Autowired
+    private S3Service s3Service;
+    @Autowired
+    private ResourceMetadataRepository resourceMetadataRepository;
+    @Autowired
+    private StorageProperties storageProperties;
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    private static final Logger log = LoggerFactory.getLogger(ResumableUploadServiceTest.class);
+    private static final Long TEST_USER_ID = 30L;
+    private static final Long OTHER_USER_ID = 31L;
+    private static final String BASE_PATH = ResourcePathUtil.buildBasePath(TEST_USER_ID);
+    private static final String FILE_NAME = "big.bin";
+
+    @BeforeAll
+    static void setup(@Autowired S3Service s3Service) {
+        log.info("===== BEFORE_ALL =====");
+        try {
+            if (!s3Service.checkBaseBucketExists()) {
+                s3Service.createBaseBucket();
+            }
+            s3Service.createEmptyDir(BASE_PATH);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to setup bucket", e);
+        }
+    }
+
+    @BeforeEach
+    void logTestStart(TestInfo testInfo) {
+        log.info("==========>  STARTING TEST: {}", testInfo.getDisplayName());
+    }
+
+    @Test
+    @DisplayName("Parts sent out of order are assembled into one file")
+    void uploadPartsAndComplete() {
+        int chunkSize = (int) storageProperties.getResumableUpload().getChunkSize().toBytes();
+        long size = chunkSize + 10;
+        UploadSessionResponse session = resumableUploadService.createSession(TEST_USER_ID, FILE_NAME, size);
+
+        resumableUploadService.uploadPart(TEST_USER_ID, session.id(), 2, new ByteArrayInputStream(bytes(10)));
+        UploadSessionResponse state = resumableUploadService.uploadPart(TEST_USER_ID, session.id(), 1,
+                new ByteArrayInputStream(bytes(chunkSize)));
+        ResourceResponse resource = resumableUploadService.completeSession(TEST_USER_ID, session.id());
+
+        assertThat(session.partsCount()).isEqualTo(2);
+        assertThat(state.uploadedParts()).containsExactly(1, 2);
+        assertThat(resource.size()).isEqualTo(size);
+        assertThat(s3Service.getObjectInfo(BASE_PATH + FILE_NAME).size()).isEqualTo(size);
+        assertThat(resourceMetadataRepository.existsByUserIdAndPath(TEST_USER_ID, FILE_NAME)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Completing a session with missing parts throws InvalidUploadException")
+    void completeWithMissingParts() {
+        UploadSessionResponse session = resumableUploadService.createSession(TEST_USER_ID, FILE_NAME, 20);
+
+        assertThrows(InvalidUploadException.class, () ->
+                resumableUploadService.completeSession(TEST_USER_ID, session.id()));
+        assertThrows(InvalidUploadException.class, () ->
+                resumableUploadService.uploadPart(TEST_USER_ID, session.id(), 1, new ByteArrayInputStream(bytes(5))));
+    }
+
+    @Test
+    @DisplayName("Session of another user is not found, aborted session is gone")
+    void sessionIsScopedToUserAndAbortable() {
+        UploadSessionResponse session = resumableUploadService.createSession(TEST_USER_ID, FILE_NAME, 20);
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                resumableUploadService.getSession(OTHER_USER_ID, session.id()));
+
+        resumableUploadService.abortSession(TEST_USER_ID, session.id());
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                resumableUploadService.getSession(TEST_USER_ID, session.id()));
+    }
+
+    @Test
+    @DisplayName("Part finishing after its session was deleted does not bring the session back")
+    void partAfterDeleteIsNotRecorded() {
+        UploadSessionResponse session = resumableUploadService.createSession(TEST_USER_ID, FILE_NAME, 20);
+        uploadSessionRepository.delete(session.id());
+
+        assertThat(uploadSessionRepository.savePart(session.id(), TEST_USER_ID, 1, "etag")).isFalse();
+        assertThat(uploadSessionRepository.findById(session.id())).isEmpty();
+    }
+
+    private static byte[] bytes(int size) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) 'x');
+        return bytes;
+    }
+
+    @AfterEach
+    void cleanUp() {
+        log.info("=========>  CLEANUP");
+        List<String> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
+                .stream()
+                .filter(item -> !item.objectName().equals(BASE_PATH))
+                .map(Item::objectName)
+                .toList();
+        if (!objectsToDelete.isEmpty()) {
+            s3Service.deleteObjects(objectsToDelete);
+        }
+        resourceMetadataRepository.deleteAll();
+    }
+}
@@ -0,0 +1,144 @@
+package com.frostetsky.cloudstorage.integration.service;
+
+import com.frostetsky.cloudstorage.dto.StorageUsageResponse;
+import com.frostetsky.cloudstorage.excepiton.StorageQuotaExceededException;
+import com.frostetsky.cloudstorage.integration.config.TestConfig;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.repository.ResourceMetadataRepository;
+import com.frostetsky.cloudstorage.repository.UserStorageUsageRepository;
+import com.frostetsky.cloudstorage.service.ResourceIndexService;
+import com.frostetsky.cloudstorage.service.ResourceService;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.service.StorageUsageService;
+import com.frostetsky.cloudstorage.util.ResourcePathUtil;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.List;
+
+import static com.frostetsky.cloudstorage.integration.util.FileUtil.createTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Testcontainers
+@SpringBootTest(classes = TestConfig.class, properties = "app.storage.usage.quota=100B")
+public class StorageUsageServiceTest {
+
+    @Autowired
+    private StorageUsageService storageUsageService;
+    @Autowired
+    private ResourceService resourceService;
+    @Autowired
+    private ResourceIndexService resourceIndexService;
+    @Autowired
+    private S3Service s3Service;
+    @Autowired
+    private ResourceMetadataRepository resourceMetadataRepository;
+    @Autowired
+    private UserStorageUsageRepository userStorageUsageRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final Logger log = LoggerFactory.getLogger(StorageUsageServiceTest.class);
+    private static final Long TEST_USER_ID = 50L;
+    private static final String BASE_PATH = ResourcePathUtil.buildBasePath(TEST_USER_ID);
+    private static final String TEXT = "Hello Test";
+
+    @BeforeAll
+    static void setup(@Autowired S3Service s3Service) {
+        log.info("===== BEFORE_ALL =====");
+        try {
+            if (!s3Service.checkBaseBucketExists()) {
+                s3Service.createBaseBucket();
+            }
+            s3Service.createEmptyDir(BASE_PATH);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to setup bucket", e);
+        }
+    }
+
+    @BeforeEach
+    void logTestStart(TestInfo testInfo) {
+        log.info("==========>  STARTING TEST: {}", testInfo.getDisplayName());
+    }
+
+    @Test
+    @DisplayName("Upload, move and delete keep the usage totals")
+    void usageFollowsResourceChanges() {
+        resourceService.uploadResource(ResourcePath.root(TEST_USER_ID), new MultipartFile[]{
+                createTestFile("dir1/dir2/file.txt", TEXT),
+                createTestFile("dir1/file.txt", TEXT)});
+
+        assertThat(storageUsageService.getUsage(TEST_USER_ID))
+                .isEqualTo(new StorageUsageResponse(2L * TEXT.length(), 100L, 2, 2));
+
+        resourceService.moveResource(ResourcePath.of(TEST_USER_ID, "dir1/dir2/"), ResourcePath.of(TEST_USER_ID, "dir2/"));
+        assertThat(storageUsageService.getUsage(TEST_USER_ID))
+                .isEqualTo(new StorageUsageResponse(2L * TEXT.length(), 100L, 2, 2));
+
+        resourceService.deleteResource(ResourcePath.of(TEST_USER_ID, "dir1/"));
+        assertThat(storageUsageService.getUsage(TEST_USER_ID))
+                .isEqualTo(new StorageUsageResponse(TEXT.length(), 100L, 1, 1));
+    }
+
+    @Test
+    @DisplayName("Upload over the quota throws StorageQuotaExceededException and stores nothing")
+    void uploadOverQuota() {
+        MultipartFile file = createTestFile("big.txt", "x".repeat(101));
+
+        assertThrows(StorageQuotaExceededException.class, () ->
+                resourceService.uploadResource(ResourcePath.root(TEST_USER_ID), new MultipartFile[]{file}));
+        assertThat(s3Service.checkExistObject(BASE_PATH + "big.txt")).isFalse();
+        assertThat(storageUsageService.getUsage(TEST_USER_ID).usedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Reconciliation replaces drifted totals with ones computed from the index")
+    void reconcileFixesDrift() {
+        resourceService.uploadResource(ResourcePath.root(TEST_USER_ID), new MultipartFile[]{
+                createTestFile("dir1/file.txt", TEXT)});
+        transactionTemplate.executeWithoutResult(status ->
+                userStorageUsageRepository.addUsage(TEST_USER_ID, 1000, 5, 5, 0));
+
+        storageUsageService.reconcile();
+
+        assertThat(storageUsageService.getUsage(TEST_USER_ID))
+                .isEqualTo(new StorageUsageResponse(TEXT.length(), 100L, 1, 1));
+    }
+
+    @Test
+    @DisplayName("An index write that takes the totals past the quota is rolled back")
+    void indexWithinQuotaRollsBackWritePastQuota() {
+        storageUsageService.indexWithinQuota(TEST_USER_ID,
+                () -> resourceIndexService.indexFile(TEST_USER_ID, "a.txt", 60, "etag-a", Instant.now()));
+
+        assertThrows(StorageQuotaExceededException.class, () -> storageUsageService.indexWithinQuota(TEST_USER_ID,
+                () -> resourceIndexService.indexFile(TEST_USER_ID, "b.txt", 60, "etag-b", Instant.now())));
+
+        assertThat(storageUsageService.getUsage(TEST_USER_ID).usedBytes()).isEqualTo(60);
+        assertThat(resourceMetadataRepository.existsByUserIdAndPath(TEST_USER_ID, "b.txt")).isFalse();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        log.info("=========>  CLEANUP");
+        List<String> objectsToDelete = s3Service.getObjectsInDirectory(BASE_PATH, true)
+                .stream()
+                .filter(item -> !item.objectName().equals(BASE_PATH))
+                .map(Item::objectName)
+                .toList();
+        if (!objectsToDelete.isEmpty()) {
+            s3Service.deleteObjects(objectsToDelete);
+        }
+        resourceMetadataRepository.deleteAll();
+        userStorageUsageRepository.deleteAll();
+    }
+}
@@ -0,0 +1,79 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.service.impl.CachingS3Service;
+import com.frostetsky.cloudstorage.service.impl.MinioService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.StatObjectResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CachingS3ServiceTest {
+
+    private static final String PATH = "user-1-files/folder/file.txt";
+
+    private MinioService minioService;
+    private CachingS3Service cachingS3Service;
+
+    @BeforeEach
+    void setUp() {
+        minioService = mock(MinioService.class);
+        cachingS3Service = new CachingS3Service(minioService, new StorageProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testRepeatedChecksStatOnce() {
+        when(minioService.getObjectInfo(PATH)).thenReturn(mock(StatObjectResponse.class));
+
+        assertTrue(cachingS3Service.checkExistObject(PATH));
+        assertTrue(cachingS3Service.checkExistObject(PATH));
+        assertNotNull(cachingS3Service.getObjectInfo(PATH));
+
+        verify(minioService, times(1)).getObjectInfo(PATH);
+    }
+
+    @Test
+    void testMissingObjectIsCached() {
+        when(minioService.getObjectInfo(PATH)).thenThrow(new ResourceNotFoundException("Resource not found"));
+
+        assertFalse(cachingS3Service.checkExistObject(PATH));
+        assertThrows(ResourceNotFoundException.class, () -> cachingS3Service.getObjectInfo(PATH));
+
+        verify(minioService, times(1)).getObjectInfo(PATH);
+    }
+
+    @Test
+    void testWritesInvalidateCache() {
+        when(minioService.getObjectInfo(PATH)).thenThrow(new ResourceNotFoundException("Resource not found"));
+        assertFalse(cachingS3Service.checkExistObject(PATH));
+
+        doReturn(mock(StatObjectResponse.class)).when(minioService).getObjectInfo(PATH);
+        cachingS3Service.putObject(PATH, mock(MultipartFile.class));
+        assertTrue(cachingS3Service.checkExistObject(PATH));
+
+        doThrow(new ResourceNotFoundException("Resource not found")).when(minioService).getObjectInfo(PATH);
+        cachingS3Service.deleteObjects(List.of(PATH));
+        assertFalse(cachingS3Service.checkExistObject(PATH));
+
+        verify(minioService, times(3)).getObjectInfo(PATH);
+    }
+
+    @Test
+    void testEvictReloadsObjectWrittenPastService() {
+        when(minioService.getObjectInfo(PATH)).thenThrow(new ResourceNotFoundException("Resource not found"));
+        assertFalse(cachingS3Service.checkExistObject(PATH));
+
+        doReturn(mock(StatObjectResponse.class)).when(minioService).getObjectInfo(PATH);
+        cachingS3Service.evictObjectInfo(PATH);
+
+        assertTrue(cachingS3Service.checkExistObject(PATH));
+        verify(minioService, times(2)).getObjectInfo(PATH);
+    }
+}
@@ -0,0 +1,65 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.model.User;
+import com.frostetsky.cloudstorage.session.CompactSessionSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactSessionSerializerTest {
+
+    private final CompactSessionSerializer serializer = new CompactSessionSerializer();
+
+    @Test
+    void testSecurityContextKeepsOnlyIdAndUsername() {
+        SecurityContext context = securityContext(new User(7L, "user", "$2a$10$hash"));
+
+        byte[] bytes = serializer.serialize(context);
+        SecurityContext restored = (SecurityContext) serializer.deserialize(bytes);
+
+        CustomUserDetails details = (CustomUserDetails) restored.getAuthentication().getPrincipal();
+        assertTrue(restored.getAuthentication().isAuthenticated());
+        assertEquals(7L, details.getUser().getId());
+        assertEquals("user", details.getUsername());
+        assertNull(details.getPassword());
+        assertTrue(bytes.length < 32);
+    }
+
+    @Test
+    void testSessionMetadataKeepsTypes() {
+        assertEquals(1_700_000_000_000L, serializer.deserialize(serializer.serialize(1_700_000_000_000L)));
+        assertEquals(1800, serializer.deserialize(serializer.serialize(1800)));
+        assertEquals("значение", serializer.deserialize(serializer.serialize("значение")));
+        assertNull(serializer.deserialize(serializer.serialize(null)));
+    }
+
+    @Test
+    void testOtherValuesFallBackToJdkSerialization() {
+        List<String> value = List.of("a", "b");
+
+        assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+    }
+
+    @Test
+    void testReadsJdkSerializedSecurityContext() {
+        SecurityContext context = securityContext(new User(7L, "user", null));
+        byte[] bytes = new JdkSerializationRedisSerializer().serialize(context);
+
+        SecurityContext restored = (SecurityContext) serializer.deserialize(bytes);
+
+        assertEquals("user", restored.getAuthentication().getName());
+    }
+
+    private static SecurityContext securityContext(User user) {
+        CustomUserDetails details = new CustomUserDetails(user);
+        return new SecurityContextImpl(
+                UsernamePasswordAuthenticationToken.authenticated(details, null, details.getAuthorities()));
+    }
+}
@@ -0,0 +1,79 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.MinioServiceException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.service.impl.DirectoryDeleteEngine;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class DirectoryDeleteEngineTest {
+
+    private static final String PATH = "user-1-files/folder/";
+
+    private S3Service s3Service;
+    private DirectoryDeleteEngine directoryDeleteEngine;
+
+    @BeforeEach
+    void setUp() {
+        s3Service = mock(S3Service.class);
+        directoryDeleteEngine = new DirectoryDeleteEngine(s3Service, new StorageProperties(), Runnable::run);
+        List<Item> items = IntStream.range(0, 2500)
+                .mapToObj(i -> item(PATH + "file-" + i))
+                .toList();
+        when(s3Service.streamObjectsInDirectory(PATH, null, true)).thenAnswer(invocation -> items.stream());
+    }
+
+    @Test
+    void testDeletesInBatches() {
+        when(s3Service.tryDeleteObjects(anyList())).thenReturn(List.of());
+        AtomicLong progressObjects = new AtomicLong();
+        AtomicLong progressBytes = new AtomicLong();
+
+        DirectoryDeleteEngine.DeleteOutcome outcome = directoryDeleteEngine.deleteDirectory(PATH,
+                (objects, bytes) -> {
+                    progressObjects.addAndGet(objects);
+                    progressBytes.addAndGet(bytes);
+                });
+
+        assertTrue(outcome.isComplete());
+        assertEquals(2500, outcome.deletedCount());
+        assertEquals(2500, progressObjects.get());
+        assertEquals(2500 * 10, progressBytes.get());
+        verify(s3Service, times(3)).tryDeleteObjects(anyList());
+    }
+
+    @Test
+    void testFailuresDoNotStopOtherBatches() {
+        when(s3Service.tryDeleteObjects(anyList()))
+                .thenReturn(List.of(PATH + "file-5"))
+                .thenThrow(new MinioServiceException("Failed to delete objects"))
+                .thenReturn(List.of());
+
+        DirectoryDeleteEngine.DeleteOutcome outcome = directoryDeleteEngine.deleteDirectory(PATH, (objects, bytes) -> {
+        });
+
+        assertFalse(outcome.isComplete());
+        assertEquals(1499, outcome.deletedCount());
+        assertEquals(1001, outcome.failedCount());
+        assertEquals(100, outcome.failedKeys().size());
+        assertEquals(PATH + "file-5", outcome.failedKeys().get(0));
+        verify(s3Service, times(3)).tryDeleteObjects(anyList());
+    }
+
+    private static Item item(String objectName) {
+        Item item = mock(Item.class);
+        when(item.objectName()).thenReturn(objectName);
+        when(item.size()).thenReturn(10L);
+        return item;
+    }
+}
@@ -0,0 +1,122 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.dto.DownloadResultDto;
+import com.frostetsky.cloudstorage.util.DownloadResponseUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DownloadResponseUtilTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+    private static final String ETAG = "\"abc\"";
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-05-17T10:15:30Z");
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private DownloadResultDto download;
+
+    @BeforeEach
+    void setUp() {
+        request = new MockHttpServletRequest("GET", "/api/resource/download");
+        response = new MockHttpServletResponse();
+        DownloadResultDto.RangeWriter ranges = (start, count) -> outputStream ->
+                outputStream.write(CONTENT, (int) start, (int) count);
+        download = new DownloadResultDto("file.txt", ranges.range(0, CONTENT.length), (long) CONTENT.length,
+                ETAG, LAST_MODIFIED, ranges);
+    }
+
+    @Test
+    void testWholeContentWithValidators() throws IOException {
+        ResponseEntity<StreamingResponseBody> entity = toResponse();
+
+        assertEquals(HttpStatus.OK, entity.getStatusCode());
+        assertEquals(CONTENT.length, entity.getHeaders().getContentLength());
+        assertEquals("bytes", entity.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(CONTENT, write(entity.getBody()));
+    }
+
+    @Test
+    void testMatchingEtagIsNotModified() {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+
+        ResponseEntity<StreamingResponseBody> entity = toResponse();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, entity.getStatusCode());
+        assertNull(entity.getBody());
+    }
+
+    @Test
+    void testSingleRange() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+
+        ResponseEntity<StreamingResponseBody> entity = toResponse();
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, entity.getStatusCode());
+        assertEquals("bytes 5-9/20", entity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(5, entity.getHeaders().getContentLength());
+        assertArrayEquals(Arrays.copyOfRange(CONTENT, 5, 10), write(entity.getBody()));
+    }
+
+    @Test
+    void testMultipleRangesAreSentAsMultipart() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,-3");
+
+        ResponseEntity<StreamingResponseBody> entity = toResponse();
+        byte[] body = write(entity.getBody());
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, entity.getStatusCode());
+        String boundary = entity.getHeaders().getContentType().getParameter("boundary");
+        assertEquals("multipart", entity.getHeaders().getContentType().getType());
+        assertEquals(body.length, entity.getHeaders().getContentLength());
+        String text = new String(body, StandardCharsets.US_ASCII);
+        assertTrue(text.contains("Content-Range: bytes 0-1/20\r\n\r\n01\r\n--" + boundary));
+        assertTrue(text.endsWith("Content-Range: bytes 17-19/20\r\n\r\nhij\r\n--" + boundary + "--\r\n"));
+    }
+
+    @Test
+    void testUnsatisfiableRange() {
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+
+        ResponseEntity<StreamingResponseBody> entity = toResponse();
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, entity.getStatusCode());
+        assertEquals("bytes */20", entity.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testStaleIfRangeGivesWholeContent() throws IOException {
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+
+        ResponseEntity<StreamingResponseBody> entity = toResponse();
+
+        assertEquals(HttpStatus.OK, entity.getStatusCode());
+        assertArrayEquals(CONTENT, write(entity.getBody()));
+    }
+
+    private ResponseEntity<StreamingResponseBody> toResponse() {
+        return DownloadResponseUtil.toResponse(download, new ServletWebRequest(request, response));
+    }
+
+    private static byte[] write(StreamingResponseBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,90 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.constants.StorageProperties;
+import com.frostetsky.cloudstorage.excepiton.MinioServiceException;
+import com.frostetsky.cloudstorage.service.S3Service;
+import com.frostetsky.cloudstorage.service.impl.FileUploadEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class FileUploadEngineTest {
+
+    private static final String PATH = "user-1-files/folder/";
+
+    private S3Service s3Service;
+    private StorageProperties storageProperties;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        s3Service = mock(S3Service.class);
+        storageProperties = new StorageProperties();
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testFailedFileDoesNotAffectOthers() {
+        when(s3Service.putObject(eq(PATH + "b.txt"), any(MultipartFile.class)))
+                .thenThrow(new MinioServiceException("Failed to upload file"));
+        FileUploadEngine engine = new FileUploadEngine(s3Service, storageProperties, executor);
+
+        List<FileUploadEngine.UploadOutcome> outcomes = engine.upload(files("a.txt", "b.txt", "c.txt"));
+
+        assertEquals(List.of(PATH + "a.txt", PATH + "b.txt", PATH + "c.txt"),
+                outcomes.stream().map(FileUploadEngine.UploadOutcome::fullPath).toList());
+        assertTrue(outcomes.get(0).isSuccessful());
+        assertInstanceOf(MinioServiceException.class, outcomes.get(1).error());
+        assertTrue(outcomes.get(2).isSuccessful());
+        assertNotNull(outcomes.get(2).lastModified());
+        verify(s3Service, never()).getObjectInfo(anyString());
+    }
+
+    @Test
+    void testGlobalLimitBindsAcrossRequests() {
+        storageProperties.getUpload().setMaxConcurrent(2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(s3Service.putObject(anyString(), any(MultipartFile.class))).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return null;
+        });
+        FileUploadEngine engine = new FileUploadEngine(s3Service, storageProperties, executor);
+
+        CompletableFuture<?> first = CompletableFuture.runAsync(() -> engine.upload(files("a", "b", "c", "d")));
+        CompletableFuture<?> second = CompletableFuture.runAsync(() -> engine.upload(files("e", "f", "g", "h")));
+        CompletableFuture.allOf(first, second).join();
+
+        assertTrue(maxInFlight.get() <= 2);
+        verify(s3Service, times(8)).putObject(anyString(), any(MultipartFile.class));
+    }
+
+    private static Map<String, MultipartFile> files(String... names) {
+        Map<String, MultipartFile> files = new LinkedHashMap<>();
+        for (String name : names) {
+            files.put(PATH + name, new MockMultipartFile("object", name, "text/plain", new byte[]{1}));
+        }
+        return files;
+    }
+}
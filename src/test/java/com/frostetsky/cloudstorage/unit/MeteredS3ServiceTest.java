@@ -0,0 +1,122 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.excepiton.MinioServiceException;
+import com.frostetsky.cloudstorage.excepiton.ResourceNotFoundException;
+import com.frostetsky.cloudstorage.service.impl.MeteredS3Service;
+import com.frostetsky.cloudstorage.service.impl.MinioService;
+import com.frostetsky.cloudstorage.util.StorageCallContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MeteredS3ServiceTest {
+
+    private static final String PATH = "user-1-files/folder/file.txt";
+    private static final String ENDPOINT = "GET /api/resource/download";
+
+    private MinioService minioService;
+    private SimpleMeterRegistry meterRegistry;
+    private MeteredS3Service meteredS3Service;
+    private StorageCallContext context;
+
+    @BeforeEach
+    void setUp() {
+        minioService = mock(MinioService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        meteredS3Service = new MeteredS3Service(minioService, meterRegistry);
+        context = new StorageCallContext(ENDPOINT);
+        StorageCallContext.set(context);
+    }
+
+    @AfterEach
+    void tearDown() {
+        StorageCallContext.clear();
+    }
+
+    @Test
+    void testDownloadIsTimedAndBytesCounted() throws IOException {
+        when(minioService.downloadObject(PATH)).thenReturn(new ByteArrayInputStream(new byte[100]));
+
+        try (InputStream stream = meteredS3Service.downloadObject(PATH)) {
+            stream.readAllBytes();
+        }
+
+        assertEquals(1, meterRegistry.get("storage.requests")
+                .tags("operation", "getObject", "endpoint", ENDPOINT, "outcome", "success")
+                .timer().count());
+        assertEquals(100, meterRegistry.get("storage.bytes")
+                .tags("operation", "getObject", "endpoint", ENDPOINT)
+                .counter().count());
+        assertEquals(1, context.getCalls().get());
+    }
+
+    @Test
+    void testFailureIsCountedByErrorCode() {
+        ErrorResponse errorResponse = mock(ErrorResponse.class);
+        when(errorResponse.code()).thenReturn("SlowDown");
+        ErrorResponseException cause = mock(ErrorResponseException.class);
+        when(cause.errorResponse()).thenReturn(errorResponse);
+        when(minioService.copyObject(PATH, PATH + ".copy"))
+                .thenThrow(new MinioServiceException("Failed to copy object", cause));
+
+        assertThrows(MinioServiceException.class, () -> meteredS3Service.copyObject(PATH, PATH + ".copy"));
+
+        assertEquals(1, meterRegistry.get("storage.errors")
+                .tags("operation", "copyObject", "code", "SlowDown")
+                .counter().count());
+        assertEquals(1, meterRegistry.get("storage.requests")
+                .tags("operation", "copyObject", "outcome", "error")
+                .timer().count());
+    }
+
+    @Test
+    void testMissingObjectIsNotAnError() {
+        when(minioService.getObjectInfo(PATH)).thenThrow(new ResourceNotFoundException("Resource not found"));
+
+        assertThrows(ResourceNotFoundException.class, () -> meteredS3Service.getObjectInfo(PATH));
+
+        assertEquals(1, meterRegistry.get("storage.requests")
+                .tags("operation", "statObject", "outcome", "not_found")
+                .timer().count());
+        assertNull(meterRegistry.find("storage.errors").counter());
+    }
+
+    @Test
+    void testListingIsTimedOnceWhenClosed() {
+        when(minioService.streamObjectsInDirectory(PATH, null, true))
+                .thenReturn(Stream.of(mock(Item.class), mock(Item.class), mock(Item.class)));
+
+        try (Stream<Item> items = meteredS3Service.streamObjectsInDirectory(PATH, null, true)) {
+            assertEquals(2, items.limit(2).count());
+        }
+
+        assertEquals(2, meterRegistry.get("storage.objects.listed").tag("endpoint", ENDPOINT).counter().count());
+        assertEquals(1, meterRegistry.get("storage.requests")
+                .tags("operation", "listObjects", "outcome", "success")
+                .timer().count());
+    }
+
+    @Test
+    void testCallsOutsideRequestHaveNoEndpoint() {
+        StorageCallContext.clear();
+        when(minioService.checkExistObject(PATH)).thenReturn(true);
+
+        assertTrue(meteredS3Service.checkExistObject(PATH));
+
+        assertEquals(1, meterRegistry.get("storage.requests")
+                .tags("operation", "statObject", "endpoint", StorageCallContext.NO_ENDPOINT)
+                .timer().count());
+    }
+}
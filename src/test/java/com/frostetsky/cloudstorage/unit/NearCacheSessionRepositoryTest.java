@@ -0,0 +1,78 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.constants.SessionProperties;
+import com.frostetsky.cloudstorage.session.CompactSessionSerializer;
+import com.frostetsky.cloudstorage.session.NearCacheSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.session.data.redis.RedisSessionRepository;
+import org.springframework.session.data.redis.RedisSessionRepository.RedisSession;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NearCacheSessionRepositoryTest {
+
+    private static final String SESSION_ID = "session-id";
+
+    private RedisSessionRepository redisRepository;
+    private RedisSession redisSession;
+    private NearCacheSessionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        redisRepository = mock(RedisSessionRepository.class);
+        redisSession = mock(RedisSession.class);
+        when(redisSession.getId()).thenReturn(SESSION_ID);
+        when(redisSession.getCreationTime()).thenReturn(Instant.now());
+        when(redisSession.getLastAccessedTime()).thenReturn(Instant.now());
+        when(redisSession.getMaxInactiveInterval()).thenReturn(Duration.ofMinutes(30));
+        when(redisSession.getAttributeNames()).thenReturn(Set.of("name"));
+        when(redisSession.getAttribute("name")).thenReturn("value");
+        when(redisRepository.findById(SESSION_ID)).thenReturn(redisSession);
+        repository = new NearCacheSessionRepository(redisRepository, new CompactSessionSerializer(),
+                new SessionProperties.NearCache(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testRepeatedReadsLoadSessionOnce() {
+        repository.findById(SESSION_ID);
+        NearCacheSessionRepository.NearCacheSession cached = repository.findById(SESSION_ID);
+        cached.setLastAccessedTime(Instant.now());
+        repository.save(cached);
+
+        assertEquals("value", cached.getAttribute("name"));
+        verify(redisRepository, times(1)).findById(SESSION_ID);
+        verify(redisRepository, never()).save(any());
+    }
+
+    @Test
+    void testChangeOfCachedSessionIsWrittenToRedis() {
+        repository.findById(SESSION_ID);
+        NearCacheSessionRepository.NearCacheSession cached = repository.findById(SESSION_ID);
+
+        cached.setAttribute("name", "changed");
+        repository.save(cached);
+
+        verify(redisSession).setAttribute("name", "changed");
+        verify(redisRepository).save(redisSession);
+    }
+
+    @Test
+    void testKeyEventInvalidatesSession() {
+        repository.findById(SESSION_ID);
+
+        byte[] key = ("spring:session:sessions:" + SESSION_ID).getBytes(StandardCharsets.UTF_8);
+        repository.onMessage(new DefaultMessage("__keyevent@0__:del".getBytes(StandardCharsets.UTF_8), key), null);
+        repository.findById(SESSION_ID);
+
+        verify(redisRepository, times(2)).findById(SESSION_ID);
+    }
+}
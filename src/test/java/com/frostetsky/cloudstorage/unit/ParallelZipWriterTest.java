@@ -0,0 +1,106 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.util.zip.ParallelZipWriter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelZipWriterTest {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final ZonedDateTime LAST_MODIFIED = ZonedDateTime.parse("2024-05-17T10:15:30Z");
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void testArchiveIsReadableByStreamAndCentralDirectoryReaders() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("empty.txt", new byte[0]);
+        entries.put("small.txt", "Hello Test".getBytes(StandardCharsets.UTF_8));
+        entries.put("dir/multi-block.txt", compressibleBytes(5 * BLOCK_SIZE + 123));
+        entries.put("dir/random.bin", randomBytes(2 * BLOCK_SIZE + 7));
+        entries.put("папка/файл.txt", compressibleBytes(BLOCK_SIZE));
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, pool, BLOCK_SIZE, 3,
+                Deflater.DEFAULT_COMPRESSION)) {
+            int index = 0;
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                if (index++ % 2 == 0) {
+                    writer.putEntry(entry.getKey(), LAST_MODIFIED, entry.getValue());
+                } else {
+                    writer.putEntry(entry.getKey(), LAST_MODIFIED, new ByteArrayInputStream(entry.getValue()));
+                }
+            }
+        }
+
+        Map<String, byte[]> streamed = new LinkedHashMap<>();
+        try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zipIn.getNextEntry()) != null) {
+                streamed.put(entry.getName(), zipIn.readAllBytes());
+            }
+        }
+        assertEquals(entries.keySet(), streamed.keySet());
+        entries.forEach((name, content) -> assertArrayEquals(content, streamed.get(name), name));
+
+        Path file = tempDir.resolve("archive.zip");
+        Files.write(file, archive.toByteArray());
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                assertArrayEquals(entries.get(entry.getName()), zipFile.getInputStream(entry).readAllBytes());
+                assertEquals(entries.get(entry.getName()).length, entry.getSize());
+                assertEquals(LAST_MODIFIED.toLocalDateTime(), entry.getTimeLocal());
+            }
+            assertEquals(entries.size(), zipFile.size());
+        }
+    }
+
+    private static byte[] compressibleBytes(int size) {
+        byte[] pattern = "cloud storage zip block ".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = pattern[(i / 7) % pattern.length];
+        }
+        return bytes;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
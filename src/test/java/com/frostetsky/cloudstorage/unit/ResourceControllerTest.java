@@ -0,0 +1,64 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.controller.ResourceController;
+import com.frostetsky.cloudstorage.dto.ResourceResponse;
+import com.frostetsky.cloudstorage.dto.UploadErrorDto;
+import com.frostetsky.cloudstorage.dto.UploadResultDto;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import com.frostetsky.cloudstorage.model.User;
+import com.frostetsky.cloudstorage.service.ResourceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ResourceControllerTest {
+
+    private static final CustomUserDetails USER = new CustomUserDetails(new User(7L, "user", "$2a$10$hash"));
+    private static final MultipartFile[] FILES = {
+            new MockMultipartFile("object", "a.txt", "text/plain", new byte[]{1}),
+            new MockMultipartFile("object", "b.txt", "text/plain", new byte[]{1})
+    };
+    private static final ResourceResponse UPLOADED = new ResourceResponse("", "a.txt", 1L, "FILE");
+
+    private ResourceService resourceService;
+    private ResourceController resourceController;
+
+    @BeforeEach
+    void setUp() {
+        resourceService = mock(ResourceService.class);
+        resourceController = new ResourceController(resourceService);
+    }
+
+    @Test
+    void testPartialUploadRespondsWithMultiStatus() {
+        UploadResultDto result = new UploadResultDto(List.of(UPLOADED),
+                List.of(new UploadErrorDto("", "b.txt", "Не удалось загрузить файл")));
+        when(resourceService.uploadResource(any(ResourcePath.class), any())).thenReturn(result);
+
+        ResponseEntity<?> response = resourceController.uploadResource("", FILES, USER);
+
+        assertEquals(HttpStatus.MULTI_STATUS, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
+
+    @Test
+    void testCompleteUploadRespondsWithCreated() {
+        when(resourceService.uploadResource(any(ResourcePath.class), any()))
+                .thenReturn(new UploadResultDto(List.of(UPLOADED), List.of()));
+
+        ResponseEntity<?> response = resourceController.uploadResource("", FILES, USER);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(List.of(UPLOADED), response.getBody());
+    }
+}
@@ -0,0 +1,90 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.dto.ResourceType;
+import com.frostetsky.cloudstorage.model.ResourcePath;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourcePathTest {
+
+    @Test
+    void testOf() {
+        ResourcePath path = ResourcePath.of(1L, "folder/file.txt");
+
+        assertEquals(1L, path.getUserId());
+        assertEquals("folder/file.txt", path.getPath());
+        assertEquals("user-1-files/folder/file.txt", path.getFullPath());
+        assertEquals("user-1-files/", path.getBasePath());
+        assertEquals("file.txt", path.getName());
+        assertEquals("folder/", path.getParentPath());
+        assertEquals(ResourceType.FILE, path.getResourceType());
+        assertFalse(path.isRoot());
+    }
+
+    @Test
+    void testRoot() {
+        ResourcePath root = ResourcePath.root(1L);
+
+        assertTrue(root.isRoot());
+        assertTrue(root.isDirectory());
+        assertEquals("", root.getPath());
+        assertEquals("", root.getName());
+        assertEquals("", root.getParentPath());
+        assertEquals("user-1-files/", root.getFullPath());
+        assertEquals("folder.zip", root.getZipArchiveName());
+    }
+
+    @Test
+    void testParse() {
+        ResourcePath directory = ResourcePath.parse("user-12-files/a/b/");
+
+        assertEquals(12L, directory.getUserId());
+        assertEquals("a/b/", directory.getPath());
+        assertEquals("b/", directory.getName());
+        assertEquals("a/", directory.getParentPath());
+        assertEquals(ResourceType.DIRECTORY, directory.getResourceType());
+        assertEquals(ResourcePath.of(12L, "a/b/"), directory);
+    }
+
+    @Test
+    void testParseKeyWithoutUser() {
+        ResourcePath path = ResourcePath.parse("user-x-files/file.txt");
+
+        assertNull(path.getUserId());
+        assertEquals("user-x-files/file.txt", path.getPath());
+        assertEquals("file.txt", path.getName());
+        assertThrows(IllegalStateException.class, path::getFullPath);
+    }
+
+    @Test
+    void testParentAndResolve() {
+        ResourcePath directory = ResourcePath.of(1L, "a/b/");
+        ResourcePath file = directory.resolve("c/file.txt");
+
+        assertEquals("a/b/c/file.txt", file.getPath());
+        assertEquals("user-1-files/a/b/c/file.txt", file.getFullPath());
+        assertEquals(ResourcePath.of(1L, "a/b/c/"), file.getParent());
+        assertEquals(List.of("a/", "a/b/", "a/b/c/"), file.getParentPaths());
+        assertEquals(List.of(), ResourcePath.of(1L, "file.txt").getParentPaths());
+    }
+
+    @Test
+    void testStartsWith() {
+        ResourcePath directory = ResourcePath.of(1L, "a/");
+
+        assertTrue(ResourcePath.of(1L, "a/b/").startsWith(directory));
+        assertTrue(directory.startsWith(directory));
+        assertFalse(ResourcePath.of(1L, "ab/").startsWith(directory));
+        assertFalse(ResourcePath.of(2L, "a/b/").startsWith(directory));
+        assertFalse(ResourcePath.of(1L, "a/b").startsWith(ResourcePath.of(1L, "a")));
+    }
+
+    @Test
+    void testZipArchiveName() {
+        assertEquals("b.zip", ResourcePath.of(1L, "a/b/").getZipArchiveName());
+        assertThrows(IllegalArgumentException.class, () -> ResourcePath.of(1L, "a/file.txt").getZipArchiveName());
+    }
+}
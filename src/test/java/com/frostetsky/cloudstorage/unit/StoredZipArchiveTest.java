@@ -0,0 +1,159 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.frostetsky.cloudstorage.util.zip.StoredZipArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoredZipArchiveTest {
+
+    private static final ZonedDateTime LAST_MODIFIED = ZonedDateTime.parse("2024-05-17T10:15:30Z");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testArchiveLengthMatchesWrittenBytes() throws IOException {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("empty.txt", new byte[0]);
+        contents.put("small.txt", "Hello Test".getBytes(StandardCharsets.UTF_8));
+        contents.put("dir/random.bin", randomBytes(100_000));
+        contents.put("папка/файл.txt", randomBytes(777));
+        StoredZipArchive archive = new StoredZipArchive(toEntries(contents));
+
+        byte[] bytes = writeAll(archive, contents);
+
+        assertEquals(archive.length(), bytes.length);
+        Map<String, byte[]> streamed = new LinkedHashMap<>();
+        try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+            ZipEntry entry;
+            while ((entry = zipIn.getNextEntry()) != null) {
+                assertEquals(ZipEntry.STORED, entry.getMethod());
+                assertEquals(LAST_MODIFIED.toLocalDateTime(), entry.getTimeLocal());
+                streamed.put(entry.getName(), zipIn.readAllBytes());
+            }
+        }
+        assertEquals(contents.keySet(), streamed.keySet());
+        contents.forEach((name, content) -> assertArrayEquals(content, streamed.get(name), name));
+    }
+
+    @Test
+    void testAnyRangeEqualsSliceOfWholeArchive() throws IOException {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            contents.put("file-" + i + ".bin", randomBytes(1000 * i + 13));
+        }
+        StoredZipArchive archive = new StoredZipArchive(toEntries(contents));
+        byte[] whole = writeAll(archive, contents);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            int start = random.nextInt(whole.length);
+            int count = random.nextInt(whole.length - start + 1);
+            ByteArrayOutputStream range = new ByteArrayOutputStream();
+            archive.write(start, count, range, copyFrom(contents));
+            assertArrayEquals(Arrays.copyOfRange(whole, start, start + count), range.toByteArray(),
+                    "range " + start + "+" + count);
+        }
+    }
+
+    @Test
+    void testSameEntriesGiveSameFingerprint() {
+        Map<String, byte[]> contents = Map.of("a.txt", "a".getBytes(StandardCharsets.UTF_8));
+        Map<String, byte[]> changed = Map.of("a.txt", "b".getBytes(StandardCharsets.UTF_8));
+
+        String fingerprint = new StoredZipArchive(toEntries(contents)).fingerprint();
+
+        assertEquals(fingerprint, new StoredZipArchive(toEntries(contents)).fingerprint());
+        assertNotEquals(fingerprint, new StoredZipArchive(toEntries(changed)).fingerprint());
+    }
+
+    @Test
+    void testZip64EntriesAreReadableByCentralDirectoryReader() throws IOException {
+        long hugeSize = 0x1_0000_0000L + 1234;
+        byte[] small = "after the huge entry".getBytes(StandardCharsets.UTF_8);
+        List<StoredZipArchive.Entry> entries = List.of(
+                new StoredZipArchive.Entry("huge.bin", "huge.bin", hugeSize, 0, LAST_MODIFIED),
+                new StoredZipArchive.Entry("small.txt", "small.txt", small.length, crc(small), LAST_MODIFIED));
+        StoredZipArchive archive = new StoredZipArchive(entries);
+
+        // The huge entry is skipped in a sparse file, so only headers and the small entry hit the disk.
+        Path file = tempDir.resolve("archive.zip");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            OutputStream out = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    raf.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    raf.write(b, off, len);
+                }
+            };
+            archive.write(0, archive.length(), out, (entry, offset, count, target) -> {
+                if (entry.name().equals("huge.bin")) {
+                    raf.seek(raf.getFilePointer() + count);
+                } else {
+                    target.write(small, (int) offset, (int) count);
+                }
+            });
+            assertEquals(archive.length(), raf.length());
+        }
+
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            assertEquals(2, zipFile.size());
+            assertEquals(hugeSize, zipFile.getEntry("huge.bin").getSize());
+            assertArrayEquals(small, zipFile.getInputStream(zipFile.getEntry("small.txt")).readAllBytes());
+        }
+    }
+
+    private static byte[] writeAll(StoredZipArchive archive, Map<String, byte[]> contents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        archive.write(0, archive.length(), out, copyFrom(contents));
+        return out.toByteArray();
+    }
+
+    private static StoredZipArchive.ContentSource copyFrom(Map<String, byte[]> contents) {
+        return (entry, offset, count, out) -> out.write(contents.get(entry.source()), (int) offset, (int) count);
+    }
+
+    private static List<StoredZipArchive.Entry> toEntries(Map<String, byte[]> contents) {
+        List<StoredZipArchive.Entry> entries = new ArrayList<>();
+        contents.forEach((name, content) -> entries.add(
+                new StoredZipArchive.Entry(name, name, content.length, crc(content), LAST_MODIFIED)));
+        return entries;
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,134 @@
+package com.frostetsky.cloudstorage.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frostetsky.cloudstorage.constants.AuthProperties;
+import com.frostetsky.cloudstorage.dto.LoginUserResponse;
+import com.frostetsky.cloudstorage.excepiton.InvalidTokenException;
+import com.frostetsky.cloudstorage.model.CustomUserDetails;
+import com.frostetsky.cloudstorage.model.RevokedToken;
+import com.frostetsky.cloudstorage.model.User;
+import com.frostetsky.cloudstorage.repository.RevokedTokenRepository;
+import com.frostetsky.cloudstorage.service.impl.TokenServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class TokenServiceTest {
+
+    private static final String SECRET = "test-secret-of-at-least-32-bytes!";
+    private static final User USER = new User(7L, "user", "$2a$10$hash");
+
+    private RevokedTokenRepository revokedTokenRepository;
+    private AuthProperties authProperties;
+
+    @BeforeEach
+    void setUp() {
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        authProperties = new AuthProperties();
+        authProperties.getToken().setSecret(SECRET);
+    }
+
+    @Test
+    void testAccessTokenAuthenticatesUser() {
+        TokenServiceImpl tokenService = tokenService();
+        LoginUserResponse login = tokenService.issueTokens(new CustomUserDetails(USER));
+
+        Authentication authentication = tokenService.authenticate(login.accessToken());
+
+        CustomUserDetails details = (CustomUserDetails) authentication.getPrincipal();
+        assertEquals(7L, details.getUser().getId());
+        assertEquals("user", authentication.getName());
+        assertEquals(Duration.ofMinutes(15).toSeconds(), login.expiresIn());
+    }
+
+    @Test
+    void testRefreshTokenIssuesAccessTokenAndIsNotAccepted() {
+        TokenServiceImpl tokenService = tokenService();
+        LoginUserResponse login = tokenService.issueTokens(new CustomUserDetails(USER));
+
+        LoginUserResponse refreshed = tokenService.refresh(login.refreshToken());
+
+        assertNull(refreshed.refreshToken());
+        assertEquals("user", tokenService.authenticate(refreshed.accessToken()).getName());
+        assertThrows(InvalidTokenException.class, () -> tokenService.authenticate(login.refreshToken()));
+        assertThrows(InvalidTokenException.class, () -> tokenService.refresh(login.accessToken()));
+    }
+
+    @Test
+    void testTamperedAndForeignTokensAreRejected() {
+        TokenServiceImpl tokenService = tokenService();
+        String accessToken = tokenService.issueTokens(new CustomUserDetails(USER)).accessToken();
+        authProperties.getToken().setSecret(SECRET.replace('t', 'x'));
+        String foreignToken = tokenService().issueTokens(new CustomUserDetails(USER)).accessToken();
+        int signatureStart = accessToken.lastIndexOf('.') + 1;
+        char flipped = accessToken.charAt(signatureStart) == 'A' ? 'B' : 'A';
+        String tampered = accessToken.substring(0, signatureStart) + flipped + accessToken.substring(signatureStart + 1);
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.authenticate(tampered));
+        assertThrows(InvalidTokenException.class, () -> tokenService.authenticate(foreignToken));
+        assertThrows(InvalidTokenException.class, () -> tokenService.authenticate("not-a-token"));
+    }
+
+    @Test
+    void testExpiredAccessTokenIsRejected() {
+        authProperties.getToken().setAccessTtl(Duration.ZERO);
+        TokenServiceImpl tokenService = tokenService();
+        LoginUserResponse login = tokenService.issueTokens(new CustomUserDetails(USER));
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.authenticate(login.accessToken()));
+    }
+
+    @Test
+    void testRevokingAccessTokenRevokesWholeSignIn() {
+        TokenServiceImpl tokenService = tokenService();
+        LoginUserResponse login = tokenService.issueTokens(new CustomUserDetails(USER));
+        LoginUserResponse other = tokenService.issueTokens(new CustomUserDetails(USER));
+
+        tokenService.revoke(login.accessToken());
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.authenticate(login.accessToken()));
+        assertThrows(InvalidTokenException.class, () -> tokenService.refresh(login.refreshToken()));
+        assertNotNull(tokenService.authenticate(other.accessToken()));
+    }
+
+    @Test
+    void testRevocationsOfOtherNodesAreReloaded() {
+        TokenServiceImpl tokenService = tokenService();
+        TokenServiceImpl otherNode = tokenService();
+        LoginUserResponse login = tokenService.issueTokens(new CustomUserDetails(USER));
+        tokenService.revoke(login.refreshToken());
+        ArgumentCaptor<UUID> sessionId = ArgumentCaptor.forClass(UUID.class);
+        ArgumentCaptor<Instant> expiresAt = ArgumentCaptor.forClass(Instant.class);
+        verify(revokedTokenRepository).revoke(sessionId.capture(), expiresAt.capture());
+        when(revokedTokenRepository.findByExpiresAtAfter(any()))
+                .thenReturn(List.of(new RevokedToken(sessionId.getValue(), expiresAt.getValue())));
+
+        assertNotNull(otherNode.authenticate(login.accessToken()));
+        otherNode.reloadRevocations();
+
+        assertThrows(InvalidTokenException.class, () -> otherNode.authenticate(login.accessToken()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private TokenServiceImpl tokenService() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any(Consumer.class));
+        return new TokenServiceImpl(revokedTokenRepository, transactionTemplate, authProperties, new ObjectMapper());
+    }
+}